@@ -0,0 +1,42 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.bench.BenchData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Entity/DTO mapping of {@link ShipmentService}; lives in its package to reach the package-private mappers. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShipmentMappingBenchmark {
+
+  private final ShipmentService service = new ShipmentService(null, null, null, ShipmentCache.disabled(), null, null, ShipmentWriteBuffer.disabled(), 0);
+  private Shipment entity;
+  private ShipmentDto dto;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(11);
+    entity = BenchData.shipment(random, 1, BenchData.events("medium"));
+    dto = BenchData.dto(random, 2, BenchData.events("medium"));
+  }
+
+  @Benchmark
+  public ShipmentDto toDto() {
+    return service.toDto(entity);
+  }
+
+  @Benchmark
+  public Shipment mapDtoToEntity() {
+    Shipment target = new Shipment();
+    service.mapDtoToEntity(dto, target);
+    return target;
+  }
+}
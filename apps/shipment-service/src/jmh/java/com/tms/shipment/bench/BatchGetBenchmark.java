@@ -0,0 +1,103 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A detail view that needs {@code ids} shipments, over HTTP: that many sequential
+ * {@code GET /api/shipments/{id}}, the same concurrently, and one {@code POST /api/shipments/batch-get}.
+ * The cache is off so every id reaches the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchGetBenchmark {
+
+  private static final int ROWS = 5_000;
+
+  @Param({"10", "50", "200"})
+  public int ids;
+
+  private ConfigurableApplicationContext context;
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final Random random = new Random(42);
+  private String base;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .run(
+            "--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--shipments.cache.enabled=false",
+            "--logging.level.root=WARN");
+    FindAllFilteredBenchmark.seed(context.getBean(JdbcTemplate.class), ROWS, 1);
+    base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/shipments";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int sequentialGet() {
+    int n = 0;
+    for (String id : view()) n += get(id).join().body().length();
+    return n;
+  }
+
+  @Benchmark
+  public int concurrentGet() {
+    List<CompletableFuture<HttpResponse<String>>> responses = view().stream().map(this::get).collect(Collectors.toList());
+    int n = 0;
+    for (CompletableFuture<HttpResponse<String>> r : responses) n += r.join().body().length();
+    return n;
+  }
+
+  @Benchmark
+  public String batchGet() throws Exception {
+    String body = view().stream().map(id -> "\"" + id + "\"").collect(Collectors.joining(",", "[", "]"));
+    HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/batch-get"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return check(client.send(request, HttpResponse.BodyHandlers.ofString())).body();
+  }
+
+  /** Ids as {@link FindAllFilteredBenchmark#seed} makes them, drawn at random. */
+  private List<String> view() {
+    List<String> out = new ArrayList<>(ids);
+    for (int i = 0; i < ids; i++) out.add(String.format("00000000-0000-0000-0000-%012d", random.nextInt(ROWS)));
+    return out;
+  }
+
+  private CompletableFuture<HttpResponse<String>> get(String id) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/" + id)).build();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(BatchGetBenchmark::check);
+  }
+
+  private static HttpResponse<String> check(HttpResponse<String> response) {
+    if (response.statusCode() != 200) throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+    return response;
+  }
+}
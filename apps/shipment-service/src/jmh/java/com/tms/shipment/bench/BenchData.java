@@ -0,0 +1,94 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Deterministic fixtures shared by the benchmarks. */
+public final class BenchData {
+
+  static final String[] CITIES = {
+      "Chicago, IL", "Dallas, TX", "Los Angeles, CA", "Seattle, WA", "Atlanta, GA", "Miami, FL",
+      "Austin, TX", "Boston, MA", "Denver, CO", "Detroit, MI", "Phoenix, AZ", "Nashville, TN"
+  };
+  static final String[] STATUSES = {"pending", "in_transit", "delivered", "cancelled"};
+  private static final String[] EVENT_CODES = {"PU", "AR", "DP", "IT", "OFD", "DL"};
+
+  private BenchData() {
+  }
+
+  /** Tracking events per payload size name: small, medium, large. */
+  public static int events(String payload) {
+    switch (payload) {
+      case "small": return 3;
+      case "medium": return 25;
+      default: return 200;
+    }
+  }
+
+  /** A trackingData map shaped like the carrier feeds: current position, ETA and a scan history. */
+  public static Map<String, Object> trackingData(Random random, int events) {
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put("carrierRef", "CR-" + Long.toHexString(random.nextLong()));
+    Map<String, Object> position = new LinkedHashMap<>();
+    position.put("city", CITIES[random.nextInt(CITIES.length)]);
+    position.put("lat", 25 + random.nextDouble() * 20);
+    position.put("lng", -120 + random.nextDouble() * 45);
+    data.put("currentLocation", position);
+    data.put("eta", Instant.parse("2025-06-01T00:00:00Z").plusSeconds(random.nextInt(90 * 86_400)).toString());
+    List<Map<String, Object>> history = new ArrayList<>(events);
+    Instant at = Instant.parse("2025-05-01T00:00:00Z");
+    for (int i = 0; i < events; i++) {
+      at = at.plusSeconds(600 + random.nextInt(7_200));
+      Map<String, Object> event = new LinkedHashMap<>();
+      event.put("at", at.toString());
+      event.put("code", EVENT_CODES[random.nextInt(EVENT_CODES.length)]);
+      event.put("location", CITIES[random.nextInt(CITIES.length)]);
+      event.put("note", "Scanned at facility " + random.nextInt(500));
+      history.add(event);
+    }
+    data.put("events", history);
+    return data;
+  }
+
+  public static Shipment shipment(Random random, int i, int events) {
+    Shipment e = new Shipment();
+    e.setId(String.format("00000000-0000-0000-0000-%012d", i));
+    e.setShipperName("Shipper " + random.nextInt(300));
+    e.setCarrierName("Carrier " + random.nextInt(60));
+    e.setPickupLocation(CITIES[random.nextInt(CITIES.length)]);
+    e.setDeliveryLocation(CITIES[random.nextInt(CITIES.length)]);
+    e.setTrackingNumber("TRK" + (100_000_000 + i));
+    e.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+    e.setRate(BigDecimal.valueOf(5_000 + random.nextInt(500_000), 2));
+    e.setTrackingData(trackingData(random, events));
+    Instant created = Instant.parse("2025-01-01T00:00:00Z").plusSeconds(random.nextInt(180 * 86_400));
+    e.setCreatedAt(created);
+    e.setUpdatedAt(created.plusSeconds(random.nextInt(86_400)));
+    return e;
+  }
+
+  public static ShipmentDto dto(Random random, int i, int events) {
+    Shipment e = shipment(random, i, events);
+    ShipmentDto d = new ShipmentDto();
+    d.setId(e.getId());
+    d.setShipperName(e.getShipperName());
+    d.setCarrierName(e.getCarrierName());
+    d.setPickupLocation(e.getPickupLocation());
+    d.setDeliveryLocation(e.getDeliveryLocation());
+    d.setTrackingNumber(e.getTrackingNumber());
+    d.setStatus(e.getStatus());
+    d.setRate(e.getRate());
+    d.setTrackingData(e.getTrackingData());
+    d.setCreatedAt(e.getCreatedAt());
+    d.setUpdatedAt(e.getUpdatedAt());
+    return d;
+  }
+}
@@ -0,0 +1,88 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.models.BulkResult;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentBulkService;
+import com.tms.shipment.app.services.ShipmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest of {@code rows} shipments per operation through the per-row {@code POST /api/shipments}
+ * path ({@link ShipmentService#create}, one transaction each) against {@code POST /api/shipments/bulk}
+ * ({@link ShipmentBulkService#createAll}), on the in-memory H2 of the default profile. Rows/s is
+ * {@code rows} over the score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BulkIngestBenchmark {
+
+  @Param({"1000"})
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentService service;
+  private ShipmentBulkService bulkService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--logging.level.root=WARN");
+    service = context.getBean(ShipmentService.class);
+    bulkService = context.getBean(ShipmentBulkService.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int perRow() {
+    int created = 0;
+    for (ShipmentDto dto : payload(rows)) {
+      service.create(dto);
+      created++;
+    }
+    return created;
+  }
+
+  @Benchmark
+  public BulkResult bulk() {
+    return bulkService.createAll(payload(rows));
+  }
+
+  private static List<ShipmentDto> payload(int n) {
+    List<ShipmentDto> out = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      ShipmentDto d = new ShipmentDto();
+      d.setShipperName("Shipper " + (i % 200));
+      d.setCarrierName("Carrier " + (i % 50));
+      d.setPickupLocation("100 Warehouse Ave, Chicago, IL");
+      d.setDeliveryLocation("200 Commerce St, Dallas, TX");
+      d.setTrackingNumber("TRK" + i);
+      d.setStatus("in_transit");
+      d.setRate(new BigDecimal("1250.50"));
+      d.setTrackingData(Map.of("lastScan", "Chicago, IL", "events", List.of(Map.of("at", "2025-01-01T00:00:00Z", "code", "PU"))));
+      out.add(d);
+    }
+    return out;
+  }
+}
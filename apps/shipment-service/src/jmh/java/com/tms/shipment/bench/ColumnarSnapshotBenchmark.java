@@ -0,0 +1,170 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.SyntheticSeeder;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import com.tms.shipment.app.services.ShipmentArchive;
+import com.tms.shipment.app.services.ShipmentColumns;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Breakdowns and top-10 lanes over {@code rows} synthetic shipments (without tracking events), over all
+ * rows and filtered (delivered, created since 2025-07-01): from the {@link ShipmentColumns} snapshot
+ * with one scan thread ({@code columns}) and with {@code parallelism} ({@code columnsParallel}), and as
+ * the equivalent JPQL GROUP BY ({@code jpql}). Each trial also logs the retained heap after GC of the
+ * snapshot, of the same rows as managed {@link Shipment} entities, and as {@link ShipmentDto}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ColumnarSnapshotBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(ColumnarSnapshotBenchmark.class);
+  private static final Instant FROM = LocalDate.parse("2025-07-01").atStartOfDay(ZoneOffset.UTC).toInstant();
+  private static final String FILTERED = " WHERE s.status = 'delivered' AND s.createdAt >= :from";
+
+  @Param({"200000"})
+  public int rows;
+
+  @Param({"4"})
+  public int parallelism;
+
+  @Param({"status", "carrierName.filtered", "lanes", "lanes.filtered"})
+  public String query;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentColumns columns;
+  private ShipmentColumns parallel;
+  private EntityManager entityManager;
+  private TransactionTemplate readOnly;
+  private ShipmentFilter filter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            // a fresh file database: in-memory H2 hands out the very String instances it stores, which would
+            // hide the strings from the footprints; and without OPTIMIZE_REUSE_RESULTS H2 answers a repeated
+            // identical query from its last result while the table is unchanged
+            "--spring.datasource.url=jdbc:h2:file:./target/columnar-bench/" + UUID.randomUUID()
+                + ";DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=FALSE",
+            "--shipments.seed.mode=none",
+            "--shipments.seed.rows=" + rows,
+            "--shipments.seed.tracking-events=0",
+            "--shipments.seed.until=2026-01-01",
+            "--shipments.columnar.parallelism=1",
+            "--shipments.cache.enabled=false",
+            "--shipments.archive.enabled=false",
+            "--logging.level.root=WARN",
+            "--logging.level.com.tms.shipment.bench=INFO");
+    ShipmentRepository repository = context.getBean(ShipmentRepository.class);
+    PlatformTransactionManager txManager = context.getBean(PlatformTransactionManager.class);
+    columns = context.getBean(ShipmentColumns.class);
+    entityManager = context.getBean(EntityManager.class);
+    readOnly = new TransactionTemplate(txManager);
+    readOnly.setReadOnly(true);
+    // seeding bypasses the change events, so the snapshot built at startup stays empty until rebuilt
+    long seeded = context.getBean(SyntheticSeeder.class).seed();
+    logFootprints(repository, seeded);
+    parallel = new ShipmentColumns(repository, context.getBean(ShipmentArchive.class), txManager, true, parallelism);
+    parallel.rebuild();
+    filter = query.endsWith(".filtered")
+        ? ShipmentFilter.of("delivered", null, null).withCreatedRange(FROM, null)
+        : ShipmentFilter.of(null, null, null);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    parallel.close();
+    context.close();
+  }
+
+  @Benchmark
+  public Object columns() {
+    return snapshot(columns);
+  }
+
+  @Benchmark
+  public Object columnsParallel() {
+    return snapshot(parallel);
+  }
+
+  @Benchmark
+  public List<Object[]> jpql() {
+    String where = query.endsWith(".filtered") ? FILTERED : "";
+    return readOnly.execute(s -> {
+      if (query.startsWith("lanes")) {
+        return query("SELECT s.pickupLocation, s.deliveryLocation, COUNT(s), SUM(s.rate) FROM Shipment s" + where
+            + " GROUP BY s.pickupLocation, s.deliveryLocation ORDER BY COUNT(s) DESC, s.pickupLocation, s.deliveryLocation", where)
+            .setMaxResults(10).getResultList();
+      }
+      String column = "s." + query.replace(".filtered", "");
+      return query("SELECT " + column + ", COUNT(s), SUM(s.rate) FROM Shipment s" + where + " GROUP BY " + column, where)
+          .getResultList();
+    });
+  }
+
+  private Object snapshot(ShipmentColumns snapshot) {
+    return query.startsWith("lanes") ? snapshot.topLanes(filter, 10, "count") : snapshot.groupBy(query.replace(".filtered", ""), filter);
+  }
+
+  private TypedQuery<Object[]> query(String jpql, String where) {
+    TypedQuery<Object[]> q = entityManager.createQuery(jpql, Object[].class);
+    if (!where.isEmpty()) q.setParameter("from", FROM);
+    return q;
+  }
+
+  private void logFootprints(ShipmentRepository repository, long seeded) {
+    long before = usedHeap();
+    columns.rebuild();
+    long snapshot = usedHeap() - before;
+    Map<String, Object> described = columns.describe();
+    log.info("snapshot {} MB, {} bytes/row ({} ms to build; dictionaries {}; column arrays {} bytes)", mb(snapshot),
+        snapshot / seeded, described.get("buildMillis"), described.get("dictionaries"), described.get("columnBytes"));
+    readOnly.executeWithoutResult(s -> {
+      long start = usedHeap();
+      List<Shipment> entities = repository.findAll();
+      long held = usedHeap() - start;
+      log.info("entities {} MB, {} bytes/row (managed, with the persistence context's snapshots)", mb(held), held / entities.size());
+    });
+    long start = usedHeap();
+    List<ShipmentDto> dtos = readOnly.execute(s -> repository.findAll().stream().map(ShipmentDto::of).collect(Collectors.toList()));
+    long held = usedHeap() - start;
+    log.info("dtos {} MB, {} bytes/row", mb(held), held / dtos.size());
+  }
+
+  private static String mb(long bytes) {
+    return String.format("%.1f", bytes / 1e6);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,110 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.models.JsonMapConverter;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import com.tms.shipment.app.services.ShipmentNameIndex;
+import com.tms.shipment.app.services.ShipmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of {@code findAllFiltered} (rows + COUNT) against H2 seeded with {@code rows} shipments, for
+ * every filter combination and sort column, with the name filters resolved the way
+ * {@link ShipmentService#list} resolves them. The full matrix is long; narrow it with {@code -p}, e.g.
+ * {@code -Djmh.args="FindAllFiltered -p rows=100000 -p sortBy=createdAt"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class FindAllFilteredBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"none", "status", "shipper", "carrier", "status+shipper", "status+carrier", "shipper+carrier", "all"})
+  public String filter;
+
+  @Param({"createdAt", "updatedAt", "shipperName", "carrierName", "status", "rate", "trackingNumber"})
+  public String sortBy;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentRepository repository;
+  private ShipmentService service;
+  private Pageable page;
+  private String status;
+  private String shipperName;
+  private String carrierName;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "logging.level.root=WARN")
+        .run();
+    repository = context.getBean(ShipmentRepository.class);
+    service = context.getBean(ShipmentService.class);
+    seed(context.getBean(JdbcTemplate.class), rows);
+    context.getBean(ShipmentNameIndex.class).build();
+
+    status = filter.contains("status") || filter.equals("all") ? "in_transit" : null;
+    shipperName = filter.contains("shipper") || filter.equals("all") ? "pper 12" : null;
+    carrierName = filter.contains("carrier") || filter.equals("all") ? "rier 7" : null;
+    page = PageRequest.of(0, 10, Sort.by(sortBy).descending());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<Shipment> firstPage() {
+    ShipmentFilter f = service.resolveFilter(status, shipperName, carrierName);
+    return repository.findAllFiltered(f, page);
+  }
+
+  static void seed(JdbcTemplate jdbc, int rows) {
+    seed(jdbc, rows, 3);
+  }
+
+  static void seed(JdbcTemplate jdbc, int rows, int trackingEvents) {
+    String sql = "INSERT INTO shipments (id, shipper_name, carrier_name, pickup_location, delivery_location, "
+        + "tracking_number, status, rate, tracking_data, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    JsonMapConverter json = new JsonMapConverter();
+    Random random = new Random(1);
+    List<Object[]> batch = new ArrayList<>(5_000);
+    for (int i = 0; i < rows; i++) {
+      Shipment e = BenchData.shipment(random, i, trackingEvents);
+      batch.add(new Object[] {e.getId(), e.getShipperName(), e.getCarrierName(), e.getPickupLocation(),
+          e.getDeliveryLocation(), e.getTrackingNumber(), e.getStatus(), e.getRate(),
+          json.convertToDatabaseColumn(e.getTrackingData()),
+          Timestamp.from(e.getCreatedAt()), Timestamp.from(e.getUpdatedAt())});
+      if (batch.size() == 5_000) {
+        jdbc.batchUpdate(sql, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) jdbc.batchUpdate(sql, batch);
+  }
+}
@@ -0,0 +1,41 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.app.models.JsonMapConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** trackingData column conversion in both directions, for small / medium / large scan histories. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonMapConverterBenchmark {
+
+  @Param({"small", "medium", "large"})
+  public String payload;
+
+  private final JsonMapConverter converter = new JsonMapConverter();
+  private Map<String, Object> map;
+  private String json;
+
+  @Setup
+  public void setUp() {
+    map = BenchData.trackingData(new Random(7), BenchData.events(payload));
+    json = converter.convertToDatabaseColumn(map);
+  }
+
+  @Benchmark
+  public String serialize() {
+    return converter.convertToDatabaseColumn(map);
+  }
+
+  @Benchmark
+  public Map<String, Object> deserialize() {
+    return converter.convertToEntityAttribute(json);
+  }
+}
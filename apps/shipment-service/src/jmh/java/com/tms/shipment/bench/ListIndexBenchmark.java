@@ -0,0 +1,217 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.SyntheticSeeder;
+import com.tms.shipment.app.models.ShipmentCursor;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The list queries against the file-backed {@code prod} profile at {@code rows} rows, with the baseline
+ * schema ({@code indexes=V1}: only the single-column name indexes) and with the composite indexes of
+ * {@code V2__list_indexes.sql} ({@code V2}), for each filter / sort {@code shape}: a first offset page
+ * (rows + COUNT) and a keyset page {@value #KEYSET_DEPTH} rows in. The H2 plan of each shape (index
+ * used, and whether rows come out of it in order or are sorted) is logged once per trial.
+ *
+ * <p>The database is kept in {@code target/list-index-bench}, so later trials with the same row count
+ * skip seeding. Without the indexes every query sorts the table on disk; narrow the matrix, e.g.
+ * {@code -Djmh.args="ListIndex -p indexes=V2 -p shape=status.createdAt"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ListIndexBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(ListIndexBenchmark.class);
+  private static final int PAGE = 20;
+  private static final int KEYSET_DEPTH = 10_000;
+  private static final String V2 = "db/migration/h2/V2__list_indexes.sql";
+  private static final Pattern PLAN_INDEX = Pattern.compile("/\\* ([^*]+) \\*/");
+  private static final String SELECT = "SELECT id, shipper_name, carrier_name, pickup_location, delivery_location, "
+      + "tracking_number, status, rate, created_at, updated_at, version FROM shipments ";
+
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({"V1", "V2"})
+  public String indexes;
+
+  @Param({"createdAt", "rate", "status.createdAt", "status.updatedAt", "status.rate", "shipper.createdAt",
+      "carrier.createdAt", "status+shipper.createdAt", "createdAt.asc"})
+  public String shape;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentRepository repository;
+  private ShipmentFilter filter;
+  private String sortBy;
+  private boolean ascending;
+  private ShipmentCursor cursor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .profiles("prod")
+        .run(
+            "--shipments.data-dir=./target/list-index-bench",
+            "--shipments.seed.mode=none",
+            "--shipments.seed.rows=" + rows,
+            "--shipments.seed.tracking-events=0",
+            "--shipments.seed.until=2026-01-01",
+            "--shipments.cache.enabled=false",
+            // the seeded rows are months old; the benchmark measures the hot table only
+            "--shipments.archive.enabled=false",
+            // H2 otherwise answers a repeated identical query from its last result while the table is unchanged
+            "--spring.datasource.url=jdbc:h2:file:${shipments.data-dir}/shipments;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=FALSE",
+            "--logging.level.root=WARN",
+            "--logging.level.com.tms.shipment.bench=INFO");
+    repository = context.getBean(ShipmentRepository.class);
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+    String v2 = StreamUtils.copyToString(new ClassPathResource(V2).getInputStream(), StandardCharsets.UTF_8);
+    List<String> compositeIndexes = new ArrayList<>();
+    Matcher m = Pattern.compile("create index (\\w+)").matcher(v2);
+    while (m.find()) compositeIndexes.add(m.group(1));
+
+    if (jdbc.queryForObject("SELECT COUNT(*) FROM shipments", Long.class) != rows) {
+      // seed on the V1 schema; the composite indexes are built afterwards, as V2 does on an existing table
+      baseline(jdbc, compositeIndexes);
+      // tracking_events rows go with them (on delete cascade); TRUNCATE is refused on a referenced table
+      jdbc.execute("DELETE FROM shipments");
+      context.getBean(SyntheticSeeder.class).seed();
+    }
+    String sql = shape(jdbc);
+    // the cursor is taken with the composite indexes in place; a deep OFFSET without them is a sort of the table
+    migrate(jdbc, compositeIndexes, v2);
+    cursor = cursorAt();
+    if (indexes.equals("V1")) {
+      baseline(jdbc, compositeIndexes);
+      jdbc.execute("ANALYZE");
+    }
+    log.info("{} {}: {}", indexes, shape, plan(jdbc, sql));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<ShipmentDto> firstPage() {
+    return repository.findSummaries(filter, PageRequest.of(0, PAGE, sort()));
+  }
+
+  @Benchmark
+  public Slice<ShipmentDto> keysetPage() {
+    return repository.findSummarySliceAfter(filter, sortBy, ascending, cursor, PAGE);
+  }
+
+  /** Sets the filter and sort of {@link #shape}; returns the SQL the repository generates for its first page. */
+  private String shape(JdbcTemplate jdbc) {
+    String[] parts = shape.split("\\.");
+    String where = parts.length > 1 && !parts[1].equals("asc") ? parts[0] : "";
+    sortBy = where.isEmpty() ? parts[0] : parts[1];
+    ascending = shape.endsWith(".asc");
+    String shipper = where.contains("shipper") ? mostFrequent(jdbc, "shipper_name") : null;
+    String carrier = where.contains("carrier") ? mostFrequent(jdbc, "carrier_name") : null;
+    String status = where.contains("status") ? statusFor(sortBy) : null;
+    filter = ShipmentFilter.of(status, shipper == null ? null : "x", carrier == null ? null : "x");
+    if (shipper != null) filter = filter.withShipperNames(Set.of(shipper));
+    if (carrier != null) filter = filter.withCarrierNames(Set.of(carrier));
+
+    List<String> conditions = new ArrayList<>();
+    List<String> order = new ArrayList<>();
+    if (status != null) conditions.add("status = '" + status + "'");
+    if (shipper != null) conditions.add("shipper_name = '" + shipper + "'");
+    if (carrier != null) conditions.add("carrier_name = '" + carrier + "'");
+    // the leading equality column of the composite index, as the repository orders by it
+    if (shipper != null) order.add("shipper_name");
+    else if (carrier != null) order.add("carrier_name");
+    else if (status != null) order.add("status");
+    String column = sortBy.equals("createdAt") ? "created_at" : sortBy.equals("updatedAt") ? "updated_at" : "rate";
+    String direction = ascending ? "" : " DESC";
+    order.add(column + direction);
+    order.add("id" + direction);
+    return SELECT + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ")
+        + "ORDER BY " + String.join(", ", order);
+  }
+
+  private static String statusFor(String sortBy) {
+    switch (sortBy) {
+      case "updatedAt": return "in_transit";
+      case "rate": return "delivered";
+      default: return "pending";
+    }
+  }
+
+  private Sort sort() {
+    return Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
+  }
+
+  /** Back to the V1 indexes. */
+  private static void baseline(JdbcTemplate jdbc, List<String> compositeIndexes) {
+    for (String index : compositeIndexes) jdbc.execute("DROP INDEX IF EXISTS " + index);
+    jdbc.execute("CREATE INDEX IF NOT EXISTS idx_shipments_shipper_name ON shipments (shipper_name)");
+    jdbc.execute("CREATE INDEX IF NOT EXISTS idx_shipments_carrier_name ON shipments (carrier_name)");
+  }
+
+  /** V1, then V2 exactly as Flyway runs it. */
+  private static void migrate(JdbcTemplate jdbc, List<String> compositeIndexes, String v2) {
+    baseline(jdbc, compositeIndexes);
+    for (String statement : v2.replaceAll("(?m)^--.*$", "").split(";")) {
+      if (!statement.isBlank()) jdbc.execute(statement);
+    }
+    jdbc.execute("ANALYZE");
+  }
+
+  /** The cursor of the row {@value #KEYSET_DEPTH} rows into the shape's order. */
+  private ShipmentCursor cursorAt() {
+    ShipmentDto row = repository.findSummaries(filter, PageRequest.of(KEYSET_DEPTH, 1, sort())).getContent().get(0);
+    String value;
+    switch (sortBy) {
+      case "createdAt": value = row.getCreatedAt().toString(); break;
+      case "updatedAt": value = row.getUpdatedAt().toString(); break;
+      case "rate": value = row.getRate().toPlainString(); break;
+      default: throw new IllegalArgumentException(sortBy);
+    }
+    return new ShipmentCursor(sortBy, ascending, value, row.getId());
+  }
+
+  /** The index comment of H2's plan, and whether the ORDER BY is answered by it or by a sort. */
+  private static String plan(JdbcTemplate jdbc, String sql) {
+    String plan = jdbc.queryForObject("EXPLAIN " + sql + " FETCH FIRST " + PAGE + " ROWS ONLY", String.class);
+    Matcher m = PLAN_INDEX.matcher(plan);
+    String index = m.find() ? m.group(1).replace("PUBLIC.", "") : "?";
+    return index + (plan.contains("/* index sorted */") ? "  [index sorted]" : "  [sort]");
+  }
+
+  private static String mostFrequent(JdbcTemplate jdbc, String column) {
+    return jdbc.queryForObject("SELECT " + column + " FROM shipments GROUP BY " + column
+        + " ORDER BY COUNT(*) DESC FETCH FIRST 1 ROWS ONLY", String.class);
+  }
+}
@@ -0,0 +1,74 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /api/shipments} at the service layer: summary rows (scalar columns via a constructor
+ * expression) against full rows ({@code fields=trackingData}: entities, CLOB read and JSON parse
+ * per row). Add {@code -prof gc} to compare allocation per page, e.g.
+ * {@code -Djmh.args="ListProjection -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ListProjectionBenchmark {
+
+  @Param({"100000"})
+  public int rows;
+
+  @Param({"3", "25"})
+  public int trackingEvents;
+
+  @Param({"20", "100"})
+  public int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentService service;
+  private int call;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "shipments.seed.mode=none",
+            "logging.level.root=WARN")
+        .run();
+    service = context.getBean(ShipmentService.class);
+    FindAllFilteredBenchmark.seed(context.getBean(JdbcTemplate.class), rows, trackingEvents);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<ShipmentDto> summary() {
+    return service.list("in_transit", null, null, nextPage(), pageSize, "createdAt", "desc", null);
+  }
+
+  @Benchmark
+  public Page<ShipmentDto> withTrackingData() {
+    return service.list("in_transit", null, null, nextPage(), pageSize, "createdAt", "desc", "trackingData");
+  }
+
+  // H2 hands back the cached result when the same statement runs again with the same parameters
+  private int nextPage() {
+    return call++ % 10;
+  }
+}
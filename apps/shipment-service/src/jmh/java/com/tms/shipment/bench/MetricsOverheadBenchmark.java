@@ -0,0 +1,81 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a read mix over HTTP from four clients (70% by id, 20% first list page, 10% one
+ * appended tracking event) with the instrumentation on or off: {@code metrics=false} turns off the
+ * JDBC wrapper and the per-request query filter and denies every meter, so timers and counters are
+ * no-ops. The cache is off so each request reaches the database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+  private static final int ROWS = 2_000;
+
+  @Param({"true", "false"})
+  public boolean metrics;
+
+  private ConfigurableApplicationContext context;
+  private final HttpClient client = HttpClient.newHttpClient();
+  private String base;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .run(
+            "--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--shipments.cache.enabled=false",
+            "--shipments.metrics.jdbc=" + metrics,
+            "--management.metrics.enable.all=" + metrics,
+            "--logging.level.root=WARN");
+    FindAllFilteredBenchmark.seed(context.getBean(JdbcTemplate.class), ROWS, 1);
+    base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/shipments";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int mix() throws Exception {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String id = String.format("00000000-0000-0000-0000-%012d", random.nextInt(ROWS));
+    int pick = random.nextInt(10);
+    HttpRequest request;
+    if (pick < 7) {
+      request = HttpRequest.newBuilder(URI.create(base + "/" + id)).build();
+    } else if (pick < 9) {
+      request = HttpRequest.newBuilder(URI.create(base + "?size=20")).build();
+    } else {
+      request = HttpRequest.newBuilder(URI.create(base + "/" + id + "/events"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString("{\"code\":\"IT\",\"location\":\"Memphis\"}"))
+          .build();
+    }
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() >= 300) throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+    return response.body().length();
+  }
+}
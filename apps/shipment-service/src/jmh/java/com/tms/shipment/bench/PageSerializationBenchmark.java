@@ -0,0 +1,48 @@
+package com.tms.shipment.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tms.shipment.app.models.ShipmentDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** JSON encoding of the {@code GET /api/shipments} response body, configured like Spring Boot's mapper. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageSerializationBenchmark {
+
+  @Param({"10", "50", "100"})
+  public int pageSize;
+
+  @Param({"small", "medium"})
+  public String payload;
+
+  private ObjectMapper mapper;
+  private Page<ShipmentDto> page;
+
+  @Setup
+  public void setUp() {
+    mapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    Random random = new Random(3);
+    List<ShipmentDto> content = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) content.add(BenchData.dto(random, i, BenchData.events(payload)));
+    page = new PageImpl<>(content, PageRequest.of(0, pageSize), 1_000_000);
+  }
+
+  @Benchmark
+  public byte[] serializePage() throws Exception {
+    return mapper.writeValueAsBytes(page);
+  }
+}
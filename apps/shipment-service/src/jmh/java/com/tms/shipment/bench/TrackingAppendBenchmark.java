@@ -0,0 +1,111 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.TrackingEventDto;
+import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.TrackingEventService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One more tracking scan on a shipment that already has {@code history} of them: the read-modify-write
+ * PATCH of the whole trackingData map ({@code patch}) against {@code POST /{id}/events}
+ * ({@code append}). Every scan lengthens the history, so each iteration starts from fresh shipments
+ * and times a batch of {@value #BATCH} scans; divide the score by it for the time per scan.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = TrackingAppendBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = TrackingAppendBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingAppendBenchmark {
+
+  static final int BATCH = 200;
+
+  @Param({"10", "100", "1000", "5000"})
+  public int history;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentService shipmentService;
+  private TrackingEventService trackingService;
+  private String patched;
+  private String appended;
+  private int scans;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--logging.level.root=WARN");
+    shipmentService = context.getBean(ShipmentService.class);
+    trackingService = context.getBean(TrackingEventService.class);
+  }
+
+  /** One shipment with the history in its stored map, one with it in the log. */
+  @Setup(Level.Iteration)
+  public void freshShipments() {
+    patched = shipmentService.create(shipment(history)).getId();
+    appended = shipmentService.create(shipment(0)).getId();
+    List<Map<String, Object>> log = new ArrayList<>();
+    for (int i = 0; i < history; i++) log.add(scan(i));
+    if (!log.isEmpty()) trackingService.append(appended, log);
+    scans = history;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<ShipmentDto> patch() {
+    Map<String, Object> tracking = new LinkedHashMap<>(shipmentService.getById(patched).orElseThrow().getTrackingData());
+    List<Object> events = new ArrayList<>((List<?>) tracking.get("events"));
+    events.add(scan(scans++));
+    tracking.put("events", events);
+    ShipmentDto patch = new ShipmentDto();
+    patch.setTrackingData(tracking);
+    return shipmentService.update(patched, patch);
+  }
+
+  @Benchmark
+  public Optional<List<TrackingEventDto>> append() {
+    return trackingService.append(appended, scan(scans++));
+  }
+
+  private static ShipmentDto shipment(int history) {
+    List<Object> events = new ArrayList<>();
+    for (int i = 0; i < history; i++) events.add(scan(i));
+    ShipmentDto d = new ShipmentDto();
+    d.setShipperName("Bench Shipper");
+    d.setCarrierName("Bench Carrier");
+    d.setPickupLocation("100 Warehouse Ave, Chicago, IL");
+    d.setDeliveryLocation("200 Commerce St, Dallas, TX");
+    d.setRate(new BigDecimal("1250.50"));
+    d.setTrackingData(Map.of("events", events));
+    return d;
+  }
+
+  private static Map<String, Object> scan(int i) {
+    Map<String, Object> e = new LinkedHashMap<>();
+    e.put("at", "2025-01-01T00:00:00Z");
+    e.put("code", "IT");
+    e.put("location", "Facility " + i);
+    return e;
+  }
+}
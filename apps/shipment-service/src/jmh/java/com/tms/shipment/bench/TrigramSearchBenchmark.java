@@ -0,0 +1,101 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import com.tms.shipment.app.services.ShipmentNameIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A substring-filtered first page ({@code GET /api/shipments?shipperName=...}, rows + COUNT) through
+ * the LIKE scan ({@code like}) against the trigram-resolved IN match ({@code trigram}), for a common
+ * substring, a rarer one and one that matches nothing. Large tables need the heap of the fork, e.g.
+ * {@code -Djmh.args="TrigramSearch -p rows=5000000 -jvmArgsAppend -Xmx8g"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class TrigramSearchBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int rows;
+
+  @Param({"shipper 00042", "logist", "zz-no-match"})
+  public String query;
+
+  @Param({"like", "trigram"})
+  public String path;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentRepository repository;
+  private ShipmentFilter filter;
+  private final Pageable page = PageRequest.of(0, 20, Sort.by("createdAt").descending());
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            // H2 otherwise answers a repeated identical query from its last result while the table is unchanged
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+            "--shipments.seed.mode=none",
+            "--logging.level.root=WARN");
+    repository = context.getBean(ShipmentRepository.class);
+    seed(context.getBean(JdbcTemplate.class), rows);
+    ShipmentNameIndex nameIndex = context.getBean(ShipmentNameIndex.class);
+    nameIndex.build();
+    filter = ShipmentFilter.of(null, query, null);
+    if (path.equals("trigram")) filter = nameIndex.resolve(filter);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<Shipment> firstPage() {
+    return repository.findAllFiltered(filter, page);
+  }
+
+  /** Shipper names over 2,000 numbered shippers, one row in seven a "Logistics" one. */
+  private static void seed(JdbcTemplate jdbc, int rows) {
+    Random random = new Random(42);
+    Instant base = Instant.parse("2024-01-01T00:00:00Z");
+    String sql = "INSERT INTO shipments (id, shipper_name, carrier_name, pickup_location, delivery_location, "
+        + "status, rate, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    List<Object[]> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < rows; i++) {
+      Timestamp created = Timestamp.from(base.plusSeconds(random.nextInt(365 * 24 * 3600)));
+      String shipper = String.format("Shipper %05d %s", random.nextInt(2_000), i % 7 == 0 ? "Logistics" : "Supply");
+      batch.add(new Object[] {new UUID(random.nextLong(), random.nextLong()).toString(), shipper, "Carrier " + random.nextInt(300),
+          "Chicago, IL", "Dallas, TX", "pending", new BigDecimal("100.00"), created, created});
+      if (batch.size() == 10_000) {
+        jdbc.batchUpdate(sql, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) jdbc.batchUpdate(sql, batch);
+  }
+}
@@ -0,0 +1,107 @@
+package com.tms.shipment.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.tms.shipment.ShipmentServiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@code GET /api/shipments} pages with trackingData in each wire format (JSON, Smile, CBOR), in the
+ * full Spring {@code Page} and the slim envelope, with and without gzip: {@code request} is the
+ * end-to-end time (server, transfer, gunzip and parse), {@code decode} the client's share of it. The
+ * bytes on the wire are logged once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(WireFormatBenchmark.class);
+  private static final int ROWS = 1_000;
+
+  @Param({"10", "50", "200"})
+  public int size;
+
+  @Param({"page", "slim"})
+  public String envelope;
+
+  @Param({"application/json", "application/x-jackson-smile", "application/cbor"})
+  public String format;
+
+  @Param({"identity", "gzip"})
+  public String encoding;
+
+  private ConfigurableApplicationContext context;
+  private final HttpClient client = HttpClient.newHttpClient();
+  private HttpRequest request;
+  private ObjectMapper decoder;
+  private HttpResponse<byte[]> sample;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .run(
+            "--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--logging.level.root=WARN",
+            "--logging.level.com.tms.shipment.bench=INFO");
+    FindAllFilteredBenchmark.seed(context.getBean(JdbcTemplate.class), ROWS, 5);
+    String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+        + "/api/shipments?fields=trackingData&size=" + size + (envelope.equals("slim") ? "&envelope=slim" : "");
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).header("Accept", format);
+    if (encoding.equals("gzip")) builder.header("Accept-Encoding", "gzip");
+    request = builder.build();
+    decoder = format.endsWith("smile") ? new ObjectMapper(new SmileFactory())
+        : format.endsWith("cbor") ? new ObjectMapper(new CBORFactory())
+        : new ObjectMapper();
+    sample = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    log.info("size={} {} {} {}: {} bytes on the wire", size, envelope, format, encoding, sample.body().length);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public JsonNode request() throws Exception {
+    return decode(client.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+  }
+
+  @Benchmark
+  public JsonNode decode() throws IOException {
+    return decode(sample);
+  }
+
+  private JsonNode decode(HttpResponse<byte[]> response) throws IOException {
+    if (response.statusCode() != 200) throw new IllegalStateException("HTTP " + response.statusCode());
+    byte[] body = response.body();
+    if (response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent()) {
+      body = new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes();
+    }
+    JsonNode page = decoder.readTree(body);
+    if (page.get("content").size() == 0) throw new IllegalStateException("empty page");
+    return page;
+  }
+}
@@ -0,0 +1,132 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.ShipmentServiceApplication;
+import com.tms.shipment.app.services.ShipmentWriteBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telematics-style status updates over HTTP: eight clients PATCH the status of random shipments out of
+ * {@code hot}, written synchronously ({@code synchronous}) or with {@code Prefer: respond-async}
+ * through the write-behind buffer ({@code write-behind}). The score is updates/s; {@code conflicts}
+ * counts the 409s of synchronous updates losing a race on the row version. Rows written (one per
+ * applied request synchronously, one per shipment and flush behind) and JDBC statements are logged at
+ * the end of the trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class WriteBehindBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(WriteBehindBenchmark.class);
+  private static final String[] STATUSES = { "pending", "in_transit", "out_for_delivery", "delivered" };
+
+  @Param({"synchronous", "write-behind"})
+  public String mode;
+
+  @Param({"200"})
+  public int hot;
+
+  @Param({"250ms"})
+  public String flushInterval;
+
+  private ConfigurableApplicationContext context;
+  private ShipmentWriteBuffer writeBuffer;
+  private MeterRegistry registry;
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final LongAdder updates = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+  private boolean async;
+  private String base;
+  private long statements;
+  private long written;
+
+  /** 409s per iteration, per client. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Conflicts {
+    public long conflicts;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ShipmentServiceApplication.class)
+        .run(
+            "--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--shipments.seed.mode=none",
+            "--shipments.write-behind.enabled=true",
+            "--shipments.write-behind.flush-interval=" + flushInterval,
+            "--logging.level.root=WARN",
+            "--logging.level.com.tms.shipment.bench=INFO");
+    writeBuffer = context.getBean(ShipmentWriteBuffer.class);
+    registry = context.getBean(MeterRegistry.class);
+    FindAllFilteredBenchmark.seed(context.getBean(JdbcTemplate.class), hot, 0);
+    async = mode.equals("write-behind");
+    base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/shipments/";
+    statements = statements();
+    written = written();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    writeBuffer.flush();
+    long requests = updates.sum();
+    long rows = async ? written() - written : requests - conflicts.sum();
+    log.info("{}: {} updates, {} rows written ({} updates/row), {} statements, {} conflicts", mode, requests, rows,
+        String.format("%.1f", (double) requests / Math.max(1, rows)), statements() - statements, conflicts.sum());
+    context.close();
+  }
+
+  @Benchmark
+  public int update(Conflicts counters) throws Exception {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String id = String.format("00000000-0000-0000-0000-%012d", random.nextInt(hot));
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + id))
+        .header("Content-Type", "application/json")
+        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"status\":\"" + STATUSES[random.nextInt(STATUSES.length)] + "\"}"));
+    if (async) request.header("Prefer", "respond-async");
+    int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    updates.increment();
+    if (status == 409) {
+      counters.conflicts++;
+      conflicts.increment();
+    } else if (status != (async ? 202 : 200)) {
+      throw new IllegalStateException("HTTP " + status);
+    }
+    return status;
+  }
+
+  /** JDBC statement executions on every thread (MeteredDataSource). */
+  private static long statements() {
+    long n = 0;
+    for (Timer t : Metrics.globalRegistry.find("shipments.jdbc").timers()) n += t.count();
+    return n;
+  }
+
+  private long written() {
+    FunctionCounter c = registry.find("shipments.write_behind.written").functionCounter();
+    return c == null ? 0 : (long) c.count();
+  }
+}
@@ -1,7 +1,10 @@
 package com.tms.shipment;
 
+import com.tms.shipment.app.StartupWarmup;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class ShipmentServiceApplication {
@@ -9,4 +12,13 @@ public class ShipmentServiceApplication {
   public static void main(String[] args) {
     SpringApplication.run(ShipmentServiceApplication.class, args);
   }
+
+  /**
+   * With {@code spring.main.lazy-initialization} (the {@code fast-start} profile) the warm-up is still
+   * created at startup; it creates the rest as it runs.
+   */
+  @Bean
+  static LazyInitializationExcludeFilter eagerBeans() {
+    return LazyInitializationExcludeFilter.forBeanTypes(StartupWarmup.class);
+  }
 }
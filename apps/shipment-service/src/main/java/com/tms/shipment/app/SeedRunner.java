@@ -3,24 +3,32 @@ package com.tms.shipment.app;
 import com.tms.shipment.app.models.ShipmentDto;
 import com.tms.shipment.app.repositories.ShipmentRepository;
 import com.tms.shipment.app.services.ShipmentService;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 /**
- * Seeds sample shipments on startup when the repository is empty.
+ * Seeds shipments on startup when the repository is empty, as the first step of {@link StartupWarmup}.
+ * {@code shipments.seed.mode} picks {@code sample} (the ten hand-written shipments below, the default),
+ * {@code synthetic} (a generated data set of configurable size, see {@link SyntheticSeeder}) or
+ * {@code none}.
  */
 @Component
-public class SeedRunner implements CommandLineRunner {
+public class SeedRunner {
 
   private final ShipmentService shipmentService;
   private final ShipmentRepository shipmentRepository;
+  private final SyntheticSeeder syntheticSeeder;
+  private final String mode;
 
-  public SeedRunner(ShipmentService shipmentService, ShipmentRepository shipmentRepository) {
+  public SeedRunner(ShipmentService shipmentService, ShipmentRepository shipmentRepository,
+      SyntheticSeeder syntheticSeeder, @Value("${shipments.seed.mode:sample}") String mode) {
     this.shipmentService = shipmentService;
     this.shipmentRepository = shipmentRepository;
+    this.syntheticSeeder = syntheticSeeder;
+    this.mode = mode;
   }
 
   private static List<ShipmentDto> sampleShipments() {
@@ -50,11 +58,17 @@ public class SeedRunner implements CommandLineRunner {
     return d;
   }
 
-  @Override
-  public void run(String... args) {
-    if (shipmentRepository.count() > 0) {
+  public void run() {
+    if ("none".equals(mode) || shipmentRepository.count() > 0) {
       return;
     }
+    if ("synthetic".equals(mode)) {
+      syntheticSeeder.seed();
+      return;
+    }
+    if (!"sample".equals(mode)) {
+      throw new IllegalArgumentException("Unknown shipments.seed.mode: " + mode);
+    }
     int count = 0;
     for (ShipmentDto dto : sampleShipments()) {
       shipmentService.create(dto);
@@ -0,0 +1,113 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.services.ShipmentArchiver;
+import com.tms.shipment.app.services.ShipmentColumns;
+import com.tms.shipment.app.services.ShipmentNameIndex;
+import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.ShipmentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Everything the service does once the application is ready, in order: seed an empty table
+ * ({@link SeedRunner}), build the name index, the stats aggregates and the columnar snapshot from the
+ * table, then one list query so the first request does not pay for Hibernate's query plan and the
+ * classes behind it. By default this runs on the startup thread, as it always has. With
+ * {@code shipments.startup.async-warmup} (the {@code fast-start} profile) it runs on a thread of its
+ * own: the port answers as soon as the context is up, and this bean, a health indicator in the
+ * readiness group, reports OUT_OF_SERVICE until it finishes.
+ *
+ * <p>This bean is created at startup even with lazy initialization, so it looks up what it runs only
+ * when it runs: with the {@code fast-start} profile, the JPA stack and the services behind it are
+ * built on the warm-up thread (or by the first request, whichever comes first). The archiver, which
+ * nothing else depends on and which starts its schedule when created, is created last.
+ *
+ * <p>{@code shipments.startup.exit-after-warmup} stops the JVM once warm, for the training run that
+ * records the classes of the CDS archive (see the Dockerfile).
+ */
+@Component
+public class StartupWarmup implements HealthIndicator {
+
+  private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+  private final ObjectProvider<SeedRunner> seedRunner;
+  private final ObjectProvider<ShipmentNameIndex> nameIndex;
+  private final ObjectProvider<ShipmentStatsService> statsService;
+  private final ObjectProvider<ShipmentColumns> columns;
+  private final ObjectProvider<ShipmentService> shipmentService;
+  private final ObjectProvider<ShipmentArchiver> archiver;
+  private final ApplicationContext context;
+  private final boolean async;
+  private final boolean exitAfterWarmup;
+  private volatile Duration took;
+  private volatile Throwable failure;
+
+  public StartupWarmup(ObjectProvider<SeedRunner> seedRunner, ObjectProvider<ShipmentNameIndex> nameIndex,
+      ObjectProvider<ShipmentStatsService> statsService, ObjectProvider<ShipmentColumns> columns,
+      ObjectProvider<ShipmentService> shipmentService, ObjectProvider<ShipmentArchiver> archiver, ApplicationContext context,
+      @Value("${shipments.startup.async-warmup:false}") boolean async,
+      @Value("${shipments.startup.exit-after-warmup:false}") boolean exitAfterWarmup) {
+    this.seedRunner = seedRunner;
+    this.nameIndex = nameIndex;
+    this.statsService = statsService;
+    this.columns = columns;
+    this.shipmentService = shipmentService;
+    this.archiver = archiver;
+    this.context = context;
+    this.async = async;
+    this.exitAfterWarmup = exitAfterWarmup;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!async) {
+      run();
+      return;
+    }
+    Thread t = new Thread(this::run, "startup-warmup");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  public boolean isDone() {
+    return took != null;
+  }
+
+  @Override
+  public Health health() {
+    if (failure != null) return Health.down().withDetail("error", failure.toString()).build();
+    if (took == null) return Health.outOfService().build();
+    return Health.up().withDetail("millis", took.toMillis()).build();
+  }
+
+  private void run() {
+    long start = System.nanoTime();
+    try {
+      seedRunner.getObject().run();
+      nameIndex.getObject().build();
+      statsService.getObject().rebuild();
+      columns.getObject().rebuild();
+      shipmentService.getObject().list(null, null, null, 0, 10, "createdAt", "desc", null);
+      archiver.getObject();
+    } catch (RuntimeException | Error e) {
+      failure = e;
+      log.error("Startup warm-up failed", e);
+      if (!async) throw e;
+      return;
+    }
+    took = Duration.ofNanos(System.nanoTime() - start);
+    log.info("Startup warm-up finished in {} ms{}", took.toMillis(), async ? " (in the background)" : "");
+    if (exitAfterWarmup) System.exit(SpringApplication.exit(context, () -> 0));
+  }
+}
@@ -0,0 +1,169 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.models.JsonMapConverter;
+import com.tms.shipment.app.models.Shipment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the shipments table with {@code shipments.seed.rows} synthetic rows for load and
+ * benchmark runs. Rows come from {@link SyntheticShipmentGenerator} in blocks; blocks are generated
+ * and inserted in parallel, each on its own connection with batched JDBC inserts and one commit per
+ * block. Bypasses JPA and the change events on purpose — the name index and stats are rebuilt from
+ * the table once the application is ready.
+ *
+ * <p>All settings can be given on the command line, e.g.
+ * {@code --shipments.seed.mode=synthetic --shipments.seed.rows=10000000 --shipments.seed.random-seed=7}.
+ */
+@Component
+public class SyntheticSeeder {
+
+  private static final Logger log = LoggerFactory.getLogger(SyntheticSeeder.class);
+
+  static final String INSERT_SQL = "INSERT INTO shipments (id, shipper_name, carrier_name, pickup_location, delivery_location,"
+      + " tracking_number, status, rate, tracking_data, created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+  private static final int BLOCK_SIZE = 10_000;
+
+  private final DataSource dataSource;
+  private final long rows;
+  private final long randomSeed;
+  private final int shippers;
+  private final int carriers;
+  private final String statusMix;
+  private final int months;
+  private final String until;
+  private final int trackingEvents;
+  private final int threads;
+  private final int batchSize;
+
+  public SyntheticSeeder(
+      DataSource dataSource,
+      @Value("${shipments.seed.rows:100000}") long rows,
+      @Value("${shipments.seed.random-seed:42}") long randomSeed,
+      @Value("${shipments.seed.shippers:500}") int shippers,
+      @Value("${shipments.seed.carriers:80}") int carriers,
+      @Value("${shipments.seed.status-mix:delivered:55,in_transit:25,pending:15,cancelled:5}") String statusMix,
+      @Value("${shipments.seed.months:12}") int months,
+      @Value("${shipments.seed.until:}") String until,
+      @Value("${shipments.seed.tracking-events:5}") int trackingEvents,
+      @Value("${shipments.seed.threads:0}") int threads,
+      @Value("${shipments.seed.batch-size:1000}") int batchSize) {
+    this.dataSource = dataSource;
+    this.rows = rows;
+    this.randomSeed = randomSeed;
+    this.shippers = shippers;
+    this.carriers = carriers;
+    this.statusMix = statusMix;
+    this.months = months;
+    this.until = until;
+    this.trackingEvents = trackingEvents;
+    this.threads = threads > 0 ? threads : Math.min(8, Runtime.getRuntime().availableProcessors());
+    this.batchSize = batchSize;
+  }
+
+  /** Generates and inserts the configured number of rows; returns the number inserted. */
+  public long seed() {
+    // default to the start of today (UTC) so createdAt is stable for a day; set shipments.seed.until for a fixed data set
+    LocalDate untilDate = until.isBlank() ? LocalDate.now(ZoneOffset.UTC) : LocalDate.parse(until);
+    SyntheticShipmentGenerator generator = new SyntheticShipmentGenerator(randomSeed, shippers, carriers, statusMix,
+        months, untilDate.atStartOfDay(ZoneOffset.UTC).toInstant(), trackingEvents);
+
+    log.info("Seeding {} synthetic shipments (seed={}, threads={}, batch={}, trackingEvents={})",
+        rows, randomSeed, threads, batchSize, trackingEvents);
+    AtomicLong done = new AtomicLong();
+    long start = System.nanoTime();
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    reporter.scheduleAtFixedRate(() -> report(done.get(), start), 5, 5, TimeUnit.SECONDS);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> blocks = new ArrayList<>();
+      long blockCount = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      for (long block = 0; block < blockCount; block++) {
+        long b = block;
+        int count = (int) Math.min(BLOCK_SIZE, rows - b * BLOCK_SIZE);
+        blocks.add(pool.submit(() -> {
+          insertBlock(generator, b, count);
+          done.addAndGet(count);
+          return null;
+        }));
+      }
+      for (Future<?> f : blocks) f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Seeding interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Seeding failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+      reporter.shutdownNow();
+    }
+    report(done.get(), start);
+    return done.get();
+  }
+
+  private void insertBlock(SyntheticShipmentGenerator generator, long block, int count) throws SQLException {
+    JsonMapConverter json = new JsonMapConverter();
+    try (Connection c = dataSource.getConnection()) {
+      c.setAutoCommit(false);
+      try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+        int[] pending = {0};
+        SQLException[] failure = {null};
+        generator.generateBlock(block, count, (Shipment s) -> {
+          if (failure[0] != null) return;
+          try {
+            ps.setString(1, s.getId());
+            ps.setString(2, s.getShipperName());
+            ps.setString(3, s.getCarrierName());
+            ps.setString(4, s.getPickupLocation());
+            ps.setString(5, s.getDeliveryLocation());
+            ps.setString(6, s.getTrackingNumber());
+            ps.setString(7, s.getStatus());
+            ps.setBigDecimal(8, s.getRate());
+            ps.setString(9, json.convertToDatabaseColumn(s.getTrackingData()));
+            ps.setTimestamp(10, Timestamp.from(s.getCreatedAt()));
+            ps.setTimestamp(11, Timestamp.from(s.getUpdatedAt()));
+            ps.addBatch();
+            if (++pending[0] == batchSize) {
+              ps.executeBatch();
+              pending[0] = 0;
+            }
+          } catch (SQLException e) {
+            failure[0] = e;
+          }
+        });
+        if (failure[0] != null) throw failure[0];
+        if (pending[0] > 0) ps.executeBatch();
+        c.commit();
+      } catch (SQLException | RuntimeException e) {
+        c.rollback();
+        throw e;
+      }
+    }
+  }
+
+  private void report(long done, long start) {
+    double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    log.info("Seeded {}/{} shipments in {} s ({} rows/s)", done, rows, String.format("%.1f", seconds),
+        Math.round(done / seconds));
+  }
+}
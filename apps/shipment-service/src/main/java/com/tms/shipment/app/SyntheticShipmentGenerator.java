@@ -0,0 +1,186 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.models.Shipment;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Deterministic generator of production-shaped shipments. Rows are produced in fixed-size blocks,
+ * each with its own random stream derived from (seed, block number), so the data set depends only
+ * on the settings and never on how blocks are spread across threads.
+ *
+ * <p>Shippers, carriers and cities follow a Zipf distribution (a few large accounts, a long tail),
+ * statuses follow a configurable mix, createdAt is spread uniformly over the last {@code months}
+ * months before {@code until}, and trackingData carries {@code trackingEvents} scan events.
+ */
+public class SyntheticShipmentGenerator {
+
+  private static final String[] NAME_PREFIXES = {
+      "Acme", "Global", "Metro", "Pacific", "Atlantic", "Summit", "Pioneer", "Keystone", "Evergreen", "Northern",
+      "Southern", "Eastern", "Western", "Frontier", "Liberty", "Heartland", "Coastal", "Prairie", "Canyon", "Harbor",
+      "Granite", "Silver", "Golden", "Redwood", "Bluewater", "Ironclad", "Rapid", "Prime", "Union", "Continental",
+      "Allied", "United", "Midwest", "Lakeshore", "Riverbend", "Highland", "Sunbelt", "Cascade", "Patriot", "Titan"
+  };
+  private static final String[] SHIPPER_SUFFIXES = {
+      "Logistics", "Supply Co", "Distribution", "Foods", "Retail Group", "Manufacturing", "Imports", "Wholesale",
+      "Industries", "Pharma", "Electronics", "Building Materials"
+  };
+  private static final String[] CARRIER_SUFFIXES = {
+      "Freight", "Haulers", "Express", "Transport", "Carriers", "Trucking", "Lines", "Logistics"
+  };
+  private static final String[] CITIES = {
+      "Chicago, IL", "Dallas, TX", "Los Angeles, CA", "Atlanta, GA", "Houston, TX", "Newark, NJ", "Memphis, TN",
+      "Columbus, OH", "Indianapolis, IN", "Kansas City, MO", "Seattle, WA", "Phoenix, AZ", "Denver, CO",
+      "Miami, FL", "Charlotte, NC", "Nashville, TN", "Detroit, MI", "Salt Lake City, UT", "Portland, OR",
+      "Louisville, KY", "Savannah, GA", "Long Beach, CA", "Oakland, CA", "Baltimore, MD", "Boston, MA",
+      "Minneapolis, MN", "St. Louis, MO", "Reno, NV", "El Paso, TX", "Laredo, TX"
+  };
+  private static final String[] STREETS = {"Warehouse Ave", "Commerce St", "Industrial Blvd", "Distribution Dr", "Port Rd", "Logistics Pkwy"};
+  private static final String[] EVENT_CODES = {"PU", "AR", "DP", "IT", "OFD", "DL"};
+  private static final long DAY_SECONDS = 86_400;
+
+  private final long seed;
+  private final int trackingEvents;
+  private final long untilEpochSecond;
+  private final long spanSeconds;
+  private final String[] shippers;
+  private final String[] carriers;
+  private final double[] shipperCdf;
+  private final double[] carrierCdf;
+  private final double[] cityCdf;
+  private final String[] statuses;
+  private final double[] statusCdf;
+
+  /**
+   * @param statusMix comma-separated {@code status:weight} pairs, e.g. {@code delivered:55,in_transit:25}
+   */
+  public SyntheticShipmentGenerator(long seed, int shippers, int carriers, String statusMix, int months,
+      Instant until, int trackingEvents) {
+    this.seed = seed;
+    this.trackingEvents = trackingEvents;
+    this.untilEpochSecond = until.getEpochSecond();
+    this.spanSeconds = months * 30L * DAY_SECONDS;
+    this.shippers = names(shippers, SHIPPER_SUFFIXES);
+    this.carriers = names(carriers, CARRIER_SUFFIXES);
+    this.shipperCdf = zipf(shippers, 1.1);
+    this.carrierCdf = zipf(carriers, 1.2);
+    this.cityCdf = zipf(CITIES.length, 0.8);
+    String[] pairs = statusMix.split(",");
+    this.statuses = new String[pairs.length];
+    this.statusCdf = new double[pairs.length];
+    double total = 0;
+    for (int i = 0; i < pairs.length; i++) {
+      String[] kv = pairs[i].trim().split(":");
+      if (kv.length != 2) throw new IllegalArgumentException("Bad status mix entry: " + pairs[i]);
+      statuses[i] = kv[0].trim();
+      total += Double.parseDouble(kv[1].trim());
+      statusCdf[i] = total;
+    }
+  }
+
+  /** Emits rows {@code [block * blockSize, block * blockSize + count)} to {@code sink}. */
+  public void generateBlock(long block, int count, Consumer<Shipment> sink) {
+    SplittableRandom random = new SplittableRandom(mix(seed + block * 0x9E3779B97F4A7C15L));
+    for (int i = 0; i < count; i++) {
+      sink.accept(next(random));
+    }
+  }
+
+  private Shipment next(SplittableRandom random) {
+    Shipment e = new Shipment();
+    e.setId(new UUID((random.nextLong() & ~0xF000L) | 0x4000L, (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L).toString());
+    e.setShipperName(shippers[sample(shipperCdf, random)]);
+    e.setCarrierName(carriers[sample(carrierCdf, random)]);
+    String pickupCity = CITIES[sample(cityCdf, random)];
+    String deliveryCity = CITIES[sample(cityCdf, random)];
+    e.setPickupLocation(address(random, pickupCity));
+    e.setDeliveryLocation(address(random, deliveryCity));
+    String status = statuses[sample(statusCdf, random)];
+    e.setStatus(status);
+    e.setTrackingNumber("pending".equals(status) && random.nextBoolean() ? null : "TRK" + (100_000_000 + random.nextInt(900_000_000)));
+    // log-normal around ~$650 with a long tail of expensive loads
+    double rate = Math.exp(6.5 + 0.6 * gaussian(random));
+    e.setRate(BigDecimal.valueOf(Math.round(rate * 100), 2));
+    long created = untilEpochSecond - (long) (random.nextDouble() * spanSeconds);
+    long updated = Math.min(untilEpochSecond, created + random.nextLong(10 * DAY_SECONDS));
+    e.setCreatedAt(Instant.ofEpochSecond(created));
+    e.setUpdatedAt(Instant.ofEpochSecond(updated));
+    if (trackingEvents > 0) e.setTrackingData(trackingData(random, pickupCity, deliveryCity, created));
+    return e;
+  }
+
+  private Map<String, Object> trackingData(SplittableRandom random, String from, String to, long created) {
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put("carrierRef", "CR-" + Long.toHexString(random.nextLong()));
+    List<Map<String, Object>> events = new ArrayList<>(trackingEvents);
+    long at = created;
+    for (int i = 0; i < trackingEvents; i++) {
+      at += 600 + random.nextInt(14_400);
+      Map<String, Object> event = new LinkedHashMap<>();
+      event.put("at", Instant.ofEpochSecond(at).toString());
+      event.put("code", EVENT_CODES[Math.min(i, EVENT_CODES.length - 1)]);
+      event.put("location", i == 0 ? from : CITIES[random.nextInt(CITIES.length)]);
+      event.put("note", "Scanned at facility " + random.nextInt(500));
+      events.add(event);
+    }
+    data.put("currentLocation", events.get(events.size() - 1).get("location"));
+    data.put("destination", to);
+    data.put("events", events);
+    return data;
+  }
+
+  private static String address(SplittableRandom random, String city) {
+    return (100 + random.nextInt(9_900)) + " " + STREETS[random.nextInt(STREETS.length)] + ", " + city;
+  }
+
+  private static String[] names(int n, String[] suffixes) {
+    String[] out = new String[n];
+    int combos = NAME_PREFIXES.length * suffixes.length;
+    for (int k = 0; k < n; k++) {
+      String base = NAME_PREFIXES[k % NAME_PREFIXES.length] + " " + suffixes[(k / NAME_PREFIXES.length) % suffixes.length];
+      out[k] = k < combos ? base : base + " " + (k / combos + 1);
+    }
+    return out;
+  }
+
+  /** Cumulative (unnormalised) Zipf weights 1/(k+1)^s. */
+  private static double[] zipf(int n, double s) {
+    double[] cdf = new double[n];
+    double total = 0;
+    for (int k = 0; k < n; k++) {
+      total += 1 / Math.pow(k + 1, s);
+      cdf[k] = total;
+    }
+    return cdf;
+  }
+
+  private static int sample(double[] cdf, SplittableRandom random) {
+    int i = Arrays.binarySearch(cdf, random.nextDouble() * cdf[cdf.length - 1]);
+    return Math.min(cdf.length - 1, i >= 0 ? i : -i - 1);
+  }
+
+  /**
+   * Stafford variant 13 finaliser. A SplittableRandom built from a seed walks a fixed Weyl sequence,
+   * so nearby (or XOR-related) block seeds would replay each other's streams; mixing spreads them.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static double gaussian(SplittableRandom random) {
+    // Box-Muller; SplittableRandom has no nextGaussian on Java 11
+    double u = 1 - random.nextDouble();
+    return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+  }
+}
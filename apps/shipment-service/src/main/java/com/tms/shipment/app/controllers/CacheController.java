@@ -0,0 +1,31 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.services.ShipmentCache;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Counters of the {@code GET /api/shipments/{id}} cache. */
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+  private final ShipmentCache shipmentCache;
+
+  public CacheController(ShipmentCache shipmentCache) {
+    this.shipmentCache = shipmentCache;
+  }
+
+  @GetMapping("/shipments")
+  public Map<String, Object> shipments() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("enabled", shipmentCache.isEnabled());
+    out.putAll(shipmentCache.stats());
+    return out;
+  }
+}
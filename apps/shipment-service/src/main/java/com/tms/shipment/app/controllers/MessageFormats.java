@@ -0,0 +1,61 @@
+package com.tms.shipment.app.controllers;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary bodies next to JSON, chosen by the Accept header: {@code application/x-jackson-smile} and
+ * {@code application/cbor}. Both mappers come from Spring Boot's Jackson builder, so modules and
+ * {@code spring.jackson.*} settings (ISO instants, nulls) are the same as for JSON and only the
+ * encoding differs. Clients that send no Accept header, or {@code *}{@code /*}, still get JSON.
+ *
+ * <p>Responses are gzip'd by Tomcat ({@code server.compression}) for clients that accept it.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MessageFormats {
+
+  /** Smile with back-references for repeated short values as well as names (status, carrier, ...). */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    SmileFactory factory = new SmileFactory();
+    factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  /**
+   * Tomcat leaves responses with a strong ETag uncompressed, which here is every shipment and list
+   * response. Our ETags name a shipment version or the state of a list, not the bytes of one encoding
+   * (If-Match only compares the version), and responses carry {@code Vary: Accept, Accept-Encoding},
+   * so compressing them is safe. They stay strong because If-Match takes strong validators only.
+   */
+  @Bean
+  public WebServerFactoryCustomizer<TomcatServletWebServerFactory> compressStrongEtags() {
+    return factory -> factory.addConnectorCustomizers(connector -> {
+      if (connector.getProtocolHandler() instanceof AbstractHttp11Protocol) {
+        disableNoCompressionStrongEtag((AbstractHttp11Protocol<?>) connector.getProtocolHandler());
+      }
+    });
+  }
+
+  // Deprecated in Tomcat 9 with no replacement there: the only other ways to get these responses
+  // compressed are weak ETags, which If-Match must reject, or a compression filter of our own.
+  // Revisit when moving to Tomcat 10.1, which drops the setting.
+  @SuppressWarnings("deprecation")
+  private static void disableNoCompressionStrongEtag(AbstractHttp11Protocol<?> protocol) {
+    protocol.setNoCompressionStrongETag(false);
+  }
+}
@@ -0,0 +1,83 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.limits.Bulkhead;
+import com.tms.shipment.app.limits.Workload;
+import com.tms.shipment.app.models.LaneStats;
+import com.tms.shipment.app.models.ShipmentBreakdown;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.services.ShipmentColumns;
+import com.tms.shipment.app.services.ShipmentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Breakdowns and top lanes over the list filters, scanned from the {@link ShipmentColumns} snapshot
+ * rather than the table. 503 with Retry-After until the snapshot is built.
+ */
+@RestController
+@RequestMapping("/api/shipments/analytics")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.RETRY_AFTER)
+public class ShipmentAnalyticsController {
+
+  private final ShipmentColumns columns;
+  private final ShipmentService shipmentService;
+
+  public ShipmentAnalyticsController(ShipmentColumns columns, ShipmentService shipmentService) {
+    this.columns = columns;
+    this.shipmentService = shipmentService;
+  }
+
+  @GetMapping("/groups")
+  @Bulkhead(Workload.QUERY)
+  public ResponseEntity<ShipmentBreakdown> groups(
+      @RequestParam(defaultValue = "status") String groupBy,
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String shipperName,
+      @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo) {
+    ShipmentFilter filter = shipmentService.resolveFilter(status, shipperName, carrierName, createdFrom, createdTo);
+    if (!columns.isReady()) return notReady();
+    return ResponseEntity.ok(columns.groupBy(groupBy, filter));
+  }
+
+  @GetMapping("/lanes")
+  @Bulkhead(Workload.QUERY)
+  public ResponseEntity<List<LaneStats>> lanes(
+      @RequestParam(defaultValue = "10") int top,
+      @RequestParam(defaultValue = "count") String orderBy,
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String shipperName,
+      @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo) {
+    ShipmentFilter filter = shipmentService.resolveFilter(status, shipperName, carrierName, createdFrom, createdTo);
+    if (!columns.isReady()) return notReady();
+    return ResponseEntity.ok(columns.topLanes(filter, top, orderBy));
+  }
+
+  @GetMapping("/snapshot")
+  public Map<String, Object> snapshot() {
+    return columns.describe();
+  }
+
+  @PostMapping("/snapshot/rebuild")
+  public ResponseEntity<Void> rebuild() {
+    columns.rebuild();
+    return ResponseEntity.noContent().build();
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  private static <T> ResponseEntity<T> notReady() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+  }
+}
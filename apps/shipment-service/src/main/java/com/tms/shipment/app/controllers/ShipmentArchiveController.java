@@ -0,0 +1,44 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.services.ShipmentArchive;
+import com.tms.shipment.app.services.ShipmentArchiver;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** State of the cold storage, and a way to run the archiver without waiting for its interval. */
+@RestController
+@RequestMapping("/api/shipments/archive")
+@CrossOrigin(origins = "*")
+public class ShipmentArchiveController {
+
+  private final ShipmentArchive archive;
+  private final ShipmentArchiver archiver;
+
+  public ShipmentArchiveController(ShipmentArchive archive, ShipmentArchiver archiver) {
+    this.archive = archive;
+    this.archiver = archiver;
+  }
+
+  @GetMapping("/stats")
+  public Map<String, Object> stats() {
+    Map<String, Object> out = new LinkedHashMap<>(archive.stats());
+    out.put("running", archiver.isRunning());
+    out.put("archivedSinceStartup", archiver.getArchived());
+    out.put("lastRun", archiver.getLastRun());
+    return out;
+  }
+
+  /** 202 once a run is queued on the archiver thread; 409 if one is in progress. */
+  @PostMapping("/run")
+  public ResponseEntity<Void> run() {
+    return ResponseEntity.status(archiver.trigger() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).build();
+  }
+}
@@ -0,0 +1,59 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.services.ShipmentChangeFeed;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/** Server-Sent Events stream of committed shipment changes, served from {@link ShipmentChangeFeed}. */
+@RestController
+@RequestMapping("/api/shipments/changes")
+@CrossOrigin(origins = "*")
+public class ShipmentChangeFeedController {
+
+  static final String LAST_EVENT_ID = "Last-Event-ID";
+
+  private final ShipmentChangeFeed feed;
+
+  public ShipmentChangeFeedController(ShipmentChangeFeed feed) {
+    this.feed = feed;
+  }
+
+  /**
+   * Resumes after {@code Last-Event-ID} (sent by EventSource on reconnect) or the {@code lastEventId}
+   * parameter; without either, starts at the newest change. 503 when the subscriber limit is reached.
+   */
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<ShipmentChangeFeed.EventStream> changes(
+      @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventIdHeader,
+      @RequestParam(required = false) String lastEventId) {
+    Long after = parse(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    return feed.subscribe(after)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build());
+  }
+
+  /** subscribers, lastSeq, oldestSeq (oldest change a client can still resume after), resyncs, rejected. */
+  @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Long> stats() {
+    return feed.stats();
+  }
+
+  private static Long parse(String id) {
+    if (id == null || id.isBlank()) return null;
+    try {
+      return Long.parseLong(id.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed " + LAST_EVENT_ID + ": " + id);
+    }
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+}
@@ -1,61 +1,347 @@
 package com.tms.shipment.app.controllers;
 
+import com.tms.shipment.app.limits.Bulkhead;
+import com.tms.shipment.app.limits.Workload;
+import com.tms.shipment.app.models.BatchGetResult;
+import com.tms.shipment.app.models.BulkResult;
+import com.tms.shipment.app.models.CursorPage;
 import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.SlimPage;
+import com.tms.shipment.app.models.TrackingEventDto;
+import com.tms.shipment.app.services.ShipmentBulkService;
+import com.tms.shipment.app.services.ShipmentExportService;
 import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.TrackingEventService;
 import javax.validation.Valid;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/shipments")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = { HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER, ShipmentController.PREFERENCE_APPLIED })
 public class ShipmentController {
 
+  private static final String PREFER = "Prefer";
+  static final String PREFERENCE_APPLIED = "Preference-Applied";
+  private static final String RESPOND_ASYNC = "respond-async";
+
   private final ShipmentService shipmentService;
+  private final ShipmentBulkService bulkService;
+  private final ShipmentExportService exportService;
+  private final TrackingEventService trackingService;
 
-  public ShipmentController(ShipmentService shipmentService) {
+  public ShipmentController(ShipmentService shipmentService, ShipmentBulkService bulkService, ShipmentExportService exportService,
+      TrackingEventService trackingService) {
     this.shipmentService = shipmentService;
+    this.bulkService = bulkService;
+    this.exportService = exportService;
+    this.trackingService = trackingService;
   }
 
+  /**
+   * Rows omit trackingData unless {@code fields=trackingData}. Carries a list ETag taken from the rows
+   * (see {@link ShipmentService#listEtag}); a matching If-None-Match gets 304 without the body.
+   * {@code createdFrom} / {@code createdTo} (ISO date or instant; from inclusive, to exclusive) bound
+   * createdAt; archived shipments are only listed when that range reaches back into the archive.
+   * Like every GET here, the body is JSON, Smile or CBOR depending on Accept (see {@link MessageFormats}).
+   */
+  @Bulkhead(Workload.QUERY)
   @GetMapping
-  public Page<ShipmentDto> list(
+  public ResponseEntity<Page<ShipmentDto>> list(
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String shipperName,
+      @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "createdAt") String sortBy,
+      @RequestParam(defaultValue = "desc") String sortOrder,
+      @RequestParam(required = false) String fields,
+      WebRequest request) {
+    Page<ShipmentDto> rows = shipmentService.list(status, shipperName, carrierName, createdFrom, createdTo, page, size, sortBy, sortOrder, fields);
+    String etag = shipmentService.listEtag(rows.getContent(), rows.getTotalElements(),
+        status, shipperName, carrierName, createdFrom, createdTo, fields, page, size, sortBy, sortOrder);
+    if (request.checkNotModified(etag)) return null;
+    return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(rows);
+  }
+
+  /** The same page in a {@link SlimPage} envelope: rows and totals, without Spring's pageable and sort. */
+  @Bulkhead(Workload.QUERY)
+  @GetMapping(params = { "envelope=slim", "!after" })
+  public ResponseEntity<SlimPage<ShipmentDto>> listSlim(
       @RequestParam(required = false) String status,
       @RequestParam(required = false) String shipperName,
       @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
       @RequestParam(defaultValue = "createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortOrder) {
-    return shipmentService.list(status, shipperName, carrierName, page, size, sortBy, sortOrder);
+      @RequestParam(defaultValue = "desc") String sortOrder,
+      @RequestParam(required = false) String fields,
+      WebRequest request) {
+    Page<ShipmentDto> rows = shipmentService.list(status, shipperName, carrierName, createdFrom, createdTo, page, size, sortBy, sortOrder, fields);
+    String etag = shipmentService.listEtag(rows.getContent(), rows.getTotalElements(),
+        status, shipperName, carrierName, createdFrom, createdTo, fields, page, size, sortBy, sortOrder, "slim");
+    if (request.checkNotModified(etag)) return null;
+    return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(new SlimPage<>(rows));
   }
 
+  /**
+   * Keyset mode, selected by the presence of {@code after} (empty for the first page). No COUNT is
+   * run, for the page or for its ETag.
+   */
+  @Bulkhead(Workload.QUERY)
+  @GetMapping(params = "after")
+  public ResponseEntity<CursorPage<ShipmentDto>> listAfter(
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String shipperName,
+      @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo,
+      @RequestParam String after,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "createdAt") String sortBy,
+      @RequestParam(defaultValue = "desc") String sortOrder,
+      @RequestParam(required = false) String fields,
+      WebRequest request) {
+    CursorPage<ShipmentDto> rows = shipmentService.listAfter(status, shipperName, carrierName, createdFrom, createdTo, after, size, sortBy, sortOrder, fields);
+    String etag = shipmentService.listEtag(rows.getContent(), rows.getNextCursor(),
+        status, shipperName, carrierName, createdFrom, createdTo, fields, after, size, sortBy, sortOrder);
+    if (request.checkNotModified(etag)) return null;
+    return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(rows);
+  }
+
+  /**
+   * Streams every row matching the list filters as NDJSON (default) or CSV. Written on the request
+   * thread straight to the response, so the export is not subject to the async request timeout. As
+   * with {@link #list}, a createdFrom / createdTo range reaching back into the archive includes archived rows.
+   */
+  @Bulkhead(value = Workload.QUERY, sampled = false)
+  @GetMapping("/export")
+  public void export(
+      @RequestParam(required = false) String status,
+      @RequestParam(required = false) String shipperName,
+      @RequestParam(required = false) String carrierName,
+      @RequestParam(required = false) String createdFrom,
+      @RequestParam(required = false) String createdTo,
+      @RequestParam(defaultValue = "createdAt") String sortBy,
+      @RequestParam(defaultValue = "desc") String sortOrder,
+      @RequestParam(defaultValue = "ndjson") String format,
+      HttpServletResponse response) throws IOException {
+    ShipmentExportService.Format f;
+    if ("csv".equalsIgnoreCase(format)) {
+      f = ShipmentExportService.Format.CSV;
+      response.setContentType("text/csv;charset=UTF-8");
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"shipments.csv\"");
+    } else if ("ndjson".equalsIgnoreCase(format)) {
+      f = ShipmentExportService.Format.NDJSON;
+      response.setContentType("application/x-ndjson;charset=UTF-8");
+    } else {
+      throw new IllegalArgumentException("Unsupported export format: " + format);
+    }
+    exportService.export(status, shipperName, carrierName, createdFrom, createdTo, sortBy, sortOrder, f, response.getOutputStream());
+  }
+
+  /**
+   * With If-None-Match, the current ETag is checked from index lookups first; a match gets 304 without
+   * loading the row. Archived shipments are served from the archive; they cannot be patched or deleted.
+   */
+  @Bulkhead(Workload.LOOKUP)
   @GetMapping("/{id}")
-  public ResponseEntity<ShipmentDto> getById(@PathVariable String id) {
+  public ResponseEntity<ShipmentDto> getById(@PathVariable String id, WebRequest request) {
+    if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+      Optional<String> current = shipmentService.currentEtag(id);
+      if (current.isEmpty()) return ResponseEntity.notFound().build();
+      if (request.checkNotModified(current.get())) return null;
+    }
     return shipmentService.getById(id)
-        .map(ResponseEntity::ok)
+        .map(d -> ResponseEntity.ok().eTag(ShipmentService.etagOf(d)).varyBy(HttpHeaders.ACCEPT).body(d))
         .orElse(ResponseEntity.notFound().build());
   }
 
+  /**
+   * Several shipments by id in one request, body a JSON array of ids (at most
+   * {@code shipments.batch-get.max-ids}). Rows come back in request order; unknown ids are listed
+   * under {@code missing} rather than failing the request.
+   */
+  @Bulkhead(Workload.LOOKUP)
+  @PostMapping(value = "/batch-get", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public BatchGetResult batchGet(@RequestBody List<String> ids) {
+    return shipmentService.getByIds(ids);
+  }
+
+  @Bulkhead(Workload.WRITE)
   @PostMapping
   public ResponseEntity<ShipmentDto> create(@Valid @RequestBody ShipmentDto dto) {
-    return ResponseEntity.status(HttpStatus.CREATED).body(shipmentService.create(dto));
+    ShipmentDto created = shipmentService.create(dto);
+    return ResponseEntity.status(HttpStatus.CREATED).eTag(ShipmentService.etagOf(created)).body(created);
+  }
+
+  /** Bulk create from a JSON array. Invalid elements are reported per item; the rest are still written. */
+  @Bulkhead(value = Workload.WRITE, sampled = false)
+  @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public BulkResult createBulk(@RequestBody List<ShipmentDto> dtos) {
+    return bulkService.createAll(dtos);
   }
 
+  /** Bulk create from newline-delimited JSON, one {@code ShipmentDto} per line. */
+  @Bulkhead(value = Workload.WRITE, sampled = false)
+  @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+  public BulkResult createBulkNdjson(Reader body) throws IOException {
+    return bulkService.createAllNdjson(body);
+  }
+
+  @Bulkhead(value = Workload.WRITE, sampled = false)
+  @PatchMapping("/bulk")
+  public BulkResult updateBulk(@RequestBody List<ShipmentDto> dtos) {
+    return bulkService.updateAll(dtos);
+  }
+
+  @Bulkhead(value = Workload.WRITE, sampled = false)
+  @DeleteMapping("/bulk")
+  public BulkResult deleteBulk(@RequestBody List<String> ids) {
+    return bulkService.deleteAll(ids);
+  }
+
+  /**
+   * With If-Match, applied only if the shipment's version is unchanged; otherwise 412. With
+   * {@code Prefer: respond-async}, no If-Match and only status and / or trackingData set, the update
+   * is queued for write-behind (when {@code shipments.write-behind.enabled}) and answered 202 with
+   * {@code Preference-Applied}; reads see it at once. Otherwise the preference is ignored.
+   */
+  @Bulkhead(Workload.WRITE)
   @PatchMapping("/{id}")
-  public ResponseEntity<ShipmentDto> update(@PathVariable String id, @RequestBody ShipmentDto dto) {
-    return shipmentService.update(id, dto)
-        .map(ResponseEntity::ok)
-        .orElse(ResponseEntity.notFound().build());
+  public ResponseEntity<ShipmentDto> update(@PathVariable String id, @RequestBody ShipmentDto dto,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = PREFER, required = false) String prefer) {
+    if (ifMatch == null && respondAsync(prefer) && shipmentService.isBufferable(dto)) {
+      return shipmentService.updateBuffered(id, dto)
+          ? ResponseEntity.accepted().header(PREFERENCE_APPLIED, RESPOND_ASYNC).build()
+          : ResponseEntity.notFound().build();
+    }
+    return shipmentService.update(id, dto, expectedVersions(ifMatch))
+        .map(d -> ResponseEntity.ok().eTag(ShipmentService.etagOf(d)).body(d))
+        .orElse(missing(ifMatch));
   }
 
+  @Bulkhead(Workload.WRITE)
   @DeleteMapping("/{id}")
-  public ResponseEntity<Void> delete(@PathVariable String id) {
-    return shipmentService.delete(id)
+  public ResponseEntity<Void> delete(@PathVariable String id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    return shipmentService.delete(id, expectedVersions(ifMatch))
         ? ResponseEntity.noContent().build()
-        : ResponseEntity.notFound().build();
+        : missing(ifMatch);
+  }
+
+  /** Appends one tracking event (JSON object) or several (JSON array) without rewriting trackingData. */
+  @Bulkhead(Workload.WRITE)
+  @PostMapping("/{id}/events")
+  public ResponseEntity<List<TrackingEventDto>> appendEvents(@PathVariable String id, @RequestBody Object body) {
+    return trackingService.append(id, body)
+        .map(events -> ResponseEntity.status(HttpStatus.CREATED).body(events))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  /** Window of the tracking log: events with id greater than {@code since}, oldest first. */
+  @Bulkhead(Workload.LOOKUP)
+  @GetMapping("/{id}/events")
+  public ResponseEntity<List<TrackingEventDto>> listEvents(
+      @PathVariable String id,
+      @RequestParam(defaultValue = "0") long since,
+      @RequestParam(defaultValue = "100") int limit) {
+    return trackingService.list(id, since, limit)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  /** If-Match did not match, or another writer committed first: 412 for conditional requests, else 409. */
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  public ResponseEntity<String> conflict(ObjectOptimisticLockingFailureException e, WebRequest request) {
+    HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+    return ResponseEntity.status(status).body("Shipment was modified concurrently; reload and retry");
+  }
+
+  /**
+   * Row versions named by the ETags ({@code "version.lastEventId"}) of an If-Match list; null for none
+   * or {@code *}. Only the version is compared; appending tracking events moves it, as an edit does.
+   * If-Match uses the strong comparison (RFC 9110, 13.1.1): weak tags and tags this service could not
+   * have issued match nothing, so a header naming only those leaves the set empty and the write fails
+   * with 412, as a stale tag does.
+   */
+  static Set<Long> expectedVersions(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) return null;
+    Set<Long> versions = new HashSet<>();
+    int i = 0;
+    int n = ifMatch.length();
+    while (i < n) {
+      char c = ifMatch.charAt(i);
+      if (c == ',' || c == ' ' || c == '\t') {
+        i++;
+        continue;
+      }
+      boolean weak = ifMatch.startsWith("W/\"", i);
+      int open = weak ? i + 2 : i;
+      int close = ifMatch.charAt(open) == '"' ? ifMatch.indexOf('"', open + 1) : -1;
+      if (close < 0) {
+        // not an entity-tag: skip to the next list member
+        int comma = ifMatch.indexOf(',', i);
+        i = comma < 0 ? n : comma + 1;
+        continue;
+      }
+      if (!weak) {
+        Long version = versionOf(ifMatch.substring(open + 1, close));
+        if (version != null) versions.add(version);
+      }
+      i = close + 1;
+    }
+    return versions;
+  }
+
+  /** The version part of an opaque tag this service issued, or null when it is not one. */
+  private static Long versionOf(String opaque) {
+    int dot = opaque.indexOf('.');
+    if (dot < 1 || opaque.indexOf('.', dot + 1) >= 0) return null;
+    try {
+      Long.parseLong(opaque.substring(dot + 1));
+      return Long.parseLong(opaque.substring(0, dot));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /** Whether a Prefer header (RFC 7240) asks for {@code respond-async}. */
+  static boolean respondAsync(String prefer) {
+    if (prefer == null) return false;
+    for (String p : prefer.split(",")) {
+      String token = p.split(";", 2)[0].trim();
+      if (token.equalsIgnoreCase(RESPOND_ASYNC)) return true;
+    }
+    return false;
+  }
+
+  /** 404, or 412 when the request was conditional on the resource existing. */
+  private static <T> ResponseEntity<T> missing(String ifMatch) {
+    return ifMatch == null ? ResponseEntity.notFound().build() : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
   }
 }
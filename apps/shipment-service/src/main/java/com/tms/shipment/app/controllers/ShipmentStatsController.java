@@ -0,0 +1,54 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.models.ShipmentStats;
+import com.tms.shipment.app.services.ShipmentStatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Server-side report aggregates, served from {@link ShipmentStatsService} rather than the table. */
+@RestController
+@RequestMapping("/api/shipments/stats")
+@CrossOrigin(origins = "*")
+public class ShipmentStatsController {
+
+  private final ShipmentStatsService statsService;
+
+  public ShipmentStatsController(ShipmentStatsService statsService) {
+    this.statsService = statsService;
+  }
+
+  @GetMapping
+  public ShipmentStats stats(
+      @RequestParam(defaultValue = "status") String groupBy,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    return statsService.query(groupBy, from, to);
+  }
+
+  /** Compares the maintained aggregates with a GROUP BY over the table. */
+  @GetMapping("/check")
+  public Map<String, Object> check() {
+    List<String> mismatches = statsService.check();
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("consistent", mismatches.isEmpty());
+    out.put("mismatches", mismatches);
+    return out;
+  }
+
+  @PostMapping("/rebuild")
+  public ResponseEntity<Void> rebuild() {
+    statsService.rebuild();
+    return ResponseEntity.noContent().build();
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+}
@@ -0,0 +1,87 @@
+package com.tms.shipment.app.limits;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that follows latency, AIMD-style as in TCP congestion avoidance. While requests
+ * finish within {@code targetLatency} and the limit is at least half used, it grows by one per
+ * limit's worth of requests. A request slower than the target cuts it by 10%, at most once per round
+ * trip: only a request admitted after the last cut can cause the next one, so a queue draining after a
+ * spike does not collapse the limit to {@code min}. Over the limit, {@link #tryAcquire} fails at once.
+ */
+public final class AdaptiveLimit {
+
+  private static final double BACKOFF = 0.9;
+  private static final double SMOOTHING = 0.1;
+
+  private final int min;
+  private final int max;
+  private final long targetNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile int limit;
+  // guarded by this
+  private double estimate;
+  private long lastCut = System.nanoTime();
+  private volatile double averageNanos;
+
+  public AdaptiveLimit(int initial, int min, int max, Duration targetLatency) {
+    if (min < 1 || max < min) throw new IllegalArgumentException("Limit bounds must satisfy 1 <= min <= max");
+    this.min = min;
+    this.max = max;
+    this.targetNanos = targetLatency.toNanos();
+    this.estimate = Math.max(min, Math.min(max, initial));
+    this.limit = (int) estimate;
+  }
+
+  /** Takes a permit if fewer than {@link #getLimit()} are held; never waits. */
+  public boolean tryAcquire() {
+    while (true) {
+      int n = inFlight.get();
+      if (n >= limit) {
+        rejected.increment();
+        return false;
+      }
+      if (inFlight.compareAndSet(n, n + 1)) {
+        accepted.increment();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns a permit taken at {@code startNanos} ({@link System#nanoTime()}); when {@code sampled},
+   * the time it was held adjusts the limit.
+   */
+  public void release(long startNanos, boolean sampled) {
+    int held = inFlight.getAndDecrement();
+    if (!sampled) return;
+    long now = System.nanoTime();
+    long nanos = now - startNanos;
+    synchronized (this) {
+      averageNanos += (nanos - averageNanos) * SMOOTHING;
+      if (nanos > targetNanos) {
+        if (startNanos - lastCut > 0) {
+          estimate = Math.max(min, estimate * BACKOFF);
+          lastCut = now;
+        }
+      } else if (held * 2 >= estimate) {
+        estimate = Math.min(max, estimate + 1 / estimate);
+      }
+      limit = (int) estimate;
+    }
+  }
+
+  /** Seconds a turned-away client should wait: the smoothed time a permit is held, at least 1. */
+  public long retryAfterSeconds() {
+    return Math.max(1, (long) Math.ceil(averageNanos / 1e9));
+  }
+
+  public int getLimit() { return limit; }
+  public int getInFlight() { return inFlight.get(); }
+  public long getAccepted() { return accepted.sum(); }
+  public long getRejected() { return rejected.sum(); }
+}
@@ -0,0 +1,25 @@
+package com.tms.shipment.app.limits;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a handler method under the concurrency limit of its {@link Workload}; requests over the limit
+ * are turned away by {@link ConcurrencyLimiter} instead of queueing. Handlers without it are not limited.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+
+  Workload value();
+
+  /**
+   * Whether the handler's latency steers the limit. Off for handlers whose time grows with the request
+   * (exports, bulk bodies) rather than with load; they still hold a permit while they run.
+   */
+  boolean sampled() default true;
+}
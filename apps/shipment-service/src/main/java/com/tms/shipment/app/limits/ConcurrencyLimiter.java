@@ -0,0 +1,119 @@
+package com.tms.shipment.app.limits;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load shedding in front of the {@link Bulkhead}-annotated handlers: each request takes a permit from
+ * its workload's {@link AdaptiveLimit} before the body is read, or is answered at once with
+ * {@code shipments.limits.reject-status} and a Retry-After. Under a spike the excess fails fast, and
+ * what is admitted keeps its latency, instead of everything queueing on Tomcat threads and the
+ * connection pool until callers time out. The default is 429: Tomcat closes the connection after a
+ * 503, and under overload the reconnects cost more than the requests turned away. Off with
+ * {@code shipments.limits.enabled=false}.
+ */
+@Component
+public class ConcurrencyLimiter implements HandlerInterceptor, WebMvcConfigurer, MeterBinder {
+
+  private static final String PERMIT = ConcurrencyLimiter.class.getName() + ".permit";
+
+  private final boolean enabled;
+  private final HttpStatus rejectStatus;
+  private final Map<Workload, AdaptiveLimit> limits = new EnumMap<>(Workload.class);
+
+  public ConcurrencyLimiter(Environment env,
+      @Value("${shipments.limits.enabled:true}") boolean enabled,
+      @Value("${shipments.limits.reject-status:429}") int rejectStatus) {
+    this.enabled = enabled;
+    this.rejectStatus = HttpStatus.valueOf(rejectStatus);
+    if (this.rejectStatus != HttpStatus.TOO_MANY_REQUESTS && this.rejectStatus != HttpStatus.SERVICE_UNAVAILABLE) {
+      throw new IllegalArgumentException("shipments.limits.reject-status must be 429 or 503");
+    }
+    for (Workload w : Workload.values()) {
+      String prefix = "shipments.limits." + w.key() + ".";
+      limits.put(w, new AdaptiveLimit(
+          env.getProperty(prefix + "initial", Integer.class, w.initial),
+          env.getProperty(prefix + "min", Integer.class, w.min),
+          env.getProperty(prefix + "max", Integer.class, w.max),
+          env.getProperty(prefix + "target-latency", Duration.class, w.targetLatency)));
+    }
+  }
+
+  public AdaptiveLimit limit(Workload workload) {
+    return limits.get(workload);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    if (enabled) registry.addInterceptor(this).addPathPatterns("/api/**");
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+    if (!(handler instanceof HandlerMethod)) return true;
+    Bulkhead bulkhead = ((HandlerMethod) handler).getMethodAnnotation(Bulkhead.class);
+    if (bulkhead == null) return true;
+    AdaptiveLimit limit = limits.get(bulkhead.value());
+    if (!limit.tryAcquire()) {
+      response.setStatus(rejectStatus.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(limit.retryAfterSeconds()));
+      response.setContentType("text/plain;charset=UTF-8");
+      response.getWriter().write("Shipment service is at its " + bulkhead.value().key() + " limit; retry later");
+      return false;
+    }
+    request.setAttribute(PERMIT, new Permit(limit, bulkhead.sampled()));
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    Permit permit = (Permit) request.getAttribute(PERMIT);
+    if (permit == null) return;
+    request.removeAttribute(PERMIT);
+    permit.limit.release(permit.start, permit.sampled);
+  }
+
+  /** Per bulkhead: the current limit, permits held, and requests admitted and turned away. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    limits.forEach((w, limit) -> {
+      Gauge.builder("shipments.limit", limit, AdaptiveLimit::getLimit)
+          .description("Adaptive concurrency limit").tag("bulkhead", w.key()).register(registry);
+      Gauge.builder("shipments.limit.in_flight", limit, AdaptiveLimit::getInFlight)
+          .description("Requests holding a permit").tag("bulkhead", w.key()).register(registry);
+      FunctionCounter.builder("shipments.limit.accepted", limit, AdaptiveLimit::getAccepted)
+          .description("Requests admitted").tag("bulkhead", w.key()).register(registry);
+      FunctionCounter.builder("shipments.limit.rejected", limit, AdaptiveLimit::getRejected)
+          .description("Requests turned away at the limit").tag("bulkhead", w.key()).register(registry);
+    });
+  }
+
+  private static final class Permit {
+    final AdaptiveLimit limit;
+    final boolean sampled;
+    final long start = System.nanoTime();
+
+    Permit(AdaptiveLimit limit, boolean sampled) {
+      this.limit = limit;
+      this.sampled = sampled;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.tms.shipment.app.limits;
+
+import java.time.Duration;
+
+/**
+ * The bulkheads of the shipment API, each with its own {@link AdaptiveLimit}, so a stampede of one
+ * kind of request cannot take the threads and connections another needs. The defaults here are
+ * overridden per bulkhead with {@code shipments.limits.<name>.initial|min|max|target-latency}.
+ */
+public enum Workload {
+
+  /** Single-shipment reads: {@code GET /{id}}, batch-get, a shipment's event log. */
+  LOOKUP(16, 4, 64, Duration.ofMillis(100)),
+  /** Filtered lists and exports: a scan, a sort and usually a count each. */
+  QUERY(4, 1, 8, Duration.ofMillis(500)),
+  /** Creates, updates, deletes and tracking appends. */
+  WRITE(8, 2, 32, Duration.ofMillis(250));
+
+  final int initial;
+  final int min;
+  final int max;
+  final Duration targetLatency;
+
+  Workload(int initial, int min, int max, Duration targetLatency) {
+    this.initial = initial;
+    this.min = min;
+    this.max = max;
+    this.targetLatency = targetLatency;
+  }
+
+  /** Lower-case name, as in properties and meter tags. */
+  public String key() {
+    return name().toLowerCase();
+  }
+}
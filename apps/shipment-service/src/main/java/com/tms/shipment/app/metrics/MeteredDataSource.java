@@ -0,0 +1,103 @@
+package com.tms.shipment.app.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every statement execution ({@code execute*}) on connections of the wrapped pool, whoever
+ * issues it (Hibernate, JdbcTemplate, Flyway). Each execution goes into the {@code shipments.jdbc}
+ * timer, tagged with the JDBC method, and into per-thread counters that
+ * {@link RequestQueryMetricsFilter} reads around a request, so an N+1 shows up as a jump in queries
+ * per request.
+ *
+ * <p>Recording is two {@code System.nanoTime()} calls, a timer update and two increments of a
+ * thread-local array; no objects are allocated per statement beyond what the proxies' reflective
+ * calls already need. Meters are registered on {@link Metrics#globalRegistry}, to which Spring Boot
+ * adds its registry, because the pool is wrapped before that registry exists.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+
+  private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[2]);
+  private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+  public MeteredDataSource(DataSource target) {
+    super(target);
+  }
+
+  /** Statements executed on the calling thread since it started. */
+  public static long statements() {
+    return CURRENT.get()[0];
+  }
+
+  /** Nanoseconds the calling thread has spent in statement executions. */
+  public static long statementNanos() {
+    return CURRENT.get()[1];
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return connection(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return connection(super.getConnection(username, password));
+  }
+
+  private static Connection connection(Connection target) {
+    return (Connection) Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          Object result = invoke(target, method, args);
+          if (result instanceof CallableStatement) return statement(CallableStatement.class, result);
+          if (result instanceof PreparedStatement) return statement(PreparedStatement.class, result);
+          if (result instanceof Statement) return statement(Statement.class, result);
+          return result;
+        });
+  }
+
+  private static Object statement(Class<?> type, Object target) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (!method.getName().startsWith("execute")) return invoke(target, method, args);
+      long start = System.nanoTime();
+      try {
+        return invoke(target, method, args);
+      } finally {
+        long nanos = System.nanoTime() - start;
+        long[] current = CURRENT.get();
+        current[0]++;
+        current[1] += nanos;
+        TIMERS.computeIfAbsent(method.getName(), MeteredDataSource::timer).record(nanos, TimeUnit.NANOSECONDS);
+      }
+    };
+    return Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[] { type }, handler);
+  }
+
+  private static Timer timer(String method) {
+    return Timer.builder("shipments.jdbc")
+        .description("JDBC statement executions")
+        .tag("method", method)
+        .register(Metrics.globalRegistry);
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.tms.shipment.app.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/** Wraps the application's DataSource in a {@link MeteredDataSource}; off with {@code shipments.metrics.jdbc=false}. */
+@Component
+@ConditionalOnProperty(name = "shipments.metrics.jdbc", havingValue = "true", matchIfMissing = true)
+public class MeteredDataSourcePostProcessor implements BeanPostProcessor {
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource && !(bean instanceof MeteredDataSource)) return new MeteredDataSource((DataSource) bean);
+    return bean;
+  }
+}
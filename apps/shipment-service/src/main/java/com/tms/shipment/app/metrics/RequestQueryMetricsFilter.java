@@ -0,0 +1,74 @@
+package com.tms.shipment.app.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements executed per request, and the time spent in them, per endpoint (method and URI
+ * template, as in {@code http.server.requests}), from the {@link MeteredDataSource} thread counters.
+ * A request that suddenly runs one query per row shows up here before it shows up in latency.
+ * Requests that go async (the change feed) are skipped: their work is not on this thread.
+ */
+@Component
+@ConditionalOnProperty(name = "shipments.metrics.jdbc", havingValue = "true", matchIfMissing = true)
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+  private static final class Meters {
+    final DistributionSummary statements;
+    final Timer time;
+
+    Meters(MeterRegistry registry, String method, String uri) {
+      statements = DistributionSummary.builder("shipments.request.queries")
+          .description("JDBC statements executed per request")
+          .tags("method", method, "uri", uri)
+          .register(registry);
+      time = Timer.builder("shipments.request.query.time")
+          .description("Time per request spent executing JDBC statements")
+          .tags("method", method, "uri", uri)
+          .register(registry);
+    }
+  }
+
+  private final MeterRegistry registry;
+
+  /** By method, then by URI template, so a lookup does not have to build a combined key. */
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Meters>> meters = new ConcurrentHashMap<>();
+
+  public RequestQueryMetricsFilter(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    long statements = MeteredDataSource.statements();
+    long nanos = MeteredDataSource.statementNanos();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      if (!request.isAsyncStarted()) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        if (!uri.startsWith("/actuator")) {
+          Meters m = meters.computeIfAbsent(request.getMethod(), k -> new ConcurrentHashMap<>())
+              .computeIfAbsent(uri, k -> new Meters(registry, request.getMethod(), k));
+          m.statements.record(MeteredDataSource.statements() - statements);
+          m.time.record(MeteredDataSource.statementNanos() - nanos, TimeUnit.NANOSECONDS);
+        }
+      }
+    }
+  }
+}
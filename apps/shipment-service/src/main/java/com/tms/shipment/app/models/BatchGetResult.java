@@ -0,0 +1,18 @@
+package com.tms.shipment.app.models;
+
+import java.util.List;
+
+/** Response of {@code POST /api/shipments/batch-get}: the shipments found, in request order, and the ids that were not. */
+public class BatchGetResult {
+
+  private final List<ShipmentDto> shipments;
+  private final List<String> missing;
+
+  public BatchGetResult(List<ShipmentDto> shipments, List<String> missing) {
+    this.shipments = shipments;
+    this.missing = missing;
+  }
+
+  public List<ShipmentDto> getShipments() { return shipments; }
+  public List<String> getMissing() { return missing; }
+}
@@ -0,0 +1,30 @@
+package com.tms.shipment.app.models;
+
+import java.util.List;
+
+/** Outcome of one element of a bulk request, addressed by its position in the request body. */
+public class BulkItemResult {
+
+  public enum Outcome { CREATED, UPDATED, DELETED, NOT_FOUND, INVALID, FAILED }
+
+  private final int index;
+  private final String id;
+  private final Outcome outcome;
+  private final List<String> errors;
+
+  public BulkItemResult(int index, String id, Outcome outcome, List<String> errors) {
+    this.index = index;
+    this.id = id;
+    this.outcome = outcome;
+    this.errors = errors;
+  }
+
+  public static BulkItemResult ok(int index, String id, Outcome outcome) {
+    return new BulkItemResult(index, id, outcome, List.of());
+  }
+
+  public int getIndex() { return index; }
+  public String getId() { return id; }
+  public Outcome getOutcome() { return outcome; }
+  public List<String> getErrors() { return errors; }
+}
@@ -0,0 +1,33 @@
+package com.tms.shipment.app.models;
+
+import java.util.Comparator;
+import java.util.List;
+
+/** Response of the bulk endpoints: totals plus one {@link BulkItemResult} per request element, in request order. */
+public class BulkResult {
+
+  private final int total;
+  private final int succeeded;
+  private final int failed;
+  private final List<BulkItemResult> items;
+
+  public BulkResult(List<BulkItemResult> items) {
+    items.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+    this.items = items;
+    this.total = items.size();
+    int ok = 0;
+    for (BulkItemResult item : items) {
+      switch (item.getOutcome()) {
+        case CREATED: case UPDATED: case DELETED: ok++; break;
+        default: break;
+      }
+    }
+    this.succeeded = ok;
+    this.failed = total - ok;
+  }
+
+  public int getTotal() { return total; }
+  public int getSucceeded() { return succeeded; }
+  public int getFailed() { return failed; }
+  public List<BulkItemResult> getItems() { return items; }
+}
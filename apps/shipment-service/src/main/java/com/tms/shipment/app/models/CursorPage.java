@@ -0,0 +1,28 @@
+package com.tms.shipment.app.models;
+
+import java.util.List;
+
+/**
+ * One keyset page: the rows plus the cursor for the next call. Unlike Spring's {@code Page}
+ * there is no total, so no COUNT query is needed to build it.
+ */
+public class CursorPage<T> {
+
+  private final List<T> content;
+  private final int size;
+  private final boolean hasNext;
+  private final String nextCursor;
+
+  public CursorPage(List<T> content, int size, boolean hasNext, String nextCursor) {
+    this.content = content;
+    this.size = size;
+    this.hasNext = hasNext;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getContent() { return content; }
+  public int getSize() { return size; }
+  public int getNumberOfElements() { return content.size(); }
+  public boolean isHasNext() { return hasNext; }
+  public String getNextCursor() { return nextCursor; }
+}
@@ -4,30 +4,70 @@ import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * trackingData (and tracking event bodies) to and from their JSON column. Each conversion is timed
+ * ({@code shipments.json.convert}) and its JSON length recorded ({@code shipments.json.chars}, equal to
+ * bytes for ASCII), tagged {@code direction=write|read}. The converter is created by Hibernate and
+ * directly by callers, so the meters live on {@link Metrics#globalRegistry}.
+ */
 @Converter
 public class JsonMapConverter implements AttributeConverter<Map<String, Object>, String> {
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Timer WRITE_TIME = timer("write");
+  private static final Timer READ_TIME = timer("read");
+  private static final DistributionSummary WRITE_SIZE = size("write");
+  private static final DistributionSummary READ_SIZE = size("read");
 
   @Override
   public String convertToDatabaseColumn(Map<String, Object> attribute) {
     if (attribute == null) return null;
+    long start = System.nanoTime();
+    String json;
     try {
-      return MAPPER.writeValueAsString(attribute);
+      json = MAPPER.writeValueAsString(attribute);
     } catch (Exception e) {
       throw new IllegalArgumentException("Cannot serialize trackingData", e);
     }
+    WRITE_TIME.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    WRITE_SIZE.record(json.length());
+    return json;
   }
 
   @Override
   public Map<String, Object> convertToEntityAttribute(String dbData) {
     if (dbData == null || dbData.isBlank()) return null;
+    long start = System.nanoTime();
+    Map<String, Object> map;
     try {
-      return MAPPER.readValue(dbData, new TypeReference<>() {});
+      map = MAPPER.readValue(dbData, new TypeReference<>() {});
     } catch (Exception e) {
       throw new IllegalArgumentException("Cannot deserialize trackingData", e);
     }
+    READ_TIME.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    READ_SIZE.record(dbData.length());
+    return map;
+  }
+
+  private static Timer timer(String direction) {
+    return Timer.builder("shipments.json.convert")
+        .description("JSON column conversions")
+        .tag("direction", direction)
+        .register(Metrics.globalRegistry);
+  }
+
+  private static DistributionSummary size(String direction) {
+    return DistributionSummary.builder("shipments.json.chars")
+        .description("Length of converted JSON column values")
+        .baseUnit("chars")
+        .tag("direction", direction)
+        .register(Metrics.globalRegistry);
   }
 }
@@ -0,0 +1,27 @@
+package com.tms.shipment.app.models;
+
+import java.math.BigDecimal;
+
+/** One pickup → delivery lane of {@code GET /api/shipments/analytics/lanes}: shipments and rate total/average. */
+public class LaneStats {
+
+  private final String pickupLocation;
+  private final String deliveryLocation;
+  private final long count;
+  private final BigDecimal rateTotal;
+  private final BigDecimal rateAverage;
+
+  public LaneStats(String pickupLocation, String deliveryLocation, long count, BigDecimal rateTotal, BigDecimal rateAverage) {
+    this.pickupLocation = pickupLocation;
+    this.deliveryLocation = deliveryLocation;
+    this.count = count;
+    this.rateTotal = rateTotal;
+    this.rateAverage = rateAverage;
+  }
+
+  public String getPickupLocation() { return pickupLocation; }
+  public String getDeliveryLocation() { return deliveryLocation; }
+  public long getCount() { return count; }
+  public BigDecimal getRateTotal() { return rateTotal; }
+  public BigDecimal getRateAverage() { return rateAverage; }
+}
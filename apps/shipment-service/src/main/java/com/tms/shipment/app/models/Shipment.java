@@ -7,7 +7,18 @@ import java.time.Instant;
 import java.util.Map;
 
 @Entity
-@Table(name = "shipments")
+@Table(name = "shipments", indexes = {
+    // the schema is owned by db/migration (Hibernate only validates it); these mirror V2__list_indexes.sql
+    @Index(name = "idx_shipments_created", columnList = "createdAt DESC, id DESC"),
+    @Index(name = "idx_shipments_updated", columnList = "updatedAt DESC, id DESC"),
+    @Index(name = "idx_shipments_rate", columnList = "rate DESC, id DESC"),
+    @Index(name = "idx_shipments_status_created", columnList = "status, createdAt DESC, id DESC"),
+    @Index(name = "idx_shipments_status_updated", columnList = "status, updatedAt DESC, id DESC"),
+    @Index(name = "idx_shipments_status_rate", columnList = "status, rate DESC, id DESC"),
+    // also the equality / IN lookups produced by the name index (see ShipmentNameIndex)
+    @Index(name = "idx_shipments_shipper_created", columnList = "shipperName, createdAt DESC, id DESC"),
+    @Index(name = "idx_shipments_carrier_created", columnList = "carrierName, createdAt DESC, id DESC")
+})
 public class Shipment {
 
   @Id
@@ -36,6 +47,7 @@ public class Shipment {
   @Column(precision = 12, scale = 2, nullable = false)
   private BigDecimal rate = BigDecimal.ZERO;
 
+  @Lob
   @Column(columnDefinition = "clob")
   @Convert(converter = JsonMapConverter.class)
   private Map<String, Object> trackingData;
@@ -46,6 +58,11 @@ public class Shipment {
   @Column(nullable = false)
   private Instant updatedAt;
 
+  /** Optimistic lock; bumped by every update. Also the first part of the shipment's ETag. */
+  @Version
+  @Column(nullable = false)
+  private Long version;
+
   @PrePersist
   void timestamps() {
     Instant now = Instant.now();
@@ -74,6 +91,8 @@ public class Shipment {
   public void setStatus(String status) { this.status = status; }
   public BigDecimal getRate() { return rate; }
   public void setRate(BigDecimal rate) { this.rate = rate; }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
   public Map<String, Object> getTrackingData() { return trackingData; }
   public void setTrackingData(Map<String, Object> trackingData) { this.trackingData = trackingData; }
   public Instant getCreatedAt() { return createdAt; }
@@ -0,0 +1,24 @@
+package com.tms.shipment.app.models;
+
+import java.util.List;
+
+/**
+ * Response of {@code GET /api/shipments/analytics/groups}: count and rate total/average per value of
+ * {@code groupBy} over the rows matching a list filter, plus the overall row.
+ */
+public class ShipmentBreakdown {
+
+  private final String groupBy;
+  private final ShipmentStats.Group total;
+  private final List<ShipmentStats.Group> groups;
+
+  public ShipmentBreakdown(String groupBy, ShipmentStats.Group total, List<ShipmentStats.Group> groups) {
+    this.groupBy = groupBy;
+    this.total = total;
+    this.groups = groups;
+  }
+
+  public String getGroupBy() { return groupBy; }
+  public ShipmentStats.Group getTotal() { return total; }
+  public List<ShipmentStats.Group> getGroups() { return groups; }
+}
@@ -0,0 +1,56 @@
+package com.tms.shipment.app.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for {@code GET /api/shipments?after=...}: the sort column, its direction,
+ * the last row's sort value and its id (the tie-break). Encoded as URL-safe Base64 so callers
+ * treat it as a token rather than something to build by hand.
+ */
+public final class ShipmentCursor {
+
+  /** Columns that can drive keyset paging. All are non-null so (value, id) is a total order. */
+  public static final Set<String> SORTABLE = Set.of(
+      "createdAt", "updatedAt", "shipperName", "carrierName", "pickupLocation", "deliveryLocation", "status", "rate", "id");
+
+  private static final char SEP = '\n';
+
+  private final String sortBy;
+  private final boolean ascending;
+  private final String value;
+  private final String id;
+
+  public ShipmentCursor(String sortBy, boolean ascending, String value, String id) {
+    this.sortBy = sortBy;
+    this.ascending = ascending;
+    this.value = value;
+    this.id = id;
+  }
+
+  public String getSortBy() { return sortBy; }
+  public boolean isAscending() { return ascending; }
+  public String getValue() { return value; }
+  public String getId() { return id; }
+
+  public String encode() {
+    String raw = sortBy + SEP + (ascending ? "asc" : "desc") + SEP + id + SEP + value;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static ShipmentCursor decode(String token) {
+    String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Malformed cursor", e);
+    }
+    // value goes last so it may itself contain the separator
+    String[] parts = raw.split(String.valueOf(SEP), 4);
+    if (parts.length != 4 || !SORTABLE.contains(parts[0])) {
+      throw new IllegalArgumentException("Malformed cursor");
+    }
+    return new ShipmentCursor(parts[0], "asc".equals(parts[1]), parts[3], parts[2]);
+  }
+}
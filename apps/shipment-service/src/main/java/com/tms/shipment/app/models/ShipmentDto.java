@@ -25,6 +25,43 @@ public class ShipmentDto {
   private Map<String, Object> trackingData;
   private Instant createdAt;
   private Instant updatedAt;
+  private Long version;
+
+  public ShipmentDto() {}
+
+  /** Summary row: every column but trackingData. Target of the list constructor expression in ShipmentRepositoryImpl. */
+  public ShipmentDto(String id, String shipperName, String carrierName, String pickupLocation, String deliveryLocation,
+      String trackingNumber, String status, BigDecimal rate, Instant createdAt, Instant updatedAt, Long version) {
+    this.id = id;
+    this.shipperName = shipperName;
+    this.carrierName = carrierName;
+    this.pickupLocation = pickupLocation;
+    this.deliveryLocation = deliveryLocation;
+    this.trackingNumber = trackingNumber;
+    this.status = status;
+    this.rate = rate;
+    this.createdAt = createdAt;
+    this.updatedAt = updatedAt;
+    this.version = version;
+  }
+
+  /** Every column of {@code e}; trackingData as stored, without the logged events. */
+  public static ShipmentDto of(Shipment e) {
+    ShipmentDto dto = new ShipmentDto();
+    dto.setId(e.getId());
+    dto.setShipperName(e.getShipperName());
+    dto.setCarrierName(e.getCarrierName());
+    dto.setPickupLocation(e.getPickupLocation());
+    dto.setDeliveryLocation(e.getDeliveryLocation());
+    dto.setTrackingNumber(e.getTrackingNumber());
+    dto.setStatus(e.getStatus());
+    dto.setRate(e.getRate());
+    dto.setTrackingData(e.getTrackingData());
+    dto.setCreatedAt(e.getCreatedAt());
+    dto.setUpdatedAt(e.getUpdatedAt());
+    dto.setVersion(e.getVersion());
+    return dto;
+  }
 
   public String getId() { return id; }
   public void setId(String id) { this.id = id; }
@@ -48,4 +85,6 @@ public class ShipmentDto {
   public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
   public Instant getUpdatedAt() { return updatedAt; }
   public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+  public Long getVersion() { return version; }
+  public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,65 @@
+package com.tms.shipment.app.models;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * The list filters shared by paging, keyset paging and export. {@code shipperName} / {@code carrierName}
+ * are case-insensitive substrings; when the name index has already resolved one of them to the exact
+ * set of matching names, that set is carried in {@code shipperNames} / {@code carrierNames} and the
+ * repository uses an IN match instead of a LIKE scan. {@code createdFrom} (inclusive) and
+ * {@code createdTo} (exclusive) bound createdAt; either may be null.
+ */
+public final class ShipmentFilter {
+
+  private final String status;
+  private final String shipperName;
+  private final String carrierName;
+  private final Collection<String> shipperNames;
+  private final Collection<String> carrierNames;
+  private final Instant createdFrom;
+  private final Instant createdTo;
+
+  private ShipmentFilter(String status, String shipperName, String carrierName,
+      Collection<String> shipperNames, Collection<String> carrierNames, Instant createdFrom, Instant createdTo) {
+    this.status = status;
+    this.shipperName = shipperName;
+    this.carrierName = carrierName;
+    this.shipperNames = shipperNames;
+    this.carrierNames = carrierNames;
+    this.createdFrom = createdFrom;
+    this.createdTo = createdTo;
+  }
+
+  public static ShipmentFilter of(String status, String shipperName, String carrierName) {
+    return new ShipmentFilter(status, shipperName, carrierName, null, null, null, null);
+  }
+
+  public ShipmentFilter withShipperNames(Collection<String> names) {
+    return new ShipmentFilter(status, shipperName, carrierName, names, carrierNames, createdFrom, createdTo);
+  }
+
+  public ShipmentFilter withCarrierNames(Collection<String> names) {
+    return new ShipmentFilter(status, shipperName, carrierName, shipperNames, names, createdFrom, createdTo);
+  }
+
+  public ShipmentFilter withCreatedRange(Instant from, Instant to) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new IllegalArgumentException("createdFrom must be before createdTo");
+    }
+    return new ShipmentFilter(status, shipperName, carrierName, shipperNames, carrierNames, from, to);
+  }
+
+  /** True when either createdAt bound is set. */
+  public boolean hasCreatedRange() {
+    return createdFrom != null || createdTo != null;
+  }
+
+  public String getStatus() { return status; }
+  public String getShipperName() { return shipperName; }
+  public String getCarrierName() { return carrierName; }
+  public Collection<String> getShipperNames() { return shipperNames; }
+  public Collection<String> getCarrierNames() { return carrierNames; }
+  public Instant getCreatedFrom() { return createdFrom; }
+  public Instant getCreatedTo() { return createdTo; }
+}
@@ -0,0 +1,48 @@
+package com.tms.shipment.app.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/** Response of {@code GET /api/shipments/stats}: per-group count and rate total/average, plus the overall row. */
+public class ShipmentStats {
+
+  public static class Group {
+    private final String key;
+    private final long count;
+    private final BigDecimal rateTotal;
+    private final BigDecimal rateAverage;
+
+    public Group(String key, long count, BigDecimal rateTotal, BigDecimal rateAverage) {
+      this.key = key;
+      this.count = count;
+      this.rateTotal = rateTotal;
+      this.rateAverage = rateAverage;
+    }
+
+    public String getKey() { return key; }
+    public long getCount() { return count; }
+    public BigDecimal getRateTotal() { return rateTotal; }
+    public BigDecimal getRateAverage() { return rateAverage; }
+  }
+
+  private final String groupBy;
+  private final LocalDate from;
+  private final LocalDate to;
+  private final Group total;
+  private final List<Group> groups;
+
+  public ShipmentStats(String groupBy, LocalDate from, LocalDate to, Group total, List<Group> groups) {
+    this.groupBy = groupBy;
+    this.from = from;
+    this.to = to;
+    this.total = total;
+    this.groups = groups;
+  }
+
+  public String getGroupBy() { return groupBy; }
+  public LocalDate getFrom() { return from; }
+  public LocalDate getTo() { return to; }
+  public Group getTotal() { return total; }
+  public List<Group> getGroups() { return groups; }
+}
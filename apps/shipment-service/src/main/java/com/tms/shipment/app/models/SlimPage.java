@@ -0,0 +1,33 @@
+package com.tms.shipment.app.models;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * An offset page without Spring's {@code pageable} and {@code sort} objects and the derived flags
+ * ({@code first}, {@code last}, {@code empty}) that {@code Page} serializes on every response:
+ * the rows, where they are, and the totals.
+ */
+public class SlimPage<T> {
+
+  private final List<T> content;
+  private final int number;
+  private final int size;
+  private final long totalElements;
+  private final int totalPages;
+
+  public SlimPage(Page<T> page) {
+    this.content = page.getContent();
+    this.number = page.getNumber();
+    this.size = page.getSize();
+    this.totalElements = page.getTotalElements();
+    this.totalPages = page.getTotalPages();
+  }
+
+  public List<T> getContent() { return content; }
+  public int getNumber() { return number; }
+  public int getSize() { return size; }
+  public long getTotalElements() { return totalElements; }
+  public int getTotalPages() { return totalPages; }
+}
@@ -0,0 +1,49 @@
+package com.tms.shipment.app.models;
+
+import javax.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One appended tracking scan. Rows are only ever inserted; the per-shipment history is read back
+ * through the (shipment_id, id) index, and deleting a shipment cascades in the database.
+ */
+@Entity
+@Table(name = "tracking_events", indexes = {
+    @Index(name = "idx_tracking_events_shipment", columnList = "shipment_id, id")
+})
+public class TrackingEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracking_event_seq")
+  @SequenceGenerator(name = "tracking_event_seq", sequenceName = "tracking_event_seq", allocationSize = 50)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "shipment_id", nullable = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  private Shipment shipment;
+
+  @Column(name = "shipment_id", insertable = false, updatable = false)
+  private String shipmentId;
+
+  @Column(nullable = false)
+  private Instant recordedAt;
+
+  @Column(length = 4000, nullable = false)
+  @Convert(converter = JsonMapConverter.class)
+  private Map<String, Object> data;
+
+  public Long getId() { return id; }
+  public void setId(Long id) { this.id = id; }
+  public Shipment getShipment() { return shipment; }
+  public void setShipment(Shipment shipment) { this.shipment = shipment; }
+  public String getShipmentId() { return shipmentId; }
+  public void setShipmentId(String shipmentId) { this.shipmentId = shipmentId; }
+  public Instant getRecordedAt() { return recordedAt; }
+  public void setRecordedAt(Instant recordedAt) { this.recordedAt = recordedAt; }
+  public Map<String, Object> getData() { return data; }
+  public void setData(Map<String, Object> data) { this.data = data; }
+}
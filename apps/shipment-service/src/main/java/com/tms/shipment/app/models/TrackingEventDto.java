@@ -0,0 +1,21 @@
+package com.tms.shipment.app.models;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class TrackingEventDto {
+
+  private Long id;
+  private String shipmentId;
+  private Instant recordedAt;
+  private Map<String, Object> data;
+
+  public Long getId() { return id; }
+  public void setId(Long id) { this.id = id; }
+  public String getShipmentId() { return shipmentId; }
+  public void setShipmentId(String shipmentId) { this.shipmentId = shipmentId; }
+  public Instant getRecordedAt() { return recordedAt; }
+  public void setRecordedAt(Instant recordedAt) { this.recordedAt = recordedAt; }
+  public Map<String, Object> getData() { return data; }
+  public void setData(Map<String, Object> data) { this.data = data; }
+}
@@ -1,20 +1,70 @@
 package com.tms.shipment.app.repositories;
 
 import com.tms.shipment.app.models.Shipment;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
-public interface ShipmentRepository extends JpaRepository<Shipment, String> {
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-  @Query("SELECT s FROM Shipment s WHERE (:status IS NULL OR s.status = :status) " +
-      "AND (:shipperName IS NULL OR LOWER(s.shipperName) LIKE LOWER(CONCAT('%', :shipperName, '%'))) " +
-      "AND (:carrierName IS NULL OR LOWER(s.carrierName) LIKE LOWER(CONCAT('%', :carrierName, '%')))")
-  Page<Shipment> findAllFiltered(
-      @Param("status") String status,
-      @Param("shipperName") String shipperName,
-      @Param("carrierName") String carrierName,
-      Pageable pageable);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ShipmentRepository extends JpaRepository<Shipment, String>, ShipmentRepositoryCustom {
+
+  /** Row version by primary key, without loading the row (or its trackingData). */
+  @Query("SELECT s.version FROM Shipment s WHERE s.id = :id")
+  Optional<Long> findVersionById(@Param("id") String id);
+
+  /**
+   * Moves the row version on without loading the row; the row stays locked until the caller's
+   * transaction ends. 0 when the row does not exist.
+   */
+  @Modifying
+  @Query("UPDATE Shipment s SET s.version = s.version + 1 WHERE s.id = :id")
+  int incrementVersion(@Param("id") String id);
+
+  /** [name, row count] per distinct shipper name. */
+  @Query("SELECT s.shipperName, COUNT(s) FROM Shipment s GROUP BY s.shipperName")
+  List<Object[]> countByShipperName();
+
+  /** [name, row count] per distinct carrier name. */
+  @Query("SELECT s.carrierName, COUNT(s) FROM Shipment s GROUP BY s.carrierName")
+  List<Object[]> countByCarrierName();
+
+  /**
+   * [status, carrierName, shipperName, createdAt, rate] for every row, without the trackingData CLOB.
+   * Forward-only; must be consumed inside a transaction.
+   */
+  @Query("SELECT s.status, s.carrierName, s.shipperName, s.createdAt, s.rate FROM Shipment s")
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+  Stream<Object[]> streamStatsColumns();
+
+  /** {@link #streamStatsColumns} for the given rows only. */
+  @Query("SELECT s.status, s.carrierName, s.shipperName, s.createdAt, s.rate FROM Shipment s WHERE s.id IN :ids")
+  List<Object[]> findStatsColumns(@Param("ids") Collection<String> ids);
+
+  /**
+   * [id, shipperName, carrierName, status, pickupLocation, deliveryLocation, rate, createdAt] for every
+   * row, the columns of {@code ShipmentColumns}. Forward-only; must be consumed inside a transaction.
+   */
+  @Query("SELECT s.id, s.shipperName, s.carrierName, s.status, s.pickupLocation, s.deliveryLocation, s.rate, s.createdAt FROM Shipment s")
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+  Stream<Object[]> streamColumnarColumns();
+
+  /**
+   * Up to a page of rows in one of {@code statuses} created and last updated before {@code cutoff}, in
+   * no particular order (an ORDER BY would sort every candidate), loaded read-only for the archiver.
+   */
+  @Query("SELECT s FROM Shipment s WHERE s.status IN :statuses AND s.createdAt < :cutoff AND s.updatedAt < :cutoff")
+  @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+  List<Shipment> findArchivable(@Param("statuses") Collection<String> statuses, @Param("cutoff") Instant cutoff, Pageable page);
 }
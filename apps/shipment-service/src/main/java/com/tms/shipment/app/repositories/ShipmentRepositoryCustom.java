@@ -0,0 +1,51 @@
+package com.tms.shipment.app.repositories;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentCursor;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries built from a {@link ShipmentFilter} (optional predicates, dynamic sort column, keyset
+ * predicates), which do not fit a single JPQL string. Implemented by {@link ShipmentRepositoryImpl}.
+ */
+public interface ShipmentRepositoryCustom {
+
+  /** JDBC fetch size for {@link #streamAllFiltered}; bounds how many rows the driver buffers at once. */
+  int EXPORT_FETCH_SIZE = 500;
+
+  /** Offset page plus total count. */
+  Page<Shipment> findAllFiltered(ShipmentFilter filter, Pageable pageable);
+
+  /**
+   * {@link #findAllFiltered} selecting the scalar columns straight into summary DTOs: the
+   * trackingData CLOB is never read or parsed, and no entities enter the persistence context.
+   */
+  Page<ShipmentDto> findSummaries(ShipmentFilter filter, Pageable pageable);
+
+  /**
+   * Keyset page: rows strictly after {@code after} in (sortBy, id) order, at most {@code size} of
+   * them. No COUNT is issued; one extra row is fetched to decide {@link Slice#hasNext()}.
+   */
+  Slice<Shipment> findSliceAfter(ShipmentFilter filter, String sortBy, boolean ascending, ShipmentCursor after, int size);
+
+  /** {@link #findSliceAfter} as summary DTOs, see {@link #findSummaries}. */
+  Slice<ShipmentDto> findSummarySliceAfter(ShipmentFilter filter, String sortBy, boolean ascending, ShipmentCursor after, int size);
+
+  /**
+   * Forward-only cursor fetched {@value #EXPORT_FETCH_SIZE} rows per round trip and loaded
+   * read-only (no dirty-checking snapshot). Must be consumed inside a transaction and closed;
+   * callers detach each row once written.
+   */
+  Stream<Shipment> streamAllFiltered(ShipmentFilter filter, Sort sort);
+
+  /** [group value, row count, rate sum] per distinct value of {@code column}, over the whole table. */
+  List<Object[]> aggregateBy(String column);
+}
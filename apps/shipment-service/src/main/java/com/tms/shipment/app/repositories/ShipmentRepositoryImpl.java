@@ -0,0 +1,203 @@
+package com.tms.shipment.app.repositories;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentCursor;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+class ShipmentRepositoryImpl implements ShipmentRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  public Page<Shipment> findAllFiltered(ShipmentFilter filter, Pageable pageable) {
+    return page(Shipment.class, (cb, root) -> root, filter, pageable);
+  }
+
+  @Override
+  public Page<ShipmentDto> findSummaries(ShipmentFilter filter, Pageable pageable) {
+    return page(ShipmentDto.class, ShipmentRepositoryImpl::summary, filter, pageable);
+  }
+
+  @Override
+  public Slice<Shipment> findSliceAfter(ShipmentFilter filter, String sortBy, boolean ascending, ShipmentCursor after, int size) {
+    return sliceAfter(Shipment.class, (cb, root) -> root, filter, sortBy, ascending, after, size);
+  }
+
+  @Override
+  public Slice<ShipmentDto> findSummarySliceAfter(ShipmentFilter filter, String sortBy, boolean ascending, ShipmentCursor after, int size) {
+    return sliceAfter(ShipmentDto.class, ShipmentRepositoryImpl::summary, filter, sortBy, ascending, after, size);
+  }
+
+  private <T> Page<T> page(Class<T> type, BiFunction<CriteriaBuilder, Root<Shipment>, Selection<? extends T>> select,
+      ShipmentFilter filter, Pageable pageable) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<T> q = cb.createQuery(type);
+    Root<Shipment> root = q.from(Shipment.class);
+    q.select(select.apply(cb, root)).where(filters(cb, root, filter).toArray(new Predicate[0]));
+    q.orderBy(orders(cb, root, filter, pageable.getSort()));
+    TypedQuery<T> query = em.createQuery(q);
+    if (pageable.isPaged()) {
+      query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+    }
+    // the COUNT is skipped when the first page is not full
+    return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(filter));
+  }
+
+  private <T> Slice<T> sliceAfter(Class<T> type, BiFunction<CriteriaBuilder, Root<Shipment>, Selection<? extends T>> select,
+      ShipmentFilter filter, String sortBy, boolean ascending, ShipmentCursor after, int size) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<T> q = cb.createQuery(type);
+    Root<Shipment> root = q.from(Shipment.class);
+
+    List<Predicate> where = filters(cb, root, filter);
+    Path<Comparable<Object>> sortPath = root.get(sortBy);
+    Path<String> idPath = root.get("id");
+    if (after != null) {
+      Comparable<Object> value = parse(sortPath.getJavaType(), after.getValue());
+      // the redundant bound on the sort column alone gives the index a range to seek to; H2 cannot
+      // derive one from the OR
+      where.add(ascending ? cb.greaterThanOrEqualTo(sortPath, value) : cb.lessThanOrEqualTo(sortPath, value));
+      where.add(cb.or(
+          beyond(cb, sortPath, value, ascending),
+          cb.and(cb.equal(sortPath, value), beyond(cb, idPath, after.getId(), ascending))));
+    }
+    q.select(select.apply(cb, root)).where(where.toArray(new Predicate[0]));
+    q.orderBy(orders(cb, root, filter, Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy)));
+
+    List<T> rows = em.createQuery(q).setMaxResults(size + 1).getResultList();
+    boolean hasNext = rows.size() > size;
+    if (hasNext) rows = rows.subList(0, size);
+    return new SliceImpl<>(rows, PageRequest.of(0, size), hasNext);
+  }
+
+  @Override
+  public Stream<Shipment> streamAllFiltered(ShipmentFilter filter, Sort sort) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Shipment> q = cb.createQuery(Shipment.class);
+    Root<Shipment> root = q.from(Shipment.class);
+    q.select(root).where(filters(cb, root, filter).toArray(new Predicate[0]));
+    q.orderBy(orders(cb, root, filter, sort));
+    return em.createQuery(q)
+        .setHint(HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+        .setHint(HINT_READONLY, true)
+        .getResultStream();
+  }
+
+  @Override
+  public List<Object[]> aggregateBy(String column) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Object[]> q = cb.createQuery(Object[].class);
+    Root<Shipment> root = q.from(Shipment.class);
+    Path<String> group = root.get(column);
+    q.multiselect(group, cb.count(root), cb.sum(root.<BigDecimal>get("rate"))).groupBy(group);
+    return em.createQuery(q).getResultList();
+  }
+
+  /** Constructor expression over the scalar columns; the select list never includes tracking_data. */
+  private static Selection<ShipmentDto> summary(CriteriaBuilder cb, Root<Shipment> root) {
+    return cb.construct(ShipmentDto.class,
+        root.get("id"), root.get("shipperName"), root.get("carrierName"), root.get("pickupLocation"),
+        root.get("deliveryLocation"), root.get("trackingNumber"), root.get("status"), root.get("rate"),
+        root.get("createdAt"), root.get("updatedAt"), root.get("version"));
+  }
+
+  private long count(ShipmentFilter filter) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Long> q = cb.createQuery(Long.class);
+    Root<Shipment> root = q.from(Shipment.class);
+    q.select(cb.count(root)).where(filters(cb, root, filter).toArray(new Predicate[0]));
+    return em.createQuery(q).getSingleResult();
+  }
+
+  static List<Predicate> filters(CriteriaBuilder cb, Root<Shipment> root, ShipmentFilter filter) {
+    List<Predicate> where = new ArrayList<>();
+    if (filter.getStatus() != null) where.add(cb.equal(root.get("status"), filter.getStatus()));
+    addNameFilter(cb, root.get("shipperName"), filter.getShipperName(), filter.getShipperNames(), where);
+    addNameFilter(cb, root.get("carrierName"), filter.getCarrierName(), filter.getCarrierNames(), where);
+    if (filter.getCreatedFrom() != null) where.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getCreatedFrom()));
+    if (filter.getCreatedTo() != null) where.add(cb.lessThan(root.get("createdAt"), filter.getCreatedTo()));
+    return where;
+  }
+
+  private static void addNameFilter(CriteriaBuilder cb, Path<String> column, String substring, Collection<String> exact, List<Predicate> where) {
+    if (exact != null) {
+      // resolved by the name index: an IN on the column instead of a leading-wildcard LIKE
+      where.add(exact.isEmpty() ? cb.disjunction() : column.in(exact));
+    } else if (substring != null) {
+      where.add(cb.like(cb.lower(column), "%" + substring.toLowerCase() + "%"));
+    }
+  }
+
+  /**
+   * {@code sort} with id as the final tie-break, led by the column the filter pins to a single value
+   * (if any). Leading with a constant column does not change the result, but it makes the ORDER BY a
+   * prefix of the (column, sort column, id) indexes in {@code V2__list_indexes.sql}, and H2 only reads
+   * rows in index order, instead of sorting every match, when the ORDER BY is such a prefix.
+   */
+  private static List<Order> orders(CriteriaBuilder cb, Root<Shipment> root, ShipmentFilter filter, Sort sort) {
+    List<Order> orders = new ArrayList<>();
+    String pinned = pinnedColumn(filter);
+    if (pinned != null && sort.getOrderFor(pinned) == null) orders.add(cb.asc(root.get(pinned)));
+    boolean ascending = true;
+    for (Sort.Order o : sort) {
+      Path<?> path = root.get(o.getProperty());
+      orders.add(o.isAscending() ? cb.asc(path) : cb.desc(path));
+      ascending = o.isAscending();
+    }
+    if (sort.getOrderFor("id") == null) orders.add(ascending ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+    return orders;
+  }
+
+  /** The column {@link #filters} compares to exactly one value; a single resolved name wins over status. */
+  private static String pinnedColumn(ShipmentFilter filter) {
+    if (filter.getShipperNames() != null && filter.getShipperNames().size() == 1) return "shipperName";
+    if (filter.getCarrierNames() != null && filter.getCarrierNames().size() == 1) return "carrierName";
+    return filter.getStatus() != null ? "status" : null;
+  }
+
+  private static <T extends Comparable<? super T>> Predicate beyond(CriteriaBuilder cb, Expression<? extends T> path, T value, boolean ascending) {
+    return ascending ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> parse(Class<?> type, String raw) {
+    try {
+      if (type == Instant.class) return (Comparable<Object>) (Comparable<?>) Instant.parse(raw);
+      if (type == BigDecimal.class) return (Comparable<Object>) (Comparable<?>) new BigDecimal(raw);
+      return (Comparable<Object>) (Comparable<?>) raw;
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed cursor", e);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.tms.shipment.app.repositories;
+
+import com.tms.shipment.app.models.TrackingEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TrackingEventRepository extends JpaRepository<TrackingEvent, Long> {
+
+  /** Window of one shipment's log: ids after {@code since}, oldest first, at most {@code limit.getPageSize()}. */
+  List<TrackingEvent> findByShipmentIdAndIdGreaterThanOrderByIdAsc(String shipmentId, long since, Pageable limit);
+
+  /** Id of the shipment's newest event (index-only), or null if it has none. */
+  @Query("SELECT MAX(e.id) FROM TrackingEvent e WHERE e.shipmentId = :shipmentId")
+  Long findLastId(@Param("shipmentId") String shipmentId);
+
+  /** Id of the newest event of any shipment, or null. */
+  @Query("SELECT MAX(e.id) FROM TrackingEvent e")
+  Long findLastId();
+
+  /** Full logs of several shipments in one query, for archiving them with their rows. */
+  List<TrackingEvent> findByShipmentIdInOrderByIdAsc(Collection<String> shipmentIds);
+
+  /** One shipment's newest events, newest first, read backwards through the (shipment_id, id) index. */
+  List<TrackingEvent> findByShipmentIdOrderByIdDesc(String shipmentId, Pageable limit);
+
+  /** The newest {@code limit} events of each of several shipments in one query, oldest first. */
+  @Query(nativeQuery = true, value = "SELECT id, shipment_id, recorded_at, data FROM ("
+      + "SELECT e.*, ROW_NUMBER() OVER (PARTITION BY e.shipment_id ORDER BY e.id DESC) AS rn "
+      + "FROM tracking_events e WHERE e.shipment_id IN (:ids)) t WHERE rn <= :limit ORDER BY id")
+  List<TrackingEvent> findNewestByShipmentIdIn(@Param("ids") Collection<String> shipmentIds, @Param("limit") int limit);
+}
@@ -0,0 +1,372 @@
+package com.tms.shipment.app.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tms.shipment.app.models.ShipmentCursor;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for shipments moved out of the hot table by {@link ShipmentArchiver}: immutable,
+ * gzip'd JSON segments in {@code shipment_archive_segments} (see {@code V3__archive.sql}), each holding
+ * the shipments of one UTC createdAt month written by one archiver batch, plus an id directory. Rows
+ * come back exactly as {@link ShipmentService#getById} returned them when they were archived, and
+ * are read-only from then on.
+ *
+ * <p>A scan first prunes segments on their createdAt bounds and statuses, then decodes only the
+ * survivors; decoded segments are kept in a small LRU since the same recent months tend to be read.
+ */
+@Component
+public class ShipmentArchive implements MeterBinder {
+
+  private static final TypeReference<List<ShipmentDto>> ROWS = new TypeReference<List<ShipmentDto>>() {};
+
+  /** One decoded segment, by shipment id in createdAt order. */
+  private static final class Segment {
+    final Map<String, ShipmentDto> rows;
+
+    Segment(List<ShipmentDto> rows) {
+      this.rows = new LinkedHashMap<>(rows.size() * 2);
+      for (ShipmentDto d : rows) this.rows.put(d.getId(), d);
+    }
+  }
+
+  /** The first {@code limit} matches of a scan in list order, and how many there are in all. */
+  public static final class Matches {
+    private final List<ShipmentDto> rows;
+    private final long count;
+
+    Matches(List<ShipmentDto> rows, long count) {
+      this.rows = rows;
+      this.count = count;
+    }
+
+    public List<ShipmentDto> getRows() { return rows; }
+    public long getCount() { return count; }
+  }
+
+  private final JdbcTemplate jdbc;
+  private final ObjectMapper mapper;
+  private final Cache<Long, Segment> decoded;
+  /** [segment count, newest archived createdAt], loaded on first use and after each archiver batch. */
+  private volatile Object[] summary;
+
+  public ShipmentArchive(JdbcTemplate jdbc, ObjectMapper mapper, @Value("${shipments.archive.segment-cache:64}") int segmentCache) {
+    this.jdbc = jdbc;
+    this.mapper = mapper;
+    this.decoded = Caffeine.newBuilder().maximumSize(segmentCache).recordStats().build();
+  }
+
+  /** The decoded-segment LRU as {@code cache.*{cache="archive-segments"}}. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, decoded, "archive-segments");
+  }
+
+  /**
+   * True when {@code filter} has a createdAt range that starts at or before the newest archived
+   * shipment; lists without a range, or with one entirely newer than the archive, stay on the hot table.
+   */
+  public boolean reaches(ShipmentFilter filter) {
+    if (!filter.hasCreatedRange()) return false;
+    Instant newest = (Instant) summary()[1];
+    return newest != null && (filter.getCreatedFrom() == null || !filter.getCreatedFrom().isAfter(newest));
+  }
+
+  /** Changes whenever a segment is added; part of the list ETag of requests that reach the archive. */
+  public long generation() {
+    return (Long) summary()[0];
+  }
+
+  /** Re-reads the segment count and horizon after segments have been committed. */
+  public void refresh() {
+    summary = jdbc.queryForObject("SELECT COUNT(*), MAX(max_created_at) FROM shipment_archive_segments",
+        (rs, i) -> new Object[] { rs.getLong(1), toInstant(rs.getTimestamp(2)) });
+  }
+
+  private Object[] summary() {
+    Object[] s = summary;
+    if (s == null) {
+      refresh();
+      s = summary;
+    }
+    return s;
+  }
+
+  public Optional<ShipmentDto> find(String id) {
+    List<Long> segment = jdbc.queryForList("SELECT segment_id FROM shipment_archive_ids WHERE shipment_id = ?", Long.class, id);
+    if (segment.isEmpty()) return Optional.empty();
+    return Optional.ofNullable(segment(segment.get(0)).rows.get(id)).map(ShipmentCache::copy);
+  }
+
+  /** The archived shipments among {@code ids}, by id; one directory query, then one decode per segment. */
+  public Map<String, ShipmentDto> findAll(Collection<String> ids) {
+    Map<String, ShipmentDto> out = new HashMap<>();
+    if (ids.isEmpty()) return out;
+    String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+    Map<Long, List<String>> bySegment = new TreeMap<>();
+    jdbc.query("SELECT shipment_id, segment_id FROM shipment_archive_ids WHERE shipment_id IN (" + in + ")",
+        rs -> { bySegment.computeIfAbsent(rs.getLong(2), k -> new ArrayList<>()).add(rs.getString(1)); },
+        ids.toArray());
+    for (Map.Entry<Long, List<String>> e : bySegment.entrySet()) {
+      Segment s = segment(e.getKey());
+      for (String id : e.getValue()) {
+        ShipmentDto d = s.rows.get(id);
+        if (d != null) out.put(id, ShipmentCache.copy(d));
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Archived shipments matching {@code filter}, ordered by {@code order} and strictly after
+   * {@code after} in it (null for none), at most {@code limit} of them; the count covers every match
+   * after {@code after}. Rows are summaries (trackingData null) unless {@code withTrackingData}.
+   */
+  public Matches scan(ShipmentFilter filter, Comparator<ShipmentDto> order, ShipmentDto after, int limit, boolean withTrackingData) {
+    // the worst of the kept rows on top, so each better match evicts it
+    PriorityQueue<ShipmentDto> top = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), order.reversed());
+    long count = 0;
+    for (long id : segmentIds(filter)) {
+      for (ShipmentDto d : segment(id).rows.values()) {
+        if (!matches(filter, d) || (after != null && order.compare(d, after) <= 0)) continue;
+        count++;
+        if (top.size() < limit) top.add(d);
+        else if (limit > 0 && order.compare(d, top.peek()) < 0) {
+          top.poll();
+          top.add(d);
+        }
+      }
+    }
+    List<ShipmentDto> rows = new ArrayList<>(top.size());
+    for (ShipmentDto d : top) {
+      ShipmentDto c = ShipmentCache.copy(d);
+      if (!withTrackingData) c.setTrackingData(null);
+      rows.add(c);
+    }
+    rows.sort(order);
+    return new Matches(rows, count);
+  }
+
+  /** Every archived shipment, segment by segment, bypassing the decoded-segment cache. */
+  public void forEach(Consumer<ShipmentDto> action) {
+    for (long id : jdbc.queryForList("SELECT id FROM shipment_archive_segments ORDER BY id", Long.class)) {
+      decode(id).forEach(action);
+    }
+  }
+
+  /**
+   * Writes {@code rows} as one new segment per createdAt month, and their ids to the directory, in the
+   * caller's transaction. Call {@link #refresh()} once it has committed.
+   */
+  public int append(List<ShipmentDto> rows) {
+    Map<YearMonth, List<ShipmentDto>> byMonth = new TreeMap<>();
+    for (ShipmentDto d : rows) {
+      byMonth.computeIfAbsent(YearMonth.from(d.getCreatedAt().atOffset(ZoneOffset.UTC)), k -> new ArrayList<>()).add(d);
+    }
+    Instant now = Instant.now();
+    for (Map.Entry<YearMonth, List<ShipmentDto>> e : byMonth.entrySet()) {
+      List<ShipmentDto> month = e.getValue();
+      month.sort(Comparator.comparing(ShipmentDto::getCreatedAt).thenComparing(ShipmentDto::getId));
+      byte[] json = json(month);
+      byte[] data = gzip(json);
+      TreeSet<String> statuses = new TreeSet<>();
+      for (ShipmentDto d : month) statuses.add(d.getStatus());
+      Instant start = e.getKey().atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+      Instant end = e.getKey().plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+      KeyHolder key = new GeneratedKeyHolder();
+      jdbc.update(con -> {
+        PreparedStatement ps = con.prepareStatement("INSERT INTO shipment_archive_segments (range_start, range_end, "
+            + "min_created_at, max_created_at, row_count, statuses, raw_bytes, archived_at, data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            new String[] { "id" });
+        ps.setTimestamp(1, Timestamp.from(start));
+        ps.setTimestamp(2, Timestamp.from(end));
+        ps.setTimestamp(3, Timestamp.from(month.get(0).getCreatedAt()));
+        ps.setTimestamp(4, Timestamp.from(month.get(month.size() - 1).getCreatedAt()));
+        ps.setInt(5, month.size());
+        ps.setString(6, "," + String.join(",", statuses) + ",");
+        ps.setLong(7, json.length);
+        ps.setTimestamp(8, Timestamp.from(now));
+        ps.setBytes(9, data);
+        return ps;
+      }, key);
+      long segmentId = key.getKey().longValue();
+      jdbc.batchUpdate("INSERT INTO shipment_archive_ids (shipment_id, segment_id) VALUES (?, ?)", month, month.size(),
+          (ps, d) -> {
+            ps.setString(1, d.getId());
+            ps.setLong(2, segmentId);
+          });
+    }
+    return byMonth.size();
+  }
+
+  /** segments, rows, compressed and raw bytes, oldest / newest archived createdAt, decoded segments held. */
+  public Map<String, Object> stats() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    jdbc.query("SELECT COUNT(*), COALESCE(SUM(row_count), 0), COALESCE(SUM(OCTET_LENGTH(data)), 0), "
+        + "COALESCE(SUM(raw_bytes), 0), MIN(min_created_at), MAX(max_created_at) FROM shipment_archive_segments", rs -> {
+          out.put("segments", rs.getLong(1));
+          out.put("rows", rs.getLong(2));
+          out.put("compressedBytes", rs.getLong(3));
+          out.put("rawBytes", rs.getLong(4));
+          out.put("oldestCreatedAt", toInstant(rs.getTimestamp(5)));
+          out.put("newestCreatedAt", toInstant(rs.getTimestamp(6)));
+        });
+    out.put("decodedSegments", decoded.estimatedSize());
+    return out;
+  }
+
+  /**
+   * The repository's list order in memory: {@code sortBy}, then id, both in the given direction, with
+   * null sorting low as in H2. Strings compare by code point, like H2's default collation.
+   */
+  public static Comparator<ShipmentDto> order(String sortBy, boolean ascending) {
+    Comparator<ShipmentDto> c = Comparator.comparing(d -> sortKey(d, sortBy), Comparator.nullsFirst(Comparator.naturalOrder()));
+    c = c.thenComparing(ShipmentDto::getId);
+    return ascending ? c : c.reversed();
+  }
+
+  /** A row positioned at {@code cursor}, to compare archived rows against with {@link #order}. */
+  public static ShipmentDto probe(ShipmentCursor cursor) {
+    ShipmentDto d = new ShipmentDto();
+    d.setId(cursor.getId());
+    try {
+      switch (cursor.getSortBy()) {
+        case "createdAt": d.setCreatedAt(Instant.parse(cursor.getValue())); break;
+        case "updatedAt": d.setUpdatedAt(Instant.parse(cursor.getValue())); break;
+        case "rate": d.setRate(new BigDecimal(cursor.getValue())); break;
+        case "shipperName": d.setShipperName(cursor.getValue()); break;
+        case "carrierName": d.setCarrierName(cursor.getValue()); break;
+        case "pickupLocation": d.setPickupLocation(cursor.getValue()); break;
+        case "deliveryLocation": d.setDeliveryLocation(cursor.getValue()); break;
+        case "status": d.setStatus(cursor.getValue()); break;
+        default: break;
+      }
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed cursor", e);
+    }
+    return d;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Comparable<Object> sortKey(ShipmentDto d, String sortBy) {
+    Comparable key;
+    switch (sortBy) {
+      case "id": key = d.getId(); break;
+      case "createdAt": key = d.getCreatedAt(); break;
+      case "updatedAt": key = d.getUpdatedAt(); break;
+      case "rate": key = d.getRate(); break;
+      case "shipperName": key = d.getShipperName(); break;
+      case "carrierName": key = d.getCarrierName(); break;
+      case "pickupLocation": key = d.getPickupLocation(); break;
+      case "deliveryLocation": key = d.getDeliveryLocation(); break;
+      case "trackingNumber": key = d.getTrackingNumber(); break;
+      case "status": key = d.getStatus(); break;
+      default: throw new IllegalArgumentException("Cannot sort archived shipments by " + sortBy);
+    }
+    return key;
+  }
+
+  /** The filter as the repository applies it; names match by substring, resolved name sets are not needed here. */
+  static boolean matches(ShipmentFilter filter, ShipmentDto d) {
+    if (filter.getStatus() != null && !filter.getStatus().equals(d.getStatus())) return false;
+    if (!contains(d.getShipperName(), filter.getShipperName())) return false;
+    if (!contains(d.getCarrierName(), filter.getCarrierName())) return false;
+    if (filter.getCreatedFrom() != null && d.getCreatedAt().isBefore(filter.getCreatedFrom())) return false;
+    return filter.getCreatedTo() == null || d.getCreatedAt().isBefore(filter.getCreatedTo());
+  }
+
+  private static boolean contains(String value, String substring) {
+    return substring == null || value.toLowerCase().contains(substring.toLowerCase());
+  }
+
+  /** Segments whose createdAt bounds overlap the filter's range and that hold its status, oldest first. */
+  private List<Long> segmentIds(ShipmentFilter filter) {
+    StringBuilder sql = new StringBuilder("SELECT id FROM shipment_archive_segments WHERE 1 = 1");
+    List<Object> args = new ArrayList<>();
+    if (filter.getCreatedFrom() != null) {
+      sql.append(" AND max_created_at >= ?");
+      args.add(Timestamp.from(filter.getCreatedFrom()));
+    }
+    if (filter.getCreatedTo() != null) {
+      sql.append(" AND min_created_at < ?");
+      args.add(Timestamp.from(filter.getCreatedTo()));
+    }
+    if (filter.getStatus() != null) {
+      sql.append(" AND statuses LIKE ?");
+      args.add("%," + filter.getStatus() + ",%");
+    }
+    return jdbc.queryForList(sql.append(" ORDER BY id").toString(), Long.class, args.toArray());
+  }
+
+  private Segment segment(long id) {
+    return decoded.get(id, k -> new Segment(decode(k)));
+  }
+
+  private List<ShipmentDto> decode(long id) {
+    byte[] data = jdbc.queryForObject("SELECT data FROM shipment_archive_segments WHERE id = ?", byte[].class, id);
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return mapper.readValue(in, ROWS);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unreadable archive segment " + id, e);
+    }
+  }
+
+  private byte[] json(List<ShipmentDto> rows) {
+    try {
+      return mapper.writeValueAsBytes(rows);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] gzip(byte[] raw) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4);
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(raw);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static Instant toInstant(Timestamp t) {
+    return t == null ? null : t.toInstant();
+  }
+}
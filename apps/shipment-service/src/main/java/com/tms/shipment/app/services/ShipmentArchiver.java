@@ -0,0 +1,168 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background job moving shipments in a terminal status ({@code shipments.archive.statuses}) that have
+ * been neither created nor updated for {@code shipments.archive.after} from the hot table into
+ * {@link ShipmentArchive}. It runs on its own thread every {@code interval}, or on demand through
+ * {@link #trigger()}, in short transactions of {@code batch-size} rows, so writers only ever wait on
+ * the row locks of one batch.
+ *
+ * <p>Each row is deleted only if its version, which edits and tracking appends both move, is still the
+ * one that was read; a shipment edited or tracked meanwhile, or with an update still in
+ * {@link ShipmentWriteBuffer}, stays hot and is picked up by a later run if it qualifies again. Tracking
+ * events are stored inside the archived trackingData and leave the hot table with their shipment
+ * (on delete cascade). Archival is not a change of the shipment, so no {@link ShipmentChangedEvent}
+ * is published and derived state (cache, stats, change feed) is left as it is.
+ */
+@Component
+public class ShipmentArchiver implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentArchiver.class);
+
+  private final ShipmentRepository repository;
+  private final ShipmentService shipments;
+  private final TrackingEventService tracking;
+  private final ShipmentWriteBuffer writeBuffer;
+  private final ShipmentArchive archive;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final Duration after;
+  private final Set<String> statuses;
+  private final int batchSize;
+  private final ScheduledExecutorService scheduler;
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final AtomicLong archived = new AtomicLong();
+  private volatile Instant lastRun;
+
+  public ShipmentArchiver(ShipmentRepository repository, ShipmentService shipments, TrackingEventService tracking,
+      ShipmentWriteBuffer writeBuffer, ShipmentArchive archive, JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+      @Value("${shipments.archive.enabled:false}") boolean enabled,
+      @Value("${shipments.archive.after:90d}") Duration after,
+      @Value("${shipments.archive.statuses:delivered,cancelled}") String statuses,
+      @Value("${shipments.archive.interval:10m}") Duration interval,
+      @Value("${shipments.archive.batch-size:5000}") int batchSize) {
+    this.repository = repository;
+    this.shipments = shipments;
+    this.tracking = tracking;
+    this.writeBuffer = writeBuffer;
+    this.archive = archive;
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.after = after;
+    this.statuses = Stream.of(statuses.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+    this.batchSize = batchSize;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "shipment-archiver");
+      t.setDaemon(true);
+      return t;
+    });
+    if (enabled) {
+      scheduler.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Queues a run on the archiver thread; false if one is already in progress. */
+  public boolean trigger() {
+    if (running.get()) return false;
+    scheduler.execute(this::run);
+    return true;
+  }
+
+  /** Whether a run is in progress, shipments archived since startup, when the last run finished. */
+  public boolean isRunning() { return running.get(); }
+  public long getArchived() { return archived.get(); }
+  public Instant getLastRun() { return lastRun; }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("shipments.archived", archived, AtomicLong::get)
+        .description("Shipments moved to the archive since startup").register(registry);
+  }
+
+  private void run() {
+    if (!running.compareAndSet(false, true)) return;
+    try {
+      long start = System.nanoTime();
+      long n = archiveBefore(Instant.now().minus(after));
+      if (n > 0) log.info("Archived {} shipments in {} ms", n, (System.nanoTime() - start) / 1_000_000);
+    } catch (RuntimeException e) {
+      log.warn("Shipment archival failed; retrying next run", e);
+    } finally {
+      lastRun = Instant.now();
+      running.set(false);
+    }
+  }
+
+  /** Archives every eligible shipment last touched before {@code cutoff}, batch by batch; returns how many moved. */
+  long archiveBefore(Instant cutoff) {
+    long total = 0;
+    while (true) {
+      int[] batch = tx.execute(s -> archiveBatch(cutoff));
+      archive.refresh();
+      total += batch[1];
+      archived.addAndGet(batch[1]);
+      // a full batch of which nothing moved would be read again; the rest waits for the next run
+      if (batch[0] < batchSize || batch[1] == 0) return total;
+    }
+  }
+
+  /** [candidates read, rows archived] for one batch, in the caller's transaction. */
+  private int[] archiveBatch(Instant cutoff) {
+    List<Shipment> candidates = repository.findArchivable(statuses, cutoff, PageRequest.of(0, batchSize));
+    if (candidates.isEmpty()) return new int[] { 0, 0 };
+    List<ShipmentDto> rows = new ArrayList<>(candidates.size());
+    for (Shipment e : candidates) {
+      // an update still in the write-behind buffer would be lost with the row; its flush makes the row recent again
+      if (!writeBuffer.contains(e.getId())) rows.add(shipments.toDto(e));
+    }
+    if (rows.isEmpty()) return new int[] { candidates.size(), 0 };
+    // read the whole logs before the delete cascades them away
+    tracking.withAllEvents(rows);
+    // an append moves the version too, so a row whose log grew since it was read is left for the next run
+    int[][] deleted = jdbc.batchUpdate("DELETE FROM shipments WHERE id = ? AND version = ?",
+        rows, rows.size(), (ps, d) -> {
+          ps.setString(1, d.getId());
+          ps.setLong(2, d.getVersion());
+        });
+    List<ShipmentDto> moved = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      if (deleted[0][i] > 0) moved.add(rows.get(i));
+    }
+    if (!moved.isEmpty()) archive.append(moved);
+    return new int[] { candidates.size(), moved.size() };
+  }
+
+  @PreDestroy
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
@@ -0,0 +1,305 @@
+package com.tms.shipment.app.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.tms.shipment.app.models.BulkItemResult;
+import com.tms.shipment.app.models.BulkItemResult.Outcome;
+import com.tms.shipment.app.models.BulkResult;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk create / patch / delete. Rows are written in chunks of {@code shipments.bulk.chunk-size},
+ * one transaction per chunk, so Hibernate can group the statements into JDBC batches
+ * ({@code hibernate.jdbc.batch_size}). If a chunk fails, its rows are retried one by one so a
+ * single bad row only fails itself.
+ */
+@Service
+public class ShipmentBulkService implements MeterBinder {
+
+  private final ShipmentService shipmentService;
+  private final ShipmentWriteBuffer writeBuffer;
+  private final ShipmentRepository repository;
+  private final ApplicationEventPublisher events;
+  private final Validator validator;
+  private final ObjectReader dtoReader;
+  private final TransactionTemplate tx;
+  private final int chunkSize;
+  private final int maxItems;
+  private final LongAdder chunks = new LongAdder();
+  private final LongAdder replayedChunks = new LongAdder();
+  private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+  @PersistenceContext
+  private EntityManager em;
+
+  public ShipmentBulkService(
+      ShipmentService shipmentService,
+      ShipmentWriteBuffer writeBuffer,
+      ShipmentRepository repository,
+      ApplicationEventPublisher events,
+      Validator validator,
+      ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      @Value("${shipments.bulk.chunk-size:500}") int chunkSize,
+      @Value("${shipments.bulk.max-items:50000}") int maxItems) {
+    this.shipmentService = shipmentService;
+    this.writeBuffer = writeBuffer;
+    this.repository = repository;
+    this.events = events;
+    this.validator = validator;
+    this.dtoReader = objectMapper.readerFor(ShipmentDto.class);
+    this.tx = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+    this.maxItems = maxItems;
+    for (Outcome o : Outcome.values()) outcomes.put(o, new LongAdder());
+  }
+
+  /** Chunk transactions, chunks replayed row by row after a failure, and items per outcome. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("shipments.bulk.chunks", chunks, LongAdder::sum).register(registry);
+    FunctionCounter.builder("shipments.bulk.chunks.replayed", replayedChunks, LongAdder::sum).register(registry);
+    outcomes.forEach((outcome, n) -> FunctionCounter.builder("shipments.bulk.items", n, LongAdder::sum)
+        .tag("outcome", outcome.name().toLowerCase()).register(registry));
+  }
+
+  public BulkResult createAll(List<ShipmentDto> dtos) {
+    checkSize(dtos.size());
+    List<BulkItemResult> results = new ArrayList<>(dtos.size());
+    List<Indexed> chunk = new ArrayList<>(chunkSize);
+    for (int i = 0; i < dtos.size(); i++) {
+      acceptForCreate(i, dtos.get(i), chunk, results);
+    }
+    insertChunk(chunk, results);
+    return counted(results);
+  }
+
+  /**
+   * Same as {@link #createAll} for newline-delimited JSON; chunks are written while the body is still
+   * being read. The size of the body is only known at its end, after earlier chunks have committed,
+   * so lines past {@code shipments.bulk.max-items} are reported {@code INVALID} instead of failing
+   * the whole request.
+   */
+  public BulkResult createAllNdjson(Reader body) throws IOException {
+    List<BulkItemResult> results = new ArrayList<>();
+    List<Indexed> chunk = new ArrayList<>(chunkSize);
+    BufferedReader lines = new BufferedReader(body);
+    int index = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      if (line.isBlank()) continue;
+      if (index >= maxItems) {
+        results.add(new BulkItemResult(index++, null, Outcome.INVALID, List.of(tooMany())));
+        continue;
+      }
+      ShipmentDto dto;
+      try {
+        dto = dtoReader.readValue(line);
+      } catch (JsonProcessingException e) {
+        results.add(new BulkItemResult(index++, null, Outcome.INVALID, List.of("Malformed JSON: " + e.getOriginalMessage())));
+        continue;
+      }
+      acceptForCreate(index++, dto, chunk, results);
+    }
+    insertChunk(chunk, results);
+    return counted(results);
+  }
+
+  /** Partial updates; each element must carry its {@code id}. Each chunk loads its rows with one IN query. */
+  public BulkResult updateAll(List<ShipmentDto> dtos) {
+    checkSize(dtos.size());
+    List<BulkItemResult> results = new ArrayList<>(dtos.size());
+    List<Indexed> chunk = new ArrayList<>(chunkSize);
+    for (int i = 0; i < dtos.size(); i++) {
+      ShipmentDto dto = dtos.get(i);
+      if (dto == null || dto.getId() == null) {
+        results.add(new BulkItemResult(i, null, Outcome.INVALID, List.of("id: must not be null")));
+        continue;
+      }
+      chunk.add(new Indexed(i, dto));
+      if (chunk.size() == chunkSize) updateChunk(chunk, results);
+    }
+    updateChunk(chunk, results);
+    return counted(results);
+  }
+
+  public BulkResult deleteAll(List<String> ids) {
+    checkSize(ids.size());
+    List<BulkItemResult> results = new ArrayList<>(ids.size());
+    for (int from = 0; from < ids.size(); from += chunkSize) {
+      List<String> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+      writeBuffer.flush(chunk);
+      chunks.increment();
+      Set<String> existing = tx.execute(s -> {
+        List<Shipment> found = repository.findAllById(chunk);
+        if (!found.isEmpty()) repository.deleteAllInBatch(found);
+        Set<String> deleted = new HashSet<>();
+        for (Shipment e : found) {
+          deleted.add(e.getId());
+          events.publishEvent(ShipmentChangedEvent.deleted(shipmentService.toDto(e)));
+        }
+        return deleted;
+      });
+      for (int i = 0; i < chunk.size(); i++) {
+        String id = chunk.get(i);
+        results.add(BulkItemResult.ok(from + i, id, existing.contains(id) ? Outcome.DELETED : Outcome.NOT_FOUND));
+      }
+    }
+    return counted(results);
+  }
+
+  private void acceptForCreate(int index, ShipmentDto dto, List<Indexed> chunk, List<BulkItemResult> results) {
+    if (dto == null) {
+      results.add(new BulkItemResult(index, null, Outcome.INVALID, List.of("must not be null")));
+      return;
+    }
+    Set<ConstraintViolation<ShipmentDto>> violations = validator.validate(dto);
+    if (!violations.isEmpty()) {
+      results.add(new BulkItemResult(index, null, Outcome.INVALID, violations.stream()
+          .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+          .sorted()
+          .collect(Collectors.toList())));
+      return;
+    }
+    chunk.add(new Indexed(index, dto));
+    if (chunk.size() == chunkSize) insertChunk(chunk, results);
+  }
+
+  private void insertChunk(List<Indexed> chunk, List<BulkItemResult> results) {
+    if (chunk.isEmpty()) return;
+    // ids stay null so persist() goes straight to a batched INSERT instead of save()'s merge-and-select
+    writeChunk(chunk, results, (item, changes) -> {
+      Shipment e = shipmentService.newEntity(item.dto);
+      em.persist(e);
+      changes.add(() -> ShipmentChangedEvent.created(shipmentService.toDto(e)));
+      return BulkItemResult.ok(item.index, e.getId(), Outcome.CREATED);
+    });
+  }
+
+  private void updateChunk(List<Indexed> chunk, List<BulkItemResult> results) {
+    if (chunk.isEmpty()) return;
+    // buffered updates to these rows were accepted first
+    writeBuffer.flush(chunk.stream().map(c -> c.dto.getId()).collect(Collectors.toList()));
+    Map<String, Shipment> loaded = new LinkedHashMap<>();
+    writeChunk(chunk, results, (item, changes) -> {
+      if (loaded.isEmpty()) {
+        Set<String> ids = chunk.stream().map(c -> c.dto.getId()).collect(Collectors.toSet());
+        repository.findAllById(ids).forEach(e -> loaded.put(e.getId(), e));
+      }
+      Shipment found = loaded.get(item.dto.getId());
+      // after a rolled-back chunk the preloaded rows are detached; reload them in the replay transaction
+      if (found != null && !em.contains(found)) found = em.find(Shipment.class, item.dto.getId());
+      if (found == null) return BulkItemResult.ok(item.index, item.dto.getId(), Outcome.NOT_FOUND);
+      Shipment e = found;
+      ShipmentDto before = shipmentService.toDto(e);
+      shipmentService.mapDtoToEntity(item.dto, e);
+      // version and updatedAt move at flush, so the after image is taken then
+      changes.add(() -> ShipmentChangedEvent.updated(before, shipmentService.toDto(e)));
+      return BulkItemResult.ok(item.index, e.getId(), Outcome.UPDATED);
+    });
+    loaded.clear();
+  }
+
+  /**
+   * Applies {@code write} to every item of the chunk in one transaction and flushes once; the change
+   * events it queued are built and published after the flush, so they carry the flushed version and
+   * timestamps. On failure the chunk is rolled back and replayed row by row to find the offending rows.
+   */
+  private void writeChunk(List<Indexed> chunk, List<BulkItemResult> results, ChunkWrite write) {
+    chunks.increment();
+    try {
+      List<BulkItemResult> done = tx.execute(s -> {
+        List<BulkItemResult> out = new ArrayList<>(chunk.size());
+        List<Supplier<ShipmentChangedEvent>> changes = new ArrayList<>(chunk.size());
+        for (Indexed item : chunk) out.add(write.apply(item, changes));
+        flushAndPublish(changes);
+        return out;
+      });
+      results.addAll(done);
+    } catch (RuntimeException chunkFailure) {
+      replayedChunks.increment();
+      for (Indexed item : chunk) {
+        try {
+          results.add(tx.execute(s -> {
+            List<Supplier<ShipmentChangedEvent>> changes = new ArrayList<>(1);
+            BulkItemResult r = write.apply(item, changes);
+            flushAndPublish(changes);
+            return r;
+          }));
+        } catch (RuntimeException e) {
+          em.clear();
+          results.add(new BulkItemResult(item.index, item.dto.getId(), Outcome.FAILED, List.of(rootMessage(e))));
+        }
+      }
+    }
+    chunk.clear();
+  }
+
+  private void flushAndPublish(List<Supplier<ShipmentChangedEvent>> changes) {
+    em.flush();
+    for (Supplier<ShipmentChangedEvent> change : changes) events.publishEvent(change.get());
+    em.clear();
+  }
+
+  private BulkResult counted(List<BulkItemResult> results) {
+    for (BulkItemResult r : results) outcomes.get(r.getOutcome()).increment();
+    return new BulkResult(results);
+  }
+
+  private void checkSize(int size) {
+    if (size > maxItems) throw new IllegalArgumentException(tooMany());
+  }
+
+  private String tooMany() {
+    return "Bulk request exceeds " + maxItems + " items";
+  }
+
+  private static String rootMessage(Throwable e) {
+    Throwable t = e;
+    while (t.getCause() != null) t = t.getCause();
+    return t.getMessage();
+  }
+
+  /** Writes one item; events for what it changed go on {@code changes}, built once the chunk is flushed. */
+  private interface ChunkWrite {
+    BulkItemResult apply(Indexed item, List<Supplier<ShipmentChangedEvent>> changes);
+  }
+
+  private static final class Indexed {
+    final int index;
+    final ShipmentDto dto;
+
+    Indexed(int index, ShipmentDto dto) {
+      this.index = index;
+      this.dto = dto;
+    }
+  }
+}
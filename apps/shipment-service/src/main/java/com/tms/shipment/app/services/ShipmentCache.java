@@ -0,0 +1,154 @@
+package com.tms.shipment.app.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tms.shipment.app.models.ShipmentDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of {@link ShipmentDto} snapshots for {@code GET /api/shipments/{id}},
+ * evicting by size and by time since write. A hit skips both the row fetch and the trackingData
+ * JSON parse.
+ *
+ * <p>Entries are invalidated (not overwritten) from committed {@link ShipmentChangedEvent}s and
+ * {@link TrackingEventsAppendedEvent}s, so out-of-order commit callbacks cannot leave an older
+ * version behind. A load that races a commit is safe too: the invalidation waits for the in-flight
+ * load of that key and then removes it.
+ *
+ * <p>Cached snapshots are never handed out: callers get a shallow copy whose trackingData is a
+ * read-only view.
+ */
+@Component
+public class ShipmentCache implements MeterBinder {
+
+  private final Cache<String, ShipmentDto> cache;
+
+  public ShipmentCache(
+      @Value("${shipments.cache.enabled:true}") boolean enabled,
+      @Value("${shipments.cache.max-size:10000}") long maxSize,
+      @Value("${shipments.cache.ttl:60s}") Duration ttl) {
+    this.cache = enabled
+        ? Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build()
+        : null;
+  }
+
+  /** A cache that always calls through; for tests and {@code shipments.cache.enabled=false}. */
+  public static ShipmentCache disabled() {
+    return new ShipmentCache(false, 0, Duration.ZERO);
+  }
+
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  public Optional<ShipmentDto> get(String id, Function<String, Optional<ShipmentDto>> loader) {
+    if (cache == null) return loader.apply(id);
+    ShipmentDto snapshot = cache.get(id, key -> loader.apply(key).map(ShipmentCache::freeze).orElse(null));
+    return Optional.ofNullable(snapshot).map(ShipmentCache::copy);
+  }
+
+  /**
+   * Bulk form of {@link #get}: hits come from the cache and every miss from one {@code loader} call,
+   * whose result may omit ids that do not exist. Misses are not added to the cache, since a bulk load
+   * cannot be fenced against a concurrent invalidation the way {@link #get}'s per-key load is.
+   */
+  public Map<String, ShipmentDto> getAll(Collection<String> ids, Function<Set<String>, Map<String, ShipmentDto>> loader) {
+    Map<String, ShipmentDto> out = new HashMap<>();
+    Set<String> missing = new LinkedHashSet<>(ids);
+    if (cache != null) {
+      cache.getAllPresent(ids).forEach((id, snapshot) -> out.put(id, copy(snapshot)));
+      missing.removeAll(out.keySet());
+    }
+    if (!missing.isEmpty()) out.putAll(loader.apply(missing));
+    return out;
+  }
+
+  public void invalidate(String id) {
+    if (cache != null) cache.invalidate(id);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(ShipmentChangedEvent event) {
+    if (event.getType() != ShipmentChangedEvent.Type.CREATED) invalidate(event.getId());
+  }
+
+  /** Cached snapshots carry the derived trackingData, which an append changes. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTrackingEvents(TrackingEventsAppendedEvent event) {
+    invalidate(event.getShipmentId());
+  }
+
+  /** Caffeine's counters as {@code cache.*{cache="shipments"}}; nothing when disabled. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (cache != null) CaffeineCacheMetrics.monitor(registry, cache, "shipments");
+  }
+
+  /** hits, misses, evictions, size; all zero when disabled. */
+  public Map<String, Long> stats() {
+    Map<String, Long> out = new LinkedHashMap<>();
+    CacheStats s = cache == null ? CacheStats.empty() : cache.stats();
+    out.put("hits", s.hitCount());
+    out.put("misses", s.missCount());
+    out.put("evictions", s.evictionCount());
+    out.put("size", cache == null ? 0 : cache.estimatedSize());
+    return out;
+  }
+
+  private static ShipmentDto freeze(ShipmentDto dto) {
+    ShipmentDto frozen = copy(dto);
+    frozen.setTrackingData(readOnly(dto.getTrackingData()));
+    return frozen;
+  }
+
+  static ShipmentDto copy(ShipmentDto d) {
+    ShipmentDto c = new ShipmentDto();
+    c.setId(d.getId());
+    c.setShipperName(d.getShipperName());
+    c.setCarrierName(d.getCarrierName());
+    c.setPickupLocation(d.getPickupLocation());
+    c.setDeliveryLocation(d.getDeliveryLocation());
+    c.setTrackingNumber(d.getTrackingNumber());
+    c.setStatus(d.getStatus());
+    c.setRate(d.getRate());
+    c.setTrackingData(d.getTrackingData());
+    c.setCreatedAt(d.getCreatedAt());
+    c.setUpdatedAt(d.getUpdatedAt());
+    c.setVersion(d.getVersion());
+    return c;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T readOnly(T value) {
+    if (value instanceof Map) {
+      Map<String, Object> copy = new LinkedHashMap<>();
+      ((Map<String, Object>) value).forEach((k, v) -> copy.put(k, readOnly(v)));
+      return (T) Collections.unmodifiableMap(copy);
+    }
+    if (value instanceof List) {
+      List<Object> copy = new ArrayList<>();
+      for (Object v : (List<Object>) value) copy.add(readOnly(v));
+      return (T) Collections.unmodifiableList(copy);
+    }
+    return value;
+  }
+}
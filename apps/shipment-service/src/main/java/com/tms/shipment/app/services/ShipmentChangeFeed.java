@@ -0,0 +1,425 @@
+package com.tms.shipment.app.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tms.shipment.app.models.ShipmentDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Change feed behind {@code GET /api/shipments/changes}. Every committed {@link ShipmentChangedEvent}
+ * gets the next sequence number and is serialized once into a ring of the last
+ * {@code shipments.changes.buffer-size} changes; the sequence number is the SSE event id.
+ *
+ * <p>A subscriber is only a cursor into the ring. The commit callback stores the change and wakes a
+ * small dispatcher pool, which writes each subscriber's backlog to its connection, so writers never
+ * wait on a client. A subscriber the ring laps (its connection is slower than the write rate) is
+ * sent a {@value #RESYNC} event and closed. One resuming from a {@code Last-Event-ID} that has already
+ * left the ring gets the same event but stays connected. Either way the client reloads what it shows
+ * and continues from the resync event's id.
+ *
+ * <p>Numbering starts from the boot time in microseconds, so ids stay increasing across restarts and
+ * an id from an earlier run always reads as expired rather than as a position in this one.
+ */
+@Component
+public class ShipmentChangeFeed implements MeterBinder {
+
+  public static final String CHANGE = "change";
+  public static final String RESYNC = "resync";
+
+  /** Columns reported in {@code fields} when they change. trackingData is only named in {@code changed}. */
+  private static final Map<String, Function<ShipmentDto, Object>> COLUMNS = new LinkedHashMap<>();
+  static {
+    COLUMNS.put("shipperName", ShipmentDto::getShipperName);
+    COLUMNS.put("carrierName", ShipmentDto::getCarrierName);
+    COLUMNS.put("pickupLocation", ShipmentDto::getPickupLocation);
+    COLUMNS.put("deliveryLocation", ShipmentDto::getDeliveryLocation);
+    COLUMNS.put("trackingNumber", ShipmentDto::getTrackingNumber);
+    COLUMNS.put("status", ShipmentDto::getStatus);
+    COLUMNS.put("rate", ShipmentDto::getRate);
+    COLUMNS.put("createdAt", ShipmentDto::getCreatedAt);
+    COLUMNS.put("updatedAt", ShipmentDto::getUpdatedAt);
+    COLUMNS.put("version", ShipmentDto::getVersion);
+  }
+
+  private static final MediaType TEXT_PLAIN_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+  private static final Map<String, Object> EMPTY_TRACKING = Map.of(TrackingEventService.EVENTS, List.of());
+
+  /** Most events one dispatch writes to a subscriber before yielding the thread to the others. */
+  private static final int MAX_BATCH = 256;
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentChangeFeed.class);
+
+  /** Where a subscriber's event stream text is written; an {@link EventStream} outside tests. */
+  interface Sink {
+    void send(String frames) throws IOException;
+
+    void close();
+  }
+
+  private static final class Entry {
+    final long seq;
+    final String frame;
+
+    Entry(long seq, String frame) {
+      this.seq = seq;
+      this.frame = frame;
+    }
+  }
+
+  private final class Subscriber implements Runnable {
+    final Sink sink;
+    /** Last sequence number written; only touched by the dispatch that holds {@link #scheduled}. */
+    long cursor;
+    String resync;
+    volatile boolean heartbeatDue;
+    volatile boolean closed;
+    final AtomicBoolean scheduled = new AtomicBoolean();
+
+    Subscriber(Sink sink, long cursor) {
+      this.sink = sink;
+      this.cursor = cursor;
+    }
+
+    @Override
+    public void run() {
+      dispatch(this);
+    }
+  }
+
+  private final ObjectMapper objectMapper;
+  private final int capacity;
+  private final int maxSubscribers;
+  private final Duration timeout;
+  private final AtomicReferenceArray<Entry> ring;
+  private final Object appendLock = new Object();
+  private volatile long lastSeq;
+  private final long firstSeq;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean fanOutPending = new AtomicBoolean();
+  private final ExecutorService dispatcher;
+  private final ScheduledExecutorService heartbeats;
+  private final AtomicLong resyncs = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  public ShipmentChangeFeed(
+      ObjectMapper objectMapper,
+      @Value("${shipments.changes.buffer-size:10000}") int capacity,
+      @Value("${shipments.changes.max-subscribers:10000}") int maxSubscribers,
+      @Value("${shipments.changes.dispatch-threads:0}") int dispatchThreads,
+      @Value("${shipments.changes.heartbeat:15s}") Duration heartbeat,
+      @Value("${shipments.changes.timeout:30m}") Duration timeout) {
+    if (capacity < 1) throw new IllegalArgumentException("shipments.changes.buffer-size must be positive");
+    this.objectMapper = objectMapper;
+    this.capacity = capacity;
+    this.maxSubscribers = maxSubscribers;
+    this.timeout = timeout;
+    this.ring = new AtomicReferenceArray<>(capacity);
+    this.firstSeq = System.currentTimeMillis() * 1000;
+    this.lastSeq = firstSeq;
+    int threads = dispatchThreads > 0 ? dispatchThreads : Math.max(4, Runtime.getRuntime().availableProcessors());
+    this.dispatcher = Executors.newFixedThreadPool(threads, daemon("shipment-changes-"));
+    this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemon("shipment-changes-heartbeat-"));
+    if (!heartbeat.isZero()) {
+      heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(ShipmentChangedEvent event) {
+    List<String> changed = new ArrayList<>();
+    Map<String, Object> fields = new LinkedHashMap<>();
+    diff(event.getBefore(), event.getAfter(), changed, fields);
+    if (event.getType() == ShipmentChangedEvent.Type.UPDATED && changed.isEmpty()) return;
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("seq", null); // keeps seq first; assigned under the lock below
+    body.put("type", event.getType());
+    body.put("id", event.getId());
+    body.put("changed", changed);
+    body.put("fields", fields);
+    synchronized (appendLock) {
+      long seq = lastSeq + 1;
+      body.put("seq", seq);
+      ring.set(slot(seq), new Entry(seq, frame(seq, CHANGE, json(body))));
+      lastSeq = seq;
+    }
+    if (!subscribers.isEmpty() && fanOutPending.compareAndSet(false, true)) execute(this::fanOut);
+  }
+
+  /**
+   * Opens a stream positioned after {@code lastEventId}, or at the newest change when null. Empty
+   * when {@code shipments.changes.max-subscribers} are already connected.
+   */
+  public Optional<EventStream> subscribe(Long lastEventId) {
+    EventStream emitter = new EventStream(timeout.toMillis());
+    Sink sink = new Sink() {
+      @Override
+      public void send(String frames) throws IOException {
+        emitter.sendFrames(frames);
+      }
+
+      @Override
+      public void close() {
+        emitter.complete();
+      }
+    };
+    Optional<Runnable> unsubscribe = register(sink, lastEventId);
+    if (unsubscribe.isEmpty()) return Optional.empty();
+    emitter.onCompletion(unsubscribe.get());
+    emitter.onTimeout(unsubscribe.get());
+    emitter.onError(e -> unsubscribe.get().run());
+    return Optional.of(emitter);
+  }
+
+  /** Adds a subscriber; the returned action removes it. Empty when the subscriber limit is reached. */
+  Optional<Runnable> register(Sink sink, Long lastEventId) {
+    if (subscribers.size() >= maxSubscribers) {
+      rejected.incrementAndGet();
+      return Optional.empty();
+    }
+    long last = lastSeq;
+    Subscriber s = new Subscriber(sink, last);
+    if (lastEventId != null) {
+      if (lastEventId <= last && lastEventId >= oldestSeq() - 1) s.cursor = lastEventId;
+      else s.resync = "expired";
+    }
+    subscribers.add(s);
+    schedule(s);
+    return Optional.of(() -> {
+      s.closed = true;
+      subscribers.remove(s);
+    });
+  }
+
+  /** Writes what the subscriber has not seen yet in one write, at most {@link #MAX_BATCH} events per run. */
+  private void dispatch(Subscriber s) {
+    try {
+      if (s.closed) return;
+      if (s.resync != null) {
+        resync(s, s.resync, false);
+        return;
+      }
+      long last = lastSeq;
+      StringBuilder frames = new StringBuilder();
+      long cursor = s.cursor;
+      for (int n = 0; cursor < last && n < MAX_BATCH; n++) {
+        Entry e = ring.get(slot(cursor + 1));
+        if (e == null || e.seq != cursor + 1) {
+          resync(s, "lagged", true);
+          return;
+        }
+        frames.append(e.frame);
+        cursor++;
+      }
+      if (frames.length() == 0 && s.heartbeatDue) frames.append(":\n\n");
+      s.heartbeatDue = false;
+      if (frames.length() > 0) s.sink.send(frames.toString());
+      s.cursor = cursor;
+    } catch (IOException | RuntimeException e) {
+      log.debug("Dropping change feed subscriber: {}", e.toString());
+      drop(s);
+    } finally {
+      s.scheduled.set(false);
+      // a change or heartbeat that arrived while this run held the flag was not scheduled on its own
+      if (!s.closed && (s.cursor < lastSeq || s.heartbeatDue)) schedule(s);
+    }
+  }
+
+  /**
+   * Tells the client to reload and continue from the current position. A lagging subscriber is then
+   * closed so that it reconnects from there instead of falling behind again on the same connection.
+   */
+  private void resync(Subscriber s, String reason, boolean close) throws IOException {
+    resyncs.incrementAndGet();
+    long last = lastSeq;
+    s.resync = null;
+    s.cursor = last;
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("seq", last);
+    body.put("reason", reason);
+    s.sink.send(frame(last, RESYNC, json(body)));
+    if (close) drop(s);
+  }
+
+  private void drop(Subscriber s) {
+    s.closed = true;
+    subscribers.remove(s);
+    try {
+      s.sink.close();
+    } catch (RuntimeException ignored) {
+      // already failed or completed
+    }
+  }
+
+  private void fanOut() {
+    fanOutPending.set(false);
+    for (Subscriber s : subscribers) schedule(s);
+  }
+
+  private void heartbeat() {
+    for (Subscriber s : subscribers) {
+      s.heartbeatDue = true;
+      schedule(s);
+    }
+  }
+
+  private void schedule(Subscriber s) {
+    if (!s.closed && s.scheduled.compareAndSet(false, true)) {
+      if (!execute(s)) s.scheduled.set(false);
+    }
+  }
+
+  private boolean execute(Runnable task) {
+    try {
+      dispatcher.execute(task);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false; // shutting down
+    }
+  }
+
+  /** Sequence number of the oldest change still in the ring. */
+  private long oldestSeq() {
+    return Math.max(firstSeq + 1, lastSeq - capacity + 1);
+  }
+
+  private int slot(long seq) {
+    return (int) (seq % capacity);
+  }
+
+  private static String frame(long id, String name, String json) {
+    return "id:" + id + "\nevent:" + name + "\ndata:" + json + "\n\n";
+  }
+
+  private String json(Map<String, Object> body) {
+    try {
+      return objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize change", e);
+    }
+  }
+
+  /** subscribers, lastSeq, oldestSeq, resyncs, rejected. */
+  public Map<String, Long> stats() {
+    Map<String, Long> out = new LinkedHashMap<>();
+    out.put("subscribers", (long) subscribers.size());
+    out.put("lastSeq", lastSeq);
+    out.put("oldestSeq", oldestSeq());
+    out.put("resyncs", resyncs.get());
+    out.put("rejected", rejected.get());
+    return out;
+  }
+
+  /** {@link #stats()} as meters, read at scrape time. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("shipments.changes.subscribers", subscribers, Set::size).register(registry);
+    Gauge.builder("shipments.changes.last.seq", this, f -> f.lastSeq).register(registry);
+    FunctionCounter.builder("shipments.changes.resyncs", resyncs, AtomicLong::get).register(registry);
+    FunctionCounter.builder("shipments.changes.rejected", rejected, AtomicLong::get).register(registry);
+  }
+
+  @PreDestroy
+  public void close() {
+    heartbeats.shutdownNow();
+    dispatcher.shutdownNow();
+    for (Subscriber s : subscribers) drop(s);
+  }
+
+  /**
+   * Names of the columns that differ into {@code changed}, with their new values in {@code fields};
+   * every non-null column for a create, nothing for a delete. Logged tracking events in a derived
+   * trackingData view do not count as a change of the stored map.
+   */
+  static void diff(ShipmentDto before, ShipmentDto after, List<String> changed, Map<String, Object> fields) {
+    if (after == null) return;
+    for (Map.Entry<String, Function<ShipmentDto, Object>> c : COLUMNS.entrySet()) {
+      Object now = c.getValue().apply(after);
+      Object was = before == null ? null : c.getValue().apply(before);
+      if (!same(was, now)) {
+        changed.add(c.getKey());
+        fields.put(c.getKey(), now);
+      }
+    }
+    if (!storedTracking(before).equals(storedTracking(after))) changed.add("trackingData");
+  }
+
+  private static Map<String, Object> storedTracking(ShipmentDto d) {
+    Map<String, Object> m = d == null ? null : TrackingEventService.withoutLogged(d.getTrackingData());
+    // a log merged into a row without trackingData leaves {"events": []} once stripped
+    return m == null || m.equals(EMPTY_TRACKING) ? Map.of() : m;
+  }
+
+  private static boolean same(Object a, Object b) {
+    if (a instanceof BigDecimal && b instanceof BigDecimal) return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+    return Objects.equals(a, b);
+  }
+
+  /**
+   * A {@code text/event-stream} response whose frames are formatted here and written as one part per
+   * dispatch: {@link org.springframework.web.servlet.mvc.method.annotation.SseEmitter} writes each
+   * event as three parts with a flush after each.
+   */
+  public static final class EventStream extends ResponseBodyEmitter {
+    EventStream(long timeout) {
+      super(timeout);
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+      super.extendResponse(outputMessage);
+      HttpHeaders headers = outputMessage.getHeaders();
+      if (headers.getContentType() == null) headers.setContentType(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    void sendFrames(String frames) throws IOException {
+      send(frames, TEXT_PLAIN_UTF8);
+    }
+  }
+
+  private static ThreadFactory daemon(String prefix) {
+    AtomicInteger n = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+}
@@ -0,0 +1,44 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+
+/**
+ * Published by the write paths of {@link ShipmentService} and {@link ShipmentBulkService} inside the
+ * writing transaction. Derived in-memory state (indexes, caches, feeds) listens with
+ * {@code @TransactionalEventListener} so it only ever sees committed changes.
+ */
+public class ShipmentChangedEvent {
+
+  public enum Type { CREATED, UPDATED, DELETED }
+
+  private final Type type;
+  private final String id;
+  private final ShipmentDto before;
+  private final ShipmentDto after;
+
+  private ShipmentChangedEvent(Type type, String id, ShipmentDto before, ShipmentDto after) {
+    this.type = type;
+    this.id = id;
+    this.before = before;
+    this.after = after;
+  }
+
+  public static ShipmentChangedEvent created(ShipmentDto after) {
+    return new ShipmentChangedEvent(Type.CREATED, after.getId(), null, after);
+  }
+
+  public static ShipmentChangedEvent updated(ShipmentDto before, ShipmentDto after) {
+    return new ShipmentChangedEvent(Type.UPDATED, after.getId(), before, after);
+  }
+
+  public static ShipmentChangedEvent deleted(ShipmentDto before) {
+    return new ShipmentChangedEvent(Type.DELETED, before.getId(), before, null);
+  }
+
+  public Type getType() { return type; }
+  public String getId() { return id; }
+  /** State before the change; null for {@link Type#CREATED}. */
+  public ShipmentDto getBefore() { return before; }
+  /** State after the change; null for {@link Type#DELETED}. */
+  public ShipmentDto getAfter() { return after; }
+}
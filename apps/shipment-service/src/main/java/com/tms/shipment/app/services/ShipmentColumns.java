@@ -0,0 +1,576 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.LaneStats;
+import com.tms.shipment.app.models.ShipmentBreakdown;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.models.ShipmentStats;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory columnar copy of the shipments for analytics: breakdowns by a column and top-N
+ * pickup → delivery lanes over any list filter, answered by scanning primitive arrays instead of the
+ * table. shipperName, carrierName, status and the locations are dictionary-encoded to int codes
+ * (pickup and delivery share one dictionary), rate is kept in cents and createdAt in epoch
+ * milliseconds. A row is five ints, two longs and its id; each distinct string is held once. Scans
+ * split the rows into chunks of {@value #CHUNK}, run in parallel on {@code shipments.columnar.parallelism}
+ * threads, and filters are matched against each dictionary once rather than against every row.
+ *
+ * <p>Built from the table, plus the archive like {@link ShipmentStatsService}, once the application is
+ * ready ({@code StartupWarmup}). Committed {@link ShipmentChangedEvent}s are queued without blocking the writer and applied
+ * before the next scan; those committed during a {@link #rebuild()} are replayed onto the new copy.
+ * Dictionary codes are never reused, so a value no row holds any more stays until the next rebuild.
+ */
+@Component
+public class ShipmentColumns implements MeterBinder {
+
+  public static final List<String> DIMENSIONS = List.of("status", "carrierName", "shipperName", "pickupLocation", "deliveryLocation");
+  public static final List<String> LANE_ORDERS = List.of("count", "rateTotal");
+  public static final int MAX_LANES = 1000;
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentColumns.class);
+  private static final int CHUNK = 1 << 16;
+  // a writer applies the queue itself past this, if no scan is running
+  private static final int MAX_QUEUED = 10_000;
+
+  /** Distinct values of a column in order of first appearance; rows hold the index. */
+  static final class Dictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    int encode(String value) {
+      Integer code = codes.get(value);
+      if (code != null) return code;
+      if (size == values.length) values = Arrays.copyOf(values, size * 2);
+      values[size] = value;
+      codes.put(value, size);
+      return size++;
+    }
+
+    String value(int code) { return values[code]; }
+    int size() { return size; }
+
+    /** Per code: is the value one of {@code names}. */
+    boolean[] in(Collection<String> names) {
+      boolean[] out = new boolean[size];
+      for (String name : names) {
+        Integer code = codes.get(name);
+        if (code != null) out[code] = true;
+      }
+      return out;
+    }
+
+    /** Per code: does the value contain {@code substring}, ignoring case (the LIKE of the list filters). */
+    boolean[] containing(String substring) {
+      String needle = substring.toLowerCase();
+      boolean[] out = new boolean[size];
+      for (int i = 0; i < size; i++) out[i] = values[i].toLowerCase().contains(needle);
+      return out;
+    }
+  }
+
+  /** One copy of the columns. Rows are in no order: a delete moves the last row into the hole. */
+  static final class Columns {
+    final Dictionary shippers = new Dictionary();
+    final Dictionary carriers = new Dictionary();
+    final Dictionary statuses = new Dictionary();
+    final Dictionary locations = new Dictionary();
+    final Map<String, Integer> rows = new HashMap<>();
+    String[] ids = new String[1024];
+    int[] shipper = new int[1024];
+    int[] carrier = new int[1024];
+    int[] status = new int[1024];
+    int[] pickup = new int[1024];
+    int[] delivery = new int[1024];
+    long[] rateCents = new long[1024];
+    long[] createdAt = new long[1024];
+    int size;
+
+    void put(String id, String shipperName, String carrierName, String statusName, String pickupLocation,
+        String deliveryLocation, BigDecimal rate, Instant created) {
+      Integer existing = rows.get(id);
+      int r;
+      if (existing != null) {
+        r = existing;
+      } else {
+        if (size == ids.length) grow();
+        r = size++;
+        ids[r] = id;
+        rows.put(id, r);
+      }
+      shipper[r] = shippers.encode(shipperName);
+      carrier[r] = carriers.encode(carrierName);
+      status[r] = statuses.encode(statusName);
+      pickup[r] = locations.encode(pickupLocation);
+      delivery[r] = locations.encode(deliveryLocation);
+      rateCents[r] = ShipmentStatsService.cents(rate);
+      createdAt[r] = created.toEpochMilli();
+    }
+
+    void put(ShipmentDto d) {
+      put(d.getId(), d.getShipperName(), d.getCarrierName(), d.getStatus(), d.getPickupLocation(),
+          d.getDeliveryLocation(), d.getRate(), d.getCreatedAt());
+    }
+
+    void remove(String id) {
+      Integer row = rows.remove(id);
+      if (row == null) return;
+      int r = row;
+      int last = --size;
+      if (r != last) {
+        ids[r] = ids[last];
+        shipper[r] = shipper[last];
+        carrier[r] = carrier[last];
+        status[r] = status[last];
+        pickup[r] = pickup[last];
+        delivery[r] = delivery[last];
+        rateCents[r] = rateCents[last];
+        createdAt[r] = createdAt[last];
+        rows.put(ids[r], r);
+      }
+      ids[last] = null;
+    }
+
+    void apply(ShipmentChangedEvent event) {
+      if (event.getAfter() != null) put(event.getAfter());
+      else remove(event.getId());
+    }
+
+    private void grow() {
+      int n = ids.length * 2;
+      ids = Arrays.copyOf(ids, n);
+      shipper = Arrays.copyOf(shipper, n);
+      carrier = Arrays.copyOf(carrier, n);
+      status = Arrays.copyOf(status, n);
+      pickup = Arrays.copyOf(pickup, n);
+      delivery = Arrays.copyOf(delivery, n);
+      rateCents = Arrays.copyOf(rateCents, n);
+      createdAt = Arrays.copyOf(createdAt, n);
+    }
+
+    int[] column(String dimension) {
+      switch (dimension) {
+        case "status": return status;
+        case "carrierName": return carrier;
+        case "shipperName": return shipper;
+        case "pickupLocation": return pickup;
+        case "deliveryLocation": return delivery;
+        default: throw new IllegalArgumentException("groupBy must be one of " + DIMENSIONS);
+      }
+    }
+
+    Dictionary dictionary(String dimension) {
+      switch (dimension) {
+        case "status": return statuses;
+        case "carrierName": return carriers;
+        case "shipperName": return shippers;
+        default: return locations;
+      }
+    }
+
+    /** Bytes of the column arrays at their current capacity; the id strings and the id → row map come on top. */
+    long columnBytes() {
+      return (long) ids.length * (5 * Integer.BYTES + 2 * Long.BYTES);
+    }
+  }
+
+  /** A {@link ShipmentFilter} compiled against one {@link Columns}: dictionaries looked up once, int and long compares per row. */
+  private static final class Match {
+    final boolean none;
+    final int status;
+    final boolean[] shippers;
+    final boolean[] carriers;
+    final long from;
+    final long to;
+
+    Match(Columns c, ShipmentFilter f) {
+      status = f.getStatus() == null ? -1 : c.statuses.codes.getOrDefault(f.getStatus(), -2);
+      shippers = names(c.shippers, f.getShipperNames(), f.getShipperName());
+      carriers = names(c.carriers, f.getCarrierNames(), f.getCarrierName());
+      from = f.getCreatedFrom() == null ? Long.MIN_VALUE : f.getCreatedFrom().toEpochMilli();
+      to = f.getCreatedTo() == null ? Long.MAX_VALUE : f.getCreatedTo().toEpochMilli();
+      none = status == -2 || !any(shippers) || !any(carriers);
+    }
+
+    private static boolean[] names(Dictionary d, Collection<String> resolved, String substring) {
+      if (resolved != null) return d.in(resolved);
+      return substring == null ? null : d.containing(substring);
+    }
+
+    private static boolean any(boolean[] codes) {
+      if (codes == null) return true;
+      for (boolean b : codes) if (b) return true;
+      return false;
+    }
+
+    boolean test(Columns c, int r) {
+      long created = c.createdAt[r];
+      return (status < 0 || c.status[r] == status)
+          && (shippers == null || shippers[c.shipper[r]])
+          && (carriers == null || carriers[c.carrier[r]])
+          && created >= from && created < to;
+    }
+  }
+
+  /** Open-addressing map from a lane (pickup code << 32 | delivery code) to count and rate cents; boxed keys would dominate the scan. */
+  private static final class LaneSums {
+    // key + 1, so that 0 marks a free slot
+    long[] keys = new long[256];
+    long[] counts = new long[256];
+    long[] cents = new long[256];
+    int size;
+
+    void add(long key, long count, long rateCents) {
+      long k = key + 1;
+      int mask = keys.length - 1;
+      int i = slot(k, mask);
+      while (keys[i] != 0 && keys[i] != k) i = (i + 1) & mask;
+      if (keys[i] == 0) {
+        if ((size + 1) * 2 > keys.length) {
+          resize();
+          add(key, count, rateCents);
+          return;
+        }
+        keys[i] = k;
+        size++;
+      }
+      counts[i] += count;
+      cents[i] += rateCents;
+    }
+
+    static LaneSums merge(LaneSums a, LaneSums b) {
+      if (a.size < b.size) return merge(b, a);
+      for (int i = 0; i < b.keys.length; i++) {
+        if (b.keys[i] != 0) a.add(b.keys[i] - 1, b.counts[i], b.cents[i]);
+      }
+      return a;
+    }
+
+    private static int slot(long k, int mask) {
+      long h = k * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize() {
+      long[] oldKeys = keys;
+      long[] oldCounts = counts;
+      long[] oldCents = cents;
+      keys = new long[oldKeys.length * 2];
+      counts = new long[keys.length];
+      cents = new long[keys.length];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) add(oldKeys[i] - 1, oldCounts[i], oldCents[i]);
+      }
+    }
+  }
+
+  private interface ChunkScan<T> {
+    T scan(int from, int to);
+  }
+
+  private final ShipmentRepository repository;
+  private final ShipmentArchive archive;
+  private final TransactionTemplate readOnlyTx;
+  private final boolean enabled;
+  private final ForkJoinPool pool;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Queue<ShipmentChangedEvent> queued = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queuedCount = new AtomicInteger();
+  // guarded by lock
+  private Columns columns;
+  private List<ShipmentChangedEvent> replay;
+  private volatile Instant builtAt;
+  private volatile long buildMillis;
+
+  public ShipmentColumns(ShipmentRepository repository, ShipmentArchive archive, PlatformTransactionManager transactionManager,
+      @Value("${shipments.columnar.enabled:true}") boolean enabled,
+      @Value("${shipments.columnar.parallelism:0}") int parallelism) {
+    this.repository = repository;
+    this.archive = archive;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.enabled = enabled;
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  public synchronized void rebuild() {
+    if (!enabled) return;
+    long start = System.nanoTime();
+    lock.writeLock().lock();
+    try {
+      replay = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    Columns fresh = null;
+    try {
+      fresh = readOnlyTx.execute(s -> {
+        Columns c = new Columns();
+        try (Stream<Object[]> scan = repository.streamColumnarColumns()) {
+          for (Object[] r : (Iterable<Object[]>) scan::iterator) {
+            c.put((String) r[0], (String) r[1], (String) r[2], (String) r[3], (String) r[4], (String) r[5], (BigDecimal) r[6], (Instant) r[7]);
+          }
+        }
+        archive.forEach(c::put);
+        return c;
+      });
+    } finally {
+      lock.writeLock().lock();
+      try {
+        drain();
+        if (fresh != null) {
+          for (ShipmentChangedEvent e : replay) fresh.apply(e);
+          columns = fresh;
+        }
+        replay = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    buildMillis = (System.nanoTime() - start) / 1_000_000;
+    builtAt = Instant.now();
+    log.info("Columnar snapshot built: {} rows, {} shippers, {} carriers, {} locations in {} ms",
+        fresh.size, fresh.shippers.size(), fresh.carriers.size(), fresh.locations.size(), buildMillis);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(ShipmentChangedEvent event) {
+    if (!enabled) return;
+    queued.add(event);
+    if (queuedCount.incrementAndGet() > MAX_QUEUED && lock.writeLock().tryLock()) {
+      try {
+        drain();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  public boolean isReady() {
+    lock.readLock().lock();
+    try {
+      return columns != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Count and rate total/average per value of {@code groupBy} (one of {@link #DIMENSIONS}) over the rows matching {@code filter}. */
+  public ShipmentBreakdown groupBy(String groupBy, ShipmentFilter filter) {
+    if (!DIMENSIONS.contains(groupBy)) {
+      throw new IllegalArgumentException("groupBy must be one of " + DIMENSIONS);
+    }
+    lockForScan();
+    try {
+      Columns c = current();
+      int[] column = c.column(groupBy);
+      Dictionary dictionary = c.dictionary(groupBy);
+      int groups = dictionary.size();
+      Match match = new Match(c, filter);
+      // [count, cents] per code
+      long[] sums = match.none ? new long[2 * groups] : scan(c.size, (from, to) -> {
+        long[] acc = new long[2 * groups];
+        for (int r = from; r < to; r++) {
+          if (match.test(c, r)) {
+            int g = column[r] << 1;
+            acc[g]++;
+            acc[g + 1] += c.rateCents[r];
+          }
+        }
+        return acc;
+      }, (a, b) -> {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+      });
+      List<ShipmentStats.Group> out = new ArrayList<>();
+      long count = 0;
+      long cents = 0;
+      for (int g = 0; g < groups; g++) {
+        if (sums[2 * g] == 0) continue;
+        out.add(ShipmentStatsService.group(dictionary.value(g), sums[2 * g], sums[2 * g + 1]));
+        count += sums[2 * g];
+        cents += sums[2 * g + 1];
+      }
+      out.sort(Comparator.comparingLong(ShipmentStats.Group::getCount).reversed().thenComparing(ShipmentStats.Group::getKey));
+      return new ShipmentBreakdown(groupBy, ShipmentStatsService.group(null, count, cents), out);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The {@code top} pickup → delivery lanes over the rows matching {@code filter}, by shipment count or rate total. */
+  public List<LaneStats> topLanes(ShipmentFilter filter, int top, String orderBy) {
+    if (top < 1 || top > MAX_LANES) {
+      throw new IllegalArgumentException("top must be between 1 and " + MAX_LANES);
+    }
+    if (!LANE_ORDERS.contains(orderBy)) {
+      throw new IllegalArgumentException("orderBy must be one of " + LANE_ORDERS);
+    }
+    lockForScan();
+    try {
+      Columns c = current();
+      Match match = new Match(c, filter);
+      LaneSums sums = match.none ? new LaneSums() : scan(c.size, (from, to) -> {
+        LaneSums acc = new LaneSums();
+        for (int r = from; r < to; r++) {
+          if (match.test(c, r)) acc.add((long) c.pickup[r] << 32 | c.delivery[r], 1, c.rateCents[r]);
+        }
+        return acc;
+      }, LaneSums::merge);
+      long[] metric = "count".equals(orderBy) ? sums.counts : sums.cents;
+      Comparator<Integer> order = Comparator.<Integer>comparingLong(i -> metric[i]).reversed()
+          .thenComparing(i -> c.locations.value(pickupCode(sums.keys[i])))
+          .thenComparing(i -> c.locations.value(deliveryCode(sums.keys[i])));
+      // the best `top` so far, worst first
+      PriorityQueue<Integer> best = new PriorityQueue<>(top + 1, order.reversed());
+      for (int i = 0; i < sums.keys.length; i++) {
+        if (sums.keys[i] == 0) continue;
+        // most lanes lose on the metric alone, without the names of a tie
+        if (best.size() == top && metric[i] < metric[best.peek()]) continue;
+        best.add(i);
+        if (best.size() > top) best.poll();
+      }
+      List<Integer> slots = new ArrayList<>(best);
+      slots.sort(order);
+      List<LaneStats> out = new ArrayList<>(slots.size());
+      for (int i : slots) {
+        ShipmentStats.Group g = ShipmentStatsService.group(null, sums.counts[i], sums.cents[i]);
+        out.add(new LaneStats(c.locations.value(pickupCode(sums.keys[i])), c.locations.value(deliveryCode(sums.keys[i])),
+            g.getCount(), g.getRateTotal(), g.getRateAverage()));
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Whether it is built, rows, dictionary sizes, bytes of the column arrays, and when and how fast it was last built. */
+  public Map<String, Object> describe() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    lockForScan();
+    try {
+      out.put("ready", columns != null);
+      if (columns != null) {
+        out.put("rows", columns.size);
+        Map<String, Integer> dictionaries = new LinkedHashMap<>();
+        dictionaries.put("shipperName", columns.shippers.size());
+        dictionaries.put("carrierName", columns.carriers.size());
+        dictionaries.put("status", columns.statuses.size());
+        dictionaries.put("location", columns.locations.size());
+        out.put("dictionaries", dictionaries);
+        out.put("columnBytes", columns.columnBytes());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    out.put("builtAt", builtAt);
+    out.put("buildMillis", buildMillis);
+    out.put("parallelism", pool == null ? 1 : pool.getParallelism());
+    return out;
+  }
+
+  /** Rows and the bytes of the column arrays. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("shipments.columnar.rows", this, s -> s.measure(c -> c.size))
+        .description("Rows in the columnar snapshot").register(registry);
+    Gauge.builder("shipments.columnar.column_bytes", this, s -> s.measure(Columns::columnBytes))
+        .description("Bytes of the columnar snapshot's arrays, without ids and dictionaries").baseUnit("bytes").register(registry);
+  }
+
+  @PreDestroy
+  public void close() {
+    if (pool != null) pool.shutdownNow();
+  }
+
+  private double measure(ToLongFunction<Columns> f) {
+    lock.readLock().lock();
+    try {
+      return columns == null ? 0 : f.applyAsLong(columns);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Applies the queued changes, then holds the read lock (downgraded from the write lock if there were any). */
+  private void lockForScan() {
+    if (queuedCount.get() > 0) {
+      lock.writeLock().lock();
+      try {
+        drain();
+        lock.readLock().lock();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } else {
+      lock.readLock().lock();
+    }
+  }
+
+  /** Under the write lock. */
+  private void drain() {
+    ShipmentChangedEvent e;
+    while ((e = queued.poll()) != null) {
+      queuedCount.decrementAndGet();
+      if (columns != null) columns.apply(e);
+      if (replay != null) replay.add(e);
+    }
+  }
+
+  private Columns current() {
+    if (columns == null) throw new IllegalStateException("Columnar snapshot is not built");
+    return columns;
+  }
+
+  /** {@code chunk} over [0, rows) in chunks of {@value #CHUNK}, in parallel on the scan pool, partial results merged. */
+  private <T> T scan(int rows, ChunkScan<T> chunk, BinaryOperator<T> merge) {
+    int chunks = (rows + CHUNK - 1) / CHUNK;
+    if (pool == null || chunks <= 1) return chunk.scan(0, rows);
+    return pool.submit(() -> IntStream.range(0, chunks).parallel()
+        .mapToObj(i -> chunk.scan(i * CHUNK, Math.min(rows, (i + 1) * CHUNK)))
+        .reduce(merge).orElseThrow()).join();
+  }
+
+  private static int pickupCode(long key) {
+    return (int) ((key - 1) >>> 32);
+  }
+
+  private static int deliveryCode(long key) {
+    return (int) (key - 1);
+  }
+}
@@ -0,0 +1,246 @@
+package com.tms.shipment.app.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Streams every shipment matching the list filters to an output stream. Rows come from a
+ * forward-only repository stream and are detached as soon as they are written, so memory use is
+ * bounded by the JDBC fetch size rather than the result size. trackingData is derived in chunks of
+ * the fetch size, one tracking-event query per chunk, and each chunk shows the updates still in
+ * {@link ShipmentWriteBuffer}, filtered and sorted as written like the list. When the createdAt range reaches
+ * {@link ShipmentArchive}, archived matches are merged in list order, read {@value #ARCHIVE_PAGE} at a time.
+ */
+@Service
+public class ShipmentExportService {
+
+  public enum Format { NDJSON, CSV }
+
+  static final String[] CSV_COLUMNS = {
+      "id", "shipperName", "carrierName", "pickupLocation", "deliveryLocation", "trackingNumber",
+      "status", "rate", "trackingData", "createdAt", "updatedAt"
+  };
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** Archived rows held at once; each page is one scan of the matching segments. */
+  static final int ARCHIVE_PAGE = 10_000;
+
+  private final ShipmentRepository repository;
+  private final ShipmentService shipmentService;
+  private final TrackingEventService tracking;
+  private final ShipmentArchive archive;
+  private final ShipmentWriteBuffer writeBuffer;
+  private final ObjectMapper objectMapper;
+
+  @PersistenceContext
+  private EntityManager em;
+
+  public ShipmentExportService(ShipmentRepository repository, ShipmentService shipmentService, TrackingEventService tracking,
+      ShipmentArchive archive, ShipmentWriteBuffer writeBuffer, ObjectMapper objectMapper) {
+    this.repository = repository;
+    this.shipmentService = shipmentService;
+    this.tracking = tracking;
+    this.archive = archive;
+    this.writeBuffer = writeBuffer;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Writes all matching rows to {@code out} and returns how many were written. {@code createdFrom} /
+   * {@code createdTo} bound createdAt as in {@link ShipmentService#list}.
+   */
+  @Transactional(readOnly = true)
+  public long export(String status, String shipperName, String carrierName, String createdFrom, String createdTo,
+      String sortBy, String sortOrder, Format format, OutputStream out) throws IOException {
+    boolean ascending = "asc".equalsIgnoreCase(sortOrder);
+    Sort sort = ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+    ShipmentFilter filter = shipmentService.resolveFilter(status, shipperName, carrierName, createdFrom, createdTo);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    try (Stream<Shipment> stream = repository.streamAllFiltered(filter, sort)) {
+      Iterator<ShipmentDto> rows = new HotRows(stream.iterator());
+      if (archive.reaches(filter)) {
+        Comparator<ShipmentDto> order = ShipmentArchive.order(sortBy, ascending);
+        rows = merge(rows, new ArchivedRows(filter, order), order);
+      }
+      long count = format == Format.CSV ? writeCsv(rows, writer) : writeNdjson(rows, writer);
+      writer.flush();
+      return count;
+    }
+  }
+
+  private long writeNdjson(Iterator<ShipmentDto> rows, Writer writer) throws IOException {
+    long count;
+    ObjectWriter lines = objectMapper.writer()
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .withRootValueSeparator("\n");
+    try (SequenceWriter seq = lines.writeValues(writer)) {
+      count = writeAll(rows, seq::write);
+    }
+    if (count > 0) writer.write('\n');
+    return count;
+  }
+
+  private long writeCsv(Iterator<ShipmentDto> rows, Writer writer) throws IOException {
+    writer.write(String.join(",", CSV_COLUMNS));
+    writer.write("\r\n");
+    return writeAll(rows, d -> {
+      writeCsvField(writer, d.getId(), false);
+      writeCsvField(writer, d.getShipperName(), true);
+      writeCsvField(writer, d.getCarrierName(), true);
+      writeCsvField(writer, d.getPickupLocation(), true);
+      writeCsvField(writer, d.getDeliveryLocation(), true);
+      writeCsvField(writer, d.getTrackingNumber(), true);
+      writeCsvField(writer, d.getStatus(), true);
+      writeCsvField(writer, d.getRate() == null ? null : d.getRate().toPlainString(), true);
+      writeCsvField(writer, d.getTrackingData() == null ? null : objectMapper.writeValueAsString(d.getTrackingData()), true);
+      writeCsvField(writer, d.getCreatedAt() == null ? null : d.getCreatedAt().toString(), true);
+      writeCsvField(writer, d.getUpdatedAt() == null ? null : d.getUpdatedAt().toString(), true);
+      writer.write("\r\n");
+    });
+  }
+
+  private interface RowWriter {
+    void write(ShipmentDto row) throws IOException;
+  }
+
+  private static long writeAll(Iterator<ShipmentDto> rows, RowWriter out) throws IOException {
+    long count = 0;
+    while (rows.hasNext()) {
+      out.write(rows.next());
+      count++;
+    }
+    return count;
+  }
+
+  /** The streamed rows, converted and detached a fetch-size chunk at a time so their tracking logs load in one query. */
+  private final class HotRows implements Iterator<ShipmentDto> {
+    private final Iterator<Shipment> rows;
+    private final List<ShipmentDto> chunk = new ArrayList<>(ShipmentRepository.EXPORT_FETCH_SIZE);
+    private int next;
+
+    HotRows(Iterator<Shipment> rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next < chunk.size()) return true;
+      chunk.clear();
+      next = 0;
+      while (chunk.size() < ShipmentRepository.EXPORT_FETCH_SIZE && rows.hasNext()) {
+        Shipment e = rows.next();
+        chunk.add(shipmentService.toDto(e));
+        em.detach(e);
+      }
+      tracking.withEvents(chunk);
+      if (writeBuffer.isEnabled()) chunk.replaceAll(d -> writeBuffer.overlay(d, true));
+      return !chunk.isEmpty();
+    }
+
+    @Override
+    public ShipmentDto next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      return chunk.get(next++);
+    }
+  }
+
+  /** Archived matches in {@code order}, a page at a time: each page is the rows after the last one returned. */
+  private final class ArchivedRows implements Iterator<ShipmentDto> {
+    private final ShipmentFilter filter;
+    private final Comparator<ShipmentDto> order;
+    private List<ShipmentDto> page = List.of();
+    private int next;
+    private boolean last;
+
+    ArchivedRows(ShipmentFilter filter, Comparator<ShipmentDto> order) {
+      this.filter = filter;
+      this.order = order;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next < page.size()) return true;
+      if (last) return false;
+      ShipmentDto after = page.isEmpty() ? null : page.get(page.size() - 1);
+      page = archive.scan(filter, order, after, ARCHIVE_PAGE, true).getRows();
+      next = 0;
+      last = page.size() < ARCHIVE_PAGE;
+      return !page.isEmpty();
+    }
+
+    @Override
+    public ShipmentDto next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      return page.get(next++);
+    }
+  }
+
+  /** Two iterators, each already in {@code order}, as one. */
+  private static Iterator<ShipmentDto> merge(Iterator<ShipmentDto> a, Iterator<ShipmentDto> b, Comparator<ShipmentDto> order) {
+    return new Iterator<ShipmentDto>() {
+      private ShipmentDto headA = a.hasNext() ? a.next() : null;
+      private ShipmentDto headB = b.hasNext() ? b.next() : null;
+
+      @Override
+      public boolean hasNext() {
+        return headA != null || headB != null;
+      }
+
+      @Override
+      public ShipmentDto next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        ShipmentDto out;
+        if (headB == null || (headA != null && order.compare(headA, headB) <= 0)) {
+          out = headA;
+          headA = a.hasNext() ? a.next() : null;
+        } else {
+          out = headB;
+          headB = b.hasNext() ? b.next() : null;
+        }
+        return out;
+      }
+    };
+  }
+
+  /** RFC 4180: quote fields containing a separator, quote or line break; double embedded quotes. */
+  private static void writeCsvField(Writer writer, String value, boolean separator) throws IOException {
+    if (separator) writer.write(',');
+    if (value == null) return;
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      writer.write(value);
+      return;
+    }
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
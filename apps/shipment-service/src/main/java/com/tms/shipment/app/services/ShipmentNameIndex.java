@@ -0,0 +1,86 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+
+/**
+ * Trigram indexes over shipperName and carrierName. Resolves the substring filters of
+ * {@code GET /api/shipments} to the exact set of matching names, so the repository can use an IN
+ * match (index-friendly) instead of {@code LOWER(col) LIKE '%x%'} (always a full scan).
+ *
+ * <p>Built from the table once the application is ready ({@code StartupWarmup}) and kept current from committed
+ * {@link ShipmentChangedEvent}s. Until it is built, or when a substring matches more than
+ * {@code shipments.search.max-candidates} names, the filter is left to the LIKE query.
+ */
+@Component
+public class ShipmentNameIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentNameIndex.class);
+
+  private final ShipmentRepository repository;
+  private final boolean enabled;
+  private final int maxCandidates;
+  private final TrigramIndex shippers = new TrigramIndex();
+  private final TrigramIndex carriers = new TrigramIndex();
+  private volatile boolean ready;
+
+  public ShipmentNameIndex(
+      ShipmentRepository repository,
+      @Value("${shipments.search.trigram-index:true}") boolean enabled,
+      @Value("${shipments.search.max-candidates:1000}") int maxCandidates) {
+    this.repository = repository;
+    this.enabled = enabled;
+    this.maxCandidates = maxCandidates;
+  }
+
+  public void build() {
+    if (!enabled) return;
+    long start = System.nanoTime();
+    for (Object[] row : repository.countByShipperName()) shippers.ensureAtLeast((String) row[0], (Long) row[1]);
+    for (Object[] row : repository.countByCarrierName()) carriers.ensureAtLeast((String) row[0], (Long) row[1]);
+    ready = true;
+    log.info("Name index built: {} shippers, {} carriers in {} ms",
+        shippers.distinctValues(), carriers.distinctValues(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(ShipmentChangedEvent event) {
+    if (!enabled) return;
+    ShipmentDto before = event.getBefore();
+    ShipmentDto after = event.getAfter();
+    if (before != null) {
+      shippers.remove(before.getShipperName());
+      carriers.remove(before.getCarrierName());
+    }
+    if (after != null) {
+      shippers.add(after.getShipperName());
+      carriers.add(after.getCarrierName());
+    }
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Returns {@code filter} with its name substrings resolved to exact name sets where the index can. */
+  public ShipmentFilter resolve(ShipmentFilter filter) {
+    if (!ready) return filter;
+    if (filter.getShipperName() != null) {
+      Set<String> names = shippers.matching(filter.getShipperName());
+      if (names.size() <= maxCandidates) filter = filter.withShipperNames(names);
+    }
+    if (filter.getCarrierName() != null) {
+      Set<String> names = carriers.matching(filter.getCarrierName());
+      if (names.size() <= maxCandidates) filter = filter.withCarrierNames(names);
+    }
+    return filter;
+  }
+}
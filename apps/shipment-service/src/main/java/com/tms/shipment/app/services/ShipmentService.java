@@ -1,66 +1,401 @@
 package com.tms.shipment.app.services;
 
+import com.tms.shipment.app.models.BatchGetResult;
+import com.tms.shipment.app.models.CursorPage;
 import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentCursor;
 import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
 import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
-public class ShipmentService {
+public class ShipmentService implements MeterBinder {
+
+  /** Fields a list row always carries; {@code trackingData} is only loaded when named in {@code fields}. */
+  public static final Set<String> SUMMARY_FIELDS = Set.of(
+      "id", "shipperName", "carrierName", "pickupLocation", "deliveryLocation", "trackingNumber", "status", "rate",
+      "createdAt", "updatedAt");
 
   private final ShipmentRepository repository;
+  private final ApplicationEventPublisher events;
+  private final ShipmentNameIndex nameIndex;
+  private final ShipmentCache cache;
+  private final TrackingEventService tracking;
+  private final ShipmentArchive archive;
+  private final ShipmentWriteBuffer writeBuffer;
+  private final int maxBatchGet;
+  private final LongAdder batchGets = new LongAdder();
+  private final LongAdder batchGetIds = new LongAdder();
+  private final LongAdder batchGetLoaded = new LongAdder();
 
-  public ShipmentService(ShipmentRepository repository) {
+  public ShipmentService(ShipmentRepository repository, ApplicationEventPublisher events, ShipmentNameIndex nameIndex,
+      ShipmentCache cache, TrackingEventService tracking, ShipmentArchive archive, ShipmentWriteBuffer writeBuffer,
+      @Value("${shipments.batch-get.max-ids:500}") int maxBatchGet) {
     this.repository = repository;
+    this.events = events;
+    this.nameIndex = nameIndex;
+    this.cache = cache;
+    this.tracking = tracking;
+    this.archive = archive;
+    this.writeBuffer = writeBuffer;
+    this.maxBatchGet = maxBatchGet;
+  }
+
+  /** batch-get requests, distinct ids asked for, and ids that missed the cache and went to the database. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("shipments.batch_get.requests", batchGets, LongAdder::sum).register(registry);
+    FunctionCounter.builder("shipments.batch_get.ids", batchGetIds, LongAdder::sum).register(registry);
+    FunctionCounter.builder("shipments.batch_get.loaded", batchGetLoaded, LongAdder::sum).register(registry);
+  }
+
+  /** The list filters, with name substrings resolved through {@link ShipmentNameIndex} where possible. */
+  public ShipmentFilter resolveFilter(String status, String shipperName, String carrierName) {
+    return nameIndex.resolve(ShipmentFilter.of(status, shipperName, carrierName));
+  }
+
+  /**
+   * {@link #resolveFilter(String, String, String)} plus a createdAt range; each bound is an ISO instant
+   * or an ISO date (midnight UTC), and either may be null.
+   */
+  public ShipmentFilter resolveFilter(String status, String shipperName, String carrierName, String createdFrom, String createdTo) {
+    return resolveFilter(status, shipperName, carrierName)
+        .withCreatedRange(parseBound("createdFrom", createdFrom), parseBound("createdTo", createdTo));
   }
 
-  public Page<ShipmentDto> list(String status, String shipperName, String carrierName, int page, int size, String sortBy, String sortOrder) {
+  static Instant parseBound(String name, String value) {
+    if (value == null || value.isBlank()) return null;
+    try {
+      return value.contains("T") ? Instant.parse(value) : LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException(name + " must be an ISO date or instant: " + value);
+    }
+  }
+
+  public Page<ShipmentDto> list(String status, String shipperName, String carrierName, int page, int size, String sortBy, String sortOrder, String fields) {
+    return list(status, shipperName, carrierName, null, null, page, size, sortBy, sortOrder, fields);
+  }
+
+  /**
+   * One page of shipments. Rows are summaries (no trackingData, which is a CLOB parsed per row)
+   * unless {@code fields} names {@code trackingData}; see {@link #SUMMARY_FIELDS}. Only a createdAt
+   * range reaching back into {@link ShipmentArchive} reads archived shipments; they are merged in
+   * list order and counted in the total. Rows show updates still in {@link ShipmentWriteBuffer}, but
+   * are filtered and sorted as written.
+   */
+  public Page<ShipmentDto> list(String status, String shipperName, String carrierName, String createdFrom, String createdTo,
+      int page, int size, String sortBy, String sortOrder, String fields) {
     Sort sort = "asc".equalsIgnoreCase(sortOrder) ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
     Pageable pageable = PageRequest.of(page, size, sort);
-    Page<Shipment> entities = repository.findAllFiltered(status, shipperName, carrierName, pageable);
-    return entities.map(this::toDto);
+    ShipmentFilter filter = resolveFilter(status, shipperName, carrierName, createdFrom, createdTo);
+    boolean withTracking = withTrackingData(fields);
+    if (!archive.reaches(filter)) return hotPage(filter, pageable, withTracking).map(d -> writeBuffer.overlay(d, withTracking));
+    // the page is somewhere in the first offset + size rows of each side, merged
+    int window = Math.toIntExact(pageable.getOffset() + size);
+    Page<ShipmentDto> hot = hotPage(filter, PageRequest.of(0, window, sort), withTracking);
+    Comparator<ShipmentDto> order = ShipmentArchive.order(sortBy, sort.iterator().next().isAscending());
+    ShipmentArchive.Matches cold = archive.scan(filter, order, null, window, withTracking);
+    List<ShipmentDto> merged = merge(hot.getContent(), cold.getRows(), order, window);
+    int from = (int) Math.min(pageable.getOffset(), merged.size());
+    return new PageImpl<>(writeBuffer.overlay(new ArrayList<>(merged.subList(from, merged.size())), withTracking), pageable,
+        hot.getTotalElements() + cold.getCount());
+  }
+
+  private Page<ShipmentDto> hotPage(ShipmentFilter filter, Pageable pageable, boolean withTracking) {
+    if (!withTracking) {
+      return repository.findSummaries(filter, pageable);
+    }
+    Page<ShipmentDto> rows = repository.findAllFiltered(filter, pageable).map(this::toDto);
+    tracking.withEvents(rows.getContent());
+    return rows;
+  }
+
+  /** The first {@code limit} of two lists each already sorted by {@code order}. */
+  private static List<ShipmentDto> merge(List<ShipmentDto> a, List<ShipmentDto> b, Comparator<ShipmentDto> order, int limit) {
+    List<ShipmentDto> out = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+    int i = 0, j = 0;
+    while (out.size() < limit && (i < a.size() || j < b.size())) {
+      if (j >= b.size() || (i < a.size() && order.compare(a.get(i), b.get(j)) <= 0)) out.add(a.get(i++));
+      else out.add(b.get(j++));
+    }
+    return out;
   }
 
+  /**
+   * Keyset variant of {@link #list}: returns the rows after {@code after} (null or blank for the
+   * first page) and a cursor for the next call, without counting the whole result set.
+   */
+  public CursorPage<ShipmentDto> listAfter(String status, String shipperName, String carrierName, String after, int size, String sortBy, String sortOrder, String fields) {
+    return listAfter(status, shipperName, carrierName, null, null, after, size, sortBy, sortOrder, fields);
+  }
+
+  /** {@link #listAfter} within a createdAt range, merging archived rows as {@link #list} does. */
+  public CursorPage<ShipmentDto> listAfter(String status, String shipperName, String carrierName, String createdFrom, String createdTo,
+      String after, int size, String sortBy, String sortOrder, String fields) {
+    if (!ShipmentCursor.SORTABLE.contains(sortBy)) {
+      throw new IllegalArgumentException("Cursor paging does not support sortBy=" + sortBy);
+    }
+    boolean ascending = "asc".equalsIgnoreCase(sortOrder);
+    ShipmentCursor cursor = null;
+    if (after != null && !after.isBlank()) {
+      cursor = ShipmentCursor.decode(after);
+      if (!cursor.getSortBy().equals(sortBy) || cursor.isAscending() != ascending) {
+        throw new IllegalArgumentException("Cursor was issued for a different sort");
+      }
+    }
+    ShipmentFilter filter = resolveFilter(status, shipperName, carrierName, createdFrom, createdTo);
+    boolean withTracking = withTrackingData(fields);
+    Slice<ShipmentDto> slice = withTracking
+        ? repository.findSliceAfter(filter, sortBy, ascending, cursor, size).map(this::toDto)
+        : repository.findSummarySliceAfter(filter, sortBy, ascending, cursor, size);
+    List<ShipmentDto> rows = slice.getContent();
+    if (withTracking) tracking.withEvents(rows);
+    boolean hasNext = slice.hasNext();
+    if (archive.reaches(filter)) {
+      Comparator<ShipmentDto> order = ShipmentArchive.order(sortBy, ascending);
+      List<ShipmentDto> cold = archive.scan(filter, order, cursor == null ? null : ShipmentArchive.probe(cursor), size + 1, withTracking).getRows();
+      List<ShipmentDto> merged = merge(rows, cold, order, size + 1);
+      hasNext = hasNext || merged.size() > size;
+      rows = merged.subList(0, Math.min(size, merged.size()));
+    }
+    String next = null;
+    if (hasNext) {
+      ShipmentDto last = rows.get(rows.size() - 1);
+      next = new ShipmentCursor(sortBy, ascending, sortValue(last, sortBy), last.getId()).encode();
+    }
+    // the cursor holds the written sort value, so buffered updates are laid over afterwards
+    return new CursorPage<>(writeBuffer.overlay(rows, withTracking), size, hasNext, next);
+  }
+
+  /** Parses the comma-separated {@code fields} parameter; true when the caller asked for trackingData. */
+  static boolean withTrackingData(String fields) {
+    if (fields == null || fields.isBlank()) return false;
+    boolean tracking = false;
+    for (String f : fields.split(",")) {
+      String field = f.trim();
+      if ("trackingData".equals(field)) tracking = true;
+      else if (!SUMMARY_FIELDS.contains(field)) throw new IllegalArgumentException("Unknown field: " + field);
+    }
+    return tracking;
+  }
+
+  /**
+   * Strong ETag of a single shipment: the row version and the id of its newest tracking event. Edits
+   * and appends both move the version (see {@link TrackingEventService#append}), so it decides; the
+   * event id keeps the tag readable.
+   */
+  public static String etag(long version, long lastEventId) {
+    return "\"" + version + "." + lastEventId + "\"";
+  }
+
+  /** {@link #etag(long, long)} of a fully loaded shipment (trackingData derived). */
+  public static String etagOf(ShipmentDto dto) {
+    return etag(dto.getVersion() == null ? 0 : dto.getVersion(), TrackingEventService.lastEventId(dto.getTrackingData()));
+  }
+
+  /**
+   * Current ETag from two index lookups, without loading the row; empty if it does not exist. An
+   * archived shipment never changes, so its ETag is taken from the archived copy. With an update in
+   * {@link ShipmentWriteBuffer}, it is the ETag of the shipment as read.
+   */
+  public Optional<String> currentEtag(String id) {
+    if (writeBuffer.contains(id)) return getById(id).map(ShipmentService::etagOf);
+    Optional<String> hot = repository.findVersionById(id).map(v -> etag(v, tracking.lastEventId(id)));
+    return hot.isPresent() ? hot : archive.find(id).map(ShipmentService::etagOf);
+  }
+
+  /**
+   * Strong ETag of a list response, hashed from what it shows: each row's id and version (which edits,
+   * tracking appends and buffered updates all move), plus the page's total or next cursor and the
+   * request parameters in {@code query}. The write-behind generation is included when it is on, since
+   * updates coalesced into one pending entry keep its version, and the archive generation for rows
+   * merged from new segments. It is taken from rows already loaded, so it costs no query; a matching
+   * If-None-Match saves serializing and sending the page, not reading it.
+   */
+  public String listEtag(List<ShipmentDto> rows, Object... query) {
+    StringBuilder key = new StringBuilder();
+    for (ShipmentDto d : rows) key.append(d.getId()).append(':').append(d.getVersion()).append(',');
+    key.append("|archive=").append(archive.generation());
+    if (writeBuffer.isEnabled()) key.append("|buffered=").append(writeBuffer.generation());
+    for (Object q : query) key.append('|').append(q);
+    return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+  }
+
+  /**
+   * The shipment from the hot table, or else from {@link ShipmentArchive}, with any update still in
+   * {@link ShipmentWriteBuffer}.
+   */
   public Optional<ShipmentDto> getById(String id) {
-    return repository.findById(id).map(this::toDto);
+    return cache.get(id, key -> {
+      Optional<ShipmentDto> hot = repository.findById(key).map(this::toDto).map(tracking::withEvents);
+      return hot.isPresent() ? hot : archive.find(key);
+    }).map(d -> writeBuffer.overlay(d, true));
+  }
+
+  /**
+   * The shipments for {@code ids} as {@link #getById} returns them, in request order with duplicates
+   * once, plus the ids that do not exist. Cache misses cost one IN query for the rows and one for
+   * their tracking logs, however many ids there are; ids not in the hot table are then looked up in
+   * the archive.
+   */
+  @Transactional(readOnly = true)
+  public BatchGetResult getByIds(List<String> ids) {
+    if (ids == null) throw new IllegalArgumentException("Body must be a JSON array of ids");
+    Set<String> wanted = new LinkedHashSet<>();
+    for (String id : ids) {
+      if (id == null || id.isBlank()) throw new IllegalArgumentException("Ids must not be blank");
+      wanted.add(id);
+    }
+    if (wanted.size() > maxBatchGet) throw new IllegalArgumentException("At most " + maxBatchGet + " distinct ids per request");
+    batchGets.increment();
+    batchGetIds.add(wanted.size());
+    Map<String, ShipmentDto> found = cache.getAll(wanted, missing -> {
+      batchGetLoaded.add(missing.size());
+      List<ShipmentDto> rows = new ArrayList<>(missing.size());
+      for (Shipment e : repository.findAllById(missing)) rows.add(toDto(e));
+      tracking.withEvents(rows);
+      Map<String, ShipmentDto> byId = new HashMap<>();
+      for (ShipmentDto d : rows) byId.put(d.getId(), d);
+      if (byId.size() < missing.size()) {
+        Set<String> cold = new LinkedHashSet<>();
+        for (String id : missing) if (!byId.containsKey(id)) cold.add(id);
+        byId.putAll(archive.findAll(cold));
+      }
+      return byId;
+    });
+    List<ShipmentDto> shipments = new ArrayList<>(found.size());
+    List<String> notFound = new ArrayList<>();
+    for (String id : wanted) {
+      ShipmentDto d = found.get(id);
+      if (d != null) shipments.add(writeBuffer.overlay(d, true));
+      else notFound.add(id);
+    }
+    return new BatchGetResult(shipments, notFound);
   }
 
   @Transactional
   public ShipmentDto create(ShipmentDto dto) {
-    Shipment e = new Shipment();
+    Shipment e = newEntity(dto);
     e.setId(UUID.randomUUID().toString());
-    mapDtoToEntity(dto, e);
-    if (e.getStatus() == null) e.setStatus("pending");
-    if (e.getRate() == null) e.setRate(BigDecimal.ZERO);
-    return toDto(repository.save(e));
+    ShipmentDto created = toDto(repository.save(e));
+    events.publishEvent(ShipmentChangedEvent.created(created));
+    return created;
   }
 
   @Transactional
   public Optional<ShipmentDto> update(String id, ShipmentDto dto) {
+    return update(id, dto, null);
+  }
+
+  /**
+   * Partial update guarded by the row version. When {@code expectedVersions} (from If-Match) is given
+   * and does not hold it, or another writer commits first, throws ObjectOptimisticLockingFailureException.
+   */
+  @Transactional
+  public Optional<ShipmentDto> update(String id, ShipmentDto dto, Collection<Long> expectedVersions) {
+    writeBuffer.flush(List.of(id));
     return repository.findById(id)
         .map(e -> {
+          checkVersion(e, expectedVersions);
+          ShipmentDto before = toDto(e);
           mapDtoToEntity(dto, e);
-          return toDto(repository.save(e));
+          // flush so @PreUpdate has stamped updatedAt before the snapshot is taken
+          ShipmentDto after = tracking.withEvents(toDto(repository.saveAndFlush(e)));
+          events.publishEvent(ShipmentChangedEvent.updated(before, after));
+          return after;
         });
   }
 
   @Transactional
   public boolean delete(String id) {
-    if (!repository.existsById(id)) return false;
-    repository.deleteById(id);
+    return delete(id, null);
+  }
+
+  /** Delete guarded like {@link #update(String, ShipmentDto, Collection)}. */
+  @Transactional
+  public boolean delete(String id, Collection<Long> expectedVersions) {
+    writeBuffer.flush(List.of(id));
+    return repository.findById(id)
+        .map(e -> {
+          checkVersion(e, expectedVersions);
+          repository.delete(e);
+          repository.flush();
+          events.publishEvent(ShipmentChangedEvent.deleted(toDto(e)));
+          return true;
+        })
+        .orElse(false);
+  }
+
+  /** Whether {@code dto} can go through {@link #updateBuffered}: write-behind is on and it only sets status and / or trackingData. */
+  public boolean isBufferable(ShipmentDto dto) {
+    return writeBuffer.isEnabled() && (dto.getStatus() != null || dto.getTrackingData() != null)
+        && dto.getShipperName() == null && dto.getCarrierName() == null && dto.getPickupLocation() == null
+        && dto.getDeliveryLocation() == null && dto.getTrackingNumber() == null && dto.getRate() == null;
+  }
+
+  /**
+   * Queues a status / trackingData update in {@link ShipmentWriteBuffer} instead of writing it; reads
+   * see it at once. Costs one index lookup to check the shipment is in the hot table (false if not),
+   * none while an earlier update of it is still buffered.
+   */
+  public boolean updateBuffered(String id, ShipmentDto dto) {
+    if (!isBufferable(dto)) throw new IllegalArgumentException("Only status and trackingData updates can be buffered");
+    // the column limit, which a batched UPDATE would otherwise hit for the whole batch
+    if (dto.getStatus() != null && dto.getStatus().length() > 50) throw new IllegalArgumentException("status must be at most 50 characters");
+    if (!writeBuffer.contains(id) && repository.findVersionById(id).isEmpty()) return false;
+    writeBuffer.submit(id, dto);
     return true;
   }
 
-  private void mapDtoToEntity(ShipmentDto dto, Shipment e) {
+  private static void checkVersion(Shipment e, Collection<Long> expectedVersions) {
+    if (expectedVersions != null && !expectedVersions.contains(e.getVersion())) {
+      throw new ObjectOptimisticLockingFailureException(Shipment.class, e.getId());
+    }
+  }
+
+  /** New unsaved entity from a create request, with defaults applied; the id is left to the caller. */
+  Shipment newEntity(ShipmentDto dto) {
+    Shipment e = new Shipment();
+    mapDtoToEntity(dto, e);
+    if (e.getStatus() == null) e.setStatus("pending");
+    if (e.getRate() == null) e.setRate(BigDecimal.ZERO);
+    return e;
+  }
+
+  void mapDtoToEntity(ShipmentDto dto, Shipment e) {
     if (dto.getShipperName() != null) e.setShipperName(dto.getShipperName());
     if (dto.getCarrierName() != null) e.setCarrierName(dto.getCarrierName());
     if (dto.getPickupLocation() != null) e.setPickupLocation(dto.getPickupLocation());
@@ -68,22 +403,24 @@ public class ShipmentService {
     if (dto.getTrackingNumber() != null) e.setTrackingNumber(dto.getTrackingNumber());
     if (dto.getStatus() != null) e.setStatus(dto.getStatus());
     if (dto.getRate() != null) e.setRate(dto.getRate());
-    if (dto.getTrackingData() != null) e.setTrackingData(dto.getTrackingData());
-  }
-
-  private ShipmentDto toDto(Shipment e) {
-    ShipmentDto dto = new ShipmentDto();
-    dto.setId(e.getId());
-    dto.setShipperName(e.getShipperName());
-    dto.setCarrierName(e.getCarrierName());
-    dto.setPickupLocation(e.getPickupLocation());
-    dto.setDeliveryLocation(e.getDeliveryLocation());
-    dto.setTrackingNumber(e.getTrackingNumber());
-    dto.setStatus(e.getStatus());
-    dto.setRate(e.getRate());
-    dto.setTrackingData(e.getTrackingData());
-    dto.setCreatedAt(e.getCreatedAt());
-    dto.setUpdatedAt(e.getUpdatedAt());
-    return dto;
+    if (dto.getTrackingData() != null) e.setTrackingData(TrackingEventService.withoutLogged(dto.getTrackingData()));
+  }
+
+  private static String sortValue(ShipmentDto e, String sortBy) {
+    switch (sortBy) {
+      case "createdAt": return e.getCreatedAt().toString();
+      case "updatedAt": return e.getUpdatedAt().toString();
+      case "shipperName": return e.getShipperName();
+      case "carrierName": return e.getCarrierName();
+      case "pickupLocation": return e.getPickupLocation();
+      case "deliveryLocation": return e.getDeliveryLocation();
+      case "status": return e.getStatus();
+      case "rate": return e.getRate().toPlainString();
+      default: return e.getId();
+    }
+  }
+
+  ShipmentDto toDto(Shipment e) {
+    return ShipmentDto.of(e);
   }
 }
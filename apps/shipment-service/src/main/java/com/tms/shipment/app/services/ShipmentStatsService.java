@@ -0,0 +1,279 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentStats;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Incrementally maintained count / rate-sum aggregates behind {@code GET /api/shipments/stats}, for
+ * each of {@link #DIMENSIONS}, both all-time and per UTC createdAt day. Committed
+ * {@link ShipmentChangedEvent}s are applied as deltas (old values out, new values in), so a status
+ * or rate change moves the row between groups. A report therefore costs O(groups) without a window,
+ * or O(groups x days) with one, never a table scan.
+ *
+ * <p>{@link #rebuild()} recomputes everything from one scan of the scalar columns and runs at
+ * startup ({@code StartupWarmup}). The scan reads a REPEATABLE READ snapshot; each row changed while
+ * it runs is taken back out as the snapshot saw it and put in again as its latest change event left
+ * it, and later events apply on top. {@link #check()} compares the
+ * all-time aggregates with a GROUP BY on the table. Shipments
+ * moved to {@link ShipmentArchive} still count: archival publishes no event, and both also read the
+ * archive.
+ */
+@Service
+public class ShipmentStatsService {
+
+  public static final List<String> DIMENSIONS = List.of("status", "carrierName", "shipperName");
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentStatsService.class);
+  private static final long SECONDS_PER_DAY = 86_400;
+
+  /** Immutable so that {@code merge} can replace it atomically; rate is kept in cents. */
+  private static final class Agg {
+    final long count;
+    final long rateCents;
+
+    Agg(long count, long rateCents) {
+      this.count = count;
+      this.rateCents = rateCents;
+    }
+
+    static Agg sum(Agg a, Agg b) {
+      long count = a.count + b.count;
+      return count == 0 ? null : new Agg(count, a.rateCents + b.rateCents);
+    }
+  }
+
+  private static final class GroupDay {
+    final String group;
+    final long epochDay;
+
+    GroupDay(String group, long epochDay) {
+      this.group = group;
+      this.epochDay = epochDay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof GroupDay)) return false;
+      GroupDay g = (GroupDay) o;
+      return epochDay == g.epochDay && group.equals(g.group);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * group.hashCode() + Long.hashCode(epochDay);
+    }
+  }
+
+  private static final class State {
+    final Map<String, ConcurrentHashMap<String, Agg>> totals = new HashMap<>();
+    final Map<String, ConcurrentHashMap<GroupDay, Agg>> daily = new HashMap<>();
+
+    State() {
+      for (String d : DIMENSIONS) {
+        totals.put(d, new ConcurrentHashMap<>());
+        daily.put(d, new ConcurrentHashMap<>());
+      }
+    }
+
+    void apply(String status, String carrierName, String shipperName, Instant createdAt, BigDecimal rate, int sign) {
+      Agg delta = new Agg(sign, sign * cents(rate));
+      long day = Math.floorDiv(createdAt.getEpochSecond(), SECONDS_PER_DAY);
+      add("status", status, day, delta);
+      add("carrierName", carrierName, day, delta);
+      add("shipperName", shipperName, day, delta);
+    }
+
+    private void add(String dimension, String group, long day, Agg delta) {
+      totals.get(dimension).merge(group, delta, Agg::sum);
+      daily.get(dimension).merge(new GroupDay(group, day), delta, Agg::sum);
+    }
+
+    /** A row of {@link ShipmentRepository#streamStatsColumns}. */
+    void apply(Object[] r, int sign) {
+      apply((String) r[0], (String) r[1], (String) r[2], (Instant) r[3], (BigDecimal) r[4], sign);
+    }
+  }
+
+  private final ShipmentRepository repository;
+  private final ShipmentArchive archive;
+  private final TransactionTemplate snapshotTx;
+  /** Read-locked by change events, write-locked while a rebuild settles the rows changed during its scan. */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile State state = new State();
+  // latest change per id since the running rebuild started; null when none is running
+  private volatile Map<String, ShipmentChangedEvent> changedDuringRebuild;
+
+  public ShipmentStatsService(ShipmentRepository repository, ShipmentArchive archive, PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.archive = archive;
+    this.snapshotTx = new TransactionTemplate(transactionManager);
+    this.snapshotTx.setReadOnly(true);
+    this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+  }
+
+  public synchronized void rebuild() {
+    long start = System.nanoTime();
+    State fresh = new State();
+    changedDuringRebuild = new ConcurrentHashMap<>();
+    try {
+      long[] rows = { 0 };
+      int changed = snapshotTx.execute(s -> {
+        try (Stream<Object[]> scan = repository.streamStatsColumns()) {
+          for (Object[] r : (Iterable<Object[]>) scan::iterator) {
+            fresh.apply(r, 1);
+            rows[0]++;
+          }
+        }
+        archive.forEach(d -> {
+          apply(fresh, d, 1);
+          rows[0]++;
+        });
+        // held until the swap: later changes wait for it, then apply to the new state
+        lock.writeLock().lock();
+        Map<String, ShipmentChangedEvent> latest = changedDuringRebuild;
+        if (!latest.isEmpty()) {
+          repository.findStatsColumns(latest.keySet()).forEach(r -> fresh.apply(r, -1));
+          for (ShipmentChangedEvent e : latest.values()) {
+            if (e.getAfter() != null) apply(fresh, e.getAfter(), 1);
+          }
+        }
+        return latest.size();
+      });
+      state = fresh;
+      log.info("Shipment stats rebuilt from {} rows ({} changed during the scan) in {} ms", rows[0], changed,
+          (System.nanoTime() - start) / 1_000_000);
+    } finally {
+      changedDuringRebuild = null;
+      if (lock.isWriteLockedByCurrentThread()) lock.writeLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(ShipmentChangedEvent event) {
+    lock.readLock().lock();
+    try {
+      Map<String, ShipmentChangedEvent> changed = changedDuringRebuild;
+      if (changed != null) changed.merge(event.getId(), event, ShipmentStatsService::later);
+      State s = state;
+      if (event.getBefore() != null) apply(s, event.getBefore(), -1);
+      if (event.getAfter() != null) apply(s, event.getAfter(), 1);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Aggregates grouped by {@code groupBy}, optionally restricted to rows created between {@code from}
+   * and {@code to} (UTC dates, inclusive; either may be null).
+   */
+  public ShipmentStats query(String groupBy, LocalDate from, LocalDate to) {
+    if (!DIMENSIONS.contains(groupBy)) {
+      throw new IllegalArgumentException("groupBy must be one of " + DIMENSIONS);
+    }
+    State s = state;
+    Map<String, Agg> groups;
+    if (from == null && to == null) {
+      groups = s.totals.get(groupBy);
+    } else {
+      long lo = from == null ? Long.MIN_VALUE : from.toEpochDay();
+      long hi = to == null ? Long.MAX_VALUE : to.toEpochDay();
+      groups = new HashMap<>();
+      for (Map.Entry<GroupDay, Agg> e : s.daily.get(groupBy).entrySet()) {
+        long day = e.getKey().epochDay;
+        if (day >= lo && day <= hi) groups.merge(e.getKey().group, e.getValue(), Agg::sum);
+      }
+    }
+    List<ShipmentStats.Group> out = new ArrayList<>(groups.size());
+    long count = 0;
+    long cents = 0;
+    for (Map.Entry<String, Agg> e : groups.entrySet()) {
+      out.add(group(e.getKey(), e.getValue().count, e.getValue().rateCents));
+      count += e.getValue().count;
+      cents += e.getValue().rateCents;
+    }
+    out.sort(Comparator.comparingLong(ShipmentStats.Group::getCount).reversed().thenComparing(ShipmentStats.Group::getKey));
+    return new ShipmentStats(groupBy, from, to, group(null, count, cents), out);
+  }
+
+  /**
+   * Differences between the all-time aggregates and a GROUP BY over the table plus the archived rows;
+   * empty when consistent.
+   */
+  public List<String> check() {
+    State s = state;
+    State archived = new State();
+    archive.forEach(d -> apply(archived, d, 1));
+    List<String> mismatches = new ArrayList<>();
+    for (String dimension : DIMENSIONS) {
+      Map<String, Agg> db = new LinkedHashMap<>(archived.totals.get(dimension));
+      for (Object[] r : repository.aggregateBy(dimension)) {
+        db.merge((String) r[0], new Agg((Long) r[1], cents((BigDecimal) r[2])), Agg::sum);
+      }
+      Map<String, Agg> memory = s.totals.get(dimension);
+      for (Map.Entry<String, Agg> e : db.entrySet()) {
+        Agg m = memory.get(e.getKey());
+        if (m == null || m.count != e.getValue().count || m.rateCents != e.getValue().rateCents) {
+          mismatches.add(describe(dimension, e.getKey(), m, e.getValue()));
+        }
+      }
+      for (Map.Entry<String, Agg> e : memory.entrySet()) {
+        if (!db.containsKey(e.getKey())) mismatches.add(describe(dimension, e.getKey(), e.getValue(), null));
+      }
+    }
+    return mismatches;
+  }
+
+  /** The change that left the row in its newer state: a deletion, else the higher version. */
+  private static ShipmentChangedEvent later(ShipmentChangedEvent a, ShipmentChangedEvent b) {
+    if (a.getAfter() == null) return a;
+    if (b.getAfter() == null) return b;
+    Long va = a.getAfter().getVersion();
+    Long vb = b.getAfter().getVersion();
+    return va != null && vb != null && va > vb ? a : b;
+  }
+
+  private static void apply(State s, ShipmentDto d, int sign) {
+    s.apply(d.getStatus(), d.getCarrierName(), d.getShipperName(), d.getCreatedAt(), d.getRate(), sign);
+  }
+
+  static ShipmentStats.Group group(String key, long count, long cents) {
+    BigDecimal total = BigDecimal.valueOf(cents, 2);
+    BigDecimal average = count == 0 ? BigDecimal.ZERO.setScale(2) : total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    return new ShipmentStats.Group(key, count, total, average);
+  }
+
+  static long cents(BigDecimal rate) {
+    return rate == null ? 0 : rate.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+  }
+
+  private static String describe(String dimension, String group, Agg memory, Agg db) {
+    return dimension + "=" + group + ": memory=" + format(memory) + " table=" + format(db);
+  }
+
+  private static String format(Agg a) {
+    return a == null ? "absent" : Objects.toString(a.count) + " rows / " + BigDecimal.valueOf(a.rateCents, 2);
+  }
+}
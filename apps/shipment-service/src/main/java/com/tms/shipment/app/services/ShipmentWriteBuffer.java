@@ -0,0 +1,476 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.JsonMapConverter;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for high-frequency status and trackingData updates ({@code PATCH} with
+ * {@code Prefer: respond-async}, when {@code shipments.write-behind.enabled}). Updates are coalesced
+ * per shipment in {@code stripes} lock-striped maps, the last status and the last trackingData
+ * winning, and written every {@code flush-interval}, or as soon as {@code flush-threshold} shipments
+ * are pending, as JDBC batches of {@code batch-size} UPDATEs. A burst of n updates to one shipment
+ * between two flushes costs one UPDATE instead of n.
+ *
+ * <p>Reads stay read-your-writes: {@link #overlay} lays the pending (and in-flight) update of a
+ * shipment over its row from the cache or the table, with the version it will be written with, so
+ * the ETag does not move when the flush lands. List filters and sort orders see the written state.
+ * A synchronous write to a shipment first flushes it ({@link #flush(Collection)}), so writes apply in
+ * the order they were accepted, and whatever is pending is flushed on shutdown.
+ *
+ * <p>Each row is written only if its version is still the one the flush read, and publishes a
+ * {@link ShipmentChangedEvent} like any update, so the cache, stats and change feed follow. Rows
+ * changed meanwhile go back into the buffer for the next flush. The update of a row deleted or
+ * archived meanwhile is dropped, logged and counted.
+ * When a batch fails, its rows are written one by one so that one bad row does not hold back the
+ * others; a row that keeps failing is retried with the next flushes and dropped, logged and counted,
+ * after {@code max-attempts}.
+ */
+@Component
+public class ShipmentWriteBuffer implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(ShipmentWriteBuffer.class);
+  private static final JsonMapConverter JSON = new JsonMapConverter();
+  private static final String UPDATE_STATUS =
+      "UPDATE shipments SET status = ?, updated_at = ?, version = ? WHERE id = ? AND version = ?";
+  private static final String UPDATE_TRACKING =
+      "UPDATE shipments SET status = ?, tracking_data = ?, updated_at = ?, version = ? WHERE id = ? AND version = ?";
+
+  private final ShipmentRepository repository;
+  private final JdbcTemplate jdbc;
+  private final ApplicationEventPublisher events;
+  private final TransactionTemplate tx;
+  private final boolean enabled;
+  private final Stripe[] stripes;
+  private final int flushThreshold;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final ScheduledExecutorService scheduler;
+  // one flush at a time, so a synchronous writer waiting on it never overtakes an in-flight batch
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicBoolean flushQueued = new AtomicBoolean();
+  // shipments with a pending update, and updates pending or in flight (the read fast path)
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger buffered = new AtomicInteger();
+  private final AtomicLong generation = new AtomicLong();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  public ShipmentWriteBuffer(ShipmentRepository repository, JdbcTemplate jdbc, ApplicationEventPublisher events,
+      PlatformTransactionManager transactionManager,
+      @Value("${shipments.write-behind.enabled:false}") boolean enabled,
+      @Value("${shipments.write-behind.stripes:16}") int stripes,
+      @Value("${shipments.write-behind.flush-interval:250ms}") Duration flushInterval,
+      @Value("${shipments.write-behind.flush-threshold:1000}") int flushThreshold,
+      @Value("${shipments.write-behind.batch-size:500}") int batchSize,
+      @Value("${shipments.write-behind.max-attempts:5}") int maxAttempts) {
+    this.repository = repository;
+    this.jdbc = jdbc;
+    this.events = events;
+    this.enabled = enabled;
+    this.stripes = new Stripe[Math.max(1, stripes)];
+    for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new Stripe();
+    this.flushThreshold = flushThreshold;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    if (!enabled) {
+      this.tx = null;
+      this.scheduler = null;
+      return;
+    }
+    // its own transaction, also when a synchronous writer flushes from inside one
+    this.tx = new TransactionTemplate(transactionManager);
+    tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "shipment-write-behind");
+      t.setDaemon(true);
+      return t;
+    });
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /** A buffer that accepts nothing; for tests and {@code shipments.write-behind.enabled=false}. */
+  public static ShipmentWriteBuffer disabled() {
+    return new ShipmentWriteBuffer(null, null, null, null, false, 1, Duration.ZERO, 0, 0, 0);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Updates accepted so far; moves on every {@link #submit}, for list ETags. */
+  public long generation() {
+    return generation.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("shipments.write_behind.submitted", submitted, LongAdder::sum)
+        .description("Updates accepted into the write-behind buffer").register(registry);
+    FunctionCounter.builder("shipments.write_behind.coalesced", coalesced, LongAdder::sum)
+        .description("Updates merged into one already pending for the same shipment").register(registry);
+    FunctionCounter.builder("shipments.write_behind.written", written, LongAdder::sum)
+        .description("Rows written by write-behind flushes").register(registry);
+    FunctionCounter.builder("shipments.write_behind.batches", batches, LongAdder::sum)
+        .description("Write-behind flush transactions").register(registry);
+    FunctionCounter.builder("shipments.write_behind.dropped", dropped, LongAdder::sum)
+        .description("Updates given up on after failing max-attempts flushes, or because their row was gone").register(registry);
+    Gauge.builder("shipments.write_behind.buffered", buffered, AtomicInteger::get)
+        .description("Updates pending or being written").register(registry);
+  }
+
+  /**
+   * Buffers the status and / or trackingData of {@code patch} for shipment {@code id}, which the
+   * caller has checked exists; trackingData is stored as {@link TrackingEventService#withoutLogged}.
+   */
+  public void submit(String id, ShipmentDto patch) {
+    if (!enabled) throw new IllegalStateException("Write-behind is disabled");
+    Map<String, Object> trackingData = TrackingEventService.withoutLogged(patch.getTrackingData());
+    Stripe s = stripe(id);
+    boolean added;
+    synchronized (s) {
+      Update u = s.pending.get(id);
+      added = u == null;
+      if (added) {
+        u = new Update();
+        s.pending.put(id, u);
+      }
+      u.apply(patch.getStatus(), trackingData, patch.getTrackingData() != null, Instant.now());
+    }
+    generation.incrementAndGet();
+    submitted.increment();
+    if (!added) {
+      coalesced.increment();
+      return;
+    }
+    buffered.incrementAndGet();
+    if (pending.incrementAndGet() >= flushThreshold && flushQueued.compareAndSet(false, true)) {
+      scheduler.execute(() -> {
+        flushQueued.set(false);
+        flushQuietly();
+      });
+    }
+  }
+
+  /** Whether shipment {@code id} has an update pending or in flight. */
+  public boolean contains(String id) {
+    if (buffered.get() == 0) return false;
+    Stripe s = stripe(id);
+    synchronized (s) {
+      return s.pending.containsKey(id) || s.flushing.containsKey(id);
+    }
+  }
+
+  /**
+   * {@code dto} as it reads once its buffered updates are written: status, trackingData (only when
+   * {@code withTrackingData}; the logged events are kept), updatedAt and version. The same instance
+   * when nothing is buffered for it.
+   */
+  public ShipmentDto overlay(ShipmentDto dto, boolean withTrackingData) {
+    if (dto == null || buffered.get() == 0) return dto;
+    Stripe s = stripe(dto.getId());
+    synchronized (s) {
+      Update inFlight = s.flushing.get(dto.getId());
+      Update next = s.pending.get(dto.getId());
+      if (inFlight == null && next == null) return dto;
+      ShipmentDto view = ShipmentCache.copy(dto);
+      // an in-flight update is already in a row read after its flush committed
+      if (inFlight != null && (inFlight.target == 0 || version(dto) < inFlight.target)) inFlight.applyTo(view, withTrackingData);
+      if (next != null) next.applyTo(view, withTrackingData);
+      return view;
+    }
+  }
+
+  /** {@link #overlay(ShipmentDto, boolean)} for each row. */
+  public List<ShipmentDto> overlay(List<ShipmentDto> rows, boolean withTrackingData) {
+    if (buffered.get() == 0) return rows;
+    List<ShipmentDto> out = new ArrayList<>(rows.size());
+    for (ShipmentDto d : rows) out.add(overlay(d, withTrackingData));
+    return out;
+  }
+
+  /** Writes whatever is buffered for {@code ids}, waiting for a flush already writing them. */
+  public void flush(Collection<String> ids) {
+    if (buffered.get() == 0) return;
+    flushLock.lock();
+    try {
+      List<Map.Entry<String, Update>> drained = new ArrayList<>();
+      for (String id : ids) {
+        Stripe s = stripe(id);
+        synchronized (s) {
+          Update u = s.pending.remove(id);
+          if (u != null) drained.add(inFlight(s, id, u));
+        }
+      }
+      write(drained);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** Writes everything buffered. */
+  public void flush() {
+    if (buffered.get() == 0) return;
+    flushLock.lock();
+    try {
+      List<Map.Entry<String, Update>> drained = new ArrayList<>();
+      for (Stripe s : stripes) {
+        synchronized (s) {
+          for (Map.Entry<String, Update> e : s.pending.entrySet()) drained.add(inFlight(s, e.getKey(), e.getValue()));
+          s.pending.clear();
+        }
+      }
+      write(drained);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Write-behind flush failed", e);
+    }
+  }
+
+  private Map.Entry<String, Update> inFlight(Stripe s, String id, Update u) {
+    s.flushing.put(id, u);
+    pending.decrementAndGet();
+    return Map.entry(id, u);
+  }
+
+  private void write(List<Map.Entry<String, Update>> drained) {
+    for (int from = 0; from < drained.size(); from += batchSize) {
+      List<Map.Entry<String, Update>> batch = drained.subList(from, Math.min(drained.size(), from + batchSize));
+      Set<String> retry;
+      try {
+        retry = tx.execute(s -> writeBatch(batch));
+        batches.increment();
+      } catch (RuntimeException e) {
+        log.warn("Write-behind flush of {} shipments failed; writing them one by one", batch.size(), e);
+        retry = writeOneByOne(batch);
+      }
+      settle(batch, retry);
+    }
+  }
+
+  /** A failed batch again, one transaction per row; returns the ids to retry with the next flush. */
+  private Set<String> writeOneByOne(List<Map.Entry<String, Update>> batch) {
+    Set<String> retry = new HashSet<>();
+    for (Map.Entry<String, Update> entry : batch) {
+      try {
+        retry.addAll(tx.execute(s -> writeBatch(List.of(entry))));
+        batches.increment();
+      } catch (RuntimeException e) {
+        Update u = entry.getValue();
+        u.gone = false;
+        if (++u.failures < maxAttempts) {
+          log.warn("Write-behind update of shipment {} failed ({} of {} attempts)", entry.getKey(), u.failures, maxAttempts, e);
+          retry.add(entry.getKey());
+        } else {
+          dropped.increment();
+          log.error("Write-behind update of shipment {} failed {} times; dropped: status={}, trackingData={}",
+              entry.getKey(), u.failures, u.status, u.hasTrackingData ? u.trackingData : "(unchanged)", e);
+        }
+      }
+    }
+    return retry;
+  }
+
+  /** Writes one batch in the caller's transaction; returns the ids to retry because their row changed meanwhile. */
+  private Set<String> writeBatch(List<Map.Entry<String, Update>> batch) {
+    Map<String, Update> updates = new HashMap<>();
+    for (Map.Entry<String, Update> entry : batch) updates.put(entry.getKey(), entry.getValue());
+    List<Write> statusOnly = new ArrayList<>();
+    List<Write> withTracking = new ArrayList<>();
+    for (Map.Entry<String, Update> entry : batch) entry.getValue().gone = true;
+    for (Shipment e : repository.findAllById(updates.keySet())) {
+      Update u = updates.get(e.getId());
+      u.gone = false;
+      ShipmentDto before = ShipmentDto.of(e);
+      ShipmentDto after = ShipmentCache.copy(before);
+      u.applyTo(after, true);
+      (u.hasTrackingData ? withTracking : statusOnly).add(new Write(u, before, after));
+    }
+    Set<String> retry = new HashSet<>();
+    if (!statusOnly.isEmpty()) {
+      published(statusOnly, jdbc.batchUpdate(UPDATE_STATUS, statusOnly, statusOnly.size(), (ps, w) -> {
+        ps.setString(1, w.after.getStatus());
+        ps.setTimestamp(2, Timestamp.from(w.after.getUpdatedAt()));
+        ps.setLong(3, w.after.getVersion());
+        ps.setString(4, w.after.getId());
+        ps.setLong(5, w.before.getVersion());
+      }), retry);
+    }
+    if (!withTracking.isEmpty()) {
+      published(withTracking, jdbc.batchUpdate(UPDATE_TRACKING, withTracking, withTracking.size(), (ps, w) -> {
+        ps.setString(1, w.after.getStatus());
+        ps.setString(2, JSON.convertToDatabaseColumn(w.after.getTrackingData()));
+        ps.setTimestamp(3, Timestamp.from(w.after.getUpdatedAt()));
+        ps.setLong(4, w.after.getVersion());
+        ps.setString(5, w.after.getId());
+        ps.setLong(6, w.before.getVersion());
+      }), retry);
+    }
+    return retry;
+  }
+
+  private void published(List<Write> writes, int[][] counts, Set<String> retry) {
+    for (int i = 0; i < writes.size(); i++) {
+      Write w = writes.get(i);
+      if (counts[0][i] > 0) {
+        w.update.target = w.after.getVersion();
+        events.publishEvent(ShipmentChangedEvent.updated(w.before, w.after));
+        written.increment();
+      } else {
+        retry.add(w.after.getId());
+      }
+    }
+  }
+
+  /** After a batch: written or dropped updates leave the buffer, the rest go back under any newer one. */
+  private void settle(List<Map.Entry<String, Update>> batch, Set<String> retry) {
+    for (Map.Entry<String, Update> entry : batch) {
+      String id = entry.getKey();
+      Update u = entry.getValue();
+      Stripe s = stripe(id);
+      synchronized (s) {
+        s.flushing.remove(id);
+        if (!retry.contains(id)) {
+          buffered.decrementAndGet();
+          if (u.gone) {
+            dropped.increment();
+            log.warn("Write-behind update of shipment {} dropped: the row was deleted or archived; status={}, trackingData={}",
+                id, u.status, u.hasTrackingData ? u.trackingData : "(unchanged)");
+          }
+          continue;
+        }
+        u.target = 0;
+        Update newer = s.pending.get(id);
+        if (newer == null) {
+          s.pending.put(id, u);
+          pending.incrementAndGet();
+        } else {
+          newer.over(u);
+          buffered.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  private Stripe stripe(String id) {
+    return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+  }
+
+  private static long version(ShipmentDto d) {
+    return d.getVersion() == null ? 0 : d.getVersion();
+  }
+
+  /** Flushes what is pending before the application context (and the data source) goes away. */
+  @PreDestroy
+  public void close() {
+    if (!enabled) return;
+    // let a running flush finish rather than interrupt it mid-batch
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  private static final class Stripe {
+    final Map<String, Update> pending = new HashMap<>();
+    final Map<String, Update> flushing = new HashMap<>();
+  }
+
+  /** The coalesced update of one shipment; guarded by its stripe, except {@link #target} and {@link #failures}. */
+  private static final class Update {
+    String status;
+    Map<String, Object> trackingData;
+    boolean hasTrackingData;
+    Instant at;
+    // version the row was written with; 0 until then
+    volatile long target;
+    // flushes whose write of it failed, and whether the last one found no row; only touched by the flushing thread, under flushLock
+    int failures;
+    boolean gone;
+
+    void apply(String status, Map<String, Object> trackingData, boolean hasTrackingData, Instant at) {
+      if (status != null) this.status = status;
+      if (hasTrackingData) {
+        this.trackingData = trackingData;
+        this.hasTrackingData = true;
+      }
+      this.at = at;
+    }
+
+    /** Takes the fields of an {@code older} update that this one does not set, and its failed attempts. */
+    void over(Update older) {
+      failures = Math.max(failures, older.failures);
+      if (status == null) status = older.status;
+      if (!hasTrackingData && older.hasTrackingData) {
+        trackingData = older.trackingData;
+        hasTrackingData = true;
+      }
+    }
+
+    void applyTo(ShipmentDto d, boolean withTrackingData) {
+      if (status != null) d.setStatus(status);
+      if (hasTrackingData && withTrackingData) d.setTrackingData(TrackingEventService.withStored(d.getTrackingData(), trackingData));
+      d.setUpdatedAt(at);
+      d.setVersion(version(d) + 1);
+    }
+  }
+
+  private static final class Write {
+    final Update update;
+    final ShipmentDto before;
+    final ShipmentDto after;
+
+    Write(Update update, ShipmentDto before, ShipmentDto after) {
+      this.update = update;
+      this.before = before;
+      this.after = after;
+    }
+  }
+}
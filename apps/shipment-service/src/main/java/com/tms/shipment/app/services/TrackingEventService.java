@@ -0,0 +1,260 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.JsonMapConverter;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.TrackingEvent;
+import com.tms.shipment.app.models.TrackingEventDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import com.tms.shipment.app.repositories.TrackingEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Append-only tracking history per shipment. An append inserts new rows only: it neither reads
+ * prior events nor rewrites the shipment's trackingData CLOB, so its cost does not grow with
+ * history.
+ *
+ * <p>For existing clients the legacy {@code trackingData} view is derived on read: the stored map
+ * with the logged events appended to its {@code events} list, each tagged with {@value #EVENT_ID}.
+ * Tagged entries sent back in a PATCH are dropped before the map is stored (see
+ * {@link #withoutLogged}), so a read-modify-write round trip does not copy the log into the blob.
+ * Only the newest {@code shipments.tracking.derived-events} logged events are part of the view, so
+ * reads stay the same size however long a history grows; the whole log is paged through {@link #list}.
+ */
+@Service
+public class TrackingEventService {
+
+  public static final int MAX_LIMIT = 1000;
+  static final int MAX_EVENT_CHARS = 4000;
+  static final String EVENTS = "events";
+  static final String EVENT_ID = "eventId";
+
+  private static final JsonMapConverter JSON = new JsonMapConverter();
+
+  private final TrackingEventRepository repository;
+  private final ShipmentRepository shipments;
+  private final ApplicationEventPublisher publisher;
+  private final int derivedEvents;
+
+  @PersistenceContext
+  private EntityManager em;
+
+  public TrackingEventService(TrackingEventRepository repository, ShipmentRepository shipments, ApplicationEventPublisher publisher,
+      @Value("${shipments.tracking.derived-events:100}") int derivedEvents) {
+    if (derivedEvents < 1) throw new IllegalArgumentException("shipments.tracking.derived-events must be at least 1");
+    this.repository = repository;
+    this.shipments = shipments;
+    this.publisher = publisher;
+    this.derivedEvents = derivedEvents;
+  }
+
+  /**
+   * Appends one event (a JSON object) or several (a JSON array of objects) to a shipment's log.
+   * Empty when the shipment does not exist.
+   *
+   * <p>The shipment's version is moved on first, which locks its row until commit. Appends to one
+   * shipment are therefore serialized and take their ids in commit order, so a reader paging with
+   * {@code since} cannot step over an event that commits late; and the version, which the ETag and the
+   * archiver's delete guard compare, changes with every append.
+   */
+  @Transactional
+  public Optional<List<TrackingEventDto>> append(String shipmentId, Object body) {
+    List<Map<String, Object>> data = eventsOf(body);
+    if (shipments.incrementVersion(shipmentId) == 0) return Optional.empty();
+    // a proxy: the FK is written without loading the shipment row
+    Shipment shipment = em.getReference(Shipment.class, shipmentId);
+    Instant now = Instant.now();
+    List<TrackingEventDto> appended = new ArrayList<>(data.size());
+    for (Map<String, Object> d : data) {
+      TrackingEvent e = new TrackingEvent();
+      e.setShipment(shipment);
+      e.setShipmentId(shipmentId);
+      e.setRecordedAt(now);
+      e.setData(d);
+      em.persist(e);
+      appended.add(toDto(e));
+    }
+    publisher.publishEvent(new TrackingEventsAppendedEvent(shipmentId, appended));
+    return Optional.of(appended);
+  }
+
+  /** Events with id greater than {@code since}, oldest first. Empty when the shipment does not exist. */
+  @Transactional(readOnly = true)
+  public Optional<List<TrackingEventDto>> list(String shipmentId, long since, int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+    }
+    List<TrackingEvent> rows = repository.findByShipmentIdAndIdGreaterThanOrderByIdAsc(shipmentId, since, PageRequest.of(0, limit));
+    if (rows.isEmpty() && !shipments.existsById(shipmentId)) return Optional.empty();
+    List<TrackingEventDto> out = new ArrayList<>(rows.size());
+    for (TrackingEvent e : rows) out.add(toDto(e));
+    return Optional.of(out);
+  }
+
+  /** Id of the shipment's newest logged event; 0 if none. */
+  public long lastEventId(String shipmentId) {
+    Long last = repository.findLastId(shipmentId);
+    return last == null ? 0 : last;
+  }
+
+  /** Id of the newest logged event of any shipment; 0 if none. */
+  public long lastEventId() {
+    Long last = repository.findLastId();
+    return last == null ? 0 : last;
+  }
+
+  /** Highest {@value #EVENT_ID} in a derived trackingData view; 0 if none. */
+  @SuppressWarnings("unchecked")
+  public static long lastEventId(Map<String, Object> trackingData) {
+    long last = 0;
+    if (trackingData != null && trackingData.get(EVENTS) instanceof List) {
+      for (Object ev : (List<Object>) trackingData.get(EVENTS)) {
+        if (ev instanceof Map && ((Map<String, Object>) ev).get(EVENT_ID) instanceof Number) {
+          last = Math.max(last, ((Number) ((Map<String, Object>) ev).get(EVENT_ID)).longValue());
+        }
+      }
+    }
+    return last;
+  }
+
+  /** {@code dto} with its trackingData derived from the stored map plus the logged events. */
+  @Transactional(readOnly = true)
+  public ShipmentDto withEvents(ShipmentDto dto) {
+    withEvents(List.of(dto));
+    return dto;
+  }
+
+  /** Derives trackingData for a page of rows with a single query over the newest events of their logs. */
+  @Transactional(readOnly = true)
+  public List<ShipmentDto> withEvents(List<ShipmentDto> dtos) {
+    if (dtos.isEmpty()) return dtos;
+    if (dtos.size() == 1) {
+      List<TrackingEvent> newest = new ArrayList<>(
+          repository.findByShipmentIdOrderByIdDesc(dtos.get(0).getId(), PageRequest.of(0, derivedEvents)));
+      Collections.reverse(newest);
+      return attach(dtos, newest);
+    }
+    return attach(dtos, repository.findNewestByShipmentIdIn(ids(dtos), derivedEvents));
+  }
+
+  /** {@link #withEvents(List)} with every logged event, for the archive: the log leaves the table with its shipment. */
+  @Transactional(readOnly = true)
+  public List<ShipmentDto> withAllEvents(List<ShipmentDto> dtos) {
+    if (dtos.isEmpty()) return dtos;
+    return attach(dtos, repository.findByShipmentIdInOrderByIdAsc(ids(dtos)));
+  }
+
+  /** Appends {@code events}, oldest first, to the trackingData of the rows they belong to. */
+  private static List<ShipmentDto> attach(List<ShipmentDto> dtos, List<TrackingEvent> events) {
+    Map<String, ShipmentDto> byId = new HashMap<>();
+    for (ShipmentDto d : dtos) byId.put(d.getId(), d);
+    Map<String, List<TrackingEvent>> logs = new HashMap<>();
+    for (TrackingEvent e : events) logs.computeIfAbsent(e.getShipmentId(), k -> new ArrayList<>()).add(e);
+    logs.forEach((id, log) -> {
+      ShipmentDto d = byId.get(id);
+      d.setTrackingData(merge(d.getTrackingData(), log));
+    });
+    return dtos;
+  }
+
+  private static Set<String> ids(List<ShipmentDto> dtos) {
+    Set<String> ids = new HashSet<>();
+    for (ShipmentDto d : dtos) ids.add(d.getId());
+    return ids;
+  }
+
+  /** {@code trackingData} without the {@value #EVENT_ID}-tagged entries a derived view added. */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> withoutLogged(Map<String, Object> trackingData) {
+    if (trackingData == null || !(trackingData.get(EVENTS) instanceof List)) return trackingData;
+    List<Object> events = (List<Object>) trackingData.get(EVENTS);
+    List<Object> kept = new ArrayList<>(events.size());
+    for (Object ev : events) {
+      if (!(ev instanceof Map && ((Map<String, Object>) ev).containsKey(EVENT_ID))) kept.add(ev);
+    }
+    if (kept.size() == events.size()) return trackingData;
+    Map<String, Object> out = new LinkedHashMap<>(trackingData);
+    out.put(EVENTS, kept);
+    return out;
+  }
+
+  /**
+   * A derived view with its stored part replaced by {@code stored}: the {@value #EVENT_ID}-tagged
+   * entries of {@code derived} are kept, after the stored events, as a read would derive them.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> withStored(Map<String, Object> derived, Map<String, Object> stored) {
+    List<Object> logged = new ArrayList<>();
+    if (derived != null && derived.get(EVENTS) instanceof List) {
+      for (Object ev : (List<Object>) derived.get(EVENTS)) {
+        if (ev instanceof Map && ((Map<String, Object>) ev).containsKey(EVENT_ID)) logged.add(ev);
+      }
+    }
+    if (logged.isEmpty()) return stored;
+    Map<String, Object> out = stored == null ? new LinkedHashMap<>() : new LinkedHashMap<>(stored);
+    List<Object> events = new ArrayList<>();
+    Object existing = out.get(EVENTS);
+    if (existing instanceof List) events.addAll((List<Object>) existing);
+    events.addAll(logged);
+    out.put(EVENTS, events);
+    return out;
+  }
+
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> merge(Map<String, Object> stored, List<TrackingEvent> log) {
+    Map<String, Object> out = stored == null ? new LinkedHashMap<>() : new LinkedHashMap<>(stored);
+    List<Object> events = new ArrayList<>();
+    Object existing = out.get(EVENTS);
+    if (existing instanceof List) events.addAll((List<Object>) existing);
+    for (TrackingEvent e : log) {
+      Map<String, Object> ev = new LinkedHashMap<>(e.getData());
+      ev.put(EVENT_ID, e.getId());
+      events.add(ev);
+    }
+    out.put(EVENTS, events);
+    return out;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> eventsOf(Object body) {
+    List<?> items = body instanceof List ? (List<?>) body : Collections.singletonList(body);
+    if (items.isEmpty()) throw new IllegalArgumentException("No events given");
+    List<Map<String, Object>> out = new ArrayList<>(items.size());
+    for (Object item : items) {
+      if (!(item instanceof Map)) throw new IllegalArgumentException("Each event must be a JSON object");
+      Map<String, Object> data = (Map<String, Object>) item;
+      if (data.containsKey(EVENT_ID)) throw new IllegalArgumentException(EVENT_ID + " is assigned by the server");
+      if (JSON.convertToDatabaseColumn(data).length() > MAX_EVENT_CHARS) {
+        throw new IllegalArgumentException("Event larger than " + MAX_EVENT_CHARS + " characters");
+      }
+      out.add(data);
+    }
+    return out;
+  }
+
+  private static TrackingEventDto toDto(TrackingEvent e) {
+    TrackingEventDto dto = new TrackingEventDto();
+    dto.setId(e.getId());
+    dto.setShipmentId(e.getShipmentId());
+    dto.setRecordedAt(e.getRecordedAt());
+    dto.setData(e.getData());
+    return dto;
+  }
+}
@@ -0,0 +1,24 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.TrackingEventDto;
+
+import java.util.List;
+
+/**
+ * Published by {@link TrackingEventService#append} inside the writing transaction. Appends do not
+ * touch the shipment row, so they are not a {@link ShipmentChangedEvent}; listeners that hold a
+ * derived trackingData view (the read cache) invalidate on this instead.
+ */
+public class TrackingEventsAppendedEvent {
+
+  private final String shipmentId;
+  private final List<TrackingEventDto> events;
+
+  public TrackingEventsAppendedEvent(String shipmentId, List<TrackingEventDto> events) {
+    this.shipmentId = shipmentId;
+    this.events = events;
+  }
+
+  public String getShipmentId() { return shipmentId; }
+  public List<TrackingEventDto> getEvents() { return events; }
+}
@@ -0,0 +1,110 @@
+package com.tms.shipment.app.services;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Case-insensitive substring index over the distinct values of one column. Each distinct value is
+ * reference-counted by the number of rows holding it and posted under every trigram of its
+ * lower-cased form, so a lookup touches only the values sharing the query's rarest trigram and
+ * then confirms them with {@code contains}. Results are exact, not just candidates.
+ *
+ * <p>Lookups are lock-free; mutations are serialized.
+ */
+final class TrigramIndex {
+
+  private static final class Entry {
+    final String lower;
+    long rows;
+
+    Entry(String lower) {
+      this.lower = lower;
+    }
+  }
+
+  private final Map<String, Entry> values = new ConcurrentHashMap<>();
+  private final Map<Long, Set<String>> postings = new ConcurrentHashMap<>();
+
+  synchronized void add(String value) {
+    if (value == null) return;
+    Entry e = values.get(value);
+    if (e == null) {
+      e = new Entry(value.toLowerCase(Locale.ROOT));
+      for (long gram : trigrams(e.lower)) {
+        postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(value);
+      }
+      values.put(value, e);
+    }
+    e.rows++;
+  }
+
+  synchronized void remove(String value) {
+    if (value == null) return;
+    Entry e = values.get(value);
+    if (e == null || --e.rows > 0) return;
+    values.remove(value);
+    for (long gram : trigrams(e.lower)) {
+      Set<String> posting = postings.get(gram);
+      if (posting != null) {
+        posting.remove(value);
+        if (posting.isEmpty()) postings.remove(gram);
+      }
+    }
+  }
+
+  /**
+   * Raises the row count of {@code value} to at least {@code rows}. Used when loading counts from the
+   * table while live changes may already have been applied: over-counting only leaves a stale value
+   * that the database then fails to match, whereas under-counting could drop a live one.
+   */
+  synchronized void ensureAtLeast(String value, long rows) {
+    if (value == null) return;
+    if (!values.containsKey(value)) add(value);
+    Entry e = values.get(value);
+    e.rows = Math.max(e.rows, rows);
+  }
+
+  synchronized void clear() {
+    values.clear();
+    postings.clear();
+  }
+
+  /** Distinct values containing {@code substring}, ignoring case. */
+  Set<String> matching(String substring) {
+    String q = substring.toLowerCase(Locale.ROOT);
+    Set<String> out = new HashSet<>();
+    if (q.length() < 3) {
+      values.forEach((value, e) -> {
+        if (e.lower.contains(q)) out.add(value);
+      });
+      return out;
+    }
+    Set<String> smallest = null;
+    for (long gram : trigrams(q)) {
+      Set<String> posting = postings.get(gram);
+      if (posting == null) return Collections.emptySet();
+      if (smallest == null || posting.size() < smallest.size()) smallest = posting;
+    }
+    for (String value : smallest) {
+      Entry e = values.get(value);
+      if (e != null && e.lower.contains(q)) out.add(value);
+    }
+    return out;
+  }
+
+  int distinctValues() {
+    return values.size();
+  }
+
+  private static Set<Long> trigrams(String s) {
+    Set<Long> grams = new HashSet<>();
+    for (int i = 0; i + 3 <= s.length(); i++) {
+      grams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+    }
+    return grams;
+  }
+}
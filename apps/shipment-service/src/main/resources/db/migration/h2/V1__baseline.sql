@@ -0,0 +1,35 @@
+-- The schema as Hibernate generated it under ddl-auto=create-drop, before migrations took over.
+
+create sequence tracking_event_seq start with 1 increment by 50;
+
+create table shipments (
+  id varchar(255) not null,
+  carrier_name varchar(255) not null,
+  created_at timestamp not null,
+  delivery_location varchar(500) not null,
+  pickup_location varchar(500) not null,
+  rate numeric(12,2) not null,
+  shipper_name varchar(255) not null,
+  status varchar(50) not null,
+  tracking_data clob,
+  tracking_number varchar(100),
+  updated_at timestamp not null,
+  version bigint not null,
+  primary key (id)
+);
+
+create index idx_shipments_shipper_name on shipments (shipper_name);
+create index idx_shipments_carrier_name on shipments (carrier_name);
+
+create table tracking_events (
+  id bigint not null,
+  data varchar(4000) not null,
+  recorded_at timestamp not null,
+  shipment_id varchar(255) not null,
+  primary key (id)
+);
+
+create index idx_tracking_events_shipment on tracking_events (shipment_id, id);
+
+alter table tracking_events
+  add constraint fk_tracking_events_shipment foreign key (shipment_id) references shipments on delete cascade;
@@ -0,0 +1,25 @@
+-- Composite indexes for the list queries (ShipmentRepositoryImpl): each is (pinned filter column,
+-- sort column, id), in the direction the UI sorts by default. H2 reads an index in one direction only
+-- and only skips the sort when the ORDER BY is a prefix of the index, so the repository leads the
+-- ORDER BY with the filtered column and ends it with id.
+--
+-- Not covered: ascending time/rate sorts and sorts by name, location or status; those use whichever
+-- index matches the filter and sort the matches. The two single-column name indexes are prefixes of
+-- the new name indexes and are dropped.
+
+drop index idx_shipments_shipper_name;
+drop index idx_shipments_carrier_name;
+
+-- no filter
+create index idx_shipments_created on shipments (created_at desc, id desc);
+create index idx_shipments_updated on shipments (updated_at desc, id desc);
+create index idx_shipments_rate on shipments (rate desc, id desc);
+
+-- status = ?
+create index idx_shipments_status_created on shipments (status, created_at desc, id desc);
+create index idx_shipments_status_updated on shipments (status, updated_at desc, id desc);
+create index idx_shipments_status_rate on shipments (status, rate desc, id desc);
+
+-- shipper_name / carrier_name = ? or IN (...) from the name index
+create index idx_shipments_shipper_created on shipments (shipper_name, created_at desc, id desc);
+create index idx_shipments_carrier_created on shipments (carrier_name, created_at desc, id desc);
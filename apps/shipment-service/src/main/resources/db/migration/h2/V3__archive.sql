@@ -0,0 +1,32 @@
+-- Cold storage for ShipmentArchive: shipments moved out of the hot table by ShipmentArchiver. Each
+-- segment is an immutable gzip'd JSON array of the shipments (trackingData included) created in one
+-- UTC month [range_start, range_end), written by one archiver batch; a month therefore spans several
+-- segments. Queries prune on the range and on the statuses a segment contains.
+
+create table shipment_archive_segments (
+  id bigint generated by default as identity,
+  range_start timestamp not null,
+  range_end timestamp not null,
+  min_created_at timestamp not null,
+  max_created_at timestamp not null,
+  row_count int not null,
+  -- the distinct statuses in the segment, comma-delimited on both ends: ',delivered,cancelled,'
+  statuses varchar(500) not null,
+  raw_bytes bigint not null,
+  archived_at timestamp not null,
+  data blob not null,
+  primary key (id)
+);
+
+-- pruning compares a query's range with the actual bounds, min/max_created_at
+create index idx_archive_segments_created on shipment_archive_segments (max_created_at, min_created_at);
+
+-- where each archived shipment lives, for getById / batch-get
+create table shipment_archive_ids (
+  shipment_id varchar(255) not null,
+  segment_id bigint not null,
+  primary key (shipment_id)
+);
+
+alter table shipment_archive_ids
+  add constraint fk_archive_ids_segment foreign key (segment_id) references shipment_archive_segments;
@@ -0,0 +1,37 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.models.ShipmentDto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Shipments for tests to create or compare against. A null status or rate is left unset, so the
+ * service applies its defaults.
+ */
+public final class ShipmentFixtures {
+
+  private ShipmentFixtures() {}
+
+  /** A shipment picked up in Chicago, IL and delivered to Dallas, TX. */
+  public static ShipmentDto shipment(String shipper, String carrier, String status, String rate) {
+    return shipment(shipper, carrier, "Chicago, IL", "Dallas, TX", status, rate);
+  }
+
+  public static ShipmentDto shipment(String shipper, String carrier, String pickup, String delivery, String status, String rate) {
+    ShipmentDto d = new ShipmentDto();
+    d.setShipperName(shipper);
+    d.setCarrierName(carrier);
+    d.setPickupLocation(pickup);
+    d.setDeliveryLocation(delivery);
+    d.setStatus(status);
+    if (rate != null) d.setRate(new BigDecimal(rate));
+    return d;
+  }
+
+  /** Sets the shipment's trackingData and returns it. */
+  public static ShipmentDto withTrackingData(ShipmentDto d, Map<String, Object> trackingData) {
+    d.setTrackingData(trackingData);
+    return d;
+  }
+}
@@ -0,0 +1,88 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.services.ShipmentArchiver;
+import com.tms.shipment.app.services.ShipmentColumns;
+import com.tms.shipment.app.services.ShipmentNameIndex;
+import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.ShipmentStatsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.ApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class StartupWarmupTest {
+
+  private final SeedRunner seedRunner = mock(SeedRunner.class);
+  private final ShipmentNameIndex nameIndex = mock(ShipmentNameIndex.class);
+  private final ShipmentStatsService statsService = mock(ShipmentStatsService.class);
+  private final ShipmentColumns columns = mock(ShipmentColumns.class);
+  private final ShipmentService shipmentService = mock(ShipmentService.class);
+
+  @Test
+  void synchronous_seedsThenBuildsBeforeReturning() {
+    StartupWarmup warmup = warmup(false);
+    assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+    warmup.start();
+
+    assertThat(warmup.isDone()).isTrue();
+    assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+    var order = inOrder(seedRunner, nameIndex, statsService, columns, shipmentService);
+    order.verify(seedRunner).run();
+    order.verify(nameIndex).build();
+    order.verify(statsService).rebuild();
+    order.verify(columns).rebuild();
+    order.verify(shipmentService).list(null, null, null, 0, 10, "createdAt", "desc", null);
+  }
+
+  @Test
+  void asynchronous_outOfServiceUntilFinished() throws Exception {
+    CountDownLatch seeding = new CountDownLatch(1);
+    doAnswer(inv -> seeding.await(10, TimeUnit.SECONDS)).when(seedRunner).run();
+    StartupWarmup warmup = warmup(true);
+
+    warmup.start();
+    assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    seeding.countDown();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!warmup.isDone() && System.nanoTime() < deadline) Thread.sleep(10);
+    assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+  }
+
+  @Test
+  void failure_isDownAndStopsTheSynchronousStartup() {
+    doThrow(new IllegalStateException("boom")).when(nameIndex).build();
+    StartupWarmup warmup = warmup(false);
+
+    assertThatThrownBy(warmup::start).hasMessage("boom");
+    assertThat(warmup.health().getStatus()).isEqualTo(Status.DOWN);
+    verify(statsService, never()).rebuild();
+  }
+
+  private StartupWarmup warmup(boolean async) {
+    DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    beans.registerSingleton("seedRunner", seedRunner);
+    beans.registerSingleton("nameIndex", nameIndex);
+    beans.registerSingleton("statsService", statsService);
+    beans.registerSingleton("columns", columns);
+    beans.registerSingleton("shipmentService", shipmentService);
+    beans.registerSingleton("archiver", mock(ShipmentArchiver.class));
+    return new StartupWarmup(beans.getBeanProvider(SeedRunner.class), beans.getBeanProvider(ShipmentNameIndex.class),
+        beans.getBeanProvider(ShipmentStatsService.class), beans.getBeanProvider(ShipmentColumns.class),
+        beans.getBeanProvider(ShipmentService.class), beans.getBeanProvider(ShipmentArchiver.class),
+        mock(ApplicationContext.class), async, false);
+  }
+}
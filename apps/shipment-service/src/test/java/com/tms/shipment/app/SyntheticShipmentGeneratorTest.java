@@ -0,0 +1,59 @@
+package com.tms.shipment.app;
+
+import com.tms.shipment.app.models.Shipment;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticShipmentGeneratorTest {
+
+  private static final Instant UNTIL = Instant.parse("2026-01-01T00:00:00Z");
+
+  private static SyntheticShipmentGenerator generator(long seed) {
+    return new SyntheticShipmentGenerator(seed, 200, 40, "delivered:50,pending:50", 6, UNTIL, 3);
+  }
+
+  private static List<Shipment> block(SyntheticShipmentGenerator g, long block, int count) {
+    List<Shipment> out = new ArrayList<>();
+    g.generateBlock(block, count, out::add);
+    return out;
+  }
+
+  @Test
+  void sameSeedAndBlock_produceIdenticalRows() {
+    List<Shipment> a = block(generator(7), 3, 500);
+    List<Shipment> b = block(generator(7), 3, 500);
+    List<Shipment> other = block(generator(8), 3, 500);
+
+    for (int i = 0; i < a.size(); i++) {
+      assertThat(a.get(i).getId()).isEqualTo(b.get(i).getId());
+      assertThat(a.get(i).getShipperName()).isEqualTo(b.get(i).getShipperName());
+      assertThat(a.get(i).getRate()).isEqualTo(b.get(i).getRate());
+      assertThat(a.get(i).getTrackingData()).isEqualTo(b.get(i).getTrackingData());
+    }
+    assertThat(other.get(0).getId()).isNotEqualTo(a.get(0).getId());
+  }
+
+  @Test
+  void rows_followConfiguredShape() {
+    List<Shipment> rows = block(generator(1), 0, 20_000);
+    Map<String, Integer> perShipper = new HashMap<>();
+    for (Shipment s : rows) {
+      perShipper.merge(s.getShipperName(), 1, Integer::sum);
+      assertThat(s.getStatus()).isIn("delivered", "pending");
+      assertThat(s.getCreatedAt()).isBefore(UNTIL.plusSeconds(1)).isAfter(UNTIL.minusSeconds(6 * 30 * 86_400L + 1));
+      assertThat(s.getUpdatedAt()).isAfterOrEqualTo(s.getCreatedAt());
+      assertThat((List<?>) s.getTrackingData().get("events")).hasSize(3);
+    }
+    // Zipf: the head account dwarfs the median one
+    List<Integer> counts = new ArrayList<>(perShipper.values());
+    counts.sort(null);
+    assertThat(counts.get(counts.size() - 1)).isGreaterThan(20 * counts.get(counts.size() / 2));
+  }
+}
@@ -0,0 +1,132 @@
+package com.tms.shipment.app.controllers;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.TrackingEventService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ShipmentConditionalRequestTest {
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private TrackingEventService trackingService;
+
+  private String newShipment() {
+    return shipmentService.create(shipment("Etag Shipper", "Etag Carrier", null, "1")).getId();
+  }
+
+  private String etagOf(String url) throws Exception {
+    return mvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+  }
+
+  @Test
+  void getById_returns304UntilTheShipmentChanges() throws Exception {
+    String id = newShipment();
+    String etag = etagOf("/api/shipments/" + id);
+    assertThat(etag).isEqualTo("\"0.0\"");
+
+    mvc.perform(get("/api/shipments/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    trackingService.append(id, Map.of("code", "AR"));
+    String afterAppend = etagOf("/api/shipments/" + id);
+    assertThat(afterAppend).isNotEqualTo(etag);
+    // the append moved the version, so a tag from before it is stale
+    mvc.perform(patch("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, etag)
+            .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"in_transit\"}"))
+        .andExpect(status().isPreconditionFailed());
+
+    mvc.perform(patch("/api/shipments/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"in_transit\"}"))
+        .andExpect(status().isOk());
+    mvc.perform(get("/api/shipments/" + id).header(HttpHeaders.IF_NONE_MATCH, afterAppend))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void staleIfMatch_isRejectedWith412() throws Exception {
+    String id = newShipment();
+    String etag = etagOf("/api/shipments/" + id);
+
+    mvc.perform(patch("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, etag)
+            .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"in_transit\"}"))
+        .andExpect(status().isOk());
+    // the first writer bumped the version; a second writer holding the same ETag loses
+    mvc.perform(patch("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, etag)
+            .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"delivered\"}"))
+        .andExpect(status().isPreconditionFailed());
+    mvc.perform(delete("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, etag))
+        .andExpect(status().isPreconditionFailed());
+    assertThat(shipmentService.getById(id).orElseThrow().getStatus()).isEqualTo("in_transit");
+
+    mvc.perform(delete("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, etagOf("/api/shipments/" + id)))
+        .andExpect(status().isNoContent());
+    mvc.perform(delete("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, "*"))
+        .andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  void weakOrMalformedIfMatch_neverMatches() throws Exception {
+    String id = newShipment();
+    String etag = etagOf("/api/shipments/" + id);
+
+    for (String ifMatch : List.of("W/" + etag, etag.substring(1, etag.length() - 1), "\"not-ours\"")) {
+      mvc.perform(patch("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, ifMatch)
+              .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"in_transit\"}"))
+          .andExpect(status().isPreconditionFailed());
+    }
+    mvc.perform(delete("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, "W/" + etag))
+        .andExpect(status().isPreconditionFailed());
+    assertThat(shipmentService.getById(id).orElseThrow().getStatus()).isEqualTo("pending");
+
+    // a list matches when any strong tag in it does
+    mvc.perform(patch("/api/shipments/" + id).header(HttpHeaders.IF_MATCH, "W/" + etag + ", \"99.0\", " + etag)
+            .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"in_transit\"}"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void listEtag_changesWithTheFilteredRows() throws Exception {
+    String url = "/api/shipments?shipperName=Etag List&size=5";
+    String keyset = "/api/shipments?shipperName=Etag List&size=5&after=&fields=trackingData";
+    newShipment();
+    String id = shipmentService.create(shipment("Etag List Shipper", "Etag Carrier", null, null)).getId();
+    String etag = etagOf(url);
+    String keysetEtag = etagOf(keyset);
+
+    mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+    mvc.perform(get(keyset).header(HttpHeaders.IF_NONE_MATCH, keysetEtag)).andExpect(status().isNotModified());
+
+    // an append shows in the rows' trackingData and moves their version
+    trackingService.append(id, Map.of("code", "AR"));
+    mvc.perform(get(keyset).header(HttpHeaders.IF_NONE_MATCH, keysetEtag)).andExpect(status().isOk());
+
+    ShipmentDto change = new ShipmentDto();
+    change.setRate(BigDecimal.TEN);
+    shipmentService.update(id, change);
+    mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+  }
+}
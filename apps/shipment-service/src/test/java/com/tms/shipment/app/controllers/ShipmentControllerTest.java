@@ -1,7 +1,10 @@
 package com.tms.shipment.app.controllers;
 
 import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentBulkService;
+import com.tms.shipment.app.services.ShipmentExportService;
 import com.tms.shipment.app.services.ShipmentService;
+import com.tms.shipment.app.services.TrackingEventService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -9,9 +12,13 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -21,21 +28,30 @@ import static org.mockito.Mockito.*;
 class ShipmentControllerTest {
 
   private final ShipmentService shipmentService = mock(ShipmentService.class);
-  private final ShipmentController controller = new ShipmentController(shipmentService);
+  private final ShipmentBulkService bulkService = mock(ShipmentBulkService.class);
+  private final ShipmentExportService exportService = mock(ShipmentExportService.class);
+  private final TrackingEventService trackingService = mock(TrackingEventService.class);
+  private final ShipmentController controller = new ShipmentController(shipmentService, bulkService, exportService, trackingService);
+
+  private static ServletWebRequest request() {
+    return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/shipments"), new MockHttpServletResponse());
+  }
 
   @Test
   void list_returnsPage() {
-    when(shipmentService.list(any(), any(), any(), eq(0), eq(10), any(), any()))
+    when(shipmentService.list(any(), any(), any(), any(), any(), eq(0), eq(10), any(), any(), any()))
         .thenReturn(new PageImpl<>(List.of(new ShipmentDto()), PageRequest.of(0, 10), 1));
-    var result = controller.list(null, null, null, 0, 10, "createdAt", "desc");
-    assertThat(result.getContent()).hasSize(1);
-    assertThat(result.getTotalElements()).isEqualTo(1);
+    when(shipmentService.listEtag(anyList(), any())).thenReturn("\"abc\"");
+    var result = controller.list(null, null, null, null, null, 0, 10, "createdAt", "desc", null, request());
+    assertThat(result.getHeaders().getETag()).isEqualTo("\"abc\"");
+    assertThat(result.getBody().getContent()).hasSize(1);
+    assertThat(result.getBody().getTotalElements()).isEqualTo(1);
   }
 
   @Test
   void getById_returnsNotFoundWhenMissing() {
     when(shipmentService.getById("missing")).thenReturn(Optional.empty());
-    ResponseEntity<ShipmentDto> res = controller.getById("missing");
+    ResponseEntity<ShipmentDto> res = controller.getById("missing", request());
     assertThat(res.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
   }
 
@@ -44,9 +60,43 @@ class ShipmentControllerTest {
     ShipmentDto dto = new ShipmentDto();
     dto.setId("id1");
     when(shipmentService.getById("id1")).thenReturn(Optional.of(dto));
-    ResponseEntity<ShipmentDto> res = controller.getById("id1");
+    ResponseEntity<ShipmentDto> res = controller.getById("id1", request());
     assertThat(res.getStatusCode()).isEqualTo(HttpStatus.OK);
     assertThat(res.getBody()).isNotNull();
     assertThat(res.getBody().getId()).isEqualTo("id1");
   }
+
+  @Test
+  void update_queuesBufferableUpdatesWhenAskedToRespondAsync() {
+    ShipmentDto patch = new ShipmentDto();
+    patch.setStatus("in_transit");
+    when(shipmentService.isBufferable(patch)).thenReturn(true);
+    when(shipmentService.updateBuffered("id1", patch)).thenReturn(true);
+    ResponseEntity<ShipmentDto> res = controller.update("id1", patch, null, "respond-async, wait=5");
+    assertThat(res.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    assertThat(res.getHeaders().getFirst("Preference-Applied")).isEqualTo("respond-async");
+
+    // conditional requests are always written synchronously
+    when(shipmentService.update("id1", patch, Set.of(3L))).thenReturn(Optional.of(patch));
+    assertThat(controller.update("id1", patch, "\"3.0\"", "respond-async").getStatusCode()).isEqualTo(HttpStatus.OK);
+    verify(shipmentService, times(1)).updateBuffered(any(), any());
+  }
+
+  @Test
+  void respondAsync_readsPreferTokens() {
+    assertThat(ShipmentController.respondAsync(null)).isFalse();
+    assertThat(ShipmentController.respondAsync("return=minimal")).isFalse();
+    assertThat(ShipmentController.respondAsync("return=minimal, Respond-Async; wait=10")).isTrue();
+  }
+
+  @Test
+  void expectedVersions_readsVersionPartOfStrongEtags() {
+    assertThat(ShipmentController.expectedVersions(null)).isNull();
+    assertThat(ShipmentController.expectedVersions("*")).isNull();
+    assertThat(ShipmentController.expectedVersions("\"7.42\"")).containsExactly(7L);
+    assertThat(ShipmentController.expectedVersions("\"7.42\", W/\"8.0\",\"9.1\"")).containsExactlyInAnyOrder(7L, 9L);
+    // weak and foreign tags match nothing
+    assertThat(ShipmentController.expectedVersions("W/\"7.42\"")).isEmpty();
+    assertThat(ShipmentController.expectedVersions("\"x\", 7.42, \"7\", \"7.4.2\"")).isEmpty();
+  }
 }
@@ -0,0 +1,104 @@
+package com.tms.shipment.app.controllers;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a real server, because compression is done by Tomcat
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ShipmentFormatsTest {
+
+  @LocalServerPort
+  private int port;
+  @Autowired
+  private ShipmentService shipmentService;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  // rates as BigDecimal, as Smile and CBOR carry them
+  private final ObjectMapper json = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+  @Test
+  void negotiatesJsonSmileAndCborWithTheSameContent() throws Exception {
+    String id = null;
+    for (int i = 0; i < 30; i++) id = create("Formats Test Negotiation", i);
+    String list = "/api/shipments?shipperName=Formats+Test+Negotiation&size=30&fields=trackingData&sortBy=rate&sortOrder=asc";
+
+    HttpResponse<byte[]> plain = get(list, null, null);
+    assertThat(plain.headers().firstValue("Content-Type")).hasValueSatisfying(t -> assertThat(t).startsWith("application/json"));
+    JsonNode expected = json.readTree(plain.body());
+    assertThat(expected.get("content")).hasSize(30);
+    assertThat(expected.get("content").get(0).get("rate").decimalValue()).isEqualByComparingTo("100.25");
+
+    HttpResponse<byte[]> cbor = get(list, "application/cbor", null);
+    assertThat(cbor.headers().firstValue("Content-Type")).contains("application/cbor");
+    assertThat(cbor.headers().allValues("Vary")).anySatisfy(v -> assertThat(v).containsIgnoringCase("accept,"));
+    assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor.body())).isEqualTo(expected);
+    assertThat(cbor.body().length).isLessThan(plain.body().length);
+
+    HttpResponse<byte[]> smile = get(list, "application/x-jackson-smile", null);
+    assertThat(smile.headers().firstValue("Content-Type")).contains("application/x-jackson-smile");
+    assertThat(new ObjectMapper(new SmileFactory()).readTree(smile.body())).isEqualTo(expected);
+    assertThat(smile.body().length).isLessThan(cbor.body().length);
+
+    // same rows in the slim envelope, which has its own ETag
+    HttpResponse<byte[]> slim = get(list + "&envelope=slim", null, null);
+    JsonNode slimBody = json.readTree(slim.body());
+    assertThat(slimBody.get("content")).isEqualTo(expected.get("content"));
+    assertThat(slimBody.get("totalElements")).isEqualTo(expected.get("totalElements"));
+    assertThat(slimBody.has("pageable")).isFalse();
+    assertThat(slim.headers().firstValue("ETag")).isNotEqualTo(plain.headers().firstValue("ETag"));
+
+    HttpResponse<byte[]> single = get("/api/shipments/" + id, "application/cbor", null);
+    assertThat(new ObjectMapper(new CBORFactory()).readTree(single.body()).get("id").asText()).isEqualTo(id);
+  }
+
+  @Test
+  void compressesWhenTheClientAcceptsGzip() throws Exception {
+    for (int i = 0; i < 30; i++) create("Formats Test Compression", i);
+    String list = "/api/shipments?shipperName=Formats+Test+Compression&size=30&fields=trackingData";
+
+    HttpResponse<byte[]> gzipped = get(list, "application/json", "gzip");
+    assertThat(gzipped.headers().firstValue("Content-Encoding")).contains("gzip");
+    byte[] body = new GZIPInputStream(new ByteArrayInputStream(gzipped.body())).readAllBytes();
+    assertThat(json.readTree(body).get("content")).hasSize(30);
+    assertThat(gzipped.body().length).isLessThan(body.length / 2);
+    assertThat(get(list, "application/json", null).headers().firstValue("Content-Encoding")).isEmpty();
+  }
+
+  private HttpResponse<byte[]> get(String path, String accept, String encoding) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    if (accept != null) request.header("Accept", accept);
+    if (encoding != null) request.header("Accept-Encoding", encoding);
+    HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    assertThat(response.statusCode()).isEqualTo(200);
+    return response;
+  }
+
+  private String create(String shipper, int i) {
+    ShipmentDto d = shipment(shipper, "Formats Test Carrier", "100 Warehouse Ave, Chicago, IL", "200 Commerce St, Dallas, TX",
+        "in_transit", new BigDecimal("100.25").add(BigDecimal.valueOf(i)).toPlainString());
+    d.setTrackingData(Map.of("events", List.of(Map.of("code", "PU", "location", "Chicago"), Map.of("code", "IT", "location", "Memphis"))));
+    return shipmentService.create(d).getId();
+  }
+}
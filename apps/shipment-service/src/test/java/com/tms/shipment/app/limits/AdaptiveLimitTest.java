@@ -0,0 +1,77 @@
+package com.tms.shipment.app.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitTest {
+
+  private static final Duration TARGET = Duration.ofMillis(20);
+
+  @Test
+  void turnsAwayRequestsOverTheLimitWithoutWaiting() {
+    AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, TARGET);
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isFalse();
+    limit.release(System.nanoTime(), false);
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.getInFlight()).isEqualTo(2);
+    assertThat(limit.getAccepted()).isEqualTo(3);
+    assertThat(limit.getRejected()).isEqualTo(1);
+  }
+
+  @Test
+  void growsWhileFastAndBusyAndShrinksOncePerRoundTripWhenSlow() {
+    AdaptiveLimit limit = new AdaptiveLimit(10, 2, 20, TARGET);
+    // fast, with the limit fully used: about one step per limit's worth of requests
+    for (int i = 0; i < 200; i++) {
+      fill(limit);
+      limit.release(System.nanoTime(), true);
+      drain(limit);
+    }
+    assertThat(limit.getLimit()).isEqualTo(20);
+
+    // fast but idle: no growth past what is used
+    AdaptiveLimit idle = new AdaptiveLimit(10, 2, 20, TARGET);
+    for (int i = 0; i < 200; i++) {
+      idle.tryAcquire();
+      idle.release(System.nanoTime(), true);
+    }
+    assertThat(idle.getLimit()).isEqualTo(10);
+
+    // a burst of slow requests admitted together cuts once, not once each
+    long start = System.nanoTime();
+    fill(limit);
+    sleepMillis(TARGET.toMillis() + 5);
+    for (int i = 0; i < 20; i++) limit.release(start, true);
+    assertThat(limit.getLimit()).isEqualTo(18);
+    // each request admitted after the last cut may cut again, down to min
+    for (int i = 0; i < 30; i++) {
+      assertThat(limit.tryAcquire()).isTrue();
+      start = System.nanoTime();
+      sleepMillis(TARGET.toMillis() + 5);
+      limit.release(start, true);
+    }
+    assertThat(limit.getLimit()).isEqualTo(2);
+    assertThat(limit.retryAfterSeconds()).isEqualTo(1);
+  }
+
+  private static void fill(AdaptiveLimit limit) {
+    while (limit.tryAcquire()) { }
+  }
+
+  private static void drain(AdaptiveLimit limit) {
+    while (limit.getInFlight() > 0) limit.release(System.nanoTime(), false);
+  }
+
+  private static void sleepMillis(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.tms.shipment.app.limits;
+
+import com.tms.shipment.app.services.ShipmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a context of its own: the test holds every lookup permit for a while
+@SpringBootTest(properties = { "shipments.limits.lookup.initial=3", "shipments.limits.lookup.min=3", "shipments.limits.lookup.max=3" })
+@AutoConfigureMockMvc
+class ConcurrencyLimiterTest {
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private ConcurrencyLimiter limiter;
+  @Autowired
+  private ShipmentService shipmentService;
+
+  @Test
+  void shedsAFullBulkheadAndLeavesTheOthersAlone() throws Exception {
+    String id = shipmentService.create(shipment("Limiter Test Shipper", "Limiter Test Carrier", null, "10.00")).getId();
+    AdaptiveLimit lookups = limiter.limit(Workload.LOOKUP);
+    mvc.perform(get("/api/shipments/" + id)).andExpect(status().isOk());
+    assertThat(lookups.getInFlight()).isZero();
+
+    for (int i = 0; i < 3; i++) assertThat(lookups.tryAcquire()).isTrue();
+    try {
+      mvc.perform(get("/api/shipments/" + id))
+          .andExpect(status().isTooManyRequests())
+          .andExpect(header().string("Retry-After", "1"));
+      // lists are another bulkhead; unannotated endpoints are not limited
+      mvc.perform(get("/api/shipments").param("shipperName", "Limiter Test Shipper")).andExpect(status().isOk());
+      mvc.perform(get("/api/shipments/stats").param("groupBy", "status")).andExpect(status().isOk());
+    } finally {
+      for (int i = 0; i < 3; i++) lookups.release(System.nanoTime(), false);
+    }
+    mvc.perform(get("/api/shipments/" + id)).andExpect(status().isOk());
+    assertThat(lookups.getRejected()).isEqualTo(1);
+  }
+}
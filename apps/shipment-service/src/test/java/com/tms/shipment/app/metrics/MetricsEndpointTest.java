@@ -0,0 +1,62 @@
+package com.tms.shipment.app.metrics;
+
+import com.tms.shipment.app.services.ShipmentService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static com.tms.shipment.app.ShipmentFixtures.withTrackingData;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a real server, as the actuator listens on its own (here random) port that MockMvc cannot reach;
+// @AutoConfigureMetrics keeps the Prometheus registry, which tests otherwise replace with a simple one
+@AutoConfigureMetrics
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "shipments.cache.enabled=false")
+class MetricsEndpointTest {
+
+  @LocalManagementPort
+  private int managementPort;
+  @Autowired
+  private TestRestTemplate http;
+  @Autowired
+  private MeterRegistry registry;
+  @Autowired
+  private ShipmentService shipmentService;
+
+  @Test
+  void prometheusScrapeCoversRequestsQueriesJsonPoolAndCache() throws Exception {
+    String id = shipmentService.create(withTrackingData(shipment("Metrics Shipper", "Metrics Carrier", null, "1"),
+        Map.of("events", List.of(Map.of("code", "PU"))))).getId();
+
+    for (int i = 0; i < 3; i++) assertThat(http.getForEntity("/api/shipments/" + id, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(http.getForEntity("/api/shipments", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+    // the row and its tracking log: two statements per GET, no more
+    DistributionSummary queries = registry.get("shipments.request.queries")
+        .tags("method", "GET", "uri", "/api/shipments/{id}").summary();
+    assertThat(queries.count()).isEqualTo(3);
+    assertThat(queries.max()).isEqualTo(2);
+
+    String scrape = http.getForObject("http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+    assertThat(scrape)
+        .contains("http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/shipments/{id}\",quantile=\"0.99\",}")
+        .contains("http_server_requests_seconds_bucket{")
+        .contains("shipments_request_queries_count{method=\"GET\",uri=\"/api/shipments\",}")
+        .contains("shipments_jdbc_seconds_count{method=\"executeQuery\",}")
+        .contains("shipments_json_convert_seconds_count{direction=\"read\",}")
+        .contains("shipments_json_chars_sum{direction=\"write\",}")
+        .contains("hikaricp_connections_acquire_seconds{pool=")
+        .contains("shipments_batch_get_requests_total")
+        .contains("shipments_bulk_items_total{outcome=\"created\",}");
+  }
+}
@@ -0,0 +1,145 @@
+package com.tms.shipment.app.repositories;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentCursor;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ShipmentRepositoryTest {
+
+  @Autowired
+  private ShipmentRepository repository;
+
+  @BeforeEach
+  void seed() {
+    Instant base = Instant.parse("2025-01-01T00:00:00Z");
+    for (int i = 0; i < 25; i++) {
+      Shipment s = new Shipment();
+      s.setId(String.format("id-%02d", i));
+      s.setShipperName(i % 2 == 0 ? "Acme" : "Globex");
+      s.setCarrierName("Carrier " + (i % 3));
+      s.setPickupLocation("A");
+      s.setDeliveryLocation("B");
+      s.setStatus(i % 5 == 0 ? "delivered" : "pending");
+      // duplicate sort values so the id tie-break matters
+      s.setRate(new BigDecimal(i / 4 * 10));
+      s.setCreatedAt(base.plusSeconds(i / 3));
+      s.setTrackingData(Map.of("seq", i));
+      repository.save(s);
+    }
+    repository.flush();
+  }
+
+  @Test
+  void findSliceAfter_walksEveryRowOnceForEachSortColumn() {
+    for (String sortBy : List.of("createdAt", "rate", "shipperName", "status", "id")) {
+      for (boolean asc : List.of(true, false)) {
+        List<String> seen = new ArrayList<>();
+        ShipmentCursor cursor = null;
+        Slice<Shipment> slice;
+        do {
+          slice = repository.findSliceAfter(ShipmentFilter.of(null, null, null), sortBy, asc, cursor, 4);
+          slice.forEach(s -> seen.add(s.getId()));
+          Shipment last = slice.getContent().get(slice.getNumberOfElements() - 1);
+          cursor = new ShipmentCursor(sortBy, asc, valueOf(last, sortBy), last.getId());
+        } while (slice.hasNext());
+        assertThat(seen).as(sortBy + (asc ? " asc" : " desc")).hasSize(25);
+        assertThat(new HashSet<>(seen)).hasSize(25);
+      }
+    }
+  }
+
+  @Test
+  void findSliceAfter_appliesFilters() {
+    Slice<Shipment> slice = repository.findSliceAfter(ShipmentFilter.of("pending", "acm", null), "createdAt", false, null, 100);
+    Set<String> shippers = new HashSet<>();
+    slice.forEach(s -> {
+      shippers.add(s.getShipperName());
+      assertThat(s.getStatus()).isEqualTo("pending");
+    });
+    assertThat(shippers).containsExactly("Acme");
+    assertThat(slice.hasNext()).isFalse();
+  }
+
+  @Test
+  void findAllFiltered_usesResolvedNameSets() {
+    ShipmentFilter filter = ShipmentFilter.of(null, "ignored", null).withShipperNames(Set.of("Globex"));
+    Page<Shipment> page = repository.findAllFiltered(filter, PageRequest.of(0, 5, Sort.by("createdAt")));
+    assertThat(page.getTotalElements()).isEqualTo(12);
+    assertThat(page.getContent()).allMatch(s -> s.getShipperName().equals("Globex"));
+
+    Page<Shipment> none = repository.findAllFiltered(filter.withShipperNames(Set.of()), PageRequest.of(0, 5));
+    assertThat(none.getTotalElements()).isZero();
+  }
+
+  @Test
+  void findSummaries_matchesEntityPageWithoutTrackingData() {
+    ShipmentFilter filter = ShipmentFilter.of("pending", null, null);
+    PageRequest pageable = PageRequest.of(1, 5, Sort.by("rate").descending().and(Sort.by("id")));
+    Page<Shipment> entities = repository.findAllFiltered(filter, pageable);
+    Page<ShipmentDto> summaries = repository.findSummaries(filter, pageable);
+
+    assertThat(summaries.getTotalElements()).isEqualTo(entities.getTotalElements());
+    assertThat(summaries.getContent()).extracting(ShipmentDto::getId)
+        .containsExactlyElementsOf(entities.map(Shipment::getId).getContent());
+    assertThat(summaries.getContent()).allMatch(d -> d.getTrackingData() == null && d.getCreatedAt() != null);
+
+    Slice<ShipmentDto> slice = repository.findSummarySliceAfter(filter, "rate", false, null, 5);
+    assertThat(slice.hasNext()).isTrue();
+    assertThat(slice.getContent()).extracting(ShipmentDto::getStatus).containsOnly("pending");
+  }
+
+  @Test
+  void offsetAndKeysetPages_breakTiesByIdInTheSortDirection() {
+    ShipmentFilter filter = ShipmentFilter.of("pending", null, null);
+    List<String> expected = new ArrayList<>();
+    repository.findAll().stream()
+        .filter(s -> s.getStatus().equals("pending"))
+        .sorted((a, b) -> a.getCreatedAt().equals(b.getCreatedAt())
+            ? b.getId().compareTo(a.getId()) : b.getCreatedAt().compareTo(a.getCreatedAt()))
+        .forEach(s -> expected.add(s.getId()));
+
+    List<String> offset = new ArrayList<>();
+    List<String> keyset = new ArrayList<>();
+    ShipmentCursor cursor = null;
+    for (int page = 0; page * 3 < expected.size(); page++) {
+      repository.findSummaries(filter, PageRequest.of(page, 3, Sort.by("createdAt").descending()))
+          .forEach(d -> offset.add(d.getId()));
+      Slice<ShipmentDto> slice = repository.findSummarySliceAfter(filter, "createdAt", false, cursor, 3);
+      slice.forEach(d -> keyset.add(d.getId()));
+      ShipmentDto last = slice.getContent().get(slice.getNumberOfElements() - 1);
+      cursor = new ShipmentCursor("createdAt", false, last.getCreatedAt().toString(), last.getId());
+    }
+    assertThat(offset).containsExactlyElementsOf(expected);
+    assertThat(keyset).containsExactlyElementsOf(expected);
+  }
+
+  private static String valueOf(Shipment s, String sortBy) {
+    switch (sortBy) {
+      case "createdAt": return s.getCreatedAt().toString();
+      case "rate": return s.getRate().toPlainString();
+      case "shipperName": return s.getShipperName();
+      case "status": return s.getStatus();
+      default: return s.getId();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.CursorPage;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// a status of its own, so that rows of other tests sharing the in-memory database are never archived
+@SpringBootTest(properties = { "shipments.archive.statuses=archive_test_done", "shipments.cache.enabled=false" })
+class ShipmentArchiverTest {
+
+  private static final String SHIPPER = "Archive Test Shipper";
+  private static final String CARRIER = "Archive Test Carrier";
+
+  @Autowired
+  private ShipmentArchiver archiver;
+  @Autowired
+  private ShipmentArchive archive;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private TrackingEventService trackingService;
+  @Autowired
+  private ShipmentStatsService statsService;
+  @Autowired
+  private ShipmentRepository repository;
+  @Autowired
+  private ShipmentExportService exportService;
+
+  @Test
+  void movesTerminalShipmentsToSegmentsAndServesThemTransparently() throws Exception {
+    ShipmentDto done = shipmentService.create(shipment(SHIPPER, CARRIER, "archive_test_done", "10.00"));
+    trackingService.append(done.getId(), Map.of("code", "DL")).orElseThrow();
+    Thread.sleep(2);
+    ShipmentDto open = shipmentService.create(shipment(SHIPPER, CARRIER, "archive_test_open", "20.00"));
+    Thread.sleep(2);
+    ShipmentDto before = shipmentService.getById(done.getId()).orElseThrow();
+
+    assertThat(archiver.archiveBefore(Instant.now().plusSeconds(1))).isEqualTo(1);
+    assertThat(repository.findById(done.getId())).isEmpty();
+    assertThat(repository.findById(open.getId())).isPresent();
+
+    // getById, its ETag and batch-get fall through to the archive, tracking log included
+    ShipmentDto archived = shipmentService.getById(done.getId()).orElseThrow();
+    assertThat(archived.getTrackingData().get("events")).asList().hasSize(1);
+    assertThat(TrackingEventService.lastEventId(archived.getTrackingData()))
+        .isPositive().isEqualTo(TrackingEventService.lastEventId(before.getTrackingData()));
+    assertThat(archived.getVersion()).isEqualTo(before.getVersion());
+    assertThat(shipmentService.currentEtag(done.getId())).contains(ShipmentService.etagOf(before));
+    assertThat(shipmentService.getByIds(List.of(open.getId(), done.getId(), "missing")).getShipments())
+        .extracting(ShipmentDto::getId).containsExactly(open.getId(), done.getId());
+    // read-only from now on
+    assertThat(shipmentService.update(done.getId(), shipment(SHIPPER, CARRIER, "archive_test_open", "1.00"))).isEmpty();
+
+    // created after the run: hot, and the newest of the three
+    Thread.sleep(2);
+    ShipmentDto later = shipmentService.create(shipment(SHIPPER, CARRIER, "archive_test_done", "30.00"));
+    String yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1).toString();
+
+    // without a date range only the hot table is listed
+    assertThat(ids(shipmentService.list(null, SHIPPER, null, 0, 10, "createdAt", "desc", null)))
+        .containsExactly(later.getId(), open.getId());
+    Page<ShipmentDto> all = shipmentService.list(null, SHIPPER, null, yesterday, null, 0, 10, "createdAt", "desc", null);
+    assertThat(ids(all)).containsExactly(later.getId(), open.getId(), done.getId());
+    assertThat(all.getTotalElements()).isEqualTo(3);
+    assertThat(all.getContent().get(2).getTrackingData()).isNull();
+    Page<ShipmentDto> second = shipmentService.list(null, SHIPPER, null, yesterday, null, 1, 2, "rate", "asc", "trackingData");
+    assertThat(ids(second)).containsExactly(later.getId());
+    assertThat(shipmentService.list("archive_test_done", SHIPPER, null, yesterday, null, 0, 10, "createdAt", "asc", null)
+        .getContent()).extracting(ShipmentDto::getId).containsExactly(done.getId(), later.getId());
+    // a range that starts after the newest archived row does not read the archive
+    String after = archived.getCreatedAt().plusNanos(1000).toString();
+    assertThat(ids(shipmentService.list(null, SHIPPER, null, after, null, 0, 10, "createdAt", "desc", null)))
+        .containsExactly(later.getId(), open.getId());
+
+    // keyset pages merge the same way
+    List<String> paged = new ArrayList<>();
+    String cursor = "";
+    do {
+      CursorPage<ShipmentDto> page = shipmentService.listAfter(null, SHIPPER, null, yesterday, null, cursor, 1, "createdAt", "desc", null);
+      page.getContent().forEach(d -> paged.add(d.getId()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    assertThat(paged).containsExactly(later.getId(), open.getId(), done.getId());
+
+    // and so does the export, archived rows with their tracking log
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(exportService.export(null, SHIPPER, null, yesterday, null, "createdAt", "asc", ShipmentExportService.Format.NDJSON, out))
+        .isEqualTo(3);
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(lines[0]).contains(done.getId()).contains("\"code\":\"DL\"");
+    assertThat(lines[1]).contains(open.getId());
+    assertThat(lines[2]).contains(later.getId());
+
+    assertThat(archive.stats()).containsEntry("rows", 1L);
+    // archived rows still count in the report aggregates
+    statsService.rebuild();
+    assertThat(statsService.check()).isEmpty();
+  }
+
+  private static List<String> ids(Page<ShipmentDto> page) {
+    return page.getContent().stream().map(ShipmentDto::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,133 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.BulkItemResult.Outcome;
+import com.tms.shipment.app.models.BulkResult;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = { "shipments.bulk.chunk-size=3", "shipments.bulk.max-items=8" })
+@RecordApplicationEvents
+class ShipmentBulkServiceTest {
+
+  @Autowired
+  private ShipmentBulkService bulkService;
+  @Autowired
+  private ShipmentRepository repository;
+  @Autowired
+  private ApplicationEvents events;
+
+  @Test
+  void createAll_writesValidRowsAndReportsInvalidOnes() {
+    long before = repository.count();
+    List<ShipmentDto> dtos = new ArrayList<>();
+    for (int i = 0; i < 7; i++) dtos.add(shipment("Shipper " + i, "Carrier", null, "100.00"));
+    dtos.get(4).setCarrierName(null);
+
+    BulkResult result = bulkService.createAll(dtos);
+
+    assertThat(result.getTotal()).isEqualTo(7);
+    assertThat(result.getSucceeded()).isEqualTo(6);
+    assertThat(result.getItems().get(4).getOutcome()).isEqualTo(Outcome.INVALID);
+    assertThat(result.getItems().get(4).getErrors()).anyMatch(e -> e.startsWith("carrierName"));
+    assertThat(result.getItems().get(0).getId()).isNotNull();
+    assertThat(repository.count()).isEqualTo(before + 6);
+  }
+
+  @Test
+  void createAll_isolatesRowsThatFailInTheDatabase() {
+    List<ShipmentDto> dtos = new ArrayList<>();
+    for (int i = 0; i < 3; i++) dtos.add(shipment("Chunk " + i, "Carrier", null, "100.00"));
+    // passes bean validation but overflows the rate column's precision
+    dtos.get(1).setRate(new BigDecimal("123456789012345"));
+
+    BulkResult result = bulkService.createAll(dtos);
+
+    assertThat(result.getItems()).extracting(i -> i.getOutcome())
+        .containsExactly(Outcome.CREATED, Outcome.FAILED, Outcome.CREATED);
+  }
+
+  @Test
+  void createAllNdjson_reportsMalformedLines() throws Exception {
+    String body = "{\"shipperName\":\"N1\",\"carrierName\":\"C\",\"pickupLocation\":\"A\",\"deliveryLocation\":\"B\"}\n"
+        + "{not json}\n"
+        + "\n"
+        + "{\"shipperName\":\"N2\",\"carrierName\":\"C\",\"pickupLocation\":\"A\",\"deliveryLocation\":\"B\"}\n";
+
+    BulkResult result = bulkService.createAllNdjson(new StringReader(body));
+
+    assertThat(result.getItems()).extracting(i -> i.getOutcome())
+        .containsExactly(Outcome.CREATED, Outcome.INVALID, Outcome.CREATED);
+  }
+
+  @Test
+  void createAllNdjson_reportsLinesPastTheLimitAndKeepsTheRest() throws Exception {
+    long before = repository.count();
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      body.append("{\"shipperName\":\"L").append(i).append("\",\"carrierName\":\"C\",\"pickupLocation\":\"A\",\"deliveryLocation\":\"B\"}\n");
+    }
+
+    BulkResult result = bulkService.createAllNdjson(new StringReader(body.toString()));
+
+    assertThat(result.getTotal()).isEqualTo(10);
+    assertThat(result.getSucceeded()).isEqualTo(8);
+    assertThat(result.getItems().subList(8, 10)).allSatisfy(i -> {
+      assertThat(i.getOutcome()).isEqualTo(Outcome.INVALID);
+      assertThat(i.getErrors()).containsExactly("Bulk request exceeds 8 items");
+    });
+    assertThat(repository.count()).isEqualTo(before + 8);
+  }
+
+  @Test
+  void updateAllAndDeleteAll_reportMissingIds() {
+    BulkResult created = bulkService.createAll(List.of(shipment("U1", "Carrier", null, "100.00"), shipment("U2", "Carrier", null, "100.00")));
+    String id1 = created.getItems().get(0).getId();
+    String id2 = created.getItems().get(1).getId();
+
+    ShipmentDto p1 = new ShipmentDto();
+    p1.setId(id1);
+    p1.setStatus("delivered");
+    ShipmentDto missing = new ShipmentDto();
+    missing.setId("missing");
+    BulkResult updated = bulkService.updateAll(List.of(p1, missing));
+
+    assertThat(updated.getItems()).extracting(i -> i.getOutcome()).containsExactly(Outcome.UPDATED, Outcome.NOT_FOUND);
+    assertThat(repository.findById(id1).orElseThrow().getStatus()).isEqualTo("delivered");
+
+    BulkResult deleted = bulkService.deleteAll(Arrays.asList(id1, "missing", id2));
+    assertThat(deleted.getItems()).extracting(i -> i.getOutcome())
+        .containsExactly(Outcome.DELETED, Outcome.NOT_FOUND, Outcome.DELETED);
+    assertThat(repository.existsById(id2)).isFalse();
+  }
+
+  @Test
+  void updateAll_publishesTheFlushedVersion() {
+    String id = bulkService.createAll(List.of(shipment("V1", "Carrier", null, "100.00"))).getItems().get(0).getId();
+    ShipmentDto patch = new ShipmentDto();
+    patch.setId(id);
+    patch.setStatus("in_transit");
+
+    bulkService.updateAll(List.of(patch));
+
+    ShipmentDto after = events.stream(ShipmentChangedEvent.class)
+        .filter(e -> id.equals(e.getId()) && e.getBefore() != null && e.getAfter() != null)
+        .reduce((a, b) -> b).orElseThrow().getAfter();
+    assertThat(after.getVersion()).isEqualTo(repository.findById(id).orElseThrow().getVersion());
+  }
+}
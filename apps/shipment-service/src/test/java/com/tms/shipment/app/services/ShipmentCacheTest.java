@@ -0,0 +1,85 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShipmentCacheTest {
+
+  private final ShipmentCache cache = new ShipmentCache(true, 100, Duration.ofMinutes(1));
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Optional<ShipmentDto> load(String id) {
+    loads.incrementAndGet();
+    if (id.equals("missing")) return Optional.empty();
+    ShipmentDto dto = new ShipmentDto();
+    dto.setId(id);
+    dto.setStatus("pending");
+    Map<String, Object> tracking = new HashMap<>();
+    tracking.put("lastScan", "Chicago");
+    dto.setTrackingData(tracking);
+    return Optional.of(dto);
+  }
+
+  @Test
+  void get_loadsOnceAndCountsHitsAndMisses() {
+    cache.get("a", this::load);
+    cache.get("a", this::load);
+    cache.get("missing", this::load);
+    cache.get("missing", this::load);
+
+    assertThat(loads.get()).isEqualTo(3);
+    assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("misses", 3L);
+  }
+
+  @Test
+  void get_returnsCopiesWithReadOnlyTrackingData() {
+    ShipmentDto first = cache.get("a", this::load).orElseThrow();
+    first.setStatus("mutated");
+
+    ShipmentDto second = cache.get("a", this::load).orElseThrow();
+    assertThat(second.getStatus()).isEqualTo("pending");
+    assertThatThrownBy(() -> second.getTrackingData().put("x", 1)).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void onChange_invalidatesUpdatedAndDeletedRows() {
+    ShipmentDto before = cache.get("a", this::load).orElseThrow();
+    cache.onChange(ShipmentChangedEvent.updated(before, before));
+    cache.get("a", this::load);
+    cache.onChange(ShipmentChangedEvent.deleted(before));
+    cache.get("a", this::load);
+
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  void getAll_servesHitsAndLoadsOnlyMissesInOneCall() {
+    cache.get("a", this::load);
+    List<Set<String>> calls = new ArrayList<>();
+    Map<String, ShipmentDto> found = cache.getAll(List.of("a", "b", "missing"), ids -> {
+      calls.add(ids);
+      Map<String, ShipmentDto> out = new HashMap<>();
+      for (String id : ids) load(id).ifPresent(d -> out.put(id, d));
+      return out;
+    });
+
+    assertThat(found).containsOnlyKeys("a", "b");
+    assertThat(calls).containsExactly(Set.of("b", "missing"));
+    assertThat(loads.get()).isEqualTo(3);
+    // bulk-loaded rows are not cached
+    cache.get("b", this::load);
+    assertThat(loads.get()).isEqualTo(4);
+  }
+}
@@ -0,0 +1,191 @@
+package com.tms.shipment.app.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tms.shipment.app.ShipmentFixtures;
+import com.tms.shipment.app.models.ShipmentDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShipmentChangeFeedTest {
+
+  private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+  private final ShipmentChangeFeed feed = new ShipmentChangeFeed(mapper, 4, 2, 2, Duration.ZERO, Duration.ofMinutes(1));
+
+  /** Records what was sent; blocks in send until released when created blocked. */
+  private static class RecordingSink implements ShipmentChangeFeed.Sink {
+    final LinkedBlockingQueue<String[]> events = new LinkedBlockingQueue<>();
+    final CountDownLatch release;
+    volatile boolean closed;
+
+    RecordingSink(boolean blocked) {
+      release = new CountDownLatch(blocked ? 1 : 0);
+    }
+
+    /** Splits the stream text into {id, event, data} per event. */
+    @Override
+    public void send(String frames) throws IOException {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      for (String frame : frames.split("\n\n")) {
+        String[] event = new String[3];
+        for (String line : frame.split("\n")) {
+          if (line.startsWith("id:")) event[0] = line.substring(3);
+          if (line.startsWith("event:")) event[1] = line.substring(6);
+          if (line.startsWith("data:")) event[2] = line.substring(5);
+        }
+        events.add(event);
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    String[] next() throws InterruptedException {
+      String[] e = events.poll(5, TimeUnit.SECONDS);
+      assertThat(e).as("event within 5s").isNotNull();
+      return e;
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    feed.close();
+  }
+
+  private static ShipmentDto shipment(String id, String status, String rate) {
+    ShipmentDto d = ShipmentFixtures.shipment("Acme", "Carrier", status, rate);
+    d.setId(id);
+    d.setCreatedAt(Instant.parse("2025-03-01T10:00:00Z"));
+    return d;
+  }
+
+  private void statusChange(String id, String from, String to) {
+    feed.onChange(ShipmentChangedEvent.updated(shipment(id, from, "10"), shipment(id, to, "10")));
+  }
+
+  @Test
+  void change_carriesSequenceAndOnlyChangedFields() throws Exception {
+    RecordingSink sink = new RecordingSink(false);
+    feed.register(sink, null);
+
+    ShipmentDto before = shipment("s1", "pending", "10");
+    ShipmentDto after = shipment("s1", "delivered", "10.00");
+    after.setTrackingData(Map.of("events", List.of(Map.of("eventId", 7))));
+    feed.onChange(ShipmentChangedEvent.updated(before, after));
+
+    String[] e = sink.next();
+    JsonNode body = mapper.readTree(e[2]);
+    assertThat(e[1]).isEqualTo(ShipmentChangeFeed.CHANGE);
+    assertThat(body.get("seq").asLong()).isEqualTo(Long.parseLong(e[0]));
+    assertThat(body.get("type").asText()).isEqualTo("UPDATED");
+    assertThat(body.get("id").asText()).isEqualTo("s1");
+    // the rate scale and the logged tracking event are not changes
+    assertThat(body.get("changed")).extracting(JsonNode::asText).containsExactly("status");
+    assertThat(body.get("fields").get("status").asText()).isEqualTo("delivered");
+  }
+
+  @Test
+  void sequenceIncreasesAndUnchangedUpdatesAreSkipped() throws Exception {
+    RecordingSink sink = new RecordingSink(false);
+    feed.register(sink, null);
+
+    feed.onChange(ShipmentChangedEvent.created(shipment("s1", "pending", "10")));
+    statusChange("s1", "pending", "pending");
+    feed.onChange(ShipmentChangedEvent.deleted(shipment("s1", "pending", "10")));
+
+    String[] created = sink.next();
+    String[] deleted = sink.next();
+    assertThat(Long.parseLong(deleted[0])).isEqualTo(Long.parseLong(created[0]) + 1);
+    assertThat(mapper.readTree(created[2]).get("changed")).extracting(JsonNode::asText)
+        .containsExactly("shipperName", "carrierName", "pickupLocation", "deliveryLocation", "status", "rate", "createdAt");
+    assertThat(mapper.readTree(deleted[2]).get("changed")).isEmpty();
+    assertThat(sink.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+  }
+
+  @Test
+  void register_resumesAfterLastEventIdFromTheRing() throws Exception {
+    RecordingSink first = new RecordingSink(false);
+    feed.register(first, null);
+    statusChange("s1", "pending", "in_transit");
+    long seen = Long.parseLong(first.next()[0]);
+    statusChange("s2", "pending", "in_transit");
+    statusChange("s3", "pending", "in_transit");
+
+    RecordingSink resumed = new RecordingSink(false);
+    feed.register(resumed, seen);
+    assertThat(Long.parseLong(resumed.next()[0])).isEqualTo(seen + 1);
+    assertThat(Long.parseLong(resumed.next()[0])).isEqualTo(seen + 2);
+  }
+
+  @Test
+  void register_resyncsWhenLastEventIdLeftTheRing() throws Exception {
+    RecordingSink first = new RecordingSink(false);
+    feed.register(first, null);
+    statusChange("s0", "pending", "in_transit");
+    long seen = Long.parseLong(first.next()[0]);
+    for (int i = 1; i <= 6; i++) statusChange("s" + i, "pending", "in_transit");
+
+    RecordingSink resumed = new RecordingSink(false);
+    feed.register(resumed, seen);
+    String[] e = resumed.next();
+    assertThat(e[1]).isEqualTo(ShipmentChangeFeed.RESYNC);
+    assertThat(Long.parseLong(e[0])).isEqualTo(seen + 6);
+    assertThat(mapper.readTree(e[2]).get("reason").asText()).isEqualTo("expired");
+    assertThat(resumed.closed).isFalse();
+
+    statusChange("s7", "pending", "in_transit");
+    assertThat(Long.parseLong(resumed.next()[0])).isEqualTo(seen + 7);
+  }
+
+  @Test
+  void slowSubscriberIsDroppedToResyncWithoutHoldingBackOthers() throws Exception {
+    RecordingSink slow = new RecordingSink(true);
+    RecordingSink fast = new RecordingSink(false);
+    feed.register(slow, null);
+    feed.register(fast, null);
+
+    List<Long> delivered = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      statusChange("s" + i, "pending", "in_transit");
+      delivered.add(Long.parseLong(fast.next()[0]));
+    }
+    assertThat(delivered).hasSize(10);
+
+    slow.release.countDown();
+    String[] e;
+    do {
+      e = slow.next();
+    } while (!e[1].equals(ShipmentChangeFeed.RESYNC));
+    assertThat(Long.parseLong(e[0])).isEqualTo(delivered.get(9));
+    assertThat(mapper.readTree(e[2]).get("reason").asText()).isEqualTo("lagged");
+    assertThat(slow.closed).isTrue();
+    assertThat(feed.stats()).containsEntry("subscribers", 1L).containsEntry("resyncs", 1L);
+  }
+
+  @Test
+  void register_refusesBeyondTheSubscriberLimit() {
+    assertThat(feed.register(new RecordingSink(false), null)).isPresent();
+    assertThat(feed.register(new RecordingSink(false), null)).isPresent();
+    assertThat(feed.register(new RecordingSink(false), null)).isEmpty();
+    assertThat(feed.stats()).containsEntry("rejected", 1L);
+  }
+}
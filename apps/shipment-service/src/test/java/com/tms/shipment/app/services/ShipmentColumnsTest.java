@@ -0,0 +1,150 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.LaneStats;
+import com.tms.shipment.app.models.ShipmentBreakdown;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentFilter;
+import com.tms.shipment.app.models.ShipmentStats;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class ShipmentColumnsTest {
+
+  @Autowired
+  private ShipmentColumns columns;
+  @Autowired
+  private ShipmentService shipmentService;
+
+  @Test
+  void followsWritesAndFilters() {
+    // other cached test contexts share the in-memory database, so start from the table
+    columns.rebuild();
+    ShipmentDto a = shipmentService.create(shipment("Columnar Shipper", "Columnar Carrier East", "Columnar Yard", "Columnar Dock", "col_open", "100.00"));
+    ShipmentDto b = shipmentService.create(shipment("Columnar Shipper", "Columnar Carrier West", "Columnar Yard", "Columnar Dock", "col_open", "50.25"));
+    shipmentService.create(shipment("Columnar Shipper", "Columnar Carrier West", "Columnar Yard", "Columnar Store", "col_done", "10.00"));
+    ShipmentFilter shipper = shipmentService.resolveFilter(null, "Columnar Shipper", null);
+
+    ShipmentBreakdown byStatus = columns.groupBy("status", shipper);
+    assertThat(byStatus.getTotal().getCount()).isEqualTo(3);
+    assertThat(group(byStatus, "col_open").getRateTotal()).isEqualByComparingTo("150.25");
+    assertThat(group(byStatus, "col_open").getRateAverage()).isEqualByComparingTo("75.13");
+    assertThat(byStatus.getGroups().get(0).getKey()).isEqualTo("col_open");
+    assertThat(columns.groupBy("carrierName", shipmentService.resolveFilter("col_open", null, "carrier west"))
+        .getGroups()).extracting(ShipmentStats.Group::getKey).containsExactly("Columnar Carrier West");
+
+    List<LaneStats> lanes = columns.topLanes(shipper, 10, "count");
+    assertThat(lanes).extracting(LaneStats::getDeliveryLocation).containsExactly("Columnar Dock", "Columnar Store");
+    assertThat(lanes.get(0).getRateTotal()).isEqualByComparingTo("150.25");
+
+    ShipmentDto patch = new ShipmentDto();
+    patch.setStatus("col_done");
+    patch.setDeliveryLocation("Columnar Store");
+    shipmentService.update(b.getId(), patch);
+    shipmentService.delete(a.getId());
+    assertThat(group(columns.groupBy("status", shipper), "col_open")).isNull();
+    assertThat(group(columns.groupBy("status", shipper), "col_done").getCount()).isEqualTo(2);
+    assertThat(columns.topLanes(shipper, 10, "rateTotal")).singleElement()
+        .satisfies(l -> assertThat(l.getRateTotal()).isEqualByComparingTo("60.25"));
+
+    Instant now = Instant.now();
+    assertThat(columns.groupBy("status", shipper.withCreatedRange(now.minusSeconds(3600), null)).getTotal().getCount()).isEqualTo(2);
+    assertThat(columns.groupBy("status", shipper.withCreatedRange(null, now.minusSeconds(3600))).getTotal().getCount()).isZero();
+    assertThat(columns.groupBy("status", shipmentService.resolveFilter("no_such_status", null, null)).getGroups()).isEmpty();
+  }
+
+  @Test
+  void rejectsUnknownArguments() {
+    ShipmentFilter all = ShipmentFilter.of(null, null, null);
+    assertThatThrownBy(() -> columns.groupBy("rate", all)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> columns.topLanes(all, 0, "count")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> columns.topLanes(all, 10, "rate")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void parallelScansMatchAPlainComputation() {
+    Random random = new Random(7);
+    Instant base = Instant.parse("2024-01-01T00:00:00Z");
+    List<ShipmentDto> rows = new ArrayList<>();
+    for (int i = 0; i < 150_000; i++) {
+      String shipper = "Shipper " + random.nextInt(300);
+      String carrier = "Carrier " + random.nextInt(40);
+      String status = List.of("pending", "in_transit", "delivered").get(random.nextInt(3));
+      ShipmentDto d = shipment(shipper, carrier, "City " + random.nextInt(25), "City " + random.nextInt(25), status,
+          BigDecimal.valueOf(random.nextInt(500_000), 2).toPlainString());
+      d.setId("row-" + i);
+      d.setCreatedAt(base.plusSeconds(random.nextInt(365 * 86_400)));
+      rows.add(d);
+    }
+    ShipmentRepository repository = mock(ShipmentRepository.class);
+    when(repository.streamColumnarColumns()).thenReturn(rows.stream().map(d -> new Object[] { d.getId(), d.getShipperName(),
+        d.getCarrierName(), d.getStatus(), d.getPickupLocation(), d.getDeliveryLocation(), d.getRate(), d.getCreatedAt() }));
+    ShipmentColumns parallel = new ShipmentColumns(repository, mock(ShipmentArchive.class), mock(PlatformTransactionManager.class), true, 4);
+    try {
+      parallel.rebuild();
+      // a delete moves the last row; an update changes the group
+      parallel.onChange(ShipmentChangedEvent.deleted(rows.get(10)));
+      ShipmentDto moved = rows.get(20);
+      ShipmentDto after = shipment(moved.getShipperName(), moved.getCarrierName(), "City 0", "City 1", "delivered", "1.00");
+      after.setId(moved.getId());
+      after.setCreatedAt(moved.getCreatedAt());
+      parallel.onChange(ShipmentChangedEvent.updated(moved, after));
+      rows.set(20, after);
+      rows.remove(10);
+
+      Instant from = base.plusSeconds(90 * 86_400);
+      Instant to = base.plusSeconds(270 * 86_400);
+      ShipmentFilter filter = ShipmentFilter.of("delivered", null, "carrier 1").withCreatedRange(from, to);
+      List<ShipmentDto> matching = rows.stream().filter(d -> d.getStatus().equals("delivered")
+          && d.getCarrierName().toLowerCase().contains("carrier 1")
+          && !d.getCreatedAt().isBefore(from) && d.getCreatedAt().isBefore(to)).collect(Collectors.toList());
+
+      ShipmentBreakdown byCarrier = parallel.groupBy("carrierName", filter);
+      Map<String, List<ShipmentDto>> expected = matching.stream().collect(Collectors.groupingBy(ShipmentDto::getCarrierName));
+      assertThat(byCarrier.getTotal().getCount()).isEqualTo(matching.size());
+      assertThat(byCarrier.getTotal().getRateTotal()).isEqualByComparingTo(total(matching));
+      assertThat(byCarrier.getGroups()).hasSize(expected.size()).allSatisfy(g -> {
+        assertThat(g.getCount()).isEqualTo(expected.get(g.getKey()).size());
+        assertThat(g.getRateTotal()).isEqualByComparingTo(total(expected.get(g.getKey())));
+      });
+
+      Map<String, List<ShipmentDto>> byLane = matching.stream()
+          .collect(Collectors.groupingBy(d -> d.getPickupLocation() + " -> " + d.getDeliveryLocation()));
+      List<String> top = byLane.entrySet().stream()
+          .sorted(Comparator.<Map.Entry<String, List<ShipmentDto>>, BigDecimal>comparing(e -> total(e.getValue())).reversed()
+              .thenComparing(e -> e.getValue().get(0).getPickupLocation())
+              .thenComparing(e -> e.getValue().get(0).getDeliveryLocation()))
+          .limit(5).map(Map.Entry::getKey).collect(Collectors.toList());
+      assertThat(parallel.topLanes(filter, 5, "rateTotal"))
+          .extracting(l -> l.getPickupLocation() + " -> " + l.getDeliveryLocation()).containsExactlyElementsOf(top);
+    } finally {
+      parallel.close();
+    }
+  }
+
+  private static BigDecimal total(List<ShipmentDto> rows) {
+    return rows.stream().map(ShipmentDto::getRate).reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+
+  private static ShipmentStats.Group group(ShipmentBreakdown breakdown, String key) {
+    return breakdown.getGroups().stream().filter(g -> g.getKey().equals(key)).findFirst().orElse(null);
+  }
+}
@@ -0,0 +1,52 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.services.ShipmentExportService.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static com.tms.shipment.app.ShipmentFixtures.withTrackingData;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ShipmentExportServiceTest {
+
+  private static final Map<String, Object> TRACKING = Map.of("lastScan", "Dallas");
+
+  @Autowired
+  private ShipmentExportService exportService;
+  @Autowired
+  private ShipmentService shipmentService;
+
+  @Test
+  void export_writesOneNdjsonLinePerMatchingRow() throws Exception {
+    shipmentService.create(withTrackingData(shipment("Export, \"Quoted\" Inc", "Carrier", "exported", "10.00"), TRACKING));
+    shipmentService.create(withTrackingData(shipment("Export Two", "Carrier", "exported", "10.00"), TRACKING));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long count = exportService.export("exported", null, null, null, null, "createdAt", "asc", Format.NDJSON, out);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(count).isEqualTo(2);
+    assertThat(lines).hasSize(2);
+    assertThat(lines[0]).startsWith("{").contains("\"status\":\"exported\"");
+  }
+
+  @Test
+  void export_writesQuotedCsvWithHeader() throws Exception {
+    shipmentService.create(withTrackingData(shipment("Csv, \"Quoted\" Inc", "Carrier", "csv_only", "10.00"), TRACKING));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exportService.export("csv_only", null, null, null, null, "createdAt", "desc", Format.CSV, out);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+    assertThat(lines[0]).isEqualTo(String.join(",", ShipmentExportService.CSV_COLUMNS));
+    assertThat(lines).hasSize(2);
+    assertThat(lines[1]).contains(",\"Csv, \"\"Quoted\"\" Inc\",").contains("\"{\"\"lastScan\"\":\"\"Dallas\"\"}\"");
+  }
+}
@@ -0,0 +1,49 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ShipmentNameIndexTest {
+
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private ShipmentNameIndex nameIndex;
+
+  @Test
+  void followsCreateUpdateAndDelete() {
+    assertThat(nameIndex.isReady()).isTrue();
+    ShipmentDto dto = new ShipmentDto();
+    dto.setShipperName("Zanzibar Spice Traders");
+    dto.setCarrierName("Dhow Lines");
+    dto.setPickupLocation("Stone Town");
+    dto.setDeliveryLocation("Mombasa");
+    dto.setRate(BigDecimal.ONE);
+    ShipmentDto created = shipmentService.create(dto);
+
+    assertThat(shipperMatches("zanzibar spice")).containsExactly("Zanzibar Spice Traders");
+    assertThat(shipmentService.list(null, "ZANZIBAR", "dhow", 0, 10, "createdAt", "desc", null).getTotalElements()).isEqualTo(1);
+
+    ShipmentDto rename = new ShipmentDto();
+    rename.setShipperName("Pemba Clove Co");
+    shipmentService.update(created.getId(), rename);
+    assertThat(shipperMatches("zanzibar spice")).isEmpty();
+    assertThat(shipperMatches("pemba clove")).containsExactly("Pemba Clove Co");
+
+    shipmentService.delete(created.getId());
+    assertThat(shipperMatches("pemba clove")).isEmpty();
+    assertThat(shipmentService.list(null, "pemba", null, 0, 10, "createdAt", "desc", null).getTotalElements()).isZero();
+  }
+
+  private Collection<String> shipperMatches(String q) {
+    return shipmentService.resolveFilter(null, q, null).getShipperNames();
+  }
+}
@@ -1,26 +1,45 @@
 package com.tms.shipment.app.services;
 
+import com.tms.shipment.app.models.BatchGetResult;
+import com.tms.shipment.app.models.CursorPage;
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentCursor;
 import com.tms.shipment.app.models.ShipmentDto;
 import com.tms.shipment.app.repositories.ShipmentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ShipmentServiceTest {
 
   private ShipmentRepository repository;
+  private ShipmentNameIndex nameIndex;
   private ShipmentService service;
 
   @BeforeEach
   void setUp() {
     repository = mock(ShipmentRepository.class);
-    service = new ShipmentService(repository);
+    nameIndex = mock(ShipmentNameIndex.class);
+    lenient().when(nameIndex.resolve(any())).thenAnswer(inv -> inv.getArgument(0));
+    service = new ShipmentService(repository, mock(ApplicationEventPublisher.class), nameIndex, ShipmentCache.disabled(),
+        mock(TrackingEventService.class), mock(ShipmentArchive.class), ShipmentWriteBuffer.disabled(), 3);
   }
 
   @Test
@@ -36,4 +55,59 @@ class ShipmentServiceTest {
     assertThat(result.getCarrierName()).isEqualTo("Carrier B");
     verify(repository).save(any());
   }
+
+  @Test
+  void listAfter_returnsCursorForLastRow() {
+    ShipmentDto last = new ShipmentDto();
+    last.setId("id2");
+    last.setCreatedAt(Instant.parse("2025-03-01T10:00:00Z"));
+    when(repository.findSummarySliceAfter(any(), eq("createdAt"), eq(false), isNull(), eq(1)))
+        .thenReturn(new SliceImpl<>(List.of(last), PageRequest.of(0, 1), true));
+    CursorPage<ShipmentDto> page = service.listAfter(null, null, null, "", 1, "createdAt", "desc", null);
+    assertThat(page.isHasNext()).isTrue();
+    ShipmentCursor next = ShipmentCursor.decode(page.getNextCursor());
+    assertThat(next.getId()).isEqualTo("id2");
+    assertThat(next.getValue()).isEqualTo("2025-03-01T10:00:00Z");
+    assertThat(next.isAscending()).isFalse();
+  }
+
+  @Test
+  void listAfter_rejectsCursorFromAnotherSort() {
+    String token = new ShipmentCursor("rate", true, "10.00", "id1").encode();
+    assertThatThrownBy(() -> service.listAfter(null, null, null, token, 10, "createdAt", "desc", null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void list_loadsEntitiesOnlyWhenTrackingDataIsRequested() {
+    Shipment e = new Shipment();
+    e.setId("id1");
+    e.setTrackingData(Map.of("events", List.of()));
+    when(repository.findAllFiltered(any(), any())).thenReturn(new PageImpl<>(List.of(e)));
+    when(repository.findSummaries(any(), any())).thenReturn(new PageImpl<>(List.of(new ShipmentDto())));
+
+    assertThat(service.list(null, null, null, 0, 10, "createdAt", "desc", "id,trackingData").getContent().get(0).getTrackingData())
+        .containsKey("events");
+    assertThat(service.list(null, null, null, 0, 10, "createdAt", "desc", null).getContent().get(0).getTrackingData()).isNull();
+    verify(repository, times(1)).findAllFiltered(any(), any());
+    verify(repository, times(1)).findSummaries(any(), any());
+    assertThatThrownBy(() -> service.list(null, null, null, 0, 10, "createdAt", "desc", "secret"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void getByIds_keepsRequestOrderAndReportsMissingWithOneQuery() {
+    Shipment a = new Shipment();
+    a.setId("a");
+    Shipment c = new Shipment();
+    c.setId("c");
+    when(repository.findAllById(any())).thenReturn(List.of(c, a));
+
+    BatchGetResult result = service.getByIds(List.of("c", "b", "a", "c"));
+    assertThat(result.getShipments()).extracting(ShipmentDto::getId).containsExactly("c", "a");
+    assertThat(result.getMissing()).containsExactly("b");
+    verify(repository, times(1)).findAllById(any());
+
+    assertThatThrownBy(() -> service.getByIds(List.of("a", "b", "c", "d"))).isInstanceOf(IllegalArgumentException.class);
+  }
 }
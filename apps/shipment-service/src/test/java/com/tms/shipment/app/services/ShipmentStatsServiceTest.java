@@ -0,0 +1,100 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.ShipmentStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest
+class ShipmentStatsServiceTest {
+
+  @Autowired
+  private ShipmentStatsService statsService;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private ShipmentBulkService bulkService;
+  @SpyBean
+  private ShipmentArchive archive;
+
+  @Test
+  void followsWritesAndStaysConsistentWithTable() {
+    // other cached test contexts share the in-memory database, so start from the table
+    statsService.rebuild();
+    assertThat(statsService.check()).isEmpty();
+
+    ShipmentDto a = shipmentService.create(shipment("Stats Shipper", "Stats Carrier", "stats_open", "100.00"));
+    ShipmentDto b = shipmentService.create(shipment("Stats Shipper", "Stats Carrier", "stats_open", "50.25"));
+    ShipmentStats.Group open = group(statsService.query("status", null, null), "stats_open");
+    assertThat(open.getCount()).isEqualTo(2);
+    assertThat(open.getRateTotal()).isEqualByComparingTo("150.25");
+    assertThat(open.getRateAverage()).isEqualByComparingTo("75.13");
+
+    ShipmentDto patch = new ShipmentDto();
+    patch.setStatus("stats_done");
+    patch.setRate(new BigDecimal("10.00"));
+    shipmentService.update(b.getId(), patch);
+    assertThat(group(statsService.query("status", null, null), "stats_open").getCount()).isEqualTo(1);
+    assertThat(group(statsService.query("status", null, null), "stats_done").getRateTotal()).isEqualByComparingTo("10.00");
+    assertThat(group(statsService.query("shipperName", null, null), "Stats Shipper").getRateTotal()).isEqualByComparingTo("110.00");
+
+    shipmentService.delete(a.getId());
+    bulkService.deleteAll(List.of(b.getId()));
+    assertThat(group(statsService.query("status", null, null), "stats_open")).isNull();
+    assertThat(statsService.check()).isEmpty();
+  }
+
+  @Test
+  void rebuild_keepsChangesCommittedDuringTheScan() {
+    ShipmentDto updated = shipmentService.create(shipment("Rebuild Shipper", "Stats Carrier", "rebuild_open", "30.00"));
+    ShipmentDto deleted = shipmentService.create(shipment("Rebuild Shipper", "Stats Carrier", "rebuild_open", "40.00"));
+    // the archive is read after the table, inside the scan's transaction: commit from another thread there
+    doAnswer(inv -> {
+      CompletableFuture.runAsync(() -> {
+        ShipmentDto patch = new ShipmentDto();
+        patch.setStatus("rebuild_done");
+        shipmentService.update(updated.getId(), patch);
+        shipmentService.delete(deleted.getId());
+        shipmentService.create(shipment("Rebuild Shipper", "Stats Carrier", "rebuild_open", "5.00"));
+      }).join();
+      return inv.callRealMethod();
+    }).when(archive).forEach(any());
+    try {
+      statsService.rebuild();
+    } finally {
+      reset(archive);
+    }
+
+    assertThat(group(statsService.query("status", null, null), "rebuild_open").getRateTotal()).isEqualByComparingTo("5.00");
+    assertThat(group(statsService.query("status", null, null), "rebuild_done").getCount()).isEqualTo(1);
+    assertThat(statsService.check()).isEmpty();
+  }
+
+  @Test
+  void query_restrictsToCreatedAtWindow() {
+    shipmentService.create(shipment("Window Shipper", "Stats Carrier", "stats_window", "20.00"));
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+    assertThat(group(statsService.query("status", today, today), "stats_window").getCount()).isEqualTo(1);
+    assertThat(group(statsService.query("status", null, today.minusDays(1)), "stats_window")).isNull();
+    assertThat(group(statsService.query("status", today.plusDays(1), null), "stats_window")).isNull();
+  }
+
+  private static ShipmentStats.Group group(ShipmentStats stats, String key) {
+    return stats.getGroups().stream().filter(g -> g.getKey().equals(key)).findFirst().orElse(null);
+  }
+}
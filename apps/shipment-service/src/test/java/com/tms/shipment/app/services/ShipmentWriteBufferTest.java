@@ -0,0 +1,165 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.Shipment;
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.repositories.ShipmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static com.tms.shipment.app.ShipmentFixtures.withTrackingData;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// flushed by hand: the interval and threshold are out of reach of a test; only this test's rows are archivable
+@SpringBootTest(properties = {
+    "shipments.write-behind.enabled=true", "shipments.write-behind.flush-interval=1h", "shipments.write-behind.flush-threshold=100000",
+    "shipments.write-behind.max-attempts=2", "shipments.archive.statuses=wb_test_archivable" })
+class ShipmentWriteBufferTest {
+
+  private static final String SHIPPER = "Write Behind Test Shipper";
+  private static final String CARRIER = "Write Behind Test Carrier";
+
+  @Autowired
+  private ShipmentWriteBuffer writeBuffer;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private TrackingEventService trackingService;
+  @Autowired
+  private ShipmentRepository repository;
+  @Autowired
+  private ShipmentExportService exportService;
+  @Autowired
+  private ShipmentArchiver archiver;
+  @Autowired
+  private JdbcTemplate jdbc;
+  @Autowired
+  private MeterRegistry registry;
+
+  @Test
+  void coalescesABurstIntoOneUpdateThatReadsSeeBeforeItIsWritten() throws Exception {
+    ShipmentDto created = shipmentService.create(withTrackingData(shipment(SHIPPER, CARRIER, "wb_test_initial", "10.00"),
+        Map.of("events", List.of(Map.of("code", "PU")))));
+    String id = created.getId();
+    trackingService.append(id, Map.of("code", "IT")).orElseThrow();
+    ShipmentDto before = shipmentService.getById(id).orElseThrow();
+
+    for (int i = 0; i < 50; i++) assertThat(shipmentService.updateBuffered(id, status("wb_test_" + i))).isTrue();
+    ShipmentDto tracking = new ShipmentDto();
+    tracking.setTrackingData(Map.of("events", List.of(Map.of("code", "PU"), Map.of("code", "OD")), "eta", "2024-05-03"));
+    assertThat(shipmentService.updateBuffered(id, tracking)).isTrue();
+
+    // nothing written yet
+    Shipment row = repository.findById(id).orElseThrow();
+    assertThat(row.getStatus()).isEqualTo("wb_test_initial");
+    assertThat(row.getVersion()).isEqualTo(before.getVersion());
+
+    // but every read sees the coalesced update, logged events still after the stored ones
+    ShipmentDto buffered = shipmentService.getById(id).orElseThrow();
+    assertThat(buffered.getStatus()).isEqualTo("wb_test_49");
+    assertThat(buffered.getVersion()).isEqualTo(before.getVersion() + 1);
+    assertThat(buffered.getUpdatedAt()).isAfter(before.getUpdatedAt());
+    assertThat(buffered.getTrackingData().get("eta")).isEqualTo("2024-05-03");
+    assertThat(buffered.getTrackingData().get("events")).asList().extracting(e -> (Object) ((Map<?, ?>) e).get("code"))
+        .containsExactly("PU", "OD", "IT");
+    assertThat(shipmentService.currentEtag(id)).contains(ShipmentService.etagOf(buffered));
+    assertThat(shipmentService.getByIds(List.of(id)).getShipments()).extracting(ShipmentDto::getStatus).containsExactly("wb_test_49");
+    assertThat(shipmentService.list(null, SHIPPER, null, 0, 100, "createdAt", "asc", null).getContent())
+        .filteredOn(d -> d.getId().equals(id)).extracting(ShipmentDto::getStatus).containsExactly("wb_test_49");
+    ByteArrayOutputStream export = new ByteArrayOutputStream();
+    exportService.export(null, SHIPPER, null, null, null, "createdAt", "asc", ShipmentExportService.Format.NDJSON, export);
+    assertThat(export.toString(StandardCharsets.UTF_8).lines().filter(l -> l.contains(id)))
+        .singleElement().asString().contains("\"status\":\"wb_test_49\"").contains("\"eta\":\"2024-05-03\"");
+
+    // one UPDATE, with the version and content reads already showed
+    writeBuffer.flush();
+    assertThat(writeBuffer.contains(id)).isFalse();
+    row = repository.findById(id).orElseThrow();
+    assertThat(row.getStatus()).isEqualTo("wb_test_49");
+    assertThat(row.getVersion()).isEqualTo(before.getVersion() + 1);
+    assertThat(row.getTrackingData()).isEqualTo(tracking.getTrackingData());
+    ShipmentDto written = shipmentService.getById(id).orElseThrow();
+    assertThat(ShipmentService.etagOf(written)).isEqualTo(ShipmentService.etagOf(buffered));
+    assertThat(written.getTrackingData()).isEqualTo(buffered.getTrackingData());
+  }
+
+  @Test
+  void synchronousWritesApplyAfterWhatIsBuffered() {
+    String id = shipmentService.create(shipment(SHIPPER, CARRIER, "wb_test_initial", "10.00")).getId();
+    assertThat(shipmentService.updateBuffered(id, status("wb_test_buffered"))).isTrue();
+
+    ShipmentDto rate = new ShipmentDto();
+    rate.setRate(new BigDecimal("99.90"));
+    ShipmentDto updated = shipmentService.update(id, rate).orElseThrow();
+    assertThat(updated.getStatus()).isEqualTo("wb_test_buffered");
+    assertThat(updated.getRate()).isEqualByComparingTo("99.90");
+    assertThat(updated.getVersion()).isEqualTo(2);
+    assertThat(writeBuffer.contains(id)).isFalse();
+
+    assertThat(shipmentService.updateBuffered(id, status("wb_test_gone"))).isTrue();
+    assertThat(shipmentService.delete(id)).isTrue();
+    assertThat(repository.findById(id)).isEmpty();
+  }
+
+  @Test
+  void onlyStatusAndTrackingDataOfExistingShipmentsAreBuffered() {
+    assertThat(shipmentService.updateBuffered("missing", status("wb_test_x"))).isFalse();
+    ShipmentDto rate = status("wb_test_x");
+    rate.setRate(BigDecimal.ONE);
+    assertThat(shipmentService.isBufferable(rate)).isFalse();
+    assertThatThrownBy(() -> shipmentService.updateBuffered("missing", rate)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> shipmentService.updateBuffered("missing", status("x".repeat(51))))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static ShipmentDto status(String status) {
+    ShipmentDto d = new ShipmentDto();
+    d.setStatus(status);
+    return d;
+  }
+
+  @Test
+  void aRowThatKeepsFailingIsDroppedWithoutHoldingBackItsBatch() {
+    String good = shipmentService.create(shipment(SHIPPER, CARRIER, "wb_test_initial", "10.00")).getId();
+    String poison = shipmentService.create(shipment(SHIPPER, CARRIER, "wb_test_initial", "10.00")).getId();
+    assertThat(shipmentService.updateBuffered(good, status("wb_test_good"))).isTrue();
+    // past the column limit that updateBuffered checks, so the batched UPDATE fails in the database
+    writeBuffer.submit(poison, status("wb_test_" + "x".repeat(60)));
+
+    writeBuffer.flush();
+    assertThat(repository.findById(good).orElseThrow().getStatus()).isEqualTo("wb_test_good");
+    assertThat(writeBuffer.contains(good)).isFalse();
+    assertThat(writeBuffer.contains(poison)).isTrue();
+
+    writeBuffer.flush();
+    assertThat(writeBuffer.contains(poison)).isFalse();
+    assertThat(repository.findById(poison).orElseThrow().getStatus()).isEqualTo("wb_test_initial");
+  }
+
+  @Test
+  void archivingSkipsBufferedShipmentsAndAnUpdateWhoseRowIsGoneIsCounted() {
+    String id = shipmentService.create(shipment(SHIPPER, CARRIER, "wb_test_archivable", "10.00")).getId();
+    assertThat(shipmentService.updateBuffered(id, status("wb_test_archivable"))).isTrue();
+
+    assertThat(archiver.archiveBefore(Instant.now().plusSeconds(1))).isZero();
+    assertThat(repository.findById(id)).isPresent();
+
+    // a row deleted under the buffer by other means: the update is dropped, logged and counted
+    double dropped = registry.get("shipments.write_behind.dropped").functionCounter().count();
+    jdbc.update("DELETE FROM shipments WHERE id = ?", id);
+    writeBuffer.flush();
+    assertThat(writeBuffer.contains(id)).isFalse();
+    assertThat(registry.get("shipments.write_behind.dropped").functionCounter().count()).isEqualTo(dropped + 1);
+  }
+}
@@ -0,0 +1,149 @@
+package com.tms.shipment.app.services;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.models.TrackingEventDto;
+import com.tms.shipment.app.repositories.TrackingEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+import static com.tms.shipment.app.ShipmentFixtures.withTrackingData;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "shipments.tracking.derived-events=3")
+class TrackingEventServiceTest {
+
+  @Autowired
+  private TrackingEventService trackingService;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private TrackingEventRepository eventRepository;
+  @Autowired
+  private PlatformTransactionManager txManager;
+
+  private ShipmentDto newShipment() {
+    return shipmentService.create(withTrackingData(shipment("Log Shipper", "Log Carrier", null, "10"),
+        Map.of("events", List.of(Map.of("code", "PU")))));
+  }
+
+  @Test
+  void append_thenReadWindowsAndDerivedView() {
+    String id = newShipment().getId();
+    // prime the cache so the append has to invalidate it
+    assertThat(shipmentService.getById(id).orElseThrow().getTrackingData().get("events")).asList().hasSize(1);
+
+    List<TrackingEventDto> first = trackingService.append(id, Map.of("code", "AR")).orElseThrow();
+    trackingService.append(id, List.of(Map.of("code", "DP"), Map.of("code", "DL"))).orElseThrow();
+
+    List<TrackingEventDto> all = trackingService.list(id, 0, 100).orElseThrow();
+    assertThat(all).extracting(e -> e.getData().get("code")).containsExactly("AR", "DP", "DL");
+    List<TrackingEventDto> window = trackingService.list(id, first.get(0).getId(), 1).orElseThrow();
+    assertThat(window).extracting(e -> e.getData().get("code")).containsExactly("DP");
+
+    ShipmentDto view = shipmentService.getById(id).orElseThrow();
+    List<?> events = (List<?>) view.getTrackingData().get("events");
+    assertThat(events).hasSize(4);
+    @SuppressWarnings("unchecked")
+    Map<String, Object> last = (Map<String, Object>) events.get(3);
+    assertThat(last).containsEntry("code", "DL").containsKey("eventId");
+
+    // a client writing the derived view back must not copy the log into the stored map
+    ShipmentDto patch = new ShipmentDto();
+    patch.setTrackingData(view.getTrackingData());
+    ShipmentDto after = shipmentService.update(id, patch).orElseThrow();
+    assertThat((List<?>) after.getTrackingData().get("events")).hasSize(4);
+  }
+
+  @Test
+  void unknownShipment_isEmptyAndBadInputIsRejected() {
+    assertThat(trackingService.append("missing", Map.of("code", "AR"))).isEmpty();
+    assertThat(trackingService.list("missing", 0, 10)).isEmpty();
+    String id = newShipment().getId();
+    assertThatThrownBy(() -> trackingService.append(id, List.of("not an object"))).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> trackingService.list(id, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void deletingShipment_dropsItsLog() {
+    String id = newShipment().getId();
+    trackingService.append(id, Map.of("code", "AR"));
+    assertThat(shipmentService.delete(id)).isTrue();
+    assertThat(eventRepository.findByShipmentIdInOrderByIdAsc(List.of(id))).isEmpty();
+  }
+
+  @Test
+  void derivedView_keepsOnlyTheNewestLoggedEvents() {
+    ShipmentDto one = newShipment();
+    ShipmentDto other = newShipment();
+    for (String code : List.of("AR", "DP", "AR", "DP", "DL")) {
+      trackingService.append(one.getId(), Map.of("code", code));
+      trackingService.append(other.getId(), Map.of("code", code + "2"));
+    }
+
+    // the stored PU, then the newest three of the five logged events
+    assertThat(codes(shipmentService.getById(one.getId()).orElseThrow())).containsExactly("PU", "AR", "DP", "DL");
+    List<ShipmentDto> page = trackingService.withEvents(List.of(stored(one), stored(other)));
+    assertThat(codes(page.get(0))).containsExactly("PU", "AR", "DP", "DL");
+    assertThat(codes(page.get(1))).containsExactly("PU", "AR2", "DP2", "DL2");
+    // the archive still takes the whole log
+    assertThat(codes(trackingService.withAllEvents(List.of(stored(one))).get(0))).hasSize(6);
+  }
+
+  @Test
+  void appends_toOneShipmentCommitInIdOrderAndMoveItsVersion() throws Exception {
+    String id = newShipment().getId();
+    long version = shipmentService.getById(id).orElseThrow().getVersion();
+    CountDownLatch appended = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Long> first = CompletableFuture.supplyAsync(() -> new TransactionTemplate(txManager).execute(s -> {
+      long eventId = trackingService.append(id, Map.of("code", "AR")).orElseThrow().get(0).getId();
+      appended.countDown();
+      await(release);
+      return eventId;
+    }));
+    assertThat(appended.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Long> second = CompletableFuture.supplyAsync(
+        () -> trackingService.append(id, Map.of("code", "DP")).orElseThrow().get(0).getId());
+    // the second append waits on the shipment row until the first commits
+    Thread.sleep(200);
+    assertThat(second).isNotDone();
+    release.countDown();
+
+    assertThat(second.get(5, TimeUnit.SECONDS)).isGreaterThan(first.get(5, TimeUnit.SECONDS));
+    assertThat(shipmentService.getById(id).orElseThrow().getVersion()).isEqualTo(version + 2);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static ShipmentDto stored(ShipmentDto created) {
+    ShipmentDto d = new ShipmentDto();
+    d.setId(created.getId());
+    d.setTrackingData(created.getTrackingData());
+    return d;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> codes(ShipmentDto d) {
+    List<Object> codes = new ArrayList<>();
+    for (Object e : (List<?>) d.getTrackingData().get("events")) codes.add(((Map<String, Object>) e).get("code"));
+    return codes;
+  }
+}
@@ -0,0 +1,43 @@
+package com.tms.shipment.app.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+
+  @Test
+  void matching_isCaseInsensitiveSubstring() {
+    TrigramIndex index = new TrigramIndex();
+    index.add("Acme Logistics");
+    index.add("Pacific Haulers");
+    index.add("FastFreight Inc");
+
+    assertThat(index.matching("LOGIST")).containsExactly("Acme Logistics");
+    assertThat(index.matching("ac")).containsExactlyInAnyOrder("Acme Logistics", "Pacific Haulers");
+    assertThat(index.matching("freight inc")).containsExactly("FastFreight Inc");
+    assertThat(index.matching("xyz")).isEmpty();
+  }
+
+  @Test
+  void remove_dropsValueOnlyWhenLastRowGoes() {
+    TrigramIndex index = new TrigramIndex();
+    index.add("Acme");
+    index.add("Acme");
+    index.remove("Acme");
+    assertThat(index.matching("acm")).containsExactly("Acme");
+    index.remove("Acme");
+    assertThat(index.matching("acm")).isEmpty();
+    assertThat(index.distinctValues()).isZero();
+  }
+
+  @Test
+  void ensureAtLeast_neverLowersLiveCount() {
+    TrigramIndex index = new TrigramIndex();
+    index.add("Acme");
+    index.add("Acme");
+    index.ensureAtLeast("Acme", 1);
+    index.remove("Acme");
+    assertThat(index.matching("acme")).containsExactly("Acme");
+  }
+}
@@ -0,0 +1,146 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.app.models.ShipmentDto;
+import com.tms.shipment.app.services.ShipmentChangeFeed;
+import com.tms.shipment.app.services.ShipmentService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+
+/**
+ * Fan-out of {@code GET /api/shipments/changes} over real connections: opens {@code n} SSE
+ * subscribers, commits a stream of updates, and reports the write latency seen by the writer and the
+ * commit-to-delivery latency seen by the subscribers. Not part of the normal test run (tagged
+ * {@code bench}, see the {@code bench-e2e} profile):
+ *
+ * <pre>mvn -Pbench-e2e test -Dtest=ChangeFeedBenchmark -Dbench.subscribers=0,1000,5000 -Dbench.updates=200</pre>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Tag("bench")
+class ChangeFeedBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(ChangeFeedBenchmark.class);
+
+  private static final String TAG = "\"trackingNumber\":\"";
+
+  @LocalServerPort
+  private int port;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private ShipmentChangeFeed feed;
+
+  @Test
+  void fanOut() throws Exception {
+    String[] sizes = System.getProperty("bench.subscribers", "0,1000,5000").split(",");
+    int updates = Integer.getInteger("bench.updates", 200);
+    log.info(String.format("ChangeFeedBenchmark (%d updates, 5 ms apart)", updates));
+    for (String size : sizes) run(Integer.parseInt(size.trim()), updates);
+  }
+
+  private void run(int n, int updates) throws Exception {
+    String id = shipmentService.create(shipment("Bench Shipper", "Bench Carrier", null, "1250.50")).getId();
+    for (int i = 0; i < updates; i++) update(id); // warm-up, before anyone is subscribed
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    HttpClient client = HttpClient.newBuilder().executor(pool).build();
+    AtomicLongArray latencies = new AtomicLongArray(Math.max(1, n * updates));
+    AtomicInteger delivered = new AtomicInteger();
+    AtomicInteger resyncs = new AtomicInteger();
+    List<Flow.Subscription> subscriptions = new ArrayList<>();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/shipments/changes")).build();
+    for (int i = 0; i < n; i++) {
+      client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(new Flow.Subscriber<String>() {
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+          synchronized (subscriptions) {
+            subscriptions.add(s);
+          }
+          s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+          if (line.equals("event:" + ShipmentChangeFeed.RESYNC)) resyncs.incrementAndGet();
+          int at = line.indexOf(TAG);
+          if (!line.startsWith("data:") || at < 0) return;
+          int from = at + TAG.length();
+          long sent = Long.parseLong(line.substring(from, line.indexOf('"', from)));
+          latencies.set(delivered.getAndIncrement(), System.nanoTime() - sent);
+        }
+
+        @Override
+        public void onError(Throwable t) {}
+
+        @Override
+        public void onComplete() {}
+      }));
+      // stay under the server's accept backlog; sendAsync only completes when a stream ends
+      if (i % 100 == 99) awaitSubscribers(i + 1);
+    }
+    awaitSubscribers(n);
+
+    long writeNanos = 0;
+    for (int i = 0; i < updates; i++) {
+      writeNanos += update(id);
+      Thread.sleep(5);
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    while (delivered.get() < n * updates && System.nanoTime() < deadline) Thread.sleep(10);
+
+    long[] ms = new long[delivered.get()];
+    for (int i = 0; i < ms.length; i++) ms[i] = latencies.get(i);
+    Arrays.sort(ms);
+    log.info(String.format("  subscribers=%-5d write %7.1f us   delivered %,9d/%,d   p50 %6.1f ms  p99 %6.1f ms  max %6.1f ms   resyncs %d",
+        n, writeNanos / 1e3 / updates, ms.length, n * updates,
+        percentile(ms, 0.50), percentile(ms, 0.99), percentile(ms, 1.0), resyncs.get()));
+
+    synchronized (subscriptions) {
+      subscriptions.forEach(Flow.Subscription::cancel);
+    }
+    pool.shutdownNow();
+    long wait = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (feed.stats().get("subscribers") > 0 && System.nanoTime() < wait) Thread.sleep(50);
+  }
+
+  /** Stamps the commit time into trackingNumber, where the subscribers read it back. */
+  private long update(String id) {
+    ShipmentDto patch = new ShipmentDto();
+    long t0 = System.nanoTime();
+    patch.setTrackingNumber(Long.toString(t0));
+    shipmentService.update(id, patch);
+    return System.nanoTime() - t0;
+  }
+
+  private void awaitSubscribers(long n) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (feed.stats().get("subscribers") < n) {
+      if (System.nanoTime() > deadline) throw new IllegalStateException("Only " + feed.stats().get("subscribers") + " of " + n + " subscribed");
+      Thread.sleep(10);
+    }
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) return Double.NaN;
+    return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+  }
+}
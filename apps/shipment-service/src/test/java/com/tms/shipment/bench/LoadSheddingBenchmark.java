@@ -0,0 +1,150 @@
+package com.tms.shipment.bench;
+
+import com.tms.shipment.app.limits.ConcurrencyLimiter;
+import com.tms.shipment.app.limits.Workload;
+import com.tms.shipment.app.services.ShipmentService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.tms.shipment.app.ShipmentFixtures.shipment;
+
+/**
+ * Open-loop load past capacity: requests are sent on a fixed schedule at each offered rate of
+ * {@code bench.rates} (req/s, default 150,300,450,600) for {@code bench.millis} each, whether or not
+ * earlier ones have answered, 80% GET by id, 15% filtered list, 5% status PATCH. Latency counts from
+ * the scheduled send, so time spent queueing in the client, the acceptor or Tomcat's pool shows.
+ * Reports per request class answered req/s, % shed (429 or 503), client timeouts (10 s) and p50/p99
+ * of the answered ones. Run with {@code -Dbench.limits=false} to compare against no limiter. Not part of the
+ * normal test run (tagged {@code bench}, see the {@code bench-e2e} profile):
+ *
+ * <pre>mvn -Pbench-e2e test -Dtest=LoadSheddingBenchmark -Dbench.rates=150,300,450,600 -Dbench.millis=8000</pre>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "shipments.limits.enabled=${bench.limits:true}",
+    "shipments.cache.enabled=false" })
+@Tag("bench")
+class LoadSheddingBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadSheddingBenchmark.class);
+
+  private static final int ROWS = 2_000;
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final String SHIPPER = "Load Shedding Bench Shipper";
+  private static final String[] CLASSES = { "get", "list", "patch" };
+  private static final String[] STATUSES = { "pending", "in_transit", "out_for_delivery", "delivered" };
+
+  @LocalServerPort
+  private int port;
+  @Autowired
+  private ShipmentService shipmentService;
+  @Autowired
+  private ConcurrencyLimiter limiter;
+
+  private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+
+  @Test
+  void latencyPastCapacity() throws Exception {
+    long millis = Long.getLong("bench.millis", 10_000);
+    int[] rates = Arrays.stream(System.getProperty("bench.rates", "150,300,450,600").split(","))
+        .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) ids.add(shipmentService.create(shipment(SHIPPER, "Bench Carrier " + (i % 10),
+        STATUSES[i % STATUSES.length], BigDecimal.valueOf(50_000 + i, 2).toPlainString())).getId());
+    boolean limited = Boolean.parseBoolean(System.getProperty("bench.limits", "true"));
+    log.info(String.format("LoadSheddingBenchmark (%d shipments, limits %s, %d ms per rate)", ROWS, limited ? "on" : "off", millis));
+    // a gentle warm-up: a cold JVM at a high rate starts out overloaded
+    run(ids, 50, 10_000);
+    for (int rate : rates) {
+      Outcome[] outcomes = run(ids, rate, millis);
+      for (int c = 0; c < CLASSES.length; c++) {
+        Outcome o = outcomes[c];
+        long[] latencies = o.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        log.info(String.format("  offered %5d/s  %-5s %8.1f ok/s   shed %5.1f%%   %5d timeouts   p50 %8.1f ms   p99 %8.1f ms",
+            rate, CLASSES[c], latencies.length * 1000.0 / millis, 100.0 * o.shed / Math.max(1, o.sent),
+            o.timeouts, percentile(latencies, 0.50), percentile(latencies, 0.99)));
+      }
+      if (limited) {
+        log.info(String.format("  limits after %5d/s:  lookup %d  query %d  write %d", rate, limiter.limit(Workload.LOOKUP).getLimit(),
+            limiter.limit(Workload.QUERY).getLimit(), limiter.limit(Workload.WRITE).getLimit()));
+      }
+    }
+  }
+
+  private Outcome[] run(List<String> ids, int rate, long millis) {
+    Outcome[] outcomes = { new Outcome(), new Outcome(), new Outcome() };
+    List<CompletableFuture<?>> inFlight = new ArrayList<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    long start = System.nanoTime();
+    long total = rate * millis / 1000;
+    for (long i = 0; i < total; i++) {
+      long scheduled = start + i * interval;
+      long wait = scheduled - System.nanoTime();
+      if (wait > 0) LockSupport.parkNanos(wait);
+      int roll = random.nextInt(100);
+      int c = roll < 80 ? 0 : roll < 95 ? 1 : 2;
+      Outcome o = outcomes[c];
+      o.sent++;
+      inFlight.add(client.sendAsync(request(c, ids.get(random.nextInt(ids.size())), random), HttpResponse.BodyHandlers.discarding())
+          .handle((response, error) -> {
+            long nanos = System.nanoTime() - scheduled;
+            synchronized (o) {
+              if (error != null) o.timeouts++;
+              else if (response.statusCode() == 429 || response.statusCode() == 503) o.shed++;
+              else if (response.statusCode() < 500) o.latencies.add(nanos); // 2xx, and 409s of PATCHes racing on a row
+              else throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            return null;
+          }));
+    }
+    CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+    return outcomes;
+  }
+
+  private HttpRequest request(int c, String id, ThreadLocalRandom random) {
+    String base = "http://localhost:" + port + "/api/shipments";
+    switch (c) {
+      case 0:
+        return HttpRequest.newBuilder(URI.create(base + "/" + id)).timeout(TIMEOUT).GET().build();
+      case 1:
+        return HttpRequest.newBuilder(URI.create(base + "?shipperName=" + SHIPPER.replace(' ', '+')
+            + "&status=" + STATUSES[random.nextInt(STATUSES.length)] + "&size=50&sortBy=rate")).timeout(TIMEOUT).GET().build();
+      default:
+        return HttpRequest.newBuilder(URI.create(base + "/" + id)).timeout(TIMEOUT)
+            .header("Content-Type", "application/json")
+            .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"status\":\"" + STATUSES[random.nextInt(STATUSES.length)] + "\"}"))
+            .build();
+    }
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) return Double.NaN;
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+  }
+
+  private static final class Outcome {
+    long sent;
+    long shed;
+    long timeouts;
+    final List<Long> latencies = new ArrayList<>();
+  }
+}
@@ -0,0 +1,196 @@
+package com.tms.shipment.bench;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cold start of the packaged service, one fresh JVM per run: time from process start to the first
+ * {@code 204} from {@code /api/ping}, the first {@code 200} from {@code /api/shipments}, and
+ * {@code /actuator/health/readiness} UP. Four variants, interleaved over {@code bench.runs} runs
+ * (default 5), medians printed: the fat jar as the Dockerfile used to run it; the unpacked jar
+ * on a plain classpath; that plus the CDS archive; and that plus the {@code fast-start} profile.
+ * The layout and the archive are made the way the Dockerfile makes them, in {@code target/startup-bench}.
+ * {@code bench.seed-rows} seeds that many synthetic shipments instead of the ten samples. Needs the
+ * jar; not part of the normal test run (tagged {@code bench}, see the {@code bench-e2e} profile):
+ *
+ * <pre>mvn package -DskipTests && mvn -Pbench-e2e test -Dtest=StartupBenchmark -Dbench.runs=5 -Dbench.seed-rows=0</pre>
+ */
+@Tag("bench")
+class StartupBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+  private static final String MAIN = "com.tms.shipment.ShipmentServiceApplication";
+  private static final Duration TIMEOUT = Duration.ofSeconds(120);
+  private static final String[] VARIANTS = { "fat jar", "classpath", "classpath + CDS", "classpath + CDS + fast-start" };
+
+  private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+  private final String java = ProcessHandle.current().info().command().orElse("java");
+
+  @Test
+  void timeToFirstResponse() throws Exception {
+    int runs = Integer.getInteger("bench.runs", 5);
+    int seedRows = Integer.getInteger("bench.seed-rows", 0);
+    Path jar;
+    try (Stream<Path> files = Files.list(Paths.get("target"))) {
+      jar = files.filter(p -> p.getFileName().toString().matches("shipment-service-.*\\.jar")).findFirst()
+          .orElseThrow(() -> new IllegalStateException("no jar in target/: run mvn package -DskipTests first"));
+    }
+    Path dir = Paths.get("target", "startup-bench").toAbsolutePath();
+    String classpath = unpack(jar, dir);
+    List<String> seed = seedRows > 0
+        ? List.of("--shipments.seed.mode=synthetic", "--shipments.seed.rows=" + seedRows, "--shipments.seed.until=2026-01-01")
+        : List.of();
+
+    // the Dockerfile's two steps: a training run that lists the classes it loads, then the dump
+    long start = System.nanoTime();
+    List<String> training = new ArrayList<>(List.of(java, "-XX:DumpLoadedClassList=" + dir.resolve("classes.lst"), "-cp", classpath, MAIN,
+        "--shipments.startup.exit-after-warmup=true", "--server.port=0", "--management.server.port=0"));
+    training.addAll(seed);
+    assertThat(run(training, dir)).as("training run").isZero();
+    assertThat(run(List.of(java, "-Xshare:dump", "-XX:SharedClassListFile=" + dir.resolve("classes.lst"),
+        "-XX:SharedArchiveFile=" + dir.resolve("app.jsa"), "-cp", classpath), dir)).as("CDS dump").isZero();
+    log.info(String.format("StartupBenchmark (%d runs, %s; CDS archive %.1f MB, made in %.1f s)", runs,
+        seedRows > 0 ? seedRows + " synthetic shipments" : "sample seed", Files.size(dir.resolve("app.jsa")) / 1e6,
+        (System.nanoTime() - start) / 1e9));
+
+    long[][][] millis = new long[VARIANTS.length][3][runs];
+    for (int r = 0; r < runs; r++) {
+      for (int v = 0; v < VARIANTS.length; v++) {
+        List<String> command = new ArrayList<>(List.of(java));
+        if (v >= 2) command.add("-XX:SharedArchiveFile=" + dir.resolve("app.jsa"));
+        if (v == 0) command.addAll(List.of("-jar", jar.toAbsolutePath().toString()));
+        else command.addAll(List.of("-cp", classpath, MAIN));
+        if (v == 3) command.add("--spring.profiles.active=fast-start");
+        command.addAll(seed);
+        long[] t = timeStart(command, dir);
+        for (int m = 0; m < 3; m++) millis[v][m][r] = t[m];
+      }
+    }
+    log.info(String.format("  %-30s %14s %18s %12s", "median ms from exec", "/api/ping", "/api/shipments", "readiness"));
+    for (int v = 0; v < VARIANTS.length; v++) {
+      log.info(String.format("  %-30s %14d %18d %12d", VARIANTS[v], median(millis[v][0]), median(millis[v][1]), median(millis[v][2])));
+    }
+  }
+
+  /** Starts the service, polls until each of the three answers, stops it; millis from start for each. */
+  private long[] timeStart(List<String> command, Path dir) throws Exception {
+    int port = freePort();
+    int management = freePort();
+    List<String> withPorts = new ArrayList<>(command);
+    withPorts.addAll(List.of("--server.port=" + port, "--management.server.port=" + management));
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(withPorts).directory(dir.toFile())
+        .redirectErrorStream(true).redirectOutput(dir.resolve("last-run.log").toFile()).start();
+    try {
+      String api = "http://localhost:" + port + "/api";
+      long ping = awaitStatus(process, api + "/ping", 204, start);
+      long list = awaitStatus(process, api + "/shipments?size=10", 200, start);
+      long ready = awaitStatus(process, "http://localhost:" + management + "/actuator/health/readiness", 200, start);
+      return new long[] { ping, list, ready };
+    } finally {
+      process.destroy();
+      if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+    }
+  }
+
+  private long awaitStatus(Process process, String url, int status, long start) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+    while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+      if (!process.isAlive()) throw new IllegalStateException("exited with " + process.exitValue() + ", see target/startup-bench/last-run.log");
+      try {
+        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == status) {
+          return (System.nanoTime() - start) / 1_000_000;
+        }
+      } catch (IOException e) {
+        // not listening yet
+      }
+      Thread.sleep(5);
+    }
+    throw new IllegalStateException("no " + status + " from " + url + " within " + TIMEOUT);
+  }
+
+  /**
+   * The Dockerfile's layout: BOOT-INF/lib/*.jar into lib/, BOOT-INF/classes re-jarred as app.jar (CDS
+   * takes classes from jars only). Returns the classpath, app.jar first, then lib/ in name order.
+   */
+  private static String unpack(Path fatJar, Path dir) throws IOException {
+    if (Files.exists(dir)) {
+      try (Stream<Path> old = Files.walk(dir)) {
+        for (Path p : old.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(p);
+      }
+    }
+    Path lib = Files.createDirectories(dir.resolve("lib"));
+    try (JarFile jar = new JarFile(fatJar.toFile());
+        JarOutputStream app = new JarOutputStream(Files.newOutputStream(dir.resolve("app.jar")))) {
+      for (JarEntry e : (Iterable<JarEntry>) jar.stream()::iterator) {
+        String name = e.getName();
+        if (name.startsWith("BOOT-INF/lib/") && !e.isDirectory()) {
+          try (InputStream in = jar.getInputStream(e)) {
+            Files.copy(in, lib.resolve(name.substring("BOOT-INF/lib/".length())), StandardCopyOption.REPLACE_EXISTING);
+          }
+        } else if (name.startsWith("BOOT-INF/classes/") && name.length() > "BOOT-INF/classes/".length()) {
+          app.putNextEntry(new JarEntry(name.substring("BOOT-INF/classes/".length())));
+          try (InputStream in = jar.getInputStream(e)) {
+            in.transferTo(app);
+          }
+          app.closeEntry();
+        }
+      }
+    }
+    try (Stream<Path> jars = Files.list(lib)) {
+      return Stream.concat(Stream.of("app.jar"), jars.map(p -> "lib/" + p.getFileName()).sorted())
+          .collect(Collectors.joining(File.pathSeparator));
+    }
+  }
+
+  private static int run(List<String> command, Path dir) throws Exception {
+    Process p = new ProcessBuilder(command).directory(dir.toFile())
+        .redirectErrorStream(true).redirectOutput(dir.resolve("cds.log").toFile()).start();
+    if (!p.waitFor(5, TimeUnit.MINUTES)) {
+      p.destroyForcibly();
+      throw new IllegalStateException("timed out: " + command.get(1));
+    }
+    return p.exitValue();
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket s = new ServerSocket(0)) {
+      return s.getLocalPort();
+    }
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
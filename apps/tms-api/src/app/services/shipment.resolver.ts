@@ -1,7 +1,8 @@
-import { Query, Resolver, Mutation, Arg, Int, Authorized } from "type-graphql";
+import { Query, Resolver, Mutation, Arg, Ctx, Int, Authorized } from "type-graphql";
 import { Shipment, ShipmentInput, ShipmentPage } from "@graphschema/shipment.schema";
 import ShipmentService from "./shipment.service";
 import type { IShipment } from "@models/shipment.schema";
+import type { GraphQLContext } from "@config/auth";
 
 const shipmentService = new ShipmentService();
 
@@ -47,12 +48,24 @@ export class ShipmentResolver {
 
   @Query(() => Shipment, { nullable: true })
   @Authorized("admin", "employee")
-  async shipment(@Arg("id", () => String) id: string): Promise<Shipment | null> {
-    const result = await shipmentService.retrieve(id);
+  async shipment(@Arg("id", () => String) id: string, @Ctx() ctx: GraphQLContext): Promise<Shipment | null> {
+    const result = await shipmentService.retrieve(id, ctx.shipmentLoader);
     if (!result.success || !result.data) return null;
     return toShipment(result.data);
   }
 
+  /** Several shipments in the order of ids (null for unknown ones), fetched in one batch. */
+  @Query(() => [Shipment], { nullable: "items" })
+  @Authorized("admin", "employee")
+  async shipmentsByIds(
+    @Arg("ids", () => [String]) ids: string[],
+    @Ctx() ctx: GraphQLContext
+  ): Promise<(Shipment | null)[]> {
+    const result = await shipmentService.retrieveMany(ids, ctx.shipmentLoader);
+    if (!result.success || !result.data) return [];
+    return result.data.map((s) => (s ? toShipment(s) : null));
+  }
+
   @Query(() => ShipmentPage)
   @Authorized("admin", "employee")
   async shipmentsPaginated(
@@ -6,10 +6,12 @@ import {
   isSpringBootEnabled,
   fetchShipmentsFromSpring,
   fetchShipmentById,
+  fetchShipmentsByIds,
   createShipmentViaSpring,
   updateShipmentViaSpring,
   deleteShipmentViaSpring,
 } from "@libs/shipmentClient";
+import type { ShipmentLoader } from "@libs/shipmentClient";
 
 const store: IShipment[] = [];
 
@@ -93,11 +95,12 @@ export default class ShipmentService {
     }
   }
 
-  async retrieve(id: string): Promise<Response<IShipment | undefined>> {
+  /** With a loader (GraphQL), the lookup joins the request's batch instead of issuing its own GET. */
+  async retrieve(id: string, loader?: ShipmentLoader): Promise<Response<IShipment | undefined>> {
     try {
       const client = getShipmentClient();
       if (client && isSpringBootEnabled()) {
-        const record = await fetchShipmentById(client, id);
+        const record = loader ? await loader.load(id) : await fetchShipmentById(client, id);
         if (!record) return new Response(true, 200, "Record not available", undefined);
         return new Response(true, 200, "Read operation successful", record);
       }
@@ -110,6 +113,23 @@ export default class ShipmentService {
     }
   }
 
+  /** Records for ids in the given order, null where there is none; one batch-get instead of one GET per id. */
+  async retrieveMany(ids: string[], loader?: ShipmentLoader): Promise<Response<(IShipment | null)[]>> {
+    try {
+      const client = getShipmentClient();
+      if (client && isSpringBootEnabled()) {
+        if (loader) return new Response(true, 200, "Read operation successful", await loader.loadMany(ids));
+        const found = await fetchShipmentsByIds(client, ids);
+        return new Response(true, 200, "Read operation successful", ids.map((id) => found.get(id) ?? null));
+      }
+      const records = ids.map((id) => store.find((s) => s.id === id) ?? null);
+      return new Response(true, 200, "Read operation successful", records);
+    } catch (error: unknown) {
+      const message = error instanceof Error ? error.message : "Internal Server Error";
+      return new Response(false, 500, "Internal Server Error", undefined, undefined, message) as unknown as Response<(IShipment | null)[]>;
+    }
+  }
+
   async create(data: IShipmentCreate): Promise<Response<IShipment>> {
     try {
       const client = getShipmentClient();
@@ -1,8 +1,11 @@
 import type { AuthChecker } from "type-graphql";
+import type { ShipmentLoader } from "@libs/shipmentClient";
 
 export type GraphQLContext = {
   userId?: string;
   role?: "admin" | "employee";
+  /** Per-request batching of shipment lookups; set when the Spring Boot shipment service is configured. */
+  shipmentLoader?: ShipmentLoader;
 };
 
 export const authChecker: AuthChecker<GraphQLContext, "admin" | "employee"> = (
@@ -9,6 +9,7 @@ import { CategoryResolver } from "@services/category.resolver";
 import { StorageResolver } from "@services/storage.resolver";
 import { authChecker } from "@config/auth";
 import type { GraphQLContext } from "@config/auth";
+import { createShipmentLoader, getShipmentClient } from "@libs/shipmentClient";
 
 const resolvers = [
   UsersResolver,
@@ -42,12 +43,15 @@ function normalizeRole(header: unknown): "admin" | "employee" {
 }
 
 /**
- * Builds GraphQL context from the Express request (role and userId from headers).
+ * Builds GraphQL context from the Express request (role and userId from headers), with a fresh
+ * shipment loader so lookups are batched and memoized for this request only.
  */
 export function getGraphQLContext(req: express.Request): GraphQLContext {
+  const shipmentClient = getShipmentClient();
   return {
     userId: req.headers["x-user-id"] as string | undefined,
     role: normalizeRole(req.headers["x-role"]),
+    shipmentLoader: shipmentClient ? createShipmentLoader(shipmentClient) : undefined,
   };
 }
 
@@ -0,0 +1,202 @@
+/**
+ * Minimal CBOR (RFC 8949) decoder for shipment-service responses sent as application/cbor.
+ * Covers what Jackson's CBOR generator writes: definite and indefinite-length strings, arrays and
+ * maps, half/single/double floats, and BigDecimal / BigInteger tags (4, 2, 3), which are returned as
+ * decimal strings so rates keep their exact value. Other tags decode to their content. Integers
+ * beyond 2^53 lose precision, as they do with JSON.parse.
+ *
+ * A negative bignum (tag 3) is read as Jackson 2.13 writes and reads it, the negated magnitude, rather
+ * than RFC 8949's -1 - n. It only occurs beyond 64 bits, well past what a rate column holds.
+ */
+const textDecoder = new TextDecoder("utf-8");
+
+const BREAK = Symbol("break");
+
+class Reader {
+  private offset = 0;
+  private readonly view: DataView;
+
+  constructor(private readonly bytes: Uint8Array) {
+    this.view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+  }
+
+  done(): boolean {
+    return this.offset >= this.bytes.length;
+  }
+
+  item(): unknown {
+    const initial = this.byte();
+    const major = initial >> 5;
+    const info = initial & 0x1f;
+    if (major === 7) return this.simple(info);
+    if (info === 31) return this.indefinite(major);
+    const arg = this.argument(info);
+    switch (major) {
+      case 0:
+        return arg;
+      case 1:
+        return -1 - arg;
+      case 2:
+        return this.slice(arg);
+      case 3:
+        return textDecoder.decode(this.slice(arg));
+      case 4: {
+        const out = new Array(arg);
+        for (let i = 0; i < arg; i++) out[i] = this.item();
+        return out;
+      }
+      case 5: {
+        const out: Record<string, unknown> = {};
+        for (let i = arg; i > 0; i--) out[String(this.item())] = this.item();
+        return out;
+      }
+      default:
+        return tagged(arg, this.item());
+    }
+  }
+
+  private indefinite(major: number): unknown {
+    switch (major) {
+      case 2:
+      case 3: {
+        // definite-length chunks of the same major type, up to the break byte
+        const chunks: Uint8Array[] = [];
+        for (let initial = this.byte(); initial !== 0xff; initial = this.byte()) {
+          chunks.push(this.slice(this.argument(initial & 0x1f)));
+        }
+        const joined = Buffer.concat(chunks);
+        return major === 3 ? textDecoder.decode(joined) : joined;
+      }
+      case 4: {
+        const out: unknown[] = [];
+        for (let v = this.item(); v !== BREAK; v = this.item()) out.push(v);
+        return out;
+      }
+      case 5: {
+        const out: Record<string, unknown> = {};
+        for (let k = this.item(); k !== BREAK; k = this.item()) out[String(k)] = this.item();
+        return out;
+      }
+      default:
+        throw new Error(`CBOR: indefinite length for major type ${major}`);
+    }
+  }
+
+  private simple(info: number): unknown {
+    switch (info) {
+      case 20:
+        return false;
+      case 21:
+        return true;
+      case 22:
+        return null;
+      case 24:
+        // unassigned simple value in the next byte
+        this.byte();
+        return undefined;
+      case 25:
+        return half(this.uint(2));
+      case 26:
+        return this.view.getFloat32(this.advance(4));
+      case 27:
+        return this.view.getFloat64(this.advance(8));
+      case 31:
+        return BREAK;
+      default:
+        return undefined;
+    }
+  }
+
+  private argument(info: number): number {
+    if (info < 24) return info;
+    if (info === 24) return this.byte();
+    if (info === 25) return this.uint(2);
+    if (info === 26) return this.uint(4);
+    if (info === 27) return this.uint(4) * 0x100000000 + this.uint(4);
+    throw new Error(`CBOR: reserved additional info ${info}`);
+  }
+
+  private uint(n: 2 | 4): number {
+    const at = this.advance(n);
+    return n === 2 ? this.view.getUint16(at) : this.view.getUint32(at);
+  }
+
+  private byte(): number {
+    return this.bytes[this.advance(1)];
+  }
+
+  private slice(n: number): Uint8Array {
+    const at = this.advance(n);
+    return this.bytes.subarray(at, at + n);
+  }
+
+  /** Moves past n bytes; returns where they start. */
+  private advance(n: number): number {
+    if (this.offset + n > this.bytes.length) throw new Error("CBOR: unexpected end of input");
+    const at = this.offset;
+    this.offset += n;
+    return at;
+  }
+}
+
+function tagged(tag: number, content: unknown): unknown {
+  switch (tag) {
+    case 2:
+      return unsignedDigits(content as Uint8Array);
+    case 3:
+      return `-${unsignedDigits(content as Uint8Array)}`;
+    case 4: {
+      const [exponent, mantissa] = content as [number, number | string];
+      return decimal(String(mantissa), exponent);
+    }
+    default:
+      return content;
+  }
+}
+
+function half(bits: number): number {
+  const exponent = (bits >> 10) & 0x1f;
+  const fraction = bits & 0x3ff;
+  const sign = bits & 0x8000 ? -1 : 1;
+  if (exponent === 0) return sign * fraction * 2 ** -24;
+  if (exponent === 31) return fraction ? NaN : sign * Infinity;
+  return sign * (1 + fraction / 1024) * 2 ** (exponent - 15);
+}
+
+/** Big-endian unsigned bytes as a decimal string. */
+function unsignedDigits(bytes: Uint8Array): string {
+  const digits = [0]; // least significant first
+  for (const b of bytes) {
+    let carry = b;
+    for (let i = 0; i < digits.length; i++) {
+      const v = digits[i] * 256 + carry;
+      digits[i] = v % 10;
+      carry = Math.floor(v / 10);
+    }
+    for (; carry > 0; carry = Math.floor(carry / 10)) digits.push(carry % 10);
+  }
+  return digits.reverse().join("");
+}
+
+/** mantissa * 10^exponent as a plain decimal string, e.g. ("125050", -2) -> "1250.50". */
+function decimal(mantissa: string, exponent: number): string {
+  const negative = mantissa.startsWith("-");
+  let digits = negative ? mantissa.slice(1) : mantissa;
+  if (exponent >= 0) {
+    digits += "0".repeat(exponent);
+  } else {
+    const scale = -exponent;
+    if (digits.length <= scale) digits = "0".repeat(scale - digits.length + 1) + digits;
+    digits = `${digits.slice(0, digits.length - scale)}.${digits.slice(digits.length - scale)}`;
+  }
+  return negative ? `-${digits}` : digits;
+}
+
+/** Decodes one CBOR data item; throws on truncated or trailing input. */
+export function decodeCbor(bytes: Uint8Array): unknown {
+  const reader = new Reader(bytes);
+  const value = reader.item();
+  if (value === BREAK) throw new Error("CBOR: unexpected break");
+  if (!reader.done()) throw new Error("CBOR: trailing bytes");
+  return value;
+}
@@ -1,7 +1,14 @@
-import axios, { AxiosInstance } from "axios";
+import axios, { AxiosInstance, AxiosResponseHeaders } from "axios";
 import type { IShipment, IShipmentCreate, IShipmentUpdate } from "@models/shipment.schema";
+import { decodeCbor } from "./cbor";
 
 const baseURL = process.env.SPRING_BOOT_SHIPMENT_URL ?? "";
+/** Ids per POST /api/shipments/batch-get; keep at or below the service's shipments.batch-get.max-ids. */
+const batchGetMax = Math.max(1, Number(process.env.SPRING_BOOT_BATCH_GET_MAX) || 500);
+/** How long a ShipmentLoader collects ids before sending them; 0 = until the current tick's resolvers have run. */
+const loaderWindowMs = Math.max(0, Number(process.env.SHIPMENT_LOADER_WINDOW_MS) || 0);
+/** Response format asked of the service: "json" (default) or "cbor". Bodies are gzip'd either way, as axios accepts it. */
+const wireFormat = process.env.SPRING_BOOT_SHIPMENT_FORMAT === "cbor" ? "cbor" : "json";
 
 function mapFromDto(d: {
   id: string;
@@ -36,7 +43,34 @@ function mapFromDto(d: {
  */
 export function getShipmentClient(): AxiosInstance | null {
   if (!baseURL || baseURL === "") return null;
-  return axios.create({ baseURL, timeout: 10000 });
+  if (wireFormat === "json") return axios.create({ baseURL, timeout: 10000 });
+  return axios.create({
+    baseURL,
+    timeout: 10000,
+    headers: { Accept: "application/cbor, application/json;q=0.9" },
+    responseType: "arraybuffer",
+    transformResponse: [decodeBody],
+  });
+}
+
+/** Raw response bytes to a value: CBOR by content type, else JSON, else text (error messages are plain text). */
+function decodeBody(data: unknown, headers: AxiosResponseHeaders): unknown {
+  if (!Buffer.isBuffer(data) && !(data instanceof ArrayBuffer)) return data;
+  const bytes = Buffer.isBuffer(data) ? data : Buffer.from(data);
+  if (bytes.length === 0) return undefined;
+  if (String(headers["content-type"] ?? "").startsWith("application/cbor")) {
+    try {
+      return decodeCbor(bytes);
+    } catch {
+      // fall through: a String body the service labelled with the accepted type
+    }
+  }
+  const text = bytes.toString("utf8");
+  try {
+    return JSON.parse(text);
+  } catch {
+    return text;
+  }
 }
 
 export async function fetchShipmentsFromSpring(
@@ -53,6 +87,8 @@ export async function fetchShipmentsFromSpring(
       carrierName: query.carrierName,
       sortBy: sortBy ?? "createdAt",
       sortOrder: order ?? "desc",
+      // rows and totals only, without Spring's pageable / sort objects
+      envelope: "slim",
     },
   });
   const content = res.data.content ?? [];
@@ -86,6 +122,76 @@ export async function fetchShipmentById(client: AxiosInstance, id: string): Prom
   }
 }
 
+/**
+ * Fetches several shipments with one POST /api/shipments/batch-get per {@link batchGetMax} distinct ids.
+ * Ids the service does not know are absent from the returned map.
+ */
+export async function fetchShipmentsByIds(client: AxiosInstance, ids: string[]): Promise<Map<string, IShipment>> {
+  const unique = [...new Set(ids)];
+  const chunks: string[][] = [];
+  for (let i = 0; i < unique.length; i += batchGetMax) chunks.push(unique.slice(i, i + batchGetMax));
+  const responses = await Promise.all(chunks.map((chunk) => client.post("/api/shipments/batch-get", chunk)));
+  const found = new Map<string, IShipment>();
+  for (const res of responses) {
+    for (const d of res.data.shipments ?? []) found.set(d.id, mapFromDto(d));
+  }
+  return found;
+}
+
+export interface ShipmentLoader {
+  load(id: string): Promise<IShipment | null>;
+  loadMany(ids: string[]): Promise<(IShipment | null)[]>;
+}
+
+type Waiter = { resolve: (s: IShipment | null) => void; reject: (err: unknown) => void };
+
+/**
+ * DataLoader-style batching for one GraphQL request. Every load() made while the current tick's
+ * resolvers run (or within SHIPMENT_LOADER_WINDOW_MS) goes out as a single batch-get, and each id is
+ * fetched at most once per loader, so create one loader per request.
+ */
+export function createShipmentLoader(client: AxiosInstance, windowMs = loaderWindowMs): ShipmentLoader {
+  const memo = new Map<string, Promise<IShipment | null>>();
+  let pending: Map<string, Waiter> | null = null;
+
+  const dispatch = async (batch: Map<string, Waiter>): Promise<void> => {
+    try {
+      const found = await fetchShipmentsByIds(client, [...batch.keys()]);
+      batch.forEach((w, id) => w.resolve(found.get(id) ?? null));
+    } catch (err) {
+      // let a later load retry instead of replaying the failure
+      batch.forEach((w, id) => {
+        memo.delete(id);
+        w.reject(err);
+      });
+    }
+  };
+
+  const load = (id: string): Promise<IShipment | null> => {
+    const known = memo.get(id);
+    if (known) return known;
+    const promise = new Promise<IShipment | null>((resolve, reject) => {
+      let batch = pending;
+      if (!batch) {
+        const next = new Map<string, Waiter>();
+        batch = next;
+        pending = next;
+        const flush = (): void => {
+          pending = null;
+          void dispatch(next);
+        };
+        if (windowMs > 0) setTimeout(flush, windowMs);
+        else setImmediate(flush);
+      }
+      batch.set(id, { resolve, reject });
+    });
+    memo.set(id, promise);
+    return promise;
+  };
+
+  return { load, loadMany: (ids) => Promise.all(ids.map(load)) };
+}
+
 export async function createShipmentViaSpring(
   client: AxiosInstance,
   data: IShipmentCreate
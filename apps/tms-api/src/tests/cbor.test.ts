@@ -0,0 +1,87 @@
+import { expect } from 'chai';
+import { decodeCbor } from '../libs/cbor';
+
+const hex = (s: string): Buffer => Buffer.from(s.replace(/\s+/g, ''), 'hex');
+
+// GET /api/shipments/{id} with Accept: application/cbor, as shipment-service's Jackson CBOR converter
+// writes it: indefinite-length maps, a BigDecimal rate (tag 4), Instants as ISO strings, a double, and
+// trackingData with one stored and one logged event
+const SHIPMENT = hex(`
+  bf626964782438623434366238622d356638662d346538382d396436362d6334303661363933643338366b736869707065
+  724e616d656a41636d6520466f6f64736b636172726965724e616d6569426c7565204c696e656e7069636b75704c6f6361
+  74696f6e6b4368696361676f2c20494c7064656c69766572794c6f636174696f6e6a44616c6c61732c2054586e74726163
+  6b696e674e756d626572f6667374617475736770656e64696e676472617465c482211a0001e87a6c747261636b696e6744
+  617461bf666576656e747382bf64636f6465625055686c6f636174696f6e6b4368696361676f2c20494cffbf64636f6465
+  6249546b74656d7065726174757265fb400c000000000000676576656e74496401ff636574616a323032342d30352d3033
+  ff69637265617465644174781b323032362d31302d31385431303a31303a34332e3534373436345a697570646174656441
+  74781b323032362d31302d31385431303a31303a34332e3534373436345a6776657273696f6e01ff`);
+
+// the same converter's ObjectMapper on BigDecimals and BigIntegers past 64 bits (tags 2, 3 and 4); its
+// negative bignums hold the magnitude itself, not RFC 8949's magnitude - 1
+const NUMBERS = hex(`
+  bf686e65676174697665c4822124667363616c6564c48203016477696465c48223c34c03fd35eb6d797a91be38f34e6662
+  6967696e74c249010000000000000000696e6567626967696e74c349010000000000000001ff`);
+
+describe('decodeCbor', () => {
+  it('decodes a shipment as Jackson writes it', () => {
+    expect(decodeCbor(SHIPMENT)).to.deep.equal({
+      id: '8b446b8b-5f8f-4e88-9d66-c406a693d386',
+      shipperName: 'Acme Foods',
+      carrierName: 'Blue Line',
+      pickupLocation: 'Chicago, IL',
+      deliveryLocation: 'Dallas, TX',
+      trackingNumber: null,
+      status: 'pending',
+      rate: '1250.50',
+      trackingData: {
+        events: [
+          { code: 'PU', location: 'Chicago, IL' },
+          { code: 'IT', temperature: 3.5, eventId: 1 },
+        ],
+        eta: '2024-05-03',
+      },
+      createdAt: '2026-10-18T10:10:43.547464Z',
+      updatedAt: '2026-10-18T10:10:43.547464Z',
+      version: 1,
+    });
+  });
+
+  it('keeps BigDecimal and BigInteger values exact as decimal strings', () => {
+    expect(decodeCbor(NUMBERS)).to.deep.equal({
+      negative: '-0.05',
+      scaled: '1000',
+      wide: '-123456789012345678901234.5678',
+      bigint: '18446744073709551616',
+      negbigint: '-18446744073709551617',
+    });
+  });
+
+  // RFC 8949, Appendix A
+  it('decodes integers, half floats and simple values', () => {
+    expect(decodeCbor(hex('1b000000e8d4a51000'))).to.equal(1000000000000);
+    expect(decodeCbor(hex('3903e7'))).to.equal(-1000);
+    expect(decodeCbor(hex('f93c00'))).to.equal(1);
+    expect(decodeCbor(hex('f97bff'))).to.equal(65504);
+    expect(decodeCbor(hex('f90001'))).to.equal(5.960464477539063e-8);
+    expect(decodeCbor(hex('f9c400'))).to.equal(-4);
+    expect(decodeCbor(hex('f97c00'))).to.equal(Infinity);
+    expect(decodeCbor(hex('f97e00'))).to.be.NaN;
+    expect(decodeCbor(hex('fa47c35000'))).to.equal(100000);
+    expect(decodeCbor(hex('f4'))).to.equal(false);
+    expect(decodeCbor(hex('f6'))).to.equal(null);
+  });
+
+  it('decodes indefinite-length strings, arrays and maps', () => {
+    expect(decodeCbor(hex('5f42010243030405ff'))).to.deep.equal(Buffer.from([1, 2, 3, 4, 5]));
+    expect(decodeCbor(hex('7f657374726561646d696e67ff'))).to.equal('streaming');
+    expect(decodeCbor(hex('9f018202039f0405ffff'))).to.deep.equal([1, [2, 3], [4, 5]]);
+    expect(decodeCbor(hex('bf61610161629f0203ffff'))).to.deep.equal({ a: 1, b: [2, 3] });
+    expect(decodeCbor(hex('bf6346756ef563416d7421ff'))).to.deep.equal({ Fun: true, Amt: -2 });
+  });
+
+  it('rejects truncated and trailing input', () => {
+    expect(() => decodeCbor(SHIPMENT.subarray(0, SHIPMENT.length - 1))).to.throw('unexpected end of input');
+    expect(() => decodeCbor(hex('0101'))).to.throw('trailing bytes');
+    expect(() => decodeCbor(hex('ff'))).to.throw('unexpected break');
+  });
+});
@@ -0,0 +1,111 @@
+import { expect } from 'chai';
+import type { AxiosInstance } from 'axios';
+import { createShipmentLoader } from '../libs/shipmentClient';
+
+function dto(id: string): Record<string, unknown> {
+  return {
+    id,
+    shipperName: 'Acme Foods',
+    carrierName: 'Blue Line',
+    pickupLocation: 'Chicago, IL',
+    deliveryLocation: 'Dallas, TX',
+    trackingNumber: null,
+    status: 'pending',
+    rate: '1250.50',
+    trackingData: null,
+    createdAt: '2024-05-01T10:00:00Z',
+    updatedAt: '2024-05-01T10:00:00Z',
+  };
+}
+
+/** A client whose batch-get answers the known ids, or fails while `failures` lasts; records each request's ids. */
+function fakeClient(known: string[], failures = 0) {
+  const calls: string[][] = [];
+  let failing = failures;
+  const client = {
+    post: async (url: string, ids: string[]) => {
+      expect(url).to.equal('/api/shipments/batch-get');
+      calls.push(ids);
+      if (failing > 0) {
+        failing--;
+        throw new Error('service unavailable');
+      }
+      return { data: { shipments: ids.filter((id) => known.includes(id)).map(dto), missing: [] } };
+    },
+  };
+  return { client: client as unknown as AxiosInstance, calls };
+}
+
+const tick = (): Promise<void> => new Promise((resolve) => setImmediate(resolve));
+
+describe('createShipmentLoader', () => {
+  it('sends the loads of one tick as a single batch-get, each id once', async () => {
+    const { client, calls } = fakeClient(['a', 'b']);
+    const loader = createShipmentLoader(client, 0);
+
+    const [a, b, again, missing] = await Promise.all([
+      loader.load('a'),
+      loader.load('b'),
+      loader.load('a'),
+      loader.load('x'),
+    ]);
+
+    expect(calls).to.deep.equal([['a', 'b', 'x']]);
+    expect(a?.id).to.equal('a');
+    expect(a?.createdAt).to.be.instanceOf(Date);
+    expect(b?.id).to.equal('b');
+    expect(again).to.equal(a);
+    expect(missing).to.equal(null);
+  });
+
+  it('memoizes per loader: a later load of a fetched id sends nothing', async () => {
+    const { client, calls } = fakeClient(['a', 'b']);
+    const loader = createShipmentLoader(client, 0);
+
+    const first = loader.load('a');
+    await first;
+    expect(loader.load('a')).to.equal(first);
+    const many = await loader.loadMany(['a', 'b']);
+
+    expect(many.map((s) => s?.id)).to.deep.equal(['a', 'b']);
+    expect(calls).to.deep.equal([['a'], ['b']]);
+    // a new loader (a new request) fetches again
+    await createShipmentLoader(client, 0).load('a');
+    expect(calls).to.have.length(3);
+  });
+
+  it('collects loads across ticks within the window', async () => {
+    const { client, calls } = fakeClient(['a', 'b']);
+    const loader = createShipmentLoader(client, 20);
+
+    const a = loader.load('a');
+    await tick();
+    const b = loader.load('b');
+    await Promise.all([a, b]);
+
+    expect(calls).to.deep.equal([['a', 'b']]);
+  });
+
+  it('splits a batch past the batch-get limit into several requests', async () => {
+    const ids = Array.from({ length: 501 }, (_, i) => `s${i}`);
+    const { client, calls } = fakeClient(ids);
+    const loader = createShipmentLoader(client, 0);
+
+    const shipments = await loader.loadMany(ids);
+
+    expect(calls.map((c) => c.length)).to.deep.equal([500, 1]);
+    expect(shipments.map((s) => s?.id)).to.deep.equal(ids);
+  });
+
+  it('rejects every load of a failed batch and lets a later load retry', async () => {
+    const { client, calls } = fakeClient(['a', 'b'], 1);
+    const loader = createShipmentLoader(client, 0);
+
+    const results = await Promise.allSettled([loader.load('a'), loader.load('b')]);
+    expect(results.map((r) => r.status)).to.deep.equal(['rejected', 'rejected']);
+
+    const a = await loader.load('a');
+    expect(a?.id).to.equal('a');
+    expect(calls).to.deep.equal([['a', 'b'], ['a']]);
+  });
+});